@@ -1,15 +1,28 @@
 package com.linkshortener;
 
+import com.linkshortener.clicklog.ClickLogWriter;
 import com.linkshortener.config.AppConfig;
 import com.linkshortener.core.ShortLink;
 import com.linkshortener.core.User;
+import com.linkshortener.core.analytics.ClickStats;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.core.event.BackPressure;
+import com.linkshortener.core.event.LinkEventBus;
 import com.linkshortener.core.exception.*;
 import com.linkshortener.core.service.*;
+import com.linkshortener.http.ManagementHttpServer;
+import com.linkshortener.http.RedirectResponseCache;
+import com.linkshortener.http.RedirectServer;
+import com.linkshortener.metrics.JmxMetrics;
+import com.linkshortener.metrics.MetricsHttpServer;
+import com.linkshortener.metrics.events.JfrRecording;
 import com.linkshortener.util.ConsoleHelper;
 import com.linkshortener.util.UrlValidator;
 
 import java.awt.Desktop;
+import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -17,16 +30,31 @@ import java.util.UUID;
  * Главный класс приложения - сервис сокращения ссылок.
  */
 public class Main {
+    private static String sessionId;
     private static User currentUser;
     private static UserService userService;
     private static LinkService linkService;
     private static NotificationService notificationService;
     private static SchedulerService schedulerService;
-
+    private static MetricsHttpServer metricsServer;
+    private static JfrRecording jfrRecording;
+    private static RedirectServer redirectServer;
+    private static ManagementHttpServer managementServer;
+    private static ClickLogWriter clickLog;
+    private static LinkEventBus.Subscription clickLogSubscription;
+    private static boolean deferredStarted;
+    private static boolean shuttingDown;
+
+    /**
+     * @param args --train: обучающий прогон для архива AppCDS (прогрев и выход без меню)
+     */
     public static void main(String[] args) {
+        boolean training = Arrays.asList(args).contains("--train");
         try {
-            initializeServices();
-            runApplication();
+            initializeServices(training);
+            if (!training) {
+                runApplication();
+            }
         } catch (Exception e) {
             System.err.println("Критическая ошибка: " + e.getMessage());
             e.printStackTrace();
@@ -35,30 +63,169 @@ public class Main {
         }
     }
 
-    private static void initializeServices() {
+    private static void initializeServices(boolean training) {
+        long startNanos = System.nanoTime();
         System.out.println("Инициализация сервиса сокращения ссылок...");
+        AppConfig config = AppConfig.getInstance();
+        boolean fastStart = training || config.isStartupFast();
 
         userService = UserService.getInstance();
         linkService = LinkService.getInstance();
+        if (config.isRateLimitEnabled()) {
+            linkService.setRateLimiter(RateLimiter.getInstance());
+        }
+        // Черный список грузится до готовности: ни одна ссылка не создается в обход него
+        BlocklistService blocklist = BlocklistService.getInstance();
+        try {
+            blocklist.reloadIfChanged(config.getBlocklistFile());
+        } catch (IOException e) {
+            System.err.println("Не удалось загрузить черный список доменов: " + e.getMessage());
+        }
+        linkService.setBlocklist(blocklist);
+        if (!training) {
+            startClickLog();
+        }
         notificationService = NotificationService.getInstance();
         schedulerService = SchedulerService.getInstance();
 
         // Создаем или загружаем пользователя
-        String sessionId = "USER-" + UUID.randomUUID().toString().substring(0, 6);
+        sessionId = "USER-" + UUID.randomUUID().toString().substring(0, 6);
         currentUser = userService.getOrCreateUser(sessionId);
 
-        // Запускаем фоновые задачи
-        schedulerService.start();
+        if (fastStart) {
+            // Сначала прогреваем путь перехода, остальное поднимаем уже после готовности
+            if (config.getStartupWarmupRedirects() > 0) {
+                long warmupMillis = Warmup.run(config.getStartupWarmupRedirects());
+                System.out.println("Прогрев: " + config.getStartupWarmupRedirects() + " переходов за "
+                        + warmupMillis + " мс");
+            }
+            if (training) {
+                // Обучающий прогон загружает все классы, чтобы они попали в архив
+                startDeferredServices();
+            } else {
+                Thread deferred = new Thread(Main::startDeferredServices, "deferred-init");
+                deferred.setDaemon(true);
+                deferred.start();
+            }
+        } else {
+            startDeferredServices();
+        }
 
+        if (!training) {
+            startRedirectServer();
+        }
+        System.out.println("Сервис готов за " + (System.nanoTime() - startNanos) / 1_000_000 + " мс");
         System.out.println("Добро пожаловать, пользователь " + currentUser.getId());
         System.out.println("Ваш идентификатор сессии: " + sessionId);
     }
 
+    /**
+     * Компоненты, без которых можно обслуживать запросы: метрики, JFR,
+     * фоновые задачи и слежение за конфигурацией.
+     */
+    private static synchronized void startDeferredServices() {
+        if (shuttingDown) return;
+
+        // Публикуем метрики через JMX
+        JmxMetrics.register();
+        startMetricsServer();
+        startManagementServer();
+        jfrRecording = JfrRecording.startIfEnabled(AppConfig.getInstance());
+
+        // Запускаем фоновые задачи
+        schedulerService.start();
+
+        // Настройки из application.properties применяются без перезапуска
+        AppConfig.getInstance().addListener(linkService::onConfigChanged);
+        try {
+            AppConfig.getInstance().startWatching();
+        } catch (IOException e) {
+            System.err.println("Слежение за конфигурацией недоступно: " + e.getMessage());
+        }
+        deferredStarted = true;
+    }
+
+    /**
+     * Журнал кликов подписывается до готовности, чтобы в нем были все переходы.
+     */
+    private static void startClickLog() {
+        AppConfig config = AppConfig.getInstance();
+        if (!config.isClickLogEnabled()) return;
+        try {
+            clickLog = new ClickLogWriter();
+            clickLogSubscription = linkService.getEventBus().subscribe("clicklog",
+                    BackPressure.parse(config.getClickLogBackpressure()), clickLog);
+            System.out.println("Журнал кликов: " + clickLog.getDirectory().toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Журнал кликов недоступен: " + e.getMessage());
+            clickLog = null;
+        }
+    }
+
+    private static void stopClickLog() {
+        if (clickLogSubscription == null) return;
+        try {
+            // Переходы уже не принимаются: дописываем то, что осталось в кольце
+            clickLogSubscription.drain(5_000);
+            clickLogSubscription.close();
+            clickLog.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка при закрытии журнала кликов: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void startRedirectServer() {
+        AppConfig config = AppConfig.getInstance();
+        if (!config.isHttpRedirectEnabled()) return;
+
+        RedirectResponseCache cache = new RedirectResponseCache(HotLinkTracker.getInstance(),
+                config.getHttpRedirectCacheMaxBytes(), config.getHttpRedirectCacheMinClicks(),
+                config.isHttpRedirectCacheDirect());
+        redirectServer = new RedirectServer(config.getHttpRedirectPort(), linkService, cache);
+        try {
+            redirectServer.start();
+        } catch (IOException e) {
+            System.err.println("Не удалось запустить сервер переходов: " + e.getMessage());
+            redirectServer = null;
+        }
+    }
+
+    private static void startManagementServer() {
+        AppConfig config = AppConfig.getInstance();
+        if (!config.isHttpApiEnabled()) return;
+
+        managementServer = new ManagementHttpServer(config.getHttpApiPort(), config.getHttpApiThreads(),
+                linkService, userService);
+        try {
+            managementServer.start();
+        } catch (IOException e) {
+            System.err.println("Не удалось запустить API управления: " + e.getMessage());
+            managementServer = null;
+        }
+    }
+
+    private static void startMetricsServer() {
+        AppConfig config = AppConfig.getInstance();
+        if (!config.isMetricsHttpEnabled()) return;
+
+        metricsServer = new MetricsHttpServer(config.getMetricsHttpPort());
+        try {
+            metricsServer.start();
+        } catch (IOException e) {
+            System.err.println("Не удалось запустить эндпоинт метрик: " + e.getMessage());
+            metricsServer = null;
+        }
+    }
+
     private static void runApplication() {
         boolean running = true;
 
         while (running) {
             try {
+                // Отмечает обращение; пользователя без ссылок, вытесненного за время простоя, создает заново
+                currentUser = userService.getOrCreateUser(sessionId);
                 ConsoleHelper.clearScreen();
                 printMenu();
 
@@ -144,11 +311,7 @@ public class Main {
             System.out.println("Код ссылки: " + link.getShortCode());
             System.out.println("Лимит переходов: " + link.getClickLimit());
             System.out.println("Истекает: " + link.getExpiresAt());
-
-            // Добавляем ссылку пользователю
-            currentUser.addLink(link.getShortCode());
-
-        } catch (InvalidUrlException e) {
+        } catch (InvalidUrlException | RateLimitExceededException e) {
             System.out.println("Ошибка: " + e.getMessage());
         }
     }
@@ -165,7 +328,7 @@ public class Main {
 
         try {
             // Получаем оригинальный URL
-            String originalUrl = linkService.getOriginalUrl(shortCode);
+            String originalUrl = linkService.getOriginalUrl(shortCode, currentUser.getId().toString());
 
             System.out.println("\n✓ Переход по ссылке: " + originalUrl);
 
@@ -187,6 +350,10 @@ public class Main {
             System.out.println("Ошибка: ссылка не найдена");
         } catch (LinkExpiredException e) {
             System.out.println("Ошибка: срок действия ссылки истек");
+        } catch (BlockedUrlException e) {
+            System.out.println("Ошибка: ссылка ведет на заблокированный домен");
+        } catch (RateLimitExceededException e) {
+            System.out.println("Ошибка: слишком много переходов, повторите позже");
         } catch (LimitExceededException e) {
             System.out.println("Ошибка: лимит переходов исчерпан");
         }
@@ -213,6 +380,9 @@ public class Main {
             System.out.println("   URL: " + link.getOriginalUrl());
             System.out.println("   Короткая: " + linkService.getFullShortUrl(link.getShortCode()));
             System.out.println("   Переходы: " + link.getClicksCount() + "/" + link.getClickLimit());
+            ClickStats stats = link.getClickStats(System.currentTimeMillis());
+            System.out.println("   За час / сутки: " + stats.getLastHour() + " / " + stats.getLastDay());
+            System.out.println("   Уникальных посетителей: ~" + link.getUniqueVisitors());
             System.out.println("   Создана: " + link.getCreatedAt());
             System.out.println("   Истекает: " + link.getExpiresAt());
             System.out.println();
@@ -279,7 +449,6 @@ public class Main {
 
         if (deleted) {
             System.out.println("\n✓ Ссылка успешно удалена");
-            currentUser.removeLink(shortCode);
         } else {
             System.out.println("Ошибка: ссылка не найдена или нет прав для удаления");
         }
@@ -295,8 +464,8 @@ public class Main {
         System.out.println("ID пользователя: " + currentUser.getId());
         System.out.println("ID сессии: " + currentUser.getSessionId());
         System.out.println("Дата регистрации: " + currentUser.getCreatedAt());
-        System.out.println("Количество ссылок: " + currentUser.getOwnedLinks().size());
-        System.out.println("Непрочитанных уведомлений: " + currentUser.getNotifications().size());
+        System.out.println("Количество ссылок: " + linkService.getUserLinks(currentUser.getId()).size());
+        System.out.println("Непрочитанных уведомлений: " + currentUser.getNotificationCount());
     }
 
     private static void showHelp() {
@@ -329,11 +498,31 @@ public class Main {
             """);
     }
 
-    private static void shutdownServices() {
+    private static synchronized void shutdownServices() {
         System.out.println("\nЗавершение работы приложения...");
+        shuttingDown = true;
+        if (redirectServer != null) {
+            redirectServer.stop();
+        }
+        stopClickLog();
+        if (!deferredStarted) {
+            System.out.println("До свидания!");
+            return;
+        }
 
         try {
+            AppConfig.getInstance().stopWatching();
             schedulerService.shutdown();
+            if (managementServer != null) {
+                managementServer.stop();
+            }
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+            if (jfrRecording != null) {
+                jfrRecording.stop();
+            }
+            linkService.getEventBus().close();
             System.out.println("Все данные сохранены");
         } catch (Exception e) {
             System.err.println("Ошибка при завершении: " + e.getMessage());
@@ -0,0 +1,74 @@
+package com.linkshortener.clicklog;
+
+import com.linkshortener.core.RedirectOutcome;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Чтение журнала кликов (разбор начислений и злоупотреблений).
+ * Читает и текущий сегмент: его данные заканчиваются на первой нулевой записи.
+ */
+public final class ClickLogReader {
+    private static final RedirectOutcome[] OUTCOMES = RedirectOutcome.values();
+
+    private ClickLogReader() {
+    }
+
+    /**
+     * Передает action записи из всех сегментов каталога с временем в [fromMillis, toMillis).
+     * Сегменты, открытые после toMillis, не читаются.
+     * @return число переданных записей
+     */
+    public static long read(Path directory, long fromMillis, long toMillis, Consumer<ClickRecord> action)
+            throws IOException {
+        long count = 0;
+        for (Path segment : ClickLogWriter.segments(directory)) {
+            count += readSegment(segment, fromMillis, toMillis, action);
+        }
+        return count;
+    }
+
+    private static long readSegment(Path segment, long fromMillis, long toMillis, Consumer<ClickRecord> action)
+            throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < ClickLogWriter.HEADER_SIZE
+                || buffer.getInt(0) != ClickLogWriter.MAGIC
+                || buffer.getShort(6) != ClickLogWriter.RECORD_SIZE) {
+            throw new IOException("Не сегмент журнала кликов: " + segment);
+        }
+        if (buffer.getLong(8) >= toMillis) {
+            return 0;
+        }
+
+        long count = 0;
+        byte[] code = new byte[ClickLogWriter.MAX_CODE_BYTES];
+        for (int position = ClickLogWriter.HEADER_SIZE;
+             position + ClickLogWriter.RECORD_SIZE <= buffer.limit();
+             position += ClickLogWriter.RECORD_SIZE) {
+            int length = buffer.get(position + 33);
+            if (length == 0) break;
+            long timestamp = buffer.getLong(position);
+            if (timestamp < fromMillis || timestamp >= toMillis) continue;
+            buffer.get(position + 16, code, 0, length);
+            int outcome = buffer.get(position + 32);
+            if (outcome < 0 || outcome >= OUTCOMES.length) {
+                throw new IOException("Неизвестный исход " + outcome + " в " + segment);
+            }
+            action.accept(new ClickRecord(new String(code, 0, length, StandardCharsets.US_ASCII), timestamp,
+                    OUTCOMES[outcome], buffer.getLong(position + 8)));
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,270 @@
+package com.linkshortener.clicklog;
+
+import com.linkshortener.config.AppConfig;
+import com.linkshortener.core.event.LinkEvent;
+import com.linkshortener.core.event.LinkEventHandler;
+import com.linkshortener.core.event.LinkEventType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Журнал кликов: только дописываемые сегменты с записями фиксированной длины.
+ * Работает потребителем шины событий, поэтому поток перехода только публикует
+ * событие, а запись в файл идет в потоке потребителя.
+ * Сегмент сразу отображается в память на полный размер, и запись - это несколько
+ * put в MappedByteBuffer без системных вызовов; на диск страницы сбрасывает ОС,
+ * а при смене сегмента и закрытии выполняется force. Сегмент сменяется по размеру
+ * или по времени; старые сегменты удаляются по числу и возрасту.
+ * Если новый сегмент открыть не удалось, файл удаляется, а следующая попытка
+ * откладывается с растущей паузой; записи за это время отбрасываются и учитываются.
+ * Переходы, пересланные репликой, ведущий публикует как CLICKED и пишет сюда же.
+ * Переходы по арендованному бюджету приходят только суммой в отчете об аренде
+ * (CLICKS_ADDED) и в журнал не попадают: для них журнал неполон.
+ * <p>
+ * Формат сегмента (little-endian): заголовок {@value #HEADER_SIZE} байт - магия "CLOG",
+ * версия, размер записи, время открытия сегмента; затем записи по {@value #RECORD_SIZE} байт:
+ * время (8), хеш клиента (8), код (16, ASCII, дополнен нулями), исход (1),
+ * длина кода (1), резерв (6). Запись с нулевой длиной кода - конец данных:
+ * после сбоя хвост заранее выделенного сегмента остается нулевым.
+ */
+public class ClickLogWriter implements LinkEventHandler, Closeable {
+    public static final int RECORD_SIZE = 40;
+    public static final int HEADER_SIZE = 16;
+    public static final int MAX_CODE_BYTES = 16;
+    static final int MAGIC = 0x474F4C43;
+    static final short VERSION = 1;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("clicks-(\\d{8})\\.log");
+    private static final long MIN_ROLL_BACKOFF_NANOS = 1_000_000_000L;
+    private static final long MAX_ROLL_BACKOFF_NANOS = 60_000_000_000L;
+
+    private final Path directory;
+    private final long segmentRecords;
+    private final long rollMillis;
+    private final int retainSegments;
+    private final long retainMillis;
+
+    // Состояние сегмента меняет только поток потребителя (и close после его остановки)
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private Path segment;
+    private long segmentStartMillis;
+    private int lastIndex;
+    // Пауза перед следующей попыткой открыть сегмент после сбоя (0 - сбоя не было)
+    private long rollBackoffNanos;
+    private long rollRetryAtNanos;
+    // Счетчики пишет только поток потребителя; lazySet не ставит барьер на каждую запись
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong segmentsCreated = new AtomicLong();
+    private final AtomicLong recordsDropped = new AtomicLong();
+
+    /**
+     * Создает журнал с параметрами из конфигурации.
+     */
+    public ClickLogWriter() throws IOException {
+        this(Path.of(AppConfig.getInstance().getClickLogDir()),
+                AppConfig.getInstance().getClickLogSegmentMb() * 1024L * 1024L,
+                AppConfig.getInstance().getClickLogRollMinutes() * 60_000L,
+                AppConfig.getInstance().getClickLogRetentionSegments(),
+                AppConfig.getInstance().getClickLogRetentionHours() * 3_600_000L);
+    }
+
+    /**
+     * @param segmentBytes   размер сегмента (округляется вниз до целого числа записей)
+     * @param rollMillis     максимальное время, которое сегмент открыт на запись
+     * @param retainSegments сколько сегментов хранить, включая текущий (0 - без ограничения)
+     * @param retainMillis   сколько хранить закрытый сегмент (0 - без ограничения)
+     */
+    public ClickLogWriter(Path directory, long segmentBytes, long rollMillis,
+                          int retainSegments, long retainMillis) throws IOException {
+        if (segmentBytes < HEADER_SIZE + RECORD_SIZE || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Размер сегмента должен быть от одной записи до 2 ГБ: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentRecords = (segmentBytes - HEADER_SIZE) / RECORD_SIZE;
+        this.rollMillis = rollMillis;
+        this.retainSegments = retainSegments;
+        this.retainMillis = retainMillis;
+
+        Files.createDirectories(directory);
+        // Нумерация продолжается после сегментов прошлых запусков; их не дописываем
+        List<Path> existing = segments(directory);
+        if (!existing.isEmpty()) {
+            lastIndex = segmentIndex(existing.get(existing.size() - 1));
+        }
+        applyRetention(System.currentTimeMillis());
+    }
+
+    /**
+     * Пишет переходы; остальные события жизненного цикла пропускает.
+     */
+    @Override
+    public void onEvent(LinkEvent event, long sequence, boolean endOfBatch) {
+        if (event.getType() != LinkEventType.CLICKED) return;
+        try {
+            append(event.getCode(), event.getTimestampMillis(), event.getOutcome().ordinal(), event.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Дописывает одну запись; вызывается из одного потока.
+     * Пока после сбоя открытия сегмента не вышла пауза, запись отбрасывается.
+     */
+    public void append(String code, long timestampMillis, int outcome, long clientHash) throws IOException {
+        if (buffer == null || !buffer.hasRemaining() || timestampMillis - segmentStartMillis >= rollMillis) {
+            if (!roll(timestampMillis)) {
+                recordsDropped.lazySet(recordsDropped.get() + 1);
+                return;
+            }
+        }
+        MappedByteBuffer out = buffer;
+        int position = out.position();
+        int length = Math.min(code.length(), MAX_CODE_BYTES);
+        out.putLong(position, timestampMillis);
+        out.putLong(position + 8, clientHash);
+        for (int i = 0; i < MAX_CODE_BYTES; i++) {
+            char c = i < length ? code.charAt(i) : 0;
+            out.put(position + 16 + i, c < 0x80 ? (byte) c : (byte) '?');
+        }
+        out.put(position + 32, (byte) outcome);
+        out.put(position + 33, (byte) Math.max(1, length));
+        out.position(position + RECORD_SIZE);
+        recordsWritten.lazySet(recordsWritten.get() + 1);
+    }
+
+    /**
+     * Закрывает текущий сегмент и открывает следующий.
+     * @return false, если после прошлого сбоя еще не вышла пауза
+     * @throws IOException если сегмент не удалось открыть; следующая попытка - после паузы
+     */
+    private boolean roll(long nowMillis) throws IOException {
+        if (rollBackoffNanos > 0 && System.nanoTime() - rollRetryAtNanos < 0) {
+            return false;
+        }
+        finishSegment();
+        applyRetention(nowMillis);
+
+        int index = lastIndex + 1;
+        Path next = directory.resolve(String.format("clicks-%08d.log", index));
+        FileChannel opened = null;
+        try {
+            opened = FileChannel.open(next, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer mapped = opened.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + segmentRecords * RECORD_SIZE);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            mapped.putInt(MAGIC);
+            mapped.putShort(VERSION);
+            mapped.putShort((short) RECORD_SIZE);
+            mapped.putLong(nowMillis);
+            channel = opened;
+            buffer = mapped;
+        } catch (IOException | RuntimeException e) {
+            if (e instanceof FileAlreadyExistsException) {
+                // Номер занят чужим файлом: следующая попытка возьмет следующий
+                lastIndex = index;
+            } else if (opened != null) {
+                closeQuietly(opened);
+                Files.deleteIfExists(next);
+            }
+            rollBackoffNanos = rollBackoffNanos == 0
+                    ? MIN_ROLL_BACKOFF_NANOS
+                    : Math.min(rollBackoffNanos * 2, MAX_ROLL_BACKOFF_NANOS);
+            rollRetryAtNanos = System.nanoTime() + rollBackoffNanos;
+            throw e;
+        }
+        lastIndex = index;
+        segment = next;
+        segmentStartMillis = nowMillis;
+        rollBackoffNanos = 0;
+        segmentsCreated.lazySet(segmentsCreated.get() + 1);
+        return true;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Файл все равно удаляется
+        }
+    }
+
+    /**
+     * Сбрасывает сегмент на диск и обрезает незаполненный хвост.
+     */
+    private void finishSegment() throws IOException {
+        if (buffer == null) return;
+        buffer.force();
+        channel.truncate(buffer.position());
+        channel.close();
+        buffer = null;
+        channel = null;
+    }
+
+    private void applyRetention(long nowMillis) throws IOException {
+        List<Path> closed = segments(directory);
+        // Место под сегмент, который сейчас откроется
+        int excess = retainSegments > 0 ? closed.size() + 1 - retainSegments : 0;
+        for (Path file : closed) {
+            boolean tooOld = retainMillis > 0
+                    && nowMillis - Files.getLastModifiedTime(file).toMillis() > retainMillis;
+            if (excess > 0 || tooOld) {
+                Files.deleteIfExists(file);
+                excess--;
+            }
+        }
+    }
+
+    /**
+     * Сегменты журнала в каталоге в порядке записи.
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        List<Path> result = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return result;
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .forEach(result::add);
+        }
+        return result;
+    }
+
+    private static int segmentIndex(Path file) {
+        Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    /**
+     * Закрывает текущий сегмент. Вызывать после остановки потребителя шины.
+     */
+    @Override
+    public void close() throws IOException {
+        finishSegment();
+    }
+
+    // Геттеры
+    public Path getDirectory() { return directory; }
+    /** Текущий сегмент (null - еще не открыт или журнал закрыт). */
+    public Path getCurrentSegment() { return buffer != null ? segment : null; }
+    public long getRecordsWritten() { return recordsWritten.get(); }
+    public long getSegmentsCreated() { return segmentsCreated.get(); }
+    /** Сколько записей отброшено, пока сегмент не удавалось открыть. */
+    public long getRecordsDropped() { return recordsDropped.get(); }
+}
@@ -0,0 +1,32 @@
+package com.linkshortener.clicklog;
+
+import com.linkshortener.core.RedirectOutcome;
+
+/**
+ * Одна запись журнала кликов, прочитанная из сегмента.
+ */
+public final class ClickRecord {
+    private final String code;
+    private final long timestampMillis;
+    private final RedirectOutcome outcome;
+    private final long clientHash;
+
+    public ClickRecord(String code, long timestampMillis, RedirectOutcome outcome, long clientHash) {
+        this.code = code;
+        this.timestampMillis = timestampMillis;
+        this.outcome = outcome;
+        this.clientHash = clientHash;
+    }
+
+    // Геттеры
+    public String getCode() { return code; }
+    public long getTimestampMillis() { return timestampMillis; }
+    public RedirectOutcome getOutcome() { return outcome; }
+    /** Хеш отпечатка клиента (0 - без отпечатка). */
+    public long getClientHash() { return clientHash; }
+
+    @Override
+    public String toString() {
+        return code + " " + timestampMillis + " " + outcome.getLabel() + " " + Long.toHexString(clientHash);
+    }
+}
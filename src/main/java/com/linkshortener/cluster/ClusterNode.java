@@ -0,0 +1,497 @@
+package com.linkshortener.cluster;
+
+import com.linkshortener.config.AppConfig;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.event.BackPressure;
+import com.linkshortener.core.event.LinkEventBus;
+import com.linkshortener.core.exception.*;
+import com.linkshortener.core.generator.ShortCodeGenerator;
+import com.linkshortener.core.service.LinkChangeListener;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.core.service.NotificationService;
+import com.linkshortener.storage.LinkStorage;
+import com.linkshortener.util.UrlValidator;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Узел кластера. Владеет частью кодов по кольцу консистентного хеширования:
+ * у узла свое хранилище и свой LinkService, генератор выдает ему только коды
+ * из его партиции. Запросы к чужим кодам пересылаются владельцу по TCP
+ * (текстовый протокол, одна строка запроса - одна строка ответа).
+ * Создание маршрутизируется по паре пользователь-URL: владелец этого ключа
+ * держит каталог дедупликации (ключ -> код), а сама ссылка живет у владельца кода.
+ * При входе и выходе узлов новое кольцо рассылается всем участникам,
+ * и каждый переносит ссылки - по владельцу кода, а записи каталога -
+ * по владельцу ключа, которые теперь принадлежат другим.
+ * Изменения состава выполняются по одному.
+ */
+public class ClusterNode implements Closeable {
+    // Столько после смены кольца промах по своему коду уточняется у прежнего владельца
+    private static final long HANDOFF_MILLIS = 30_000;
+
+    private static final String CMD_RESOLVE = "RESOLVE";
+    private static final String CMD_CREATE = "CREATE";
+    private static final String CMD_DELETE = "DELETE";
+    private static final String CMD_GET = "GET";
+    private static final String CMD_TRANSFER = "TRANSFER";
+    private static final String CMD_INDEX = "INDEX";
+    private static final String CMD_UNINDEX = "UNINDEX";
+    private static final String CMD_RING = "RING";
+    private static final String CMD_GET_RING = "GET_RING";
+    private static final String OK = "OK";
+    private static final String ERR = "ERR";
+    private static final String ERR_NOT_FOUND = "not_found";
+    private static final String ERR_EXPIRED = "expired";
+    private static final String ERR_LIMIT = "limit";
+    private static final String ERR_RATE_LIMITED = "rate_limited";
+    private static final String ERR_BLOCKED = "blocked";
+    private static final String ERR_INVALID = "invalid";
+
+    private final String nodeId;
+    private final InetSocketAddress bindAddress;
+    private final int virtualNodes;
+    private final LinkStorage storage;
+    private final LinkService linkService;
+    private final Map<InetSocketAddress, PeerClient> peers = new ConcurrentHashMap<>();
+    // Ключ дедупликации -> код для ключей, которыми узел владеет по кольцу.
+    // Запись удаленной или просроченной ссылки убирает DirectoryCleaner
+    private final Map<String, String> dedupDirectory = new ConcurrentHashMap<>();
+    private final ExecutorService connectionPool;
+
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+    private LinkEventBus.Subscription notifications;
+    private volatile ConsistentHashRing ring;
+    private volatile ConsistentHashRing previousRing;
+    private volatile long handoffUntil;
+    private volatile boolean running;
+
+    public ClusterNode(String nodeId) {
+        this(nodeId, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                AppConfig.getInstance().getClusterVirtualNodes());
+    }
+
+    public ClusterNode(String nodeId, InetSocketAddress bindAddress, int virtualNodes) {
+        this.nodeId = nodeId;
+        this.bindAddress = bindAddress;
+        this.virtualNodes = virtualNodes;
+        this.storage = new LinkStorage(AppConfig.getInstance().getStorageShards());
+        this.linkService = new LinkService(storage, this::ownsCode);
+        this.linkService.addChangeListener(new DirectoryCleaner());
+        this.connectionPool = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-" + nodeId + "-conn");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Открывает порт узла. До входа в кластер узел образует кольцо из себя одного.
+     */
+    public synchronized void start() throws IOException {
+        if (running) return;
+        serverSocket = new ServerSocket();
+        serverSocket.bind(bindAddress);
+        ring = new ConsistentHashRing(Map.of(nodeId, getAddress()), virtualNodes);
+        running = true;
+
+        acceptor = new Thread(this::acceptLoop, "cluster-" + nodeId + "-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        notifications = linkService.getEventBus().subscribe("notifications-" + nodeId,
+                BackPressure.parse(AppConfig.getInstance().getEventsNotificationsBackpressure()),
+                NotificationService.getInstance()::onLinkEvent);
+    }
+
+    /**
+     * Входит в кластер через любой его узел: берет у него текущее кольцо,
+     * добавляет себя и рассылает новое кольцо всем участникам.
+     */
+    public void join(InetSocketAddress seed) throws IOException {
+        String response = peer(seed).call(CMD_GET_RING);
+        ConsistentHashRing current = ConsistentHashRing.decode(payload(response), virtualNodes);
+        publish(current.withNode(nodeId, getAddress()), current);
+    }
+
+    /**
+     * Выходит из кластера: рассылает кольцо без себя, отдает свои ссылки
+     * новым владельцам и останавливается.
+     */
+    public void leave() throws IOException {
+        ConsistentHashRing current = ring;
+        publish(current.withoutNode(nodeId), current);
+        close();
+    }
+
+    private void publish(ConsistentHashRing next, ConsistentHashRing current) throws IOException {
+        Set<InetSocketAddress> recipients = new LinkedHashSet<>(current.getMembers().values());
+        recipients.addAll(next.getMembers().values());
+        String request = CMD_RING + "\t" + next.encode();
+        for (InetSocketAddress address : recipients) {
+            if (address.equals(getAddress())) {
+                applyRing(next);
+            } else {
+                expectOk(peer(address).call(request));
+            }
+        }
+    }
+
+    // --- Операции клиента: выполняются локально или пересылаются владельцу ---
+
+    /**
+     * Создает короткую ссылку на узле, отвечающем за пару пользователь-URL.
+     */
+    public ShortLink createShortLink(String originalUrl, UUID userId, Integer customClickLimit)
+            throws InvalidUrlException, RateLimitExceededException {
+        if (!UrlValidator.isValid(originalUrl)) {
+            throw new InvalidUrlException("Некорректный URL: " + originalUrl);
+        }
+        ConsistentHashRing view = ring;
+        String owner = view.ownerOf(dedupKey(userId, originalUrl));
+        if (owner.equals(nodeId)) {
+            return createLocal(originalUrl, userId, customClickLimit);
+        }
+
+        int limit = customClickLimit == null ? 0 : customClickLimit;
+        String[] fields = call(view, owner, CMD_CREATE + "\t" + userId + "\t" + limit + "\t" + originalUrl);
+        if (fields[0].equals(ERR) && fields[1].equals(ERR_RATE_LIMITED)) {
+            throw new RateLimitExceededException("Слишком много новых ссылок, повторите позже");
+        }
+        if (fields[0].equals(ERR) && fields[1].equals(ERR_BLOCKED)) {
+            throw new BlockedUrlException("Домен в черном списке: " + originalUrl);
+        }
+        if (fields[0].equals(ERR)) {
+            throw new InvalidUrlException(fields.length > 2 ? fields[2] : "Некорректный URL: " + originalUrl);
+        }
+        return LinkCodec.decode(fields, 1);
+    }
+
+    /**
+     * Получает оригинальный URL с узла-владельца кода.
+     */
+    public String getOriginalUrl(String shortCode)
+            throws LinkNotFoundException, LinkExpiredException, LimitExceededException,
+                   RateLimitExceededException, BlockedUrlException {
+        ConsistentHashRing view = ring;
+        String owner = view.ownerOf(shortCode);
+        if (owner.equals(nodeId)) {
+            return resolveLocal(shortCode);
+        }
+        return remoteResolve(view, owner, shortCode);
+    }
+
+    /**
+     * Удаляет ссылку на узле-владельце кода.
+     */
+    public boolean deleteLink(String shortCode, UUID userId) {
+        ConsistentHashRing view = ring;
+        String owner = view.ownerOf(shortCode);
+        if (owner.equals(nodeId)) {
+            return linkService.deleteLink(shortCode, userId);
+        }
+        return Boolean.parseBoolean(call(view, owner, CMD_DELETE + "\t" + shortCode + "\t" + userId)[1]);
+    }
+
+    /**
+     * Создает ссылку по ключу, которым владеет этот узел. Если ключ уже есть
+     * в каталоге, а код после смены кольца ушел к другому узлу, ссылка берется у него.
+     */
+    private ShortLink createLocal(String originalUrl, UUID userId, Integer customClickLimit)
+            throws InvalidUrlException, RateLimitExceededException {
+        String key = dedupKey(userId, originalUrl);
+        String code = dedupDirectory.get(key);
+        if (code != null && !ownsCode(code)) {
+            ConsistentHashRing view = ring;
+            String[] fields = call(view, view.ownerOf(code), CMD_GET + "\t" + code);
+            if (fields[0].equals(OK)) {
+                return LinkCodec.decode(fields, 1);
+            }
+            dedupDirectory.remove(key, code);
+        }
+        // Свой код LinkService дедуплицирует сам по локальному хранилищу
+        ShortLink link = linkService.createShortLink(originalUrl, userId, customClickLimit);
+        dedupDirectory.put(key, link.getShortCode());
+        return link;
+    }
+
+    private String resolveLocal(String shortCode)
+            throws LinkNotFoundException, LinkExpiredException, LimitExceededException,
+                   RateLimitExceededException, BlockedUrlException {
+        try {
+            return linkService.getOriginalUrl(shortCode);
+        } catch (LinkNotFoundException e) {
+            // Диапазон мог только что перейти к нам, а перенос еще идет
+            ConsistentHashRing previous = previousRing;
+            if (previous != null && System.currentTimeMillis() < handoffUntil && !previous.isEmpty()) {
+                String previousOwner = previous.ownerOf(shortCode);
+                if (!previousOwner.equals(nodeId) && ownsCode(shortCode)) {
+                    try {
+                        return remoteResolve(previous, previousOwner, shortCode);
+                    } catch (UncheckedIOException unreachable) {
+                        throw e;
+                    }
+                }
+            }
+            throw e;
+        }
+    }
+
+    private String remoteResolve(ConsistentHashRing view, String owner, String shortCode)
+            throws LinkNotFoundException, LinkExpiredException, LimitExceededException,
+                   RateLimitExceededException, BlockedUrlException {
+        String[] fields = call(view, owner, CMD_RESOLVE + "\t" + shortCode);
+        if (fields[0].equals(OK)) {
+            return fields[1];
+        }
+        switch (fields[1]) {
+            case ERR_EXPIRED -> throw new LinkExpiredException("Срок действия ссылки истек");
+            case ERR_LIMIT -> throw new LimitExceededException("Лимит переходов исчерпан");
+            case ERR_RATE_LIMITED -> throw new RateLimitExceededException("Слишком много переходов, повторите позже");
+            case ERR_BLOCKED -> throw new BlockedUrlException("Ссылка ведет на заблокированный домен");
+            default -> throw new LinkNotFoundException("Ссылка не найдена: " + shortCode);
+        }
+    }
+
+    // --- Серверная сторона ---
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                connectionPool.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Узел " + nodeId + ": ошибка приема соединения: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(handle(line.split("\t", -1)));
+                writer.write('\n');
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // Соединение закрыто другой стороной или узел останавливается
+        }
+    }
+
+    private String handle(String[] fields) {
+        try {
+            return switch (fields[0]) {
+                case CMD_RESOLVE -> OK + "\t" + resolveLocal(fields[1]);
+                case CMD_CREATE -> {
+                    int limit = Integer.parseInt(fields[2]);
+                    ShortLink link = createLocal(fields[3], UUID.fromString(fields[1]), limit > 0 ? limit : null);
+                    yield OK + "\t" + LinkCodec.encode(link);
+                }
+                case CMD_DELETE -> OK + "\t" + linkService.deleteLink(fields[1], UUID.fromString(fields[2]));
+                case CMD_GET -> {
+                    Optional<ShortLink> link = storage.findByCode(fields[1]);
+                    yield link.isPresent() ? OK + "\t" + LinkCodec.encode(link.get()) : ERR + "\t" + ERR_NOT_FOUND;
+                }
+                case CMD_INDEX -> {
+                    dedupDirectory.put(fields[2], fields[1]);
+                    yield OK;
+                }
+                case CMD_UNINDEX -> {
+                    dedupDirectory.remove(fields[2], fields[1]);
+                    yield OK;
+                }
+                case CMD_TRANSFER -> {
+                    acceptTransfer(LinkCodec.decode(fields, 1));
+                    yield OK;
+                }
+                case CMD_RING -> {
+                    applyRing(ConsistentHashRing.decode(fields[1], virtualNodes));
+                    yield OK;
+                }
+                case CMD_GET_RING -> OK + "\t" + ring.encode();
+                default -> ERR + "\tunknown\t" + fields[0];
+            };
+        } catch (LinkNotFoundException e) {
+            return ERR + "\t" + ERR_NOT_FOUND;
+        } catch (LinkExpiredException e) {
+            return ERR + "\t" + ERR_EXPIRED;
+        } catch (RateLimitExceededException e) {
+            return ERR + "\t" + ERR_RATE_LIMITED;
+        } catch (LimitExceededException e) {
+            return ERR + "\t" + ERR_LIMIT;
+        } catch (BlockedUrlException e) {
+            return ERR + "\t" + ERR_BLOCKED;
+        } catch (InvalidUrlException e) {
+            return ERR + "\t" + ERR_INVALID + "\t" + e.getMessage();
+        } catch (RuntimeException | IOException e) {
+            return ERR + "\tinternal\t" + String.valueOf(e.getMessage()).replace('\t', ' ').replace('\n', ' ');
+        }
+    }
+
+    private void acceptTransfer(ShortLink link) {
+        ShortCodeGenerator.reserveCode(link.getShortCode());
+        storage.save(link);
+    }
+
+    /**
+     * Принимает новое кольцо и отдает новым владельцам ссылки и записи каталога,
+     * которые больше не наши. Выполняется синхронно: рассылающий узел ждет окончания переноса.
+     */
+    private synchronized void applyRing(ConsistentHashRing next) throws IOException {
+        previousRing = ring;
+        handoffUntil = System.currentTimeMillis() + HANDOFF_MILLIS;
+        ring = next;
+        if (next.isEmpty()) return;
+
+        for (ShortLink link : storage.snapshot()) {
+            String owner = next.ownerOf(link.getShortCode());
+            if (!owner.equals(nodeId)) {
+                // Ссылка убирается и помечается удаленной до кодирования: переход,
+                // засчитанный после снимка состояния, иначе потерялся бы при переносе
+                if (!storage.remove(link.getShortCode(), link.getOwnerId())) {
+                    continue;
+                }
+                String encoded = LinkCodec.encode(link);
+                // Код освобождаем до передачи: новый владелец резервирует его у себя
+                ShortCodeGenerator.releaseCode(link.getShortCode());
+                try {
+                    expectOk(peer(next.addressOf(owner)).call(CMD_TRANSFER + "\t" + encoded));
+                } catch (IOException | RuntimeException e) {
+                    ShortCodeGenerator.reserveCode(link.getShortCode());
+                    // Прежний объект уже помечен удаленным - возвращаем его копию
+                    storage.save(LinkCodec.decode(encoded.split("\t", -1), 0));
+                    throw e;
+                }
+            }
+        }
+        for (Map.Entry<String, String> entry : dedupDirectory.entrySet()) {
+            String owner = next.ownerOf(entry.getKey());
+            if (!owner.equals(nodeId)) {
+                expectOk(peer(next.addressOf(owner)).call(
+                        CMD_INDEX + "\t" + entry.getValue() + "\t" + entry.getKey()));
+                dedupDirectory.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Убирает из каталога запись удаленной или просроченной ссылки: сразу,
+     * если ключом владеет этот узел, иначе - запросом к владельцу ключа
+     * в пуле соединений, чтобы не держать сетевым вызовом удаление и очистку.
+     */
+    private final class DirectoryCleaner implements LinkChangeListener {
+        @Override
+        public void onCreated(ShortLink link) {
+        }
+
+        @Override
+        public void onStateChanged(ShortLink link) {
+        }
+
+        @Override
+        public void onRemoved(ShortLink link) {
+            String key = dedupKey(link.getOwnerId(), link.getOriginalUrl());
+            String code = link.getShortCode();
+            ConsistentHashRing view = ring;
+            if (view == null || view.isEmpty() || view.ownerOf(key).equals(nodeId)) {
+                dedupDirectory.remove(key, code);
+                return;
+            }
+            String owner = view.ownerOf(key);
+            try {
+                connectionPool.execute(() -> {
+                    try {
+                        call(view, owner, CMD_UNINDEX + "\t" + code + "\t" + key);
+                    } catch (RuntimeException e) {
+                        // Запись уберет createLocal при следующем создании с тем же ключом
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Узел останавливается
+            }
+        }
+    }
+
+    // --- Вспомогательное ---
+
+    private String[] call(ConsistentHashRing view, String owner, String request) {
+        InetSocketAddress address = view.addressOf(owner);
+        try {
+            String[] fields = peer(address).call(request).split("\t", -1);
+            if (fields[0].equals(ERR) && fields.length > 1 && fields[1].equals("internal")) {
+                throw new IllegalStateException("Ошибка на узле " + owner + ": "
+                        + (fields.length > 2 ? fields[2] : ""));
+            }
+            return fields;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Узел " + owner + " недоступен", e);
+        }
+    }
+
+    private PeerClient peer(InetSocketAddress address) {
+        return peers.computeIfAbsent(address, PeerClient::new);
+    }
+
+    private static void expectOk(String response) throws IOException {
+        if (!response.startsWith(OK)) {
+            throw new IOException("Узел ответил ошибкой: " + response);
+        }
+    }
+
+    private static String payload(String response) throws IOException {
+        expectOk(response);
+        int tab = response.indexOf('\t');
+        return tab < 0 ? "" : response.substring(tab + 1);
+    }
+
+    private static String dedupKey(UUID userId, String originalUrl) {
+        return userId + ":" + originalUrl;
+    }
+
+    private boolean ownsCode(String code) {
+        return ring.ownerOf(code).equals(nodeId);
+    }
+
+    /**
+     * Останавливает узел. Ссылки не переносятся - для этого есть {@link #leave()}.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) return;
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // Порт уже закрыт
+        }
+        connectionPool.shutdownNow();
+        peers.values().forEach(PeerClient::close);
+        notifications.close();
+    }
+
+    // Геттеры
+    public String getNodeId() { return nodeId; }
+    public ConsistentHashRing getRing() { return ring; }
+    public int getLocalLinkCount() { return storage.size(); }
+    public List<ShortLink> getLocalLinks() { return storage.snapshot(); }
+    public int getDirectorySize() { return dedupDirectory.size(); }
+
+    public InetSocketAddress getAddress() {
+        return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+}
@@ -0,0 +1,142 @@
+package com.linkshortener.cluster;
+
+import com.linkshortener.util.Hashing;
+
+import java.net.InetSocketAddress;
+import java.util.*;
+
+/**
+ * Кольцо консистентного хеширования с виртуальными узлами.
+ * Неизменяемо: при входе или выходе узла строится новое кольцо, и от узла
+ * к узлу переезжает лишь доля кодов около 1/N. Точки кольца хранятся
+ * отсортированным массивом long, поиск владельца - двоичный поиск без выделения памяти.
+ */
+public final class ConsistentHashRing {
+    private final Map<String, InetSocketAddress> members;
+    private final int virtualNodes;
+    private final long[] points;
+    private final String[] owners;
+
+    public ConsistentHashRing(Map<String, InetSocketAddress> members, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Число виртуальных узлов должно быть положительным");
+        }
+        this.members = Collections.unmodifiableMap(new TreeMap<>(members));
+        this.virtualNodes = virtualNodes;
+
+        int size = members.size() * virtualNodes;
+        long[] hashes = new long[size];
+        String[] ids = new String[size];
+        int i = 0;
+        for (String nodeId : this.members.keySet()) {
+            validateNodeId(nodeId);
+            for (int v = 0; v < virtualNodes; v++) {
+                hashes[i] = Hashing.hash64(nodeId + "#" + v);
+                ids[i] = nodeId;
+                i++;
+            }
+        }
+
+        // Сортируем точки вместе с владельцами
+        Integer[] order = new Integer[size];
+        for (int k = 0; k < size; k++) order[k] = k;
+        Arrays.sort(order, Comparator.comparingLong(k -> hashes[k]));
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (int k = 0; k < size; k++) {
+            points[k] = hashes[order[k]];
+            owners[k] = ids[order[k]];
+        }
+    }
+
+    /**
+     * Узел, владеющий ключом: первая точка кольца по часовой стрелке от хеша ключа.
+     */
+    public String ownerOf(String key) {
+        if (points.length == 0) {
+            throw new IllegalStateException("В кольце нет узлов");
+        }
+        int index = Arrays.binarySearch(points, Hashing.hash64(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * Новое кольцо с добавленным узлом.
+     */
+    public ConsistentHashRing withNode(String nodeId, InetSocketAddress address) {
+        Map<String, InetSocketAddress> next = new TreeMap<>(members);
+        next.put(nodeId, address);
+        return new ConsistentHashRing(next, virtualNodes);
+    }
+
+    /**
+     * Новое кольцо без узла.
+     */
+    public ConsistentHashRing withoutNode(String nodeId) {
+        Map<String, InetSocketAddress> next = new TreeMap<>(members);
+        next.remove(nodeId);
+        return new ConsistentHashRing(next, virtualNodes);
+    }
+
+    public boolean contains(String nodeId) {
+        return members.containsKey(nodeId);
+    }
+
+    public InetSocketAddress addressOf(String nodeId) {
+        return members.get(nodeId);
+    }
+
+    public Map<String, InetSocketAddress> getMembers() {
+        return members;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    /**
+     * Сериализует состав кольца: {@code id@host:port,id@host:port}.
+     */
+    public String encode() {
+        StringJoiner joiner = new StringJoiner(",");
+        members.forEach((id, address) -> {
+            String host = address.getAddress() != null
+                    ? address.getAddress().getHostAddress()
+                    : address.getHostString();
+            joiner.add(id + "@" + host + ":" + address.getPort());
+        });
+        return joiner.toString();
+    }
+
+    /**
+     * Восстанавливает кольцо из {@link #encode()}.
+     */
+    public static ConsistentHashRing decode(String encoded, int virtualNodes) {
+        Map<String, InetSocketAddress> members = new TreeMap<>();
+        if (!encoded.isEmpty()) {
+            for (String member : encoded.split(",")) {
+                int at = member.indexOf('@');
+                int colon = member.lastIndexOf(':');
+                if (at <= 0 || colon < at) {
+                    throw new IllegalArgumentException("Некорректный участник кольца: " + member);
+                }
+                members.put(member.substring(0, at), new InetSocketAddress(
+                        member.substring(at + 1, colon), Integer.parseInt(member.substring(colon + 1))));
+            }
+        }
+        return new ConsistentHashRing(members, virtualNodes);
+    }
+
+    private static void validateNodeId(String nodeId) {
+        if (nodeId.isEmpty() || nodeId.chars().anyMatch(c -> c == '@' || c == ',' || Character.isWhitespace(c))) {
+            throw new IllegalArgumentException("Некорректный идентификатор узла: " + nodeId);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.linkshortener.cluster;
+
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.analytics.UniqueVisitorSketch;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Представление ссылки в одной строке протокола кластера и журнала репликации.
+ * Поля разделены табуляцией; URL идет последним, пробельных символов в нем
+ * не бывает (см. UrlValidator).
+ */
+public final class LinkCodec {
+    private static final String NO_VISITORS = "-";
+
+    private LinkCodec() {}
+
+    public static String encode(ShortLink link) {
+        UniqueVisitorSketch visitors = link.getVisitorSketch();
+        return String.join("\t",
+                link.getId(),
+                link.getShortCode(),
+                link.getOwnerId().toString(),
+                Integer.toString(link.getClickLimit()),
+                Integer.toString(link.getClicksCount()),
+                Boolean.toString(link.isActive()),
+                link.getCreatedAt().toString(),
+                link.getExpiresAt().toString(),
+                visitors == null ? NO_VISITORS : Base64.getEncoder().encodeToString(visitors.toBytes()),
+                link.getOriginalUrl());
+    }
+
+    /**
+     * Разбирает ссылку из полей fields[offset..offset+9].
+     */
+    public static ShortLink decode(String[] fields, int offset) {
+        if (fields.length < offset + 10) {
+            throw new IllegalArgumentException("Неполное описание ссылки");
+        }
+        ShortLink link = new ShortLink(
+                fields[offset],
+                fields[offset + 9],
+                fields[offset + 1],
+                UUID.fromString(fields[offset + 2]),
+                Integer.parseInt(fields[offset + 3]),
+                Integer.parseInt(fields[offset + 4]),
+                Boolean.parseBoolean(fields[offset + 5]),
+                LocalDateTime.parse(fields[offset + 6]),
+                LocalDateTime.parse(fields[offset + 7]));
+        if (!NO_VISITORS.equals(fields[offset + 8])) {
+            link.mergeVisitors(UniqueVisitorSketch.fromBytes(Base64.getDecoder().decode(fields[offset + 8])));
+        }
+        return link;
+    }
+}
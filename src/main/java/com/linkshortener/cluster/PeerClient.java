@@ -0,0 +1,95 @@
+package com.linkshortener.cluster;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Клиент строкового протокола (кластер, аренда бюджета кликов) к одному узлу.
+ * Держит пул открытых соединений: запрос занимает соединение целиком
+ * (строка запроса - строка ответа), параллельные запросы открывают новые.
+ */
+public class PeerClient implements Closeable {
+    private static final int CONNECT_TIMEOUT_MS = 2_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+
+    private final InetSocketAddress address;
+    private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    public PeerClient(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Отправляет строку запроса и возвращает строку ответа.
+     */
+    public String call(String request) throws IOException {
+        Connection connection = idle.poll();
+        if (connection == null) {
+            connection = new Connection(address);
+        }
+        try {
+            String response = connection.exchange(request);
+            if (closed) {
+                connection.close();
+            } else {
+                idle.offer(connection);
+            }
+            return response;
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final BufferedReader reader;
+        private final Writer writer;
+
+        Connection(InetSocketAddress address) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(address, CONNECT_TIMEOUT_MS);
+            socket.setSoTimeout(READ_TIMEOUT_MS);
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        String exchange(String request) throws IOException {
+            writer.write(request);
+            writer.write('\n');
+            writer.flush();
+            String response = reader.readLine();
+            if (response == null) {
+                throw new EOFException("Узел закрыл соединение");
+            }
+            return response;
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Соединение уже не нужно
+            }
+        }
+    }
+}
@@ -1,24 +1,23 @@
 package com.linkshortener.config;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Конфигурация приложения.
- * Загружает настройки из файла свойств.
+ * Загружает настройки из файла свойств и может перечитывать его на лету:
+ * новый снимок публикуется одной volatile-записью, геттеры читают его одной volatile-загрузкой.
  */
 public class AppConfig {
     private static AppConfig instance;
-    private final Properties properties;
-
-    private String baseUrl;
-    private int codeLength;
-    private int defaultTtlHours;
-    private int defaultClickLimit;
-    private boolean notificationsEnabled;
+    private volatile ConfigSnapshot current;
+    private final List<ConfigListener> listeners = new CopyOnWriteArrayList<>();
+    private ConfigWatcher watcher;
 
     private AppConfig() {
-        properties = ConfigLoader.loadProperties();
-        loadConfig();
+        current = new ConfigSnapshot(ConfigLoader.loadProperties());
     }
 
     public static synchronized AppConfig getInstance() {
@@ -28,24 +27,140 @@ public class AppConfig {
         return instance;
     }
 
-    private void loadConfig() {
-        this.baseUrl = properties.getProperty("shortlink.base.url", "http://localhost:8080/");
-        this.codeLength = Integer.parseInt(properties.getProperty("shortlink.code.length", "8"));
-        this.defaultTtlHours = Integer.parseInt(properties.getProperty("shortlink.ttl.hours", "24"));
-        this.defaultClickLimit = Integer.parseInt(properties.getProperty("default.click.limit", "10"));
-        this.notificationsEnabled = Boolean.parseBoolean(
-                properties.getProperty("notification.enabled", "true")
-        );
+    /**
+     * Текущий снимок - для чтения нескольких согласованных между собой настроек.
+     */
+    public ConfigSnapshot snapshot() {
+        return current;
+    }
+
+    public void addListener(ConfigListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ConfigListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Перечитывает файл конфигурации.
+     * @return true, если новый снимок принят
+     */
+    public boolean reload() {
+        Properties properties;
+        try {
+            properties = ConfigLoader.readProperties(ConfigLoader.configPath());
+        } catch (IOException e) {
+            System.err.println("Конфигурация не перечитана: " + e.getMessage());
+            return false;
+        }
+        return reload(properties);
+    }
+
+    /**
+     * Применяет новые свойства. Некорректные значения и изменение настроек,
+     * требующих перезапуска, отклоняются целиком - работающая конфигурация не меняется.
+     * @return true, если новый снимок принят
+     */
+    public synchronized boolean reload(Properties properties) {
+        ConfigSnapshot previous = current;
+        ConfigSnapshot next;
+        try {
+            next = new ConfigSnapshot(properties);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Конфигурация отклонена: " + e.getMessage());
+            return false;
+        }
+        String restartKey = previous.restartRequiredChange(next);
+        if (restartKey != null) {
+            System.err.println("Конфигурация отклонена: " + restartKey + " меняется только перезапуском");
+            return false;
+        }
+        current = next;
+        for (ConfigListener listener : listeners) {
+            try {
+                listener.onConfigChanged(previous, next);
+            } catch (RuntimeException e) {
+                System.err.println("Ошибка применения конфигурации: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Запускает слежение за файлом конфигурации.
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watcher == null) {
+            watcher = new ConfigWatcher(ConfigLoader.configPath(), this::reload);
+        }
+    }
+
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
     }
 
     // Геттеры
-    public String getBaseUrl() { return baseUrl; }
-    public int getCodeLength() { return codeLength; }
-    public int getDefaultTtlHours() { return defaultTtlHours; }
-    public int getDefaultClickLimit() { return defaultClickLimit; }
-    public boolean isNotificationsEnabled() { return notificationsEnabled; }
+    public String getBaseUrl() { return current.getBaseUrl(); }
+    public int getCodeLength() { return current.getCodeLength(); }
+    public int getDefaultTtlHours() { return current.getDefaultTtlHours(); }
+    public int getDefaultClickLimit() { return current.getDefaultClickLimit(); }
+    public boolean isNotificationsEnabled() { return current.isNotificationsEnabled(); }
+    public boolean isMetricsHttpEnabled() { return current.isMetricsHttpEnabled(); }
+    public int getMetricsHttpPort() { return current.getMetricsHttpPort(); }
+    public int getHotLinksTopK() { return current.getHotLinksTopK(); }
+    public int getHotLinksWindowSeconds() { return current.getHotLinksWindowSeconds(); }
+    public boolean isJfrEnabled() { return current.isJfrEnabled(); }
+    public String getJfrFile() { return current.getJfrFile(); }
+    public int getJfrMaxAgeMinutes() { return current.getJfrMaxAgeMinutes(); }
+    public int getJfrRedirectThresholdMs() { return current.getJfrRedirectThresholdMs(); }
+    public int getJfrCreateThresholdMs() { return current.getJfrCreateThresholdMs(); }
+    public int getJfrCleanupThresholdMs() { return current.getJfrCleanupThresholdMs(); }
+    public int getJfrNotificationThresholdMs() { return current.getJfrNotificationThresholdMs(); }
+    public int getStorageShards() { return current.getStorageShards(); }
+    public int getClusterVirtualNodes() { return current.getClusterVirtualNodes(); }
+    public int getReplicationLogCapacity() { return current.getReplicationLogCapacity(); }
+    public int getBudgetLeaseTtlMs() { return current.getBudgetLeaseTtlMs(); }
+    public int getBudgetMaxChunk() { return current.getBudgetMaxChunk(); }
+    public int getBudgetMaxOvershoot() { return current.getBudgetMaxOvershoot(); }
+    public boolean isRateLimitEnabled() { return current.isRateLimitEnabled(); }
+    public int getRateLimitCreatePerSecond() { return current.getRateLimitCreatePerSecond(); }
+    public int getRateLimitCreateBurst() { return current.getRateLimitCreateBurst(); }
+    public int getRateLimitClientPerSecond() { return current.getRateLimitClientPerSecond(); }
+    public int getRateLimitClientBurst() { return current.getRateLimitClientBurst(); }
+    public int getRateLimitCodePerSecond() { return current.getRateLimitCodePerSecond(); }
+    public int getRateLimitCodeBurst() { return current.getRateLimitCodeBurst(); }
+    public int getStorageTombstoneRetentionMinutes() { return current.getStorageTombstoneRetentionMinutes(); }
+    public int getCleanupIntervalMinutes() { return current.getCleanupIntervalMinutes(); }
+    public int getUserIdleEvictionMinutes() { return current.getUserIdleEvictionMinutes(); }
+    public boolean isStartupFast() { return current.isStartupFast(); }
+    public int getStartupWarmupRedirects() { return current.getStartupWarmupRedirects(); }
+    public boolean isHttpRedirectEnabled() { return current.isHttpRedirectEnabled(); }
+    public int getHttpRedirectPort() { return current.getHttpRedirectPort(); }
+    public int getHttpRedirectCacheMaxBytes() { return current.getHttpRedirectCacheMaxBytes(); }
+    public int getHttpRedirectCacheMinClicks() { return current.getHttpRedirectCacheMinClicks(); }
+    public boolean isHttpRedirectCacheDirect() { return current.isHttpRedirectCacheDirect(); }
+    public boolean isHttpApiEnabled() { return current.isHttpApiEnabled(); }
+    public int getHttpApiPort() { return current.getHttpApiPort(); }
+    public int getHttpApiThreads() { return current.getHttpApiThreads(); }
+    public String getBlocklistFile() { return current.getBlocklistFile(); }
+    public int getBlocklistReloadSeconds() { return current.getBlocklistReloadSeconds(); }
+    public boolean isBlocklistCheckRedirect() { return current.isBlocklistCheckRedirect(); }
+    public int getEventsRingSize() { return current.getEventsRingSize(); }
+    public String getEventsNotificationsBackpressure() { return current.getEventsNotificationsBackpressure(); }
+    public String getEventsReplicationBackpressure() { return current.getEventsReplicationBackpressure(); }
+    public boolean isClickLogEnabled() { return current.isClickLogEnabled(); }
+    public String getClickLogDir() { return current.getClickLogDir(); }
+    public int getClickLogSegmentMb() { return current.getClickLogSegmentMb(); }
+    public int getClickLogRollMinutes() { return current.getClickLogRollMinutes(); }
+    public int getClickLogRetentionSegments() { return current.getClickLogRetentionSegments(); }
+    public int getClickLogRetentionHours() { return current.getClickLogRetentionHours(); }
+    public String getClickLogBackpressure() { return current.getClickLogBackpressure(); }
 
     public String getProperty(String key, String defaultValue) {
-        return properties.getProperty(key, defaultValue);
+        return current.getProperty(key, defaultValue);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package com.linkshortener.config;
+
+/**
+ * Слушатель смены конфигурации.
+ */
+@FunctionalInterface
+public interface ConfigListener {
+    /**
+     * Вызывается после публикации нового снимка.
+     */
+    void onConfigChanged(ConfigSnapshot previous, ConfigSnapshot current);
+}
@@ -1,6 +1,8 @@
 package com.linkshortener.config;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Properties;
 
 /**
@@ -14,7 +16,7 @@ public class ConfigLoader {
      */
     public static Properties loadProperties() {
         Properties properties = new Properties();
-        File configFile = new File("application.properties");
+        File configFile = configPath().toFile();
 
         try {
             if (configFile.exists()) {
@@ -34,6 +36,24 @@ public class ConfigLoader {
         return properties;
     }
 
+    /**
+     * Путь к файлу конфигурации.
+     */
+    public static Path configPath() {
+        return Path.of("application.properties").toAbsolutePath();
+    }
+
+    /**
+     * Читает свойства из файла без подстановки значений по умолчанию (перечитывание на лету).
+     */
+    static Properties readProperties(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(path)) {
+            properties.load(input);
+        }
+        return properties;
+    }
+
     private static void createDefaultConfig(File configFile) throws IOException {
         try (OutputStream output = new FileOutputStream(configFile)) {
             String defaultConfig = """
@@ -51,6 +71,96 @@ public class ConfigLoader {
                 
                 # Настройки уведомлений
                 notification.enabled=true
+                
+                # Эндпоинт /metrics для Prometheus
+                metrics.http.enabled=false
+                metrics.http.port=9464
+                
+                # Популярные ссылки: размер топа и длина скользящего окна
+                hotlinks.top.k=20
+                hotlinks.window.seconds=60
+                
+                # Java Flight Recorder: в запись попадают только операции медленнее порога
+                jfr.enabled=false
+                jfr.file=linkshortener.jfr
+                jfr.max.age.minutes=60
+                jfr.threshold.redirect.ms=1
+                jfr.threshold.create.ms=5
+                jfr.threshold.cleanup.ms=0
+                jfr.threshold.notification.ms=1
+                
+                # Хранилище: число шардов (степень двойки)
+                storage.shards=16
+                
+                # Кластер: виртуальных узлов на узел в кольце консистентного хеширования
+                cluster.virtual.nodes=128
+                
+                # Репликация: сколько последних изменений ведущий хранит для догоняющих реплик
+                replication.log.capacity=100000
+                
+                # Аренда бюджета кликов репликами: срок аренды, максимальная порция
+                # и допустимое превышение лимита (0 - лимит соблюдается точно)
+                budget.lease.ttl.ms=2000
+                budget.max.chunk=1000
+                budget.max.overshoot=0
+                
+                # Ограничение частоты запросов (токенов в секунду и емкость ведра, 0 - без ограничения)
+                ratelimit.enabled=true
+                ratelimit.create.per.second=2
+                ratelimit.create.burst=20
+                ratelimit.redirect.client.per.second=20
+                ratelimit.redirect.client.burst=100
+                ratelimit.redirect.code.per.second=1000
+                ratelimit.redirect.code.burst=2000
+                
+                # Сколько минут просроченный код отвечает "истекла", а не "не найдена"
+                storage.tombstone.retention.minutes=1440
+                
+                # Интервал очистки просроченных ссылок в минутах
+                cleanup.interval.minutes=60
+                
+                # Пользователь без ссылок, не обращавшийся столько минут, вытесняется из памяти
+                users.idle.eviction.minutes=60
+                
+                # Быстрый старт: тяжелые компоненты (JMX, эндпоинт метрик, JFR, фоновые задачи)
+                # поднимаются после готовности, путь перехода заранее прогревается заданным числом переходов
+                startup.fast=false
+                startup.warmup.redirects=20000
+                
+                # HTTP-сервер переходов; готовые байты ответа хранятся только для ссылок,
+                # набравших min.clicks переходов за окно популярных ссылок, в пределах max.bytes
+                http.redirect.enabled=false
+                http.redirect.port=8080
+                http.redirect.cache.max.bytes=8388608
+                http.redirect.cache.min.clicks=8
+                http.redirect.cache.direct=true
+                
+                # REST API управления ссылками (пользователь передается заголовком X-User-Id)
+                http.api.enabled=false
+                http.api.port=8081
+                http.api.threads=4
+                
+                # Черный список доменов: файл с доменом на строку (пусто - выключен), перечитывается
+                # при изменении; check.redirect - проверять еще и при переходе
+                blocklist.file=
+                blocklist.reload.seconds=60
+                blocklist.check.redirect=false
+                
+                # Шина событий ссылок: емкость кольца (степень двойки) и поведение отставших потребителей
+                # (block - издатель ждет потребителя, drop - потребитель пропускает затертые события)
+                events.ring.size=65536
+                events.notifications.backpressure=drop
+                events.replication.backpressure=block
+                
+                # Журнал кликов: каталог сегментов, размер и время жизни сегмента на запись,
+                # хранение (число сегментов и часы, 0 - без ограничения) и поведение при отставании записи
+                clicklog.enabled=false
+                clicklog.dir=clicklog
+                clicklog.segment.mb=64
+                clicklog.roll.minutes=60
+                clicklog.retention.segments=168
+                clicklog.retention.hours=168
+                clicklog.backpressure=block
                 """;
             output.write(defaultConfig.getBytes());
         }
@@ -62,5 +172,47 @@ public class ConfigLoader {
         properties.setProperty("shortlink.ttl.hours", "24");
         properties.setProperty("default.click.limit", "10");
         properties.setProperty("notification.enabled", "true");
+        properties.setProperty("metrics.http.enabled", "false");
+        properties.setProperty("metrics.http.port", "9464");
+        properties.setProperty("jfr.enabled", "false");
+        properties.setProperty("storage.shards", "16");
+        properties.setProperty("cluster.virtual.nodes", "128");
+        properties.setProperty("replication.log.capacity", "100000");
+        properties.setProperty("budget.lease.ttl.ms", "2000");
+        properties.setProperty("budget.max.chunk", "1000");
+        properties.setProperty("budget.max.overshoot", "0");
+        properties.setProperty("ratelimit.enabled", "true");
+        properties.setProperty("ratelimit.create.per.second", "2");
+        properties.setProperty("ratelimit.create.burst", "20");
+        properties.setProperty("ratelimit.redirect.client.per.second", "20");
+        properties.setProperty("ratelimit.redirect.client.burst", "100");
+        properties.setProperty("ratelimit.redirect.code.per.second", "1000");
+        properties.setProperty("ratelimit.redirect.code.burst", "2000");
+        properties.setProperty("storage.tombstone.retention.minutes", "1440");
+        properties.setProperty("cleanup.interval.minutes", "60");
+        properties.setProperty("users.idle.eviction.minutes", "60");
+        properties.setProperty("startup.fast", "false");
+        properties.setProperty("startup.warmup.redirects", "20000");
+        properties.setProperty("http.redirect.enabled", "false");
+        properties.setProperty("http.redirect.port", "8080");
+        properties.setProperty("http.redirect.cache.max.bytes", "8388608");
+        properties.setProperty("http.redirect.cache.min.clicks", "8");
+        properties.setProperty("http.redirect.cache.direct", "true");
+        properties.setProperty("http.api.enabled", "false");
+        properties.setProperty("http.api.port", "8081");
+        properties.setProperty("http.api.threads", "4");
+        properties.setProperty("blocklist.file", "");
+        properties.setProperty("blocklist.reload.seconds", "60");
+        properties.setProperty("blocklist.check.redirect", "false");
+        properties.setProperty("events.ring.size", "65536");
+        properties.setProperty("events.notifications.backpressure", "drop");
+        properties.setProperty("events.replication.backpressure", "block");
+        properties.setProperty("clicklog.enabled", "false");
+        properties.setProperty("clicklog.dir", "clicklog");
+        properties.setProperty("clicklog.segment.mb", "64");
+        properties.setProperty("clicklog.roll.minutes", "60");
+        properties.setProperty("clicklog.retention.segments", "168");
+        properties.setProperty("clicklog.retention.hours", "168");
+        properties.setProperty("clicklog.backpressure", "block");
     }
 }
\ No newline at end of file
@@ -0,0 +1,315 @@
+package com.linkshortener.config;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Неизменяемый снимок конфигурации. Разбирает и проверяет свойства в конструкторе,
+ * поэтому некорректный файл не дает снимка и не затрагивает работающую конфигурацию.
+ */
+public final class ConfigSnapshot {
+    // Эти настройки читаются только при старте, их изменение требует перезапуска
+    private static final List<String> RESTART_REQUIRED = List.of(
+            "storage.", "cluster.", "replication.", "budget.", "metrics.http.", "jfr.", "hotlinks.", "http.",
+            "blocklist.reload.", "events.", "clicklog."
+    );
+
+    private final Properties properties;
+
+    private final String baseUrl;
+    private final int codeLength;
+    private final int defaultTtlHours;
+    private final int defaultClickLimit;
+    private final boolean notificationsEnabled;
+    private final boolean metricsHttpEnabled;
+    private final int metricsHttpPort;
+    private final int hotLinksTopK;
+    private final int hotLinksWindowSeconds;
+    private final boolean jfrEnabled;
+    private final String jfrFile;
+    private final int jfrMaxAgeMinutes;
+    private final int jfrRedirectThresholdMs;
+    private final int jfrCreateThresholdMs;
+    private final int jfrCleanupThresholdMs;
+    private final int jfrNotificationThresholdMs;
+    private final int storageShards;
+    private final int clusterVirtualNodes;
+    private final int replicationLogCapacity;
+    private final int budgetLeaseTtlMs;
+    private final int budgetMaxChunk;
+    private final int budgetMaxOvershoot;
+    private final boolean rateLimitEnabled;
+    private final int rateLimitCreatePerSecond;
+    private final int rateLimitCreateBurst;
+    private final int rateLimitClientPerSecond;
+    private final int rateLimitClientBurst;
+    private final int rateLimitCodePerSecond;
+    private final int rateLimitCodeBurst;
+    private final int storageTombstoneRetentionMinutes;
+    private final int cleanupIntervalMinutes;
+    private final int userIdleEvictionMinutes;
+    private final boolean startupFast;
+    private final int startupWarmupRedirects;
+    private final boolean httpRedirectEnabled;
+    private final int httpRedirectPort;
+    private final int httpRedirectCacheMaxBytes;
+    private final int httpRedirectCacheMinClicks;
+    private final boolean httpRedirectCacheDirect;
+    private final boolean httpApiEnabled;
+    private final int httpApiPort;
+    private final int httpApiThreads;
+    private final String blocklistFile;
+    private final int blocklistReloadSeconds;
+    private final boolean blocklistCheckRedirect;
+    private final int eventsRingSize;
+    private final String eventsNotificationsBackpressure;
+    private final String eventsReplicationBackpressure;
+    private final boolean clickLogEnabled;
+    private final String clickLogDir;
+    private final int clickLogSegmentMb;
+    private final int clickLogRollMinutes;
+    private final int clickLogRetentionSegments;
+    private final int clickLogRetentionHours;
+    private final String clickLogBackpressure;
+
+    /**
+     * @throws IllegalArgumentException если значение не разбирается или вне допустимых границ
+     */
+    public ConfigSnapshot(Properties source) {
+        this.properties = new Properties();
+        this.properties.putAll(source);
+        this.baseUrl = properties.getProperty("shortlink.base.url", "http://localhost:8080/");
+        this.codeLength = Integer.parseInt(properties.getProperty("shortlink.code.length", "8"));
+        this.defaultTtlHours = Integer.parseInt(properties.getProperty("shortlink.ttl.hours", "24"));
+        this.defaultClickLimit = Integer.parseInt(properties.getProperty("default.click.limit", "10"));
+        this.notificationsEnabled = Boolean.parseBoolean(
+                properties.getProperty("notification.enabled", "true")
+        );
+        this.metricsHttpEnabled = Boolean.parseBoolean(
+                properties.getProperty("metrics.http.enabled", "false")
+        );
+        this.metricsHttpPort = Integer.parseInt(properties.getProperty("metrics.http.port", "9464"));
+        this.hotLinksTopK = Integer.parseInt(properties.getProperty("hotlinks.top.k", "20"));
+        this.hotLinksWindowSeconds = Integer.parseInt(properties.getProperty("hotlinks.window.seconds", "60"));
+        this.jfrEnabled = Boolean.parseBoolean(properties.getProperty("jfr.enabled", "false"));
+        this.jfrFile = properties.getProperty("jfr.file", "linkshortener.jfr");
+        this.jfrMaxAgeMinutes = Integer.parseInt(properties.getProperty("jfr.max.age.minutes", "60"));
+        this.jfrRedirectThresholdMs = Integer.parseInt(properties.getProperty("jfr.threshold.redirect.ms", "1"));
+        this.jfrCreateThresholdMs = Integer.parseInt(properties.getProperty("jfr.threshold.create.ms", "5"));
+        this.jfrCleanupThresholdMs = Integer.parseInt(properties.getProperty("jfr.threshold.cleanup.ms", "0"));
+        this.jfrNotificationThresholdMs = Integer.parseInt(
+                properties.getProperty("jfr.threshold.notification.ms", "1")
+        );
+        this.storageShards = Integer.parseInt(properties.getProperty("storage.shards", "16"));
+        if (storageShards <= 0 || Integer.bitCount(storageShards) != 1) {
+            throw new IllegalArgumentException("storage.shards должно быть степенью двойки: " + storageShards);
+        }
+        this.clusterVirtualNodes = Integer.parseInt(properties.getProperty("cluster.virtual.nodes", "128"));
+        this.replicationLogCapacity = Integer.parseInt(
+                properties.getProperty("replication.log.capacity", "100000")
+        );
+        this.budgetLeaseTtlMs = Integer.parseInt(properties.getProperty("budget.lease.ttl.ms", "2000"));
+        this.budgetMaxChunk = Integer.parseInt(properties.getProperty("budget.max.chunk", "1000"));
+        this.budgetMaxOvershoot = Integer.parseInt(properties.getProperty("budget.max.overshoot", "0"));
+        this.rateLimitEnabled = Boolean.parseBoolean(properties.getProperty("ratelimit.enabled", "true"));
+        this.rateLimitCreatePerSecond = Integer.parseInt(
+                properties.getProperty("ratelimit.create.per.second", "2")
+        );
+        this.rateLimitCreateBurst = Integer.parseInt(properties.getProperty("ratelimit.create.burst", "20"));
+        this.rateLimitClientPerSecond = Integer.parseInt(
+                properties.getProperty("ratelimit.redirect.client.per.second", "20")
+        );
+        this.rateLimitClientBurst = Integer.parseInt(
+                properties.getProperty("ratelimit.redirect.client.burst", "100")
+        );
+        this.rateLimitCodePerSecond = Integer.parseInt(
+                properties.getProperty("ratelimit.redirect.code.per.second", "1000")
+        );
+        this.rateLimitCodeBurst = Integer.parseInt(
+                properties.getProperty("ratelimit.redirect.code.burst", "2000")
+        );
+        this.storageTombstoneRetentionMinutes = Integer.parseInt(
+                properties.getProperty("storage.tombstone.retention.minutes", "1440")
+        );
+        this.cleanupIntervalMinutes = Integer.parseInt(
+                properties.getProperty("cleanup.interval.minutes", "60")
+        );
+        this.userIdleEvictionMinutes = Integer.parseInt(
+                properties.getProperty("users.idle.eviction.minutes", "60")
+        );
+        this.startupFast = Boolean.parseBoolean(properties.getProperty("startup.fast", "false"));
+        this.startupWarmupRedirects = Integer.parseInt(
+                properties.getProperty("startup.warmup.redirects", "20000")
+        );
+        this.httpRedirectEnabled = Boolean.parseBoolean(
+                properties.getProperty("http.redirect.enabled", "false")
+        );
+        this.httpRedirectPort = Integer.parseInt(properties.getProperty("http.redirect.port", "8080"));
+        this.httpRedirectCacheMaxBytes = Integer.parseInt(
+                properties.getProperty("http.redirect.cache.max.bytes", "8388608")
+        );
+        this.httpRedirectCacheMinClicks = Integer.parseInt(
+                properties.getProperty("http.redirect.cache.min.clicks", "8")
+        );
+        this.httpRedirectCacheDirect = Boolean.parseBoolean(
+                properties.getProperty("http.redirect.cache.direct", "true")
+        );
+        this.httpApiEnabled = Boolean.parseBoolean(properties.getProperty("http.api.enabled", "false"));
+        this.httpApiPort = Integer.parseInt(properties.getProperty("http.api.port", "8081"));
+        this.httpApiThreads = Integer.parseInt(properties.getProperty("http.api.threads", "4"));
+        this.blocklistFile = properties.getProperty("blocklist.file", "").trim();
+        this.blocklistReloadSeconds = Integer.parseInt(
+                properties.getProperty("blocklist.reload.seconds", "60")
+        );
+        this.blocklistCheckRedirect = Boolean.parseBoolean(
+                properties.getProperty("blocklist.check.redirect", "false")
+        );
+        this.eventsRingSize = Integer.parseInt(properties.getProperty("events.ring.size", "65536"));
+        this.eventsNotificationsBackpressure = properties.getProperty("events.notifications.backpressure", "drop");
+        this.eventsReplicationBackpressure = properties.getProperty("events.replication.backpressure", "block");
+        this.clickLogEnabled = Boolean.parseBoolean(properties.getProperty("clicklog.enabled", "false"));
+        this.clickLogDir = properties.getProperty("clicklog.dir", "clicklog").trim();
+        this.clickLogSegmentMb = Integer.parseInt(properties.getProperty("clicklog.segment.mb", "64"));
+        this.clickLogRollMinutes = Integer.parseInt(properties.getProperty("clicklog.roll.minutes", "60"));
+        this.clickLogRetentionSegments = Integer.parseInt(
+                properties.getProperty("clicklog.retention.segments", "168")
+        );
+        this.clickLogRetentionHours = Integer.parseInt(
+                properties.getProperty("clicklog.retention.hours", "168")
+        );
+        this.clickLogBackpressure = properties.getProperty("clicklog.backpressure", "block");
+        validate();
+    }
+
+    private void validate() {
+        require(codeLength >= 4 && codeLength <= 16, "shortlink.code.length должно быть от 4 до 16: " + codeLength);
+        require(defaultTtlHours > 0, "shortlink.ttl.hours должно быть положительным: " + defaultTtlHours);
+        require(defaultClickLimit > 0, "default.click.limit должно быть положительным: " + defaultClickLimit);
+        require(cleanupIntervalMinutes > 0,
+                "cleanup.interval.minutes должно быть положительным: " + cleanupIntervalMinutes);
+        require(startupWarmupRedirects >= 0,
+                "startup.warmup.redirects не может быть отрицательным: " + startupWarmupRedirects);
+        require(userIdleEvictionMinutes > 0,
+                "users.idle.eviction.minutes должно быть положительным: " + userIdleEvictionMinutes);
+        require(rateLimitCreatePerSecond >= 0 && rateLimitClientPerSecond >= 0 && rateLimitCodePerSecond >= 0,
+                "скорость ratelimit.* не может быть отрицательной");
+        require(rateLimitCreateBurst > 0 && rateLimitClientBurst > 0 && rateLimitCodeBurst > 0,
+                "емкость ratelimit.*.burst должна быть положительной");
+        require(blocklistReloadSeconds > 0,
+                "blocklist.reload.seconds должно быть положительным: " + blocklistReloadSeconds);
+        require(httpApiThreads > 0, "http.api.threads должно быть положительным: " + httpApiThreads);
+        require(eventsRingSize > 0, "events.ring.size должно быть положительным: " + eventsRingSize);
+        require(isBackPressure(eventsNotificationsBackpressure) && isBackPressure(eventsReplicationBackpressure),
+                "events.*.backpressure должно быть block или drop");
+        require(clickLogSegmentMb > 0 && clickLogSegmentMb < 2048,
+                "clicklog.segment.mb должно быть от 1 до 2047: " + clickLogSegmentMb);
+        require(clickLogRollMinutes > 0, "clicklog.roll.minutes должно быть положительным: " + clickLogRollMinutes);
+        require(clickLogRetentionSegments >= 0 && clickLogRetentionHours >= 0,
+                "clicklog.retention.* не может быть отрицательным");
+        require(isBackPressure(clickLogBackpressure), "clicklog.backpressure должно быть block или drop");
+    }
+
+    private static boolean isBackPressure(String value) {
+        return value.trim().equalsIgnoreCase("block") || value.trim().equalsIgnoreCase("drop");
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * Отличаются ли снимки хотя бы одним свойством с указанным префиксом.
+     */
+    public boolean differs(ConfigSnapshot other, String prefix) {
+        return changedKey(other, prefix) != null;
+    }
+
+    /**
+     * Первая измененная настройка, которую нельзя применить без перезапуска, или null.
+     */
+    public String restartRequiredChange(ConfigSnapshot other) {
+        for (String prefix : RESTART_REQUIRED) {
+            String key = changedKey(other, prefix);
+            if (key != null) return key;
+        }
+        return null;
+    }
+
+    private String changedKey(ConfigSnapshot other, String prefix) {
+        Set<String> keys = new HashSet<>(properties.stringPropertyNames());
+        keys.addAll(other.properties.stringPropertyNames());
+        for (String key : keys) {
+            if (key.startsWith(prefix)
+                    && !Objects.equals(properties.getProperty(key), other.properties.getProperty(key))) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    // Геттеры
+    public String getBaseUrl() { return baseUrl; }
+    public int getCodeLength() { return codeLength; }
+    public int getDefaultTtlHours() { return defaultTtlHours; }
+    public int getDefaultClickLimit() { return defaultClickLimit; }
+    public boolean isNotificationsEnabled() { return notificationsEnabled; }
+    public boolean isMetricsHttpEnabled() { return metricsHttpEnabled; }
+    public int getMetricsHttpPort() { return metricsHttpPort; }
+    public int getHotLinksTopK() { return hotLinksTopK; }
+    public int getHotLinksWindowSeconds() { return hotLinksWindowSeconds; }
+    public boolean isJfrEnabled() { return jfrEnabled; }
+    public String getJfrFile() { return jfrFile; }
+    public int getJfrMaxAgeMinutes() { return jfrMaxAgeMinutes; }
+    public int getJfrRedirectThresholdMs() { return jfrRedirectThresholdMs; }
+    public int getJfrCreateThresholdMs() { return jfrCreateThresholdMs; }
+    public int getJfrCleanupThresholdMs() { return jfrCleanupThresholdMs; }
+    public int getJfrNotificationThresholdMs() { return jfrNotificationThresholdMs; }
+    public int getStorageShards() { return storageShards; }
+    public int getClusterVirtualNodes() { return clusterVirtualNodes; }
+    public int getReplicationLogCapacity() { return replicationLogCapacity; }
+    public int getBudgetLeaseTtlMs() { return budgetLeaseTtlMs; }
+    public int getBudgetMaxChunk() { return budgetMaxChunk; }
+    public int getBudgetMaxOvershoot() { return budgetMaxOvershoot; }
+    public boolean isRateLimitEnabled() { return rateLimitEnabled; }
+    public int getRateLimitCreatePerSecond() { return rateLimitCreatePerSecond; }
+    public int getRateLimitCreateBurst() { return rateLimitCreateBurst; }
+    public int getRateLimitClientPerSecond() { return rateLimitClientPerSecond; }
+    public int getRateLimitClientBurst() { return rateLimitClientBurst; }
+    public int getRateLimitCodePerSecond() { return rateLimitCodePerSecond; }
+    public int getRateLimitCodeBurst() { return rateLimitCodeBurst; }
+    public int getStorageTombstoneRetentionMinutes() { return storageTombstoneRetentionMinutes; }
+    public int getCleanupIntervalMinutes() { return cleanupIntervalMinutes; }
+    public int getUserIdleEvictionMinutes() { return userIdleEvictionMinutes; }
+    public boolean isStartupFast() { return startupFast; }
+    public int getStartupWarmupRedirects() { return startupWarmupRedirects; }
+    public boolean isHttpRedirectEnabled() { return httpRedirectEnabled; }
+    public int getHttpRedirectPort() { return httpRedirectPort; }
+    public int getHttpRedirectCacheMaxBytes() { return httpRedirectCacheMaxBytes; }
+    public int getHttpRedirectCacheMinClicks() { return httpRedirectCacheMinClicks; }
+    public boolean isHttpRedirectCacheDirect() { return httpRedirectCacheDirect; }
+    public boolean isHttpApiEnabled() { return httpApiEnabled; }
+    public int getHttpApiPort() { return httpApiPort; }
+    public int getHttpApiThreads() { return httpApiThreads; }
+    public String getBlocklistFile() { return blocklistFile; }
+    public int getBlocklistReloadSeconds() { return blocklistReloadSeconds; }
+    public boolean isBlocklistCheckRedirect() { return blocklistCheckRedirect; }
+    public int getEventsRingSize() { return eventsRingSize; }
+    public String getEventsNotificationsBackpressure() { return eventsNotificationsBackpressure; }
+    public String getEventsReplicationBackpressure() { return eventsReplicationBackpressure; }
+    public boolean isClickLogEnabled() { return clickLogEnabled; }
+    public String getClickLogDir() { return clickLogDir; }
+    public int getClickLogSegmentMb() { return clickLogSegmentMb; }
+    public int getClickLogRollMinutes() { return clickLogRollMinutes; }
+    public int getClickLogRetentionSegments() { return clickLogRetentionSegments; }
+    public int getClickLogRetentionHours() { return clickLogRetentionHours; }
+    public String getClickLogBackpressure() { return clickLogBackpressure; }
+
+    public String getProperty(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+}
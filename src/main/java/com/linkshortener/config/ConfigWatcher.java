@@ -0,0 +1,77 @@
+package com.linkshortener.config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Следит за файлом конфигурации через WatchService и вызывает перечитывание.
+ * Редакторы сохраняют файл несколькими событиями подряд, поэтому события
+ * собираются в течение короткой паузы и дают одно перечитывание.
+ */
+final class ConfigWatcher implements AutoCloseable {
+    private static final long SETTLE_MILLIS = 200;
+
+    private final Path file;
+    private final Runnable onChange;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    ConfigWatcher(Path file, Runnable onChange) throws IOException {
+        this.file = file;
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+                // Дожидаемся, пока запись файла закончится
+                WatchKey more;
+                while ((more = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(more);
+                }
+                if (changed) {
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Слежение остановлено
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка остановки слежения за конфигурацией: " + e.getMessage());
+        }
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,25 @@
+package com.linkshortener.core;
+
+/**
+ * Исход перехода по короткой ссылке.
+ * Порядковый номер исхода хранится в журнале кликов: новые исходы добавляются только в конец.
+ */
+public enum RedirectOutcome {
+    OK("ok"),
+    NOT_FOUND("not_found"),
+    EXPIRED("expired"),
+    LIMIT_EXCEEDED("limit"),
+    RATE_LIMITED("rate_limited"),
+    BLOCKED("blocked");
+
+    private final String label;
+
+    RedirectOutcome(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Короткое имя исхода для метрик и отчетов.
+     */
+    public String getLabel() { return label; }
+}
@@ -0,0 +1,25 @@
+package com.linkshortener.core;
+
+/**
+ * Результат перехода: исход и оригинальный URL (только для OK).
+ * Изменяемый: вызывающий держит экземпляр на поток и передает его в каждый вызов
+ * {@code LinkService.resolve}, поэтому разрешение кода не выделяет память.
+ */
+public final class RedirectResult {
+    private RedirectOutcome outcome = RedirectOutcome.NOT_FOUND;
+    private String url;
+
+    /**
+     * Заполняет результат и возвращает его же.
+     */
+    public RedirectResult set(RedirectOutcome outcome, String url) {
+        this.outcome = outcome;
+        this.url = url;
+        return this;
+    }
+
+    // Геттеры
+    public RedirectOutcome getOutcome() { return outcome; }
+    public String getUrl() { return url; }
+    public boolean isOk() { return outcome == RedirectOutcome.OK; }
+}
@@ -0,0 +1,37 @@
+package com.linkshortener.core;
+
+/**
+ * Результат пакетного разрешения одного кода: исход, а для OK - URL,
+ * оставшееся время жизни и оставшиеся переходы на момент разрешения.
+ */
+public final class ResolvedLink {
+    private final String code;
+    private final RedirectOutcome outcome;
+    private final String url;
+    private final long remainingTtlMillis;
+    private final int remainingClicks;
+
+    /**
+     * @param link ссылка при исходе OK, иначе null
+     */
+    public ResolvedLink(String code, RedirectOutcome outcome, ShortLink link, long nowMillis) {
+        this.code = code;
+        this.outcome = outcome;
+        if (link != null) {
+            this.url = link.getOriginalUrl();
+            this.remainingTtlMillis = Math.max(0, link.getExpiresAtMillis() - nowMillis);
+            this.remainingClicks = Math.max(0, link.getClickLimit() - link.getClicksCount());
+        } else {
+            this.url = null;
+            this.remainingTtlMillis = 0;
+            this.remainingClicks = 0;
+        }
+    }
+
+    // Геттеры
+    public String getCode() { return code; }
+    public RedirectOutcome getOutcome() { return outcome; }
+    public String getUrl() { return url; }
+    public long getRemainingTtlMillis() { return remainingTtlMillis; }
+    public int getRemainingClicks() { return remainingClicks; }
+}
@@ -1,22 +1,54 @@
 package com.linkshortener.core;
 
+import com.linkshortener.core.analytics.ClickStats;
+import com.linkshortener.core.analytics.ClickTimeSeries;
+import com.linkshortener.core.analytics.UniqueVisitorSketch;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.UUID;
 
 /**
  * Класс, представляющий короткую ссылку.
  * Хранит информацию о ссылке, её владельце и ограничениях.
+ * Счетчик кликов, лимит и флаг активности упакованы в одно long-поле
+ * и меняются CAS: переходы, клики реплик и состояние с ведущего не теряют
+ * обновлений друг друга, а флаг всегда согласован со счетчиком.
  */
 public class ShortLink {
+    private static final VarHandle STATE;
+    private static final VarHandle CLICK_SERIES;
+    private static final VarHandle VISITORS;
+    private static final long ACTIVE = 1L;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            STATE = lookup.findVarHandle(ShortLink.class, "state", long.class);
+            CLICK_SERIES = lookup.findVarHandle(ShortLink.class, "clickSeries", ClickTimeSeries.class);
+            VISITORS = lookup.findVarHandle(ShortLink.class, "visitors", UniqueVisitorSketch.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final String id;
     private final String originalUrl;
     private final String shortCode;
     private final UUID ownerId;
     private final LocalDateTime createdAt;
     private final LocalDateTime expiresAt;
-    private int clickLimit;
-    private int clicksCount;
-    private boolean active;
+    // Срок действия в миллисекундах эпохи: проверка на переходе без LocalDateTime.now()
+    private final long expiresAtMillis;
+    // Клики (старшие 32 бита), лимит (31 бит) и активность (младший бит)
+    private volatile long state;
+    // Ставится при удалении из хранилища: переход, успевший найти ссылку, ответит "не найдена"
+    private volatile boolean deleted;
+    // Создается при первом переходе, чтобы ссылки без переходов не занимали память
+    private volatile ClickTimeSeries clickSeries;
+    private volatile UniqueVisitorSketch visitors;
 
     public ShortLink(String originalUrl, String shortCode, UUID ownerId,
                      int clickLimit, int ttlHours) {
@@ -24,13 +56,43 @@ public class ShortLink {
         this.originalUrl = originalUrl;
         this.shortCode = shortCode;
         this.ownerId = ownerId;
-        this.clickLimit = clickLimit;
-        this.clicksCount = 0;
-        this.active = true;
+        this.state = pack(0, clickLimit, true);
         this.createdAt = LocalDateTime.now();
         this.expiresAt = this.createdAt.plusHours(ttlHours);
+        this.expiresAtMillis = toEpochMillis(expiresAt);
+    }
+
+    /**
+     * Восстанавливает ссылку с сохраненным состоянием (перенос между узлами кластера).
+     */
+    public ShortLink(String id, String originalUrl, String shortCode, UUID ownerId,
+                     int clickLimit, int clicksCount, boolean active,
+                     LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.id = id;
+        this.originalUrl = originalUrl;
+        this.shortCode = shortCode;
+        this.ownerId = ownerId;
+        this.state = pack(clicksCount, clickLimit, active);
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.expiresAtMillis = toEpochMillis(expiresAt);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 
+    private static long pack(int clicks, int limit, boolean active) {
+        if (clicks < 0 || limit < 0) {
+            throw new IllegalArgumentException("Счетчик и лимит кликов не могут быть отрицательными");
+        }
+        return (long) clicks << 32 | (long) limit << 1 | (active ? ACTIVE : 0);
+    }
+
+    private static int clicksOf(long state) { return (int) (state >>> 32); }
+    private static int limitOf(long state) { return (int) state >>> 1; }
+    private static boolean activeOf(long state) { return (state & ACTIVE) != 0; }
+
     // Геттеры
     public String getId() { return id; }
     public String getOriginalUrl() { return originalUrl; }
@@ -38,66 +100,183 @@ public class ShortLink {
     public UUID getOwnerId() { return ownerId; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getExpiresAt() { return expiresAt; }
-    public int getClickLimit() { return clickLimit; }
-    public int getClicksCount() { return clicksCount; }
-    public boolean isActive() { return active; }
+    public long getExpiresAtMillis() { return expiresAtMillis; }
+    public int getClickLimit() { return limitOf(state); }
+    public int getClicksCount() { return clicksOf(state); }
+    public boolean isActive() { return activeOf(state); }
+    public boolean isDeleted() { return deleted; }
 
     /**
      * Увеличивает счетчик кликов и проверяет лимит.
+     * Достигнув лимита, ссылка еще активна: деактивирует ее следующий вызов.
      * @return true если лимит не превышен, false если превышен
      */
-
     public boolean incrementClicks() {
-        if (!active) return false;
+        long current = state;
+        while (activeOf(current)) {
+            int clicks = clicksOf(current);
+            int limit = limitOf(current);
+            boolean withinLimit = clicks < limit;
+            long next = withinLimit ? pack(clicks + 1, limit, true) : pack(clicks, limit, false);
+            long witness = (long) STATE.compareAndExchange(this, current, next);
+            if (witness == current) {
+                return withinLimit;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Деактивирует ссылку, если лимит уже выбран; клик не засчитывается.
+     * Нужен, когда до incrementClicks дело не доходит (бюджет аренд исчерпан).
+     */
+    public void deactivateIfExhausted() {
+        long current = state;
+        while (activeOf(current) && clicksOf(current) >= limitOf(current)) {
+            long witness = (long) STATE.compareAndExchange(this, current, pack(clicksOf(current), limitOf(current), false));
+            if (witness == current) {
+                return;
+            }
+            current = witness;
+        }
+    }
+
+    /**
+     * Учитывает переход во временном ряду аналитики.
+     */
+    public void recordClick(long nowMillis) {
+        ClickTimeSeries series = clickSeries;
+        if (series == null) {
+            series = new ClickTimeSeries();
+            if (!CLICK_SERIES.compareAndSet(this, null, series)) {
+                series = clickSeries;
+            }
+        }
+        series.record(nowMillis);
+    }
+
+    /**
+     * Возвращает статистику переходов на момент nowMillis.
+     */
+    public ClickStats getClickStats(long nowMillis) {
+        ClickTimeSeries series = clickSeries;
+        return series == null ? ClickStats.empty() : series.snapshot(nowMillis);
+    }
+
+    /**
+     * Учитывает посетителя по хешу отпечатка клиента.
+     */
+    public void recordVisitor(long clientHash) {
+        visitorSketch().add(clientHash);
+    }
+
+    /**
+     * Добавляет посетителей, учтенных на другом узле.
+     */
+    public void mergeVisitors(UniqueVisitorSketch remote) {
+        visitorSketch().merge(remote);
+    }
 
-        // Проверяем, не достигнут ли уже лимит
-        if (clicksCount >= clickLimit) {
-            active = false;
-            return false;
+    private UniqueVisitorSketch visitorSketch() {
+        UniqueVisitorSketch sketch = visitors;
+        if (sketch == null) {
+            sketch = new UniqueVisitorSketch();
+            if (!VISITORS.compareAndSet(this, null, sketch)) {
+                sketch = visitors;
+            }
         }
+        return sketch;
+    }
 
-        clicksCount++;
+    /**
+     * Оценка числа уникальных посетителей (0, если отпечатки не передавались).
+     */
+    public long getUniqueVisitors() {
+        UniqueVisitorSketch sketch = visitors;
+        return sketch == null ? 0 : sketch.estimate();
+    }
 
-        // Если после увеличения достигли лимита, ссылка еще активна
-        // (но следующий вызов уже не пройдет)
-        if (clicksCount == clickLimit) {
-            // Достигли лимита, но переход разрешен
-            return true;
+    /**
+     * Скетч посетителей для объединения между узлами (null, если посетителей не было).
+     */
+    public UniqueVisitorSketch getVisitorSketch() {
+        return visitors;
+    }
+
+    /**
+     * Добавляет клики, обслуженные вне этого узла. Ссылка, достигшая лимита, деактивируется.
+     */
+    public void addClicks(int clicks) {
+        long current = state;
+        while (true) {
+            int total = (int) Math.min(Integer.MAX_VALUE, (long) clicksOf(current) + clicks);
+            int limit = limitOf(current);
+            long next = pack(total, limit, activeOf(current) && total < limit);
+            long witness = (long) STATE.compareAndExchange(this, current, next);
+            if (witness == current) {
+                return;
+            }
+            current = witness;
         }
-        return true;
+    }
+
+    /**
+     * Применяет состояние, пришедшее с ведущего узла (реплика), одной записью.
+     */
+    public void applyReplicatedState(int clicksCount, int clickLimit, boolean active) {
+        this.state = pack(clicksCount, clickLimit, active);
     }
 
     /**
      * Проверяет, истекло ли время жизни ссылки.
      */
     public boolean isExpired() {
-        return LocalDateTime.now().isAfter(expiresAt);
+        return isExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * Проверяет срок действия на момент nowMillis, не выделяя память.
+     */
+    public boolean isExpired(long nowMillis) {
+        return nowMillis > expiresAtMillis;
+    }
+
+    /**
+     * Помечает ссылку удаленной.
+     */
+    public void markDeleted() {
+        this.deleted = true;
     }
 
     /**
      * Деактивирует ссылку.
      */
     public void deactivate() {
-        this.active = false;
+        STATE.getAndBitwiseAnd(this, ~ACTIVE);
     }
 
     /**
-     * Обновляет лимит кликов.
+     * Обновляет лимит кликов. Ссылка, которой лимит снова позволяет переходы,
+     * активируется, если срок еще не истек.
      */
     public void updateClickLimit(int newLimit) {
-        this.clickLimit = newLimit;
-        if (clicksCount >= newLimit) {
-            active = false;
-        } else {
-            if (!active && !isExpired()) {
-                active = true;
+        boolean expired = isExpired();
+        long current = state;
+        while (true) {
+            int clicks = clicksOf(current);
+            boolean active = clicks < newLimit && (activeOf(current) || !expired);
+            long witness = (long) STATE.compareAndExchange(this, current, pack(clicks, newLimit, active));
+            if (witness == current) {
+                return;
             }
+            current = witness;
         }
     }
 
     @Override
     public String toString() {
         return String.format("ShortLink{code='%s', original='%s', clicks=%d/%d, expires=%s}",
-                shortCode, originalUrl, clicksCount, clickLimit, expiresAt);
+                shortCode, originalUrl, getClicksCount(), getClickLimit(), expiresAt);
     }
 }
@@ -1,75 +1,95 @@
 package com.linkshortener.core;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 
 /**
  * Класс пользователя системы.
- * Каждый пользователь идентифицируется по UUID.
+ * Каждый пользователь идентифицируется по UUID и привязан к сессии, в которой создан.
+ * Ссылки пользователя хранятся в LinkStorage, здесь только то, что нужно самому пользователю:
+ * время создания и последнего обращения (для вытеснения простаивающих) и уведомления.
  */
 public class User {
+    private static final int MAX_NOTIFICATIONS = 50;
+    // Последнее обращение обновляется не чаще раза в секунду, чтобы не писать в память на каждом чтении
+    private static final long TOUCH_GRANULARITY_MILLIS = 1_000;
+
     private final UUID id;
     private final String sessionId;
-    private final LocalDateTime createdAt;
-    private final List<String> ownedLinks;
-    private final Set<String> notifications;
+    private final long createdAtMillis;
+    private volatile long lastAccessMillis;
+    // Создается при первом уведомлении: у большинства анонимных пользователей их нет
+    private ArrayDeque<String> notifications;
 
     public User() {
-        this.id = UUID.randomUUID();
-        this.sessionId = generateSessionId();
-        this.createdAt = LocalDateTime.now();
-        this.ownedLinks = new ArrayList<>();
-        this.notifications = new LinkedHashSet<>();
+        this(UUID.randomUUID(), null);
+    }
+
+    /**
+     * @param sessionId сессия, по которой пользователя находит UserStorage (может быть null)
+     */
+    public User(String sessionId) {
+        this(UUID.randomUUID(), sessionId);
+    }
+
+    /**
+     * Пользователь с известным идентификатором (клиент API из X-User-Id), без сессии.
+     */
+    public User(UUID id) {
+        this(id, null);
     }
 
-    private String generateSessionId() {
-        return "SESS-" + UUID.randomUUID().toString().substring(0, 8);
+    private User(UUID id, String sessionId) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.createdAtMillis = System.currentTimeMillis();
+        this.lastAccessMillis = createdAtMillis;
     }
 
     // Геттеры
     public UUID getId() { return id; }
     public String getSessionId() { return sessionId; }
-    public LocalDateTime getCreatedAt() { return createdAt; }
-    public List<String> getOwnedLinks() { return Collections.unmodifiableList(ownedLinks); }
-    public Set<String> getNotifications() { return Collections.unmodifiableSet(notifications); }
+    public long getLastAccessMillis() { return lastAccessMillis; }
 
-    /**
-     * Добавляет ссылку пользователю.
-     */
-    public void addLink(String shortCode) {
-        ownedLinks.add(shortCode);
+    public LocalDateTime getCreatedAt() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(createdAtMillis), ZoneId.systemDefault());
     }
 
-    /**
-     * Добавляет уведомление.
-     */
-    public void addNotification(String message) {
-        notifications.add(LocalDateTime.now() + " - " + message);
-        // Ограничиваем количество уведомлений
-        if (notifications.size() > 50) {
-            Iterator<String> it = notifications.iterator();
-            it.next();
-            it.remove();
-        }
+    public synchronized List<String> getNotifications() {
+        return notifications == null ? Collections.emptyList() : List.copyOf(notifications);
+    }
+
+    public synchronized int getNotificationCount() {
+        return notifications == null ? 0 : notifications.size();
     }
 
     /**
-     * Проверяет, принадлежит ли ссылка пользователю.
+     * Отмечает обращение пользователя.
      */
-    public boolean ownsLink(String shortCode) {
-        return ownedLinks.contains(shortCode);
+    public void touch(long nowMillis) {
+        if (nowMillis - lastAccessMillis >= TOUCH_GRANULARITY_MILLIS) {
+            lastAccessMillis = nowMillis;
+        }
     }
 
     /**
-     * Удаляет ссылку у пользователя.
+     * Добавляет уведомление.
      */
-    public boolean removeLink(String shortCode) {
-        return ownedLinks.remove(shortCode);
+    public synchronized void addNotification(String message) {
+        if (notifications == null) {
+            notifications = new ArrayDeque<>();
+        }
+        notifications.addLast(LocalDateTime.now() + " - " + message);
+        // Ограничиваем количество уведомлений
+        if (notifications.size() > MAX_NOTIFICATIONS) {
+            notifications.removeFirst();
+        }
     }
 
     @Override
     public String toString() {
-        return String.format("User{id=%s, links=%d, notifications=%d}",
-                id, ownedLinks.size(), notifications.size());
+        return String.format("User{id=%s, notifications=%d}", id, getNotificationCount());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package com.linkshortener.core.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Снимок статистики переходов по ссылке.
+ * Массивы упорядочены от самого старого периода к текущему.
+ */
+public class ClickStats {
+    private final long[] perMinute;
+    private final long[] perHour;
+    private final long[] perDay;
+
+    public ClickStats(long[] perMinute, long[] perHour, long[] perDay) {
+        this.perMinute = perMinute;
+        this.perHour = perHour;
+        this.perDay = perDay;
+    }
+
+    /**
+     * Пустая статистика для ссылки без переходов.
+     */
+    public static ClickStats empty() {
+        return new ClickStats(new long[ClickTimeSeries.MINUTES],
+                new long[ClickTimeSeries.HOURS], new long[ClickTimeSeries.DAYS]);
+    }
+
+    // Геттеры
+    public long[] getPerMinute() { return perMinute.clone(); }
+    public long[] getPerHour() { return perHour.clone(); }
+    public long[] getPerDay() { return perDay.clone(); }
+
+    public long getLastMinute() { return perMinute[perMinute.length - 1]; }
+    public long getLastHour() { return Arrays.stream(perMinute).sum(); }
+    public long getLastDay() { return Arrays.stream(perHour).sum(); }
+    public long getLast30Days() { return Arrays.stream(perDay).sum(); }
+
+    @Override
+    public String toString() {
+        return String.format("ClickStats{minute=%d, hour=%d, day=%d, 30days=%d}",
+                getLastMinute(), getLastHour(), getLastDay(), getLast30Days());
+    }
+}
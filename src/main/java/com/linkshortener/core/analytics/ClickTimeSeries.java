@@ -0,0 +1,77 @@
+package com.linkshortener.core.analytics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Временной ряд переходов по одной ссылке: корзины по минутам (последний час),
+ * по часам (последние сутки) и по дням (последние 30 дней).
+ * Все корзины лежат в одном массиве long фиксированного размера; в каждой ячейке
+ * старшие 32 бита - номер периода, младшие - число переходов. Обновление -
+ * CAS одной ячейки, без блокировок и выделения памяти, а устаревшая корзина
+ * обнуляется тем же CAS при первом переходе в новом периоде.
+ */
+public class ClickTimeSeries {
+    public static final int MINUTES = 60;
+    public static final int HOURS = 24;
+    public static final int DAYS = 30;
+
+    private static final int HOURS_BASE = MINUTES;
+    private static final int DAYS_BASE = MINUTES + HOURS;
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] slots = new long[MINUTES + HOURS + DAYS];
+
+    /**
+     * Учитывает переход в момент nowMillis.
+     */
+    public void record(long nowMillis) {
+        long minute = nowMillis / 60_000;
+        long hour = minute / 60;
+        long day = hour / 24;
+        increment(0, MINUTES, minute);
+        increment(HOURS_BASE, HOURS, hour);
+        increment(DAYS_BASE, DAYS, day);
+    }
+
+    private void increment(int base, int length, long period) {
+        int index = base + (int) (period % length);
+        long tag = period & COUNT_MASK;
+        while (true) {
+            long current = (long) SLOTS.getVolatile(slots, index);
+            long next = (current >>> 32) == tag ? current + 1 : (tag << 32) | 1;
+            if (SLOTS.compareAndSet(slots, index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Снимок ряда на момент nowMillis.
+     */
+    public ClickStats snapshot(long nowMillis) {
+        long minute = nowMillis / 60_000;
+        long hour = minute / 60;
+        long day = hour / 24;
+        return new ClickStats(
+                read(0, MINUTES, minute),
+                read(HOURS_BASE, HOURS, hour),
+                read(DAYS_BASE, DAYS, day));
+    }
+
+    /**
+     * Читает корзины от самой старой к текущей; чужие периоды дают 0.
+     */
+    private long[] read(int base, int length, long currentPeriod) {
+        long[] result = new long[length];
+        for (int i = 0; i < length; i++) {
+            long period = currentPeriod - (length - 1 - i);
+            long value = (long) SLOTS.getVolatile(slots, base + (int) (period % length));
+            if ((value >>> 32) == (period & COUNT_MASK)) {
+                result[i] = value & COUNT_MASK;
+            }
+        }
+        return result;
+    }
+}
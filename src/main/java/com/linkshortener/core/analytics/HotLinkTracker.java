@@ -0,0 +1,268 @@
+package com.linkshortener.core.analytics;
+
+import com.linkshortener.config.AppConfig;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Потоковый поиск самых популярных ссылок ("что горячее прямо сейчас").
+ * Частоты оцениваются Count-Min Sketch'ем, разбитым на подокна по времени:
+ * оценка - сумма по подокнам скользящего окна, устаревшее подокно обнуляется
+ * целиком. Поверх скетча держится min-куча из K кандидатов. Память
+ * фиксирована и не зависит от числа ссылок.
+ * Блокировка берется только когда новый код претендует на место в топе:
+ * обращения к холодным кодам и к кодам, уже попавшим в топ, идут без нее.
+ */
+public class HotLinkTracker {
+    private static HotLinkTracker instance;
+
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 2048;
+    private static final int SUB_WINDOWS = 6;
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int topK;
+    private final long subWindowMillis;
+    // [подокно][строка * WIDTH + столбец]
+    private final int[][] sketches = new int[SUB_WINDOWS][DEPTH * WIDTH];
+    private volatile long currentEpoch;
+    // Порог входа в кучу: пока оценка ниже, блокировка не берется
+    private volatile long admissionThreshold;
+
+    // Min-куча кандидатов, изменяется под this; индекс читается без блокировки
+    private final String[] heapCodes;
+    private final long[] heapCounts;
+    private final Map<String, Integer> heapIndex = new ConcurrentHashMap<>();
+    private int heapSize;
+
+    private HotLinkTracker() {
+        this(AppConfig.getInstance().getHotLinksTopK(),
+                AppConfig.getInstance().getHotLinksWindowSeconds() * 1000L);
+    }
+
+    /**
+     * Создает трекер с заданными параметрами (для тестов и отдельных узлов).
+     */
+    public HotLinkTracker(int topK, long windowMillis) {
+        if (topK <= 0 || windowMillis < SUB_WINDOWS) {
+            throw new IllegalArgumentException("Некорректные параметры трекера популярных ссылок");
+        }
+        this.topK = topK;
+        this.subWindowMillis = windowMillis / SUB_WINDOWS;
+        this.heapCodes = new String[topK];
+        this.heapCounts = new long[topK];
+    }
+
+    public static synchronized HotLinkTracker getInstance() {
+        if (instance == null) {
+            instance = new HotLinkTracker();
+        }
+        return instance;
+    }
+
+    /**
+     * Учитывает обращение к коду в момент nowMillis.
+     */
+    public void record(String code, long nowMillis) {
+        long epoch = nowMillis / subWindowMillis;
+        if (epoch != currentEpoch) {
+            rotate(epoch);
+        }
+
+        int hash = code.hashCode();
+        int[] sketch = sketches[(int) (epoch % SUB_WINDOWS)];
+        for (int row = 0; row < DEPTH; row++) {
+            COUNTERS.getAndAdd(sketch, slot(hash, row), 1);
+        }
+
+        long estimate = estimate(hash);
+        if (estimate > admissionThreshold && !heapIndex.containsKey(code)) {
+            offer(code, estimate);
+        }
+    }
+
+    /**
+     * Оценка числа обращений к коду за скользящее окно (может быть завышена).
+     */
+    public long estimate(String code) {
+        return estimate(code.hashCode());
+    }
+
+    private long estimate(int hash) {
+        long total = 0;
+        for (int[] sketch : sketches) {
+            int min = Integer.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, (int) COUNTERS.getOpaque(sketch, slot(hash, row)));
+            }
+            total += min;
+        }
+        return total;
+    }
+
+    /**
+     * Проверяет, входит ли код в текущий топ.
+     */
+    public boolean isHot(String code) {
+        return heapIndex.containsKey(code);
+    }
+
+    /**
+     * Возвращает топ кодов по убыванию оценки.
+     */
+    public synchronized List<HotLink> getTopK() {
+        List<HotLink> result = new ArrayList<>(heapSize);
+        for (int i = 0; i < heapSize; i++) {
+            long estimate = estimate(heapCodes[i].hashCode());
+            if (estimate > 0) {
+                result.add(new HotLink(heapCodes[i], estimate));
+            }
+        }
+        result.sort(Comparator.comparingLong(HotLink::getEstimate).reversed());
+        return result;
+    }
+
+    /**
+     * Сбрасывает все счетчики (для тестов).
+     */
+    public synchronized void clear() {
+        for (int[] sketch : sketches) {
+            Arrays.fill(sketch, 0);
+        }
+        heapIndex.clear();
+        Arrays.fill(heapCodes, null);
+        heapSize = 0;
+        admissionThreshold = 0;
+    }
+
+    private synchronized void offer(String code, long estimate) {
+        if (heapIndex.containsKey(code)) return;
+
+        if (heapSize < topK) {
+            heapCodes[heapSize] = code;
+            heapCounts[heapSize] = estimate;
+            heapIndex.put(code, heapSize);
+            siftUp(heapSize++);
+            admissionThreshold = heapSize < topK ? 0 : heapCounts[0];
+            return;
+        }
+
+        // Оценки участников топа обновляются лениво: освежаем корень,
+        // пока он не окажется действительно минимальным
+        for (int i = 0; i < heapSize; i++) {
+            long fresh = estimate(heapCodes[0].hashCode());
+            if (fresh == heapCounts[0]) break;
+            heapCounts[0] = fresh;
+            siftDown(0);
+        }
+
+        if (estimate > heapCounts[0]) {
+            heapIndex.remove(heapCodes[0]);
+            heapCodes[0] = code;
+            heapCounts[0] = estimate;
+            heapIndex.put(code, 0);
+            siftDown(0);
+        }
+        admissionThreshold = heapSize < topK ? 0 : heapCounts[0];
+    }
+
+    /**
+     * Сдвигает окно: обнуляет подокна, которые выпали из него,
+     * и пересчитывает оценки кандидатов.
+     */
+    private synchronized void rotate(long epoch) {
+        long previous = currentEpoch;
+        if (epoch <= previous) return;
+
+        long steps = Math.min(epoch - previous, SUB_WINDOWS);
+        for (long e = epoch - steps + 1; e <= epoch; e++) {
+            Arrays.fill(sketches[(int) (e % SUB_WINDOWS)], 0);
+        }
+        currentEpoch = epoch;
+
+        // Перестраиваем кучу по свежим оценкам, остывшие коды выбрасываем
+        int size = heapSize;
+        String[] codes = Arrays.copyOf(heapCodes, size);
+        heapIndex.clear();
+        heapSize = 0;
+        for (String code : codes) {
+            long estimate = estimate(code.hashCode());
+            if (estimate > 0) {
+                heapCodes[heapSize] = code;
+                heapCounts[heapSize] = estimate;
+                heapIndex.put(code, heapSize);
+                siftUp(heapSize++);
+            }
+        }
+        Arrays.fill(heapCodes, heapSize, topK, null);
+        admissionThreshold = heapSize < topK ? 0 : heapCounts[0];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapCounts[parent] <= heapCounts[i]) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heapSize) return;
+            int smallest = left + 1 < heapSize && heapCounts[left + 1] < heapCounts[left] ? left + 1 : left;
+            if (heapCounts[i] <= heapCounts[smallest]) return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String code = heapCodes[a];
+        heapCodes[a] = heapCodes[b];
+        heapCodes[b] = code;
+        long count = heapCounts[a];
+        heapCounts[a] = heapCounts[b];
+        heapCounts[b] = count;
+        heapIndex.put(heapCodes[a], a);
+        heapIndex.put(heapCodes[b], b);
+    }
+
+    /**
+     * Индекс счетчика в строке row: независимое перемешивание хеша для каждой строки.
+     */
+    private static int slot(int hash, int row) {
+        int h = hash + row * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return row * WIDTH + (h & (WIDTH - 1));
+    }
+
+    /**
+     * Популярный код и оценка числа обращений к нему.
+     */
+    public static class HotLink {
+        private final String code;
+        private final long estimate;
+
+        public HotLink(String code, long estimate) {
+            this.code = code;
+            this.estimate = estimate;
+        }
+
+        public String getCode() { return code; }
+        public long getEstimate() { return estimate; }
+
+        @Override
+        public String toString() {
+            return code + "=" + estimate;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.linkshortener.core.analytics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Оценка числа уникальных посетителей ссылки (HyperLogLog, 1024 регистра,
+ * стандартная ошибка около 3%).
+ * Пока посетителей мало, регистры хранятся разреженно - отсортированным
+ * массивом int (индекс и значение регистра), при росте скетч переходит
+ * в плотный массив из 1024 байт. Скетчи с разных узлов объединяются
+ * через {@link #merge} и {@link #toBytes}/{@link #fromBytes}.
+ */
+public class UniqueVisitorSketch {
+    private static final int PRECISION = 10;
+    private static final int REGISTERS = 1 << PRECISION;
+    // 128 записей по 4 байта - половина плотной формы; дальше разреженная невыгодна
+    private static final int SPARSE_LIMIT = REGISTERS / 8;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    private static final byte FORMAT_SPARSE = 0;
+    private static final byte FORMAT_DENSE = 1;
+
+    // Ровно одно из полей не null
+    private int[] sparse = new int[4];
+    private int sparseSize;
+    private byte[] dense;
+
+    /**
+     * Учитывает посетителя по 64-битному хешу его отпечатка.
+     */
+    public synchronized void add(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        updateRegister(index, rank);
+    }
+
+    private void updateRegister(int index, int rank) {
+        if (dense != null) {
+            if (dense[index] < rank) {
+                dense[index] = (byte) rank;
+            }
+            return;
+        }
+
+        // Значение регистра всегда >= 1, поэтому ключ (index << 8) не встречается,
+        // а точка вставки указывает на запись того же регистра, если она есть
+        int position = -Arrays.binarySearch(sparse, 0, sparseSize, index << 8) - 1;
+        if (position < sparseSize && (sparse[position] >>> 8) == index) {
+            if ((sparse[position] & 0xFF) < rank) {
+                sparse[position] = (index << 8) | rank;
+            }
+            return;
+        }
+        insertSparse(position, (index << 8) | rank);
+    }
+
+    private void insertSparse(int position, int entry) {
+        if (sparseSize == SPARSE_LIMIT) {
+            toDense();
+            updateRegister(entry >>> 8, entry & 0xFF);
+            return;
+        }
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, Math.min(sparse.length * 2, SPARSE_LIMIT));
+        }
+        System.arraycopy(sparse, position, sparse, position + 1, sparseSize - position);
+        sparse[position] = entry;
+        sparseSize++;
+    }
+
+    private void toDense() {
+        dense = new byte[REGISTERS];
+        for (int i = 0; i < sparseSize; i++) {
+            dense[sparse[i] >>> 8] = (byte) (sparse[i] & 0xFF);
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+
+    /**
+     * Оценка числа уникальных посетителей.
+     */
+    public synchronized long estimate() {
+        if (dense == null) {
+            // Мало занятых регистров: линейный подсчет точнее гармонического среднего
+            return linearCounting(REGISTERS - sparseSize);
+        }
+
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : dense) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) zeros++;
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            return linearCounting(zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    private static long linearCounting(int zeros) {
+        return Math.round(REGISTERS * Math.log((double) REGISTERS / zeros));
+    }
+
+    /**
+     * Объединяет с другим скетчем (максимум по регистрам).
+     */
+    public void merge(UniqueVisitorSketch other) {
+        int[] entries = other.entries();
+        synchronized (this) {
+            for (int entry : entries) {
+                updateRegister(entry >>> 8, entry & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Ненулевые регистры в виде (индекс << 8 | значение).
+     */
+    private synchronized int[] entries() {
+        if (dense == null) {
+            return Arrays.copyOf(sparse, sparseSize);
+        }
+        int[] result = new int[REGISTERS];
+        int size = 0;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (dense[i] != 0) {
+                result[size++] = (i << 8) | dense[i];
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Сериализует скетч для передачи на другой узел.
+     */
+    public synchronized byte[] toBytes() {
+        if (dense != null) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + REGISTERS);
+            buffer.put(FORMAT_DENSE).put(dense);
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 4 * sparseSize);
+        buffer.put(FORMAT_SPARSE).putInt(sparseSize);
+        for (int i = 0; i < sparseSize; i++) {
+            buffer.putInt(sparse[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Восстанавливает скетч из {@link #toBytes}.
+     */
+    public static UniqueVisitorSketch fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        UniqueVisitorSketch sketch = new UniqueVisitorSketch();
+        byte format = buffer.get();
+        if (format == FORMAT_DENSE) {
+            sketch.sparse = null;
+            sketch.dense = new byte[REGISTERS];
+            buffer.get(sketch.dense);
+        } else if (format == FORMAT_SPARSE) {
+            int size = buffer.getInt();
+            for (int i = 0; i < size; i++) {
+                int entry = buffer.getInt();
+                sketch.updateRegister(entry >>> 8, entry & 0xFF);
+            }
+        } else {
+            throw new IllegalArgumentException("Неизвестный формат скетча: " + format);
+        }
+        return sketch;
+    }
+
+    /**
+     * Приблизительный размер в байтах (без заголовка объекта).
+     */
+    public synchronized int memoryBytes() {
+        return dense != null ? dense.length : sparse.length * Integer.BYTES;
+    }
+}
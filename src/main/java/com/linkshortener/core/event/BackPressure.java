@@ -0,0 +1,18 @@
+package com.linkshortener.core.event;
+
+/**
+ * Что делать, когда потребитель отстал на всю емкость кольца.
+ */
+public enum BackPressure {
+    /** Издатели ждут, пока потребитель освободит слот; события не теряются. */
+    BLOCK,
+    /** Издатели не ждут; потребитель пропускает затертые события и считает их. */
+    DROP;
+
+    /**
+     * Разбирает значение настройки (block или drop, без учета регистра).
+     */
+    public static BackPressure parse(String value) {
+        return valueOf(value.trim().toUpperCase(java.util.Locale.ROOT));
+    }
+}
@@ -0,0 +1,47 @@
+package com.linkshortener.core.event;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.ShortLink;
+
+/**
+ * Событие ссылки - переиспользуемый слот кольца {@link LinkEventBus}.
+ * Издатель заполняет его на месте, поэтому публикация не выделяет память.
+ */
+public final class LinkEvent {
+    private LinkEventType type;
+    private String code;
+    private ShortLink link;
+    private RedirectOutcome outcome;
+    private long value;
+    private long timestampMillis;
+
+    void set(LinkEventType type, String code, ShortLink link, RedirectOutcome outcome,
+             long value, long timestampMillis) {
+        this.type = type;
+        this.code = code;
+        this.link = link;
+        this.outcome = outcome;
+        this.value = value;
+        this.timestampMillis = timestampMillis;
+    }
+
+    void copyFrom(LinkEvent other) {
+        set(other.type, other.code, other.link, other.outcome, other.value, other.timestampMillis);
+    }
+
+    // Геттеры
+    public LinkEventType getType() { return type; }
+    public String getCode() { return code; }
+    /** Ссылка; null для перехода по несуществующему коду. */
+    public ShortLink getLink() { return link; }
+    /** Исход перехода (только для CLICKED). */
+    public RedirectOutcome getOutcome() { return outcome; }
+    /** Число, зависящее от типа (см. {@link LinkEventType}). */
+    public long getValue() { return value; }
+    public long getTimestampMillis() { return timestampMillis; }
+
+    @Override
+    public String toString() {
+        return type + " " + code + (outcome != null ? " " + outcome.getLabel() : "") + " " + value;
+    }
+}
@@ -0,0 +1,320 @@
+package com.linkshortener.core.event;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.ShortLink;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Шина событий ссылок на кольцевом буфере в духе Disruptor.
+ * Слоты выделены заранее; издатель захватывает номер одним атомарным сложением,
+ * заполняет слот на месте и публикует его release-записью номера в массив
+ * опубликованных - без блокировок и без выделения памяти.
+ * Каждый потребитель живет в своем потоке и держит свой номер (барьер),
+ * по которому читает пачками все опубликованные подряд события.
+ * Потребители BLOCK сдерживают издателей: слот не переиспользуется, пока самый
+ * медленный из них его не прочитал. Потребители DROP издателей не задерживают:
+ * отставший на емкость кольца пропускает затертые события и учитывает их в dropped.
+ */
+public class LinkEventBus {
+    private static final VarHandle CURSOR;
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(long[].class);
+    // Метка слота, который сейчас заполняется
+    private static final long WRITING = Long.MIN_VALUE;
+
+    static {
+        try {
+            CURSOR = MethodHandles.lookup().findVarHandle(LinkEventBus.class, "cursor", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final LinkEvent[] slots;
+    // Номер события, опубликованного в слоте; до первой публикации - номер "прошлого круга"
+    private final long[] published;
+    private final int mask;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder producerWaits = new LongAdder();
+
+    // Последний захваченный номер - на отдельной кеш-линии от полей, которые читают издатели
+    long p01, p02, p03, p04, p05, p06, p07;
+    private volatile long cursor = -1;
+    long p11, p12, p13, p14, p15, p16, p17;
+    // Минимальный номер потребителей BLOCK на момент последней проверки
+    private volatile long gatingCache = -1;
+    private volatile Subscription[] gating = new Subscription[0];
+    private volatile boolean hasSubscribers;
+
+    public LinkEventBus(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Емкость кольца событий должна быть положительной");
+        }
+        int size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        this.slots = new LinkEvent[size];
+        this.published = new long[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LinkEvent();
+            published[i] = i - size;
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Есть ли потребители; без них публиковать незачем.
+     */
+    public boolean hasSubscribers() {
+        return hasSubscribers;
+    }
+
+    /**
+     * Публикует событие. Ждет только если кольцо заполнено потребителем BLOCK.
+     */
+    public void publish(LinkEventType type, String code, ShortLink link, RedirectOutcome outcome,
+                        long value, long timestampMillis) {
+        long sequence = (long) CURSOR.getAndAdd(this, 1L) + 1;
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint > gatingCache) {
+            awaitGating(wrapPoint);
+        }
+        int index = (int) sequence & mask;
+        // Предыдущий круг этого слота мог еще дописываться отставшим издателем
+        while ((long) PUBLISHED.getAcquire(published, index) != wrapPoint) {
+            Thread.onSpinWait();
+        }
+        PUBLISHED.setOpaque(published, index, WRITING);
+        VarHandle.storeStoreFence();
+        slots[index].set(type, code, link, outcome, value, timestampMillis);
+        PUBLISHED.setRelease(published, index, sequence);
+    }
+
+    private void awaitGating(long wrapPoint) {
+        long min;
+        boolean waited = false;
+        while (wrapPoint > (min = minGatingSequence(wrapPoint))) {
+            waited = true;
+            LockSupport.parkNanos(1_000);
+        }
+        gatingCache = min;
+        if (waited) {
+            producerWaits.increment();
+        }
+    }
+
+    private long minGatingSequence(long fallback) {
+        long min = Long.MAX_VALUE;
+        for (Subscription subscription : gating) {
+            min = Math.min(min, subscription.sequence);
+        }
+        return min == Long.MAX_VALUE ? fallback : min;
+    }
+
+    /**
+     * Подписывает потребителя и запускает его поток. Потребитель получает
+     * события, опубликованные после подписки.
+     * @param name имя для метрик и потока
+     */
+    public synchronized Subscription subscribe(String name, BackPressure policy, LinkEventHandler handler) {
+        Subscription subscription = new Subscription(name, policy, handler, cursor);
+        subscriptions.add(subscription);
+        if (policy == BackPressure.BLOCK) {
+            updateGating();
+        }
+        hasSubscribers = true;
+        subscription.thread.start();
+        return subscription;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+        updateGating();
+        hasSubscribers = !subscriptions.isEmpty();
+    }
+
+    private void updateGating() {
+        List<Subscription> blocking = new ArrayList<>();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.policy == BackPressure.BLOCK) {
+                blocking.add(subscription);
+            }
+        }
+        gating = blocking.toArray(new Subscription[0]);
+        gatingCache = -1;
+    }
+
+    /**
+     * Останавливает всех потребителей.
+     */
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    // Геттеры
+    public int capacity() { return slots.length; }
+    /** Номер последнего захваченного события (-1 - событий не было). */
+    public long getCursor() { return cursor; }
+    /** Сколько раз издатель ждал отставшего потребителя BLOCK. */
+    public long getProducerWaits() { return producerWaits.sum(); }
+    public List<Subscription> getSubscriptions() { return List.copyOf(subscriptions); }
+
+    /**
+     * Потребитель шины: свой поток, свой номер и своя политика отставания.
+     */
+    public final class Subscription implements AutoCloseable {
+        private static final int MAX_BATCH = 1024;
+
+        private final String name;
+        private final BackPressure policy;
+        private final LinkEventHandler handler;
+        private final Thread thread;
+        private final LinkEvent copy = new LinkEvent();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        // Номер последнего обработанного события; его читают издатели
+        private volatile long sequence;
+        private volatile boolean running = true;
+
+        private Subscription(String name, BackPressure policy, LinkEventHandler handler, long start) {
+            this.name = name;
+            this.policy = policy;
+            this.handler = handler;
+            this.sequence = start;
+            this.thread = new Thread(this::run, "events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            int idle = 0;
+            long next = sequence + 1;
+            while (running) {
+                long available = cursor;
+                if (next > available) {
+                    idle = idle(idle);
+                    continue;
+                }
+                idle = 0;
+                long end = Math.min(available, next + MAX_BATCH - 1);
+                next = processBatch(next, end);
+            }
+        }
+
+        /**
+         * Обрабатывает опубликованные подряд события из [from, to].
+         * @return номер следующего ожидаемого события
+         */
+        private long processBatch(long from, long to) {
+            long next = from;
+            while (next <= to) {
+                int index = (int) next & mask;
+                long publishedSequence = (long) PUBLISHED.getAcquire(published, index);
+                if (publishedSequence == next) {
+                    LinkEvent event = slots[index];
+                    if (policy == BackPressure.DROP) {
+                        // Слот может затереть издатель следующего круга: читаем копию и сверяем номер
+                        copy.copyFrom(event);
+                        VarHandle.loadLoadFence();
+                        if ((long) PUBLISHED.getOpaque(published, index) != next) {
+                            next = skipOverrun(next);
+                            continue;
+                        }
+                        event = copy;
+                    }
+                    deliver(event, next, next == to);
+                    next++;
+                } else if (publishedSequence > next) {
+                    next = skipOverrun(next);
+                } else {
+                    // Издатель еще заполняет слот: отдаем готовое и ждем
+                    break;
+                }
+            }
+            if (next > from) {
+                sequence = next - 1;
+            }
+            return next;
+        }
+
+        private void deliver(LinkEvent event, long eventSequence, boolean endOfBatch) {
+            try {
+                handler.onEvent(event, eventSequence, endOfBatch);
+            } catch (RuntimeException e) {
+                errors.increment();
+                System.err.println("Ошибка потребителя событий " + name + ": " + e.getMessage());
+            }
+            processed.increment();
+        }
+
+        /**
+         * Потребитель DROP отстал на круг: переходит к самому старому событию, которое еще в кольце.
+         */
+        private long skipOverrun(long next) {
+            long resume = Math.max(next + 1, cursor - mask);
+            dropped.add(resume - next);
+            sequence = resume - 1;
+            return resume;
+        }
+
+        private int idle(int idle) {
+            if (idle < 100) {
+                Thread.onSpinWait();
+            } else if (idle < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(idle < 1_000 ? 100_000 : 1_000_000);
+            }
+            return idle + 1;
+        }
+
+        /**
+         * Ждет, пока потребитель обработает все события, захваченные до вызова
+         * (например, перед остановкой, когда издатели уже остановлены).
+         * @return true, если дождались до истечения таймаута
+         */
+        public boolean drain(long timeoutMillis) throws InterruptedException {
+            long target = cursor;
+            long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+            while (sequence < target) {
+                if (!running || System.nanoTime() >= deadline) {
+                    return false;
+                }
+                Thread.sleep(1);
+            }
+            return true;
+        }
+
+        /**
+         * Останавливает поток потребителя; необработанные события отбрасываются.
+         */
+        @Override
+        public void close() {
+            if (!running) return;
+            running = false;
+            unsubscribe(this);
+            LockSupport.unpark(thread);
+            try {
+                thread.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Геттеры
+        public String getName() { return name; }
+        public BackPressure getPolicy() { return policy; }
+        public long getSequence() { return sequence; }
+        /** Сколько опубликованных событий потребитель еще не обработал. */
+        public long getLag() { return Math.max(0, cursor - sequence); }
+        public long getProcessed() { return processed.sum(); }
+        public long getDropped() { return dropped.sum(); }
+        public long getErrors() { return errors.sum(); }
+    }
+}
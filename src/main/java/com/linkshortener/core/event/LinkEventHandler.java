@@ -0,0 +1,15 @@
+package com.linkshortener.core.event;
+
+/**
+ * Потребитель событий {@link LinkEventBus}. Вызывается из собственного потока
+ * потребителя, события приходят по порядку номеров.
+ */
+@FunctionalInterface
+public interface LinkEventHandler {
+
+    /**
+     * @param event событие; действительно только до возврата из метода
+     * @param endOfBatch последнее событие текущей пачки (удобно для сброса буферов)
+     */
+    void onEvent(LinkEvent event, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,21 @@
+package com.linkshortener.core.event;
+
+/**
+ * Тип события жизненного цикла ссылки.
+ */
+public enum LinkEventType {
+    /** Ссылка создана. */
+    CREATED,
+    /** Попытка перехода с любым исходом; value - хеш отпечатка клиента (0 - без отпечатка). */
+    CLICKED,
+    /** Учтены переходы, обслуженные в другом месте; value - их число. */
+    CLICKS_ADDED,
+    /** Владелец изменил лимит; value - новый лимит. */
+    LIMIT_CHANGED,
+    /** Ссылка исчерпала лимит и перестала работать; value - лимит. */
+    LIMIT_REACHED,
+    /** Ссылка перестала работать по сроку (при переходе; из хранилища еще не удалена). */
+    EXPIRED,
+    /** Ссылка удалена из хранилища: владельцем (isDeleted) или очисткой просроченных. */
+    DELETED
+}
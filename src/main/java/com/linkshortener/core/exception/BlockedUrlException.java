@@ -0,0 +1,10 @@
+package com.linkshortener.core.exception;
+
+/**
+ * URL ведет на домен из черного списка.
+ */
+public class BlockedUrlException extends InvalidUrlException {
+    public BlockedUrlException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.linkshortener.core.exception;
+
+/**
+ * Слишком частые запросы: ведро токенов пользователя, клиента или ссылки пусто.
+ * Не подкласс {@link LimitExceededException}: исчерпанный лимит кликов - состояние
+ * ссылки, а ограничение частоты - временный отказ, и обрабатываются они по-разному.
+ */
+public class RateLimitExceededException extends Exception {
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+}
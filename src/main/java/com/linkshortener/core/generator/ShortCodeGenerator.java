@@ -1,8 +1,12 @@
 package com.linkshortener.core.generator;
 
+import com.linkshortener.metrics.LinkMetrics;
+
 import java.security.SecureRandom;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
 
 /**
  * Генератор уникальных коротких кодов для ссылок.
@@ -11,41 +15,73 @@ import java.util.Set;
 public class ShortCodeGenerator {
     private static final String ALPHABET =
             "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-    private static final SecureRandom RANDOM = new SecureRandom();
-    private static final Set<String> GENERATED_CODES = new HashSet<>();
+    private static final Set<String> GENERATED_CODES = ConcurrentHashMap.newKeySet();
+    private static final ThreadLocal<int[]> LAST_ATTEMPTS = ThreadLocal.withInitial(() -> new int[1]);
+
+    // SecureRandom заполняется энтропией при создании; узел, который только
+    // обслуживает переходы, не платит за это на старте
+    private static final class RandomHolder {
+        static final SecureRandom RANDOM = new SecureRandom();
+    }
 
     /**
      * Генерирует уникальный короткий код заданной длины.
      * Гарантирует уникальность даже для разных пользователей.
      */
     public static String generateCode(int length) {
+        return generateCode(length, code -> true);
+    }
+
+    /**
+     * Генерирует уникальный код, удовлетворяющий условию
+     * (например, попадающий в партицию этого узла кластера).
+     * Отклоненные условием коды не резервируются и не считаются коллизиями.
+     */
+    public static String generateCode(int length, Predicate<String> accept) {
         String code;
         int attempts = 0;
         int maxAttempts = 100;
+        int rejected = 0;
+        int maxRejected = 100_000;
 
+        // add() атомарно проверяет и резервирует код, поэтому генерация потокобезопасна
         do {
+            do {
+                if (rejected++ > maxRejected) {
+                    throw new IllegalStateException("Не удалось сгенерировать код для своей партиции");
+                }
+                code = randomCode(length, RandomHolder.RANDOM);
+            } while (!accept.test(code));
             if (attempts++ > maxAttempts) {
                 throw new IllegalStateException("Не удалось сгенерировать уникальный код");
             }
-            code = generateRandomCode(length);
-        } while (GENERATED_CODES.contains(code));
+        } while (!GENERATED_CODES.add(code));
 
-        GENERATED_CODES.add(code);
+        LAST_ATTEMPTS.get()[0] = attempts;
+        LinkMetrics.getInstance().recordCodeGenerated(attempts);
         return code;
     }
 
     /**
-     * Генерирует случайный код из алфавита.
+     * Генерирует случайный код из алфавита, не резервируя его.
+     * Для владельцев, которые сами следят за уникальностью в своей части кодов.
      */
-    private static String generateRandomCode(int length) {
+    public static String randomCode(int length, RandomGenerator random) {
         StringBuilder sb = new StringBuilder(length);
         for (int i = 0; i < length; i++) {
-            int index = RANDOM.nextInt(ALPHABET.length());
+            int index = random.nextInt(ALPHABET.length());
             sb.append(ALPHABET.charAt(index));
         }
         return sb.toString();
     }
 
+    /**
+     * Резервирует код, выданный в другом месте (ссылка перенесена с другого узла).
+     */
+    public static void reserveCode(String code) {
+        GENERATED_CODES.add(code);
+    }
+
     /**
      * Освобождает код при удалении ссылки.
      */
@@ -53,6 +89,21 @@ public class ShortCodeGenerator {
         GENERATED_CODES.remove(code);
     }
 
+    /**
+     * Количество попыток последней генерации в текущем потоке
+     * (для диагностических событий вызывающего кода).
+     */
+    public static int lastAttempts() {
+        return LAST_ATTEMPTS.get()[0];
+    }
+
+    /**
+     * Возвращает количество зарезервированных кодов.
+     */
+    public static int reservedCount() {
+        return GENERATED_CODES.size();
+    }
+
     /**
      * Проверяет, используется ли код.
      */
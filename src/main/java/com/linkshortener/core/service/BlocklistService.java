@@ -0,0 +1,97 @@
+package com.linkshortener.core.service;
+
+import com.linkshortener.core.exception.BlockedUrlException;
+import com.linkshortener.util.DomainBlocklist;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Черный список доменов для создания ссылок и (по настройке) переходов.
+ * Список неизменяем и подменяется одной volatile-записью: перечитывание файла
+ * идет в фоне и не блокирует проверки, которые всегда видят либо старый, либо новый список целиком.
+ */
+public class BlocklistService {
+    private static BlocklistService instance;
+
+    private volatile DomainBlocklist current = DomainBlocklist.EMPTY;
+    // Что загружено сейчас; меняется только под монитором перечитывания
+    private Path loadedFile;
+    private FileTime loadedModified;
+    private long loadedSize = -1;
+
+    public BlocklistService() {
+    }
+
+    public static synchronized BlocklistService getInstance() {
+        if (instance == null) {
+            instance = new BlocklistService();
+        }
+        return instance;
+    }
+
+    /**
+     * Проверяет домен URL и его родительские домены.
+     */
+    public boolean isBlocked(String url) {
+        return current.isBlockedUrl(url);
+    }
+
+    /**
+     * @throws BlockedUrlException если домен URL в черном списке
+     */
+    public void check(String url) throws BlockedUrlException {
+        if (isBlocked(url)) {
+            throw new BlockedUrlException("Домен в черном списке: " + url);
+        }
+    }
+
+    /**
+     * Подменяет список целиком (например, собранный не из файла).
+     */
+    public synchronized void replace(DomainBlocklist blocklist) {
+        current = blocklist;
+        loadedFile = null;
+        loadedModified = null;
+        loadedSize = -1;
+    }
+
+    /**
+     * Перечитывает файл, если изменились путь, время изменения или размер.
+     * Пока новый список строится, проверки идут по старому.
+     * @param fileName путь к файлу; пустой - список выключен
+     * @return true, если список заменен
+     */
+    public synchronized boolean reloadIfChanged(String fileName) throws IOException {
+        if (fileName == null || fileName.isBlank()) {
+            if (loadedFile == null) return false;
+            replace(DomainBlocklist.EMPTY);
+            return true;
+        }
+        Path file = Path.of(fileName);
+        FileTime modified = Files.getLastModifiedTime(file);
+        long size = Files.size(file);
+        if (file.equals(loadedFile) && modified.equals(loadedModified) && size == loadedSize) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        DomainBlocklist loaded = DomainBlocklist.load(file);
+        current = loaded;
+        loadedFile = file;
+        loadedModified = modified;
+        loadedSize = size;
+        System.out.println("Черный список доменов: " + loaded.size() + " за "
+                + (System.nanoTime() - start) / 1_000_000 + " мс");
+        return true;
+    }
+
+    /**
+     * Число доменов в текущем списке.
+     */
+    public int size() {
+        return current.size();
+    }
+}
@@ -0,0 +1,16 @@
+package com.linkshortener.core.service;
+
+import com.linkshortener.core.ShortLink;
+
+/**
+ * Внешний учет бюджета кликов, с которым {@link LinkService} сверяется
+ * перед каждым переходом (например, когда часть бюджета выдана в аренду репликам).
+ */
+public interface ClickGate {
+
+    /**
+     * Резервирует один клик ссылки.
+     * @return false, если бюджет ссылки исчерпан
+     */
+    boolean tryAcquire(ShortLink link);
+}
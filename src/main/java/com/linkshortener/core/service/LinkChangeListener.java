@@ -0,0 +1,27 @@
+package com.linkshortener.core.service;
+
+import com.linkshortener.core.ShortLink;
+
+/**
+ * Получатель изменений ссылок в {@link LinkService} (например, кеш ответов перехода).
+ * Вызывается синхронно в потоке, выполнившем изменение, поэтому должен быть быстрым.
+ * Потребителям, которым не нужна синхронность, лучше подписаться на
+ * {@link com.linkshortener.core.event.LinkEventBus} через {@link LinkService#getEventBus()}.
+ */
+public interface LinkChangeListener {
+
+    /**
+     * Ссылка создана.
+     */
+    void onCreated(ShortLink link);
+
+    /**
+     * Изменилось состояние ссылки: счетчик кликов, лимит или активность.
+     */
+    void onStateChanged(ShortLink link);
+
+    /**
+     * Ссылка удалена владельцем или очисткой.
+     */
+    void onRemoved(ShortLink link);
+}
@@ -1,31 +1,105 @@
 package com.linkshortener.core.service;
 
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.RedirectResult;
+import com.linkshortener.core.ResolvedLink;
 import com.linkshortener.core.ShortLink;
 import com.linkshortener.core.User;
+import com.linkshortener.core.analytics.ClickStats;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.core.event.BackPressure;
+import com.linkshortener.core.event.LinkEventBus;
+import com.linkshortener.core.event.LinkEventType;
 import com.linkshortener.core.exception.*;
 import com.linkshortener.core.generator.ShortCodeGenerator;
 import com.linkshortener.config.AppConfig;
+import com.linkshortener.config.ConfigSnapshot;
+import com.linkshortener.metrics.LinkMetrics;
+import com.linkshortener.metrics.events.CleanupSweepEvent;
+import com.linkshortener.metrics.events.CreateLinkEvent;
+import com.linkshortener.metrics.events.RedirectEvent;
 import com.linkshortener.storage.LinkStorage;
+import com.linkshortener.util.Hashing;
 import com.linkshortener.util.UrlValidator;
+import jdk.jfr.EventType;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Сервис для работы с короткими ссылками.
  */
 public class LinkService {
+    // События создаются, только когда их запись включена
+    private static final EventType REDIRECT_EVENT = EventType.getEventType(RedirectEvent.class);
+    private static final EventType CREATE_EVENT = EventType.getEventType(CreateLinkEvent.class);
+    private static final EventType CLEANUP_EVENT = EventType.getEventType(CleanupSweepEvent.class);
+
+    private static final int USER_LOCK_STRIPES = 64;
+
     private static LinkService instance;
     private final LinkStorage linkStorage;
     private final AppConfig config;
     private final NotificationService notificationService;
+    private final LinkMetrics metrics;
+    private final HotLinkTracker hotLinks;
+    private final Predicate<String> codeFilter;
+    private final List<LinkChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Пользователи, которых сейчас удаляют, -> число идущих удалений; их ссылки не создаются
+    private final Map<UUID, Integer> deletingUsers = new ConcurrentHashMap<>();
+    // Полосы блокировок: создание берет чтение, удаление пользователя - запись
+    private final ReadWriteLock[] userLocks = newUserLocks();
+    private volatile ClickGate clickGate;
+    private volatile RateLimiter rateLimiter;
+    private volatile BlocklistService blocklist;
+    private volatile LinkEventBus eventBus;
 
     private LinkService() {
-        this.linkStorage = LinkStorage.getInstance();
+        this(LinkStorage.getInstance(), code -> true);
+        // Уведомления отправляются из своего потока, а не из потока перехода
+        getEventBus().subscribe("notifications",
+                BackPressure.parse(config.getEventsNotificationsBackpressure()), notificationService::onLinkEvent);
+    }
+
+    /**
+     * Создает сервис поверх отдельного хранилища (узел кластера).
+     * Новые коды выдаются только если проходят codeFilter.
+     */
+    public LinkService(LinkStorage linkStorage, Predicate<String> codeFilter) {
+        this(linkStorage, codeFilter, LinkMetrics.getInstance(), HotLinkTracker.getInstance());
+    }
+
+    /**
+     * Создает сервис со своими метриками и трекером популярных ссылок,
+     * чтобы его переходы не попадали в общую статистику (прогрев).
+     */
+    public LinkService(LinkStorage linkStorage, Predicate<String> codeFilter,
+                       LinkMetrics metrics, HotLinkTracker hotLinks) {
+        this.linkStorage = linkStorage;
+        this.codeFilter = codeFilter;
         this.config = AppConfig.getInstance();
         this.notificationService = NotificationService.getInstance();
+        this.metrics = metrics;
+        this.hotLinks = hotLinks;
+    }
+
+    private static ReadWriteLock[] newUserLocks() {
+        ReadWriteLock[] locks = new ReadWriteLock[USER_LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        return locks;
     }
 
     public static synchronized LinkService getInstance() {
@@ -36,91 +110,421 @@ public class LinkService {
     }
 
     /**
-     * Создает короткую ссылку.
+     * Подписывает получателя на изменения ссылок.
+     */
+    public void addChangeListener(LinkChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(LinkChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Шина событий жизненного цикла ссылок; создается при первом обращении.
+     * Пока на нее никто не подписан, сервис ничего в нее не публикует.
+     */
+    public LinkEventBus getEventBus() {
+        LinkEventBus bus = eventBus;
+        if (bus == null) {
+            synchronized (this) {
+                bus = eventBus;
+                if (bus == null) {
+                    bus = new LinkEventBus(config.getEventsRingSize());
+                    eventBus = bus;
+                }
+            }
+        }
+        return bus;
+    }
+
+    /**
+     * Подключает внешний учет бюджета кликов (null - отключить).
      */
+    public void setClickGate(ClickGate clickGate) {
+        this.clickGate = clickGate;
+    }
+
+    /**
+     * Подключает ограничение частоты создания ссылок и переходов (null - отключить).
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Подключает черный список доменов (null - отключить). Создание ссылок проверяется
+     * всегда, переходы - при blocklist.check.redirect=true.
+     */
+    public void setBlocklist(BlocklistService blocklist) {
+        this.blocklist = blocklist;
+    }
+
+    /**
+     * Применяет перечитанную конфигурацию: при смене настроек ratelimit.*
+     * ограничитель пересоздается (накопленные ведра сбрасываются) или отключается.
+     * Длина кода, срок жизни и лимит по умолчанию читаются из AppConfig на каждом
+     * создании и подхватываются без участия слушателя.
+     */
+    public void onConfigChanged(ConfigSnapshot previous, ConfigSnapshot current) {
+        if (current.differs(previous, "ratelimit.")) {
+            setRateLimiter(current.isRateLimitEnabled() ? new RateLimiter(current) : null);
+        }
+    }
+
     /**
      * Создает короткую ссылку.
      */
     public ShortLink createShortLink(String originalUrl, UUID userId, Integer customClickLimit)
-        throws InvalidUrlException {
+        throws InvalidUrlException, RateLimitExceededException {
+
+        long start = System.nanoTime();
+        RateLimiter limiter = rateLimiter;
+        if (limiter != null && !limiter.tryCreate(userId)) {
+            throw new RateLimitExceededException("Слишком много новых ссылок, повторите позже");
+        }
+        CreateLinkEvent event = null;
+        if (CREATE_EVENT.isEnabled()) {
+            event = new CreateLinkEvent();
+            event.begin();
+        }
 
         // Валидация URL
         if (!UrlValidator.isValid(originalUrl)) {
             throw new InvalidUrlException("Некорректный URL: " + originalUrl);
         }
+        BlocklistService domains = blocklist;
+        if (domains != null) {
+            domains.check(originalUrl);
+        }
 
-        // Проверяем, есть ли уже ссылка у этого пользователя на этот URL
-        Optional<String> existingCode = linkStorage.findCodeByUrlAndUser(originalUrl, userId);
-        if (existingCode.isPresent()) {
-            // Возвращаем существующую ссылку, если она есть
-            Optional<ShortLink> existingLink = linkStorage.findByCode(existingCode.get());
-            if (existingLink.isPresent()) {
-                return existingLink.get();
+        // Удаление пользователя ждет создания, начатые до него, и отклоняет новые
+        Lock creating = userLock(userId).readLock();
+        creating.lock();
+        ShortLink link;
+        String shortCode;
+        try {
+            checkNotDeleting(userId);
+            // Проверяем, есть ли уже ссылка у этого пользователя на этот URL
+            Optional<String> existingCode = linkStorage.findCodeByUrlAndUser(originalUrl, userId);
+            if (existingCode.isPresent()) {
+                // Возвращаем существующую ссылку, если она есть
+                Optional<ShortLink> existingLink = linkStorage.findByCode(existingCode.get());
+                if (existingLink.isPresent()) {
+                    metrics.recordCreate(true, System.nanoTime() - start);
+                    if (event != null) {
+                        event.end();
+                        if (event.shouldCommit()) {
+                            event.code = existingCode.get();
+                            event.dedupHit = true;
+                            event.commit();
+                        }
+                    }
+                    return existingLink.get();
+                }
+                // Если ссылка не найдена (возможно, была удалена), продолжаем создание новой
             }
-            // Если ссылка не найдена (возможно, была удалена), продолжаем создание новой
+
+            // Генерируем уникальный код
+            shortCode = ShortCodeGenerator.generateCode(config.getCodeLength(), codeFilter);
+
+            // Определяем лимит кликов
+            int clickLimit = (customClickLimit != null && customClickLimit > 0)
+                ? customClickLimit
+                : config.getDefaultClickLimit();
+
+            // Создаем ссылку
+            link = new ShortLink(
+                originalUrl,
+                shortCode,
+                userId,
+                clickLimit,
+                config.getDefaultTtlHours()
+            );
+
+            // Сохраняем
+            linkStorage.save(link);
+        } finally {
+            creating.unlock();
         }
+        for (LinkChangeListener listener : listeners) {
+            listener.onCreated(link);
+        }
+        publish(LinkEventType.CREATED, link, 0);
+
+        metrics.recordCreate(false, System.nanoTime() - start);
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.code = shortCode;
+                event.generatorAttempts = ShortCodeGenerator.lastAttempts();
+                event.commit();
+            }
+        }
+        return link;
+    }
 
-        // Генерируем уникальный код
-        String shortCode = ShortCodeGenerator.generateCode(config.getCodeLength());
+    /**
+     * Получает оригинальный URL по короткому коду.
+     */
+
+    public String getOriginalUrl(String shortCode)
+        throws LinkNotFoundException, LinkExpiredException, LimitExceededException,
+               RateLimitExceededException, BlockedUrlException {
+        return getOriginalUrl(shortCode, null);
+    }
+
+    /**
+     * Получает оригинальный URL и учитывает посетителя по отпечатку клиента
+     * (например, хешу IP и User-Agent). Без отпечатка уникальные посетители не считаются.
+     * Обертка над {@link #resolve}: неуспешные исходы превращаются в исключения.
+     */
+    public String getOriginalUrl(String shortCode, String clientFingerprint)
+        throws LinkNotFoundException, LinkExpiredException, LimitExceededException,
+               RateLimitExceededException, BlockedUrlException {
+
+        RedirectResult result = resolve(shortCode, clientFingerprint, new RedirectResult());
+        switch (result.getOutcome()) {
+            case OK -> {
+                return result.getUrl();
+            }
+            case NOT_FOUND -> throw new LinkNotFoundException("Ссылка не найдена: " + shortCode);
+            case EXPIRED -> throw new LinkExpiredException("Срок действия ссылки истек");
+            case RATE_LIMITED -> throw new RateLimitExceededException("Слишком много переходов, повторите позже");
+            // Как и HTTP (403): ссылка есть, но ее домен заблокирован
+            case BLOCKED -> throw new BlockedUrlException("Ссылка ведет на заблокированный домен");
+            default -> throw new LimitExceededException("Лимит переходов исчерпан");
+        }
+    }
 
-        // Определяем лимит кликов
-        int clickLimit = (customClickLimit != null && customClickLimit > 0)
-            ? customClickLimit
-            : config.getDefaultClickLimit();
+    /**
+     * Разрешает короткий код в оригинальный URL без исключений.
+     * Результат записывается в переданный result; ни на одном исходе, включая
+     * несуществующий код, метод не выделяет память (при выключенном JFR-событии).
+     * @return тот же result
+     */
+    public RedirectResult resolve(String shortCode, String clientFingerprint, RedirectResult result) {
+        long start = System.nanoTime();
+        RedirectEvent event = null;
+        if (REDIRECT_EVENT.isEnabled()) {
+            event = new RedirectEvent();
+            event.begin();
+        }
 
-        // Создаем ссылку
-        ShortLink link = new ShortLink(
-            originalUrl,
-            shortCode,
-            userId,
-            clickLimit,
-            config.getDefaultTtlHours()
-        );
+        RedirectOutcome outcome = resolveLink(shortCode, clientFingerprint, result);
+        if (outcome != RedirectOutcome.OK) {
+            result.set(outcome, null);
+        }
 
-        // Сохраняем
-        linkStorage.save(link);
+        metrics.recordRedirect(outcome, System.nanoTime() - start);
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.code = shortCode;
+                event.outcome = outcome.getLabel();
+                event.commit();
+            }
+        }
+        return result;
+    }
 
-        return link;
+    /**
+     * Выполняет переход; URL записывается в result только при исходе OK.
+     */
+    private RedirectOutcome resolveLink(String shortCode, String clientFingerprint, RedirectResult result) {
+        // Клиента ограничиваем до поиска, чтобы перебор кодов не доходил до хранилища
+        RateLimiter limiter = rateLimiter;
+        ShortLink link = null;
+        RedirectOutcome outcome;
+        if (limiter != null && !limiter.tryRedirectClient(clientFingerprint)) {
+            outcome = RedirectOutcome.RATE_LIMITED;
+        } else {
+            link = linkStorage.getByCode(shortCode);
+            outcome = resolveFound(link, shortCode, clientFingerprint, limiter, result);
+        }
+        publishClick(shortCode, link, outcome, clientFingerprint);
+        return outcome;
     }
 
     /**
-     * Получает оригинальный URL по короткому коду.
+     * Переход по уже найденной ссылке (link == null - код не найден).
      */
+    private RedirectOutcome resolveFound(ShortLink link, String shortCode, String clientFingerprint,
+                                         RateLimiter limiter, RedirectResult result) {
+        if (link == null) {
+            // Очистка уже удалила ссылку, но надгробие помнит, что она истекла
+            return linkStorage.isRecentlyExpired(shortCode) ? RedirectOutcome.EXPIRED : RedirectOutcome.NOT_FOUND;
+        }
+        if (link.isDeleted()) {
+            return RedirectOutcome.NOT_FOUND;
+        }
+        if (isBlockedOnRedirect(link)) {
+            return RedirectOutcome.BLOCKED;
+        }
+        if (limiter != null && !limiter.tryRedirectCode(shortCode)) {
+            return RedirectOutcome.RATE_LIMITED;
+        }
+        long now = System.currentTimeMillis();
+        hotLinks.record(shortCode, now);
 
-    public String getOriginalUrl(String shortCode)
-        throws LinkNotFoundException, LinkExpiredException, LimitExceededException {
+        RedirectOutcome outcome = countClick(link, now);
+        if (outcome != RedirectOutcome.OK) {
+            return outcome;
+        }
 
-        ShortLink link = linkStorage.findByCode(shortCode)
-            .orElseThrow(() -> new LinkNotFoundException("Ссылка не найдена: " + shortCode));
+        // Ссылку удалили, пока шел переход: URL удаленной ссылки не отдаем
+        if (link.isDeleted()) {
+            return RedirectOutcome.NOT_FOUND;
+        }
+        fireStateChanged(link);
+        link.recordClick(now);
+        if (clientFingerprint != null) {
+            link.recordVisitor(Hashing.hash64(clientFingerprint));
+        }
+        result.set(RedirectOutcome.OK, link.getOriginalUrl());
+        return RedirectOutcome.OK;
+    }
 
-        // Проверяем активность
+    /**
+     * Проверяет срок и лимит и учитывает клик. При переходе ссылки в неактивное
+     * состояние сообщает слушателям и публикует событие.
+     */
+    private RedirectOutcome countClick(ShortLink link, long now) {
+        // Неактивная ссылка: владелец уже уведомлен, когда она перестала работать
         if (!link.isActive()) {
-            // Если ссылка неактивна, проверяем причину
-            if (link.isExpired()) {
-                notificationService.notifyLinkExpired(link);
-                throw new LinkExpiredException("Срок действия ссылки истек");
-            } else {
-                notificationService.notifyLimitExceeded(link);
-                throw new LimitExceededException("Лимит переходов исчерпан");
-            }
+            return link.isExpired(now) ? RedirectOutcome.EXPIRED : RedirectOutcome.LIMIT_EXCEEDED;
         }
 
         // Проверяем срок действия
-        if (link.isExpired()) {
+        if (link.isExpired(now)) {
             link.deactivate();
-            notificationService.notifyLinkExpired(link);
-            throw new LinkExpiredException("Срок действия ссылки истек");
+            fireStateChanged(link);
+            publish(LinkEventType.EXPIRED, link, 0);
+            return RedirectOutcome.EXPIRED;
         }
 
         // Увеличиваем счетчик кликов
-        boolean withinLimit = link.incrementClicks();
+        ClickGate gate = clickGate;
+        boolean withinLimit;
+        if (gate != null && !gate.tryAcquire(link)) {
+            // До incrementClicks не дошли, поэтому выбранную ссылку выключаем здесь
+            link.deactivateIfExhausted();
+            withinLimit = false;
+        } else {
+            withinLimit = link.incrementClicks();
+        }
 
         if (!withinLimit) {
-            notificationService.notifyLimitExceeded(link);
-            throw new LimitExceededException("Лимит переходов исчерпан");
+            // Уведомляем только при переходе ссылки в неактивное состояние
+            if (!link.isActive()) {
+                fireStateChanged(link);
+                publish(LinkEventType.LIMIT_REACHED, link, link.getClickLimit());
+            }
+            return RedirectOutcome.LIMIT_EXCEEDED;
+        }
+        return RedirectOutcome.OK;
+    }
+
+    /**
+     * Учитывает переход, который уже обслужила реплика: срок и лимит проверяются
+     * как при обычном переходе, но без ограничения частоты, блок-листа, метрик
+     * и горячих ссылок - это реплика сделала у себя. Событие CLICKED публикуется
+     * здесь, чтобы переход попал в журнал кликов ведущего.
+     * @param clientHash хеш отпечатка клиента (0 - без отпечатка)
+     * @return исход учета (неуспешный - реплика обслужила переход по устаревшему состоянию)
+     */
+    public RedirectOutcome recordReplicaClick(String shortCode, long clientHash) {
+        ShortLink link = linkStorage.getByCode(shortCode);
+        long now = System.currentTimeMillis();
+        RedirectOutcome outcome;
+        if (link == null || link.isDeleted()) {
+            outcome = RedirectOutcome.NOT_FOUND;
+        } else {
+            outcome = countClick(link, now);
+            if (outcome == RedirectOutcome.OK) {
+                fireStateChanged(link);
+                link.recordClick(now);
+                if (clientHash != 0) {
+                    link.recordVisitor(clientHash);
+                }
+            }
+        }
+        LinkEventBus bus = eventBus;
+        if (bus != null && bus.hasSubscribers()) {
+            bus.publish(LinkEventType.CLICKED, shortCode, link, outcome, clientHash, now);
+        }
+        return outcome;
+    }
+
+    /**
+     * Разрешает пачку кодов за один проход по хранилищу: коды группируются по шардам,
+     * и каждый шард просматривается один раз. Каждый код расходует токен клиента
+     * и проходит лимит кода, как одиночный переход, - и при учете, и при чтении:
+     * иначе чтение пачками позволяло бы перебирать коды почти бесплатно.
+     * @param countClicks true - каждый код считается переходом (лимиты, клики, уведомления);
+     *                    false - только чтение состояния, ссылки и счетчики не меняются
+     * @return результаты в порядке кодов
+     */
+    public List<ResolvedLink> resolveBatch(List<String> codes, String clientFingerprint, boolean countClicks) {
+        List<ResolvedLink> resolved = new ArrayList<>(codes.size());
+        RateLimiter limiter = rateLimiter;
+        ShortLink[] links = linkStorage.getByCodes(codes);
+        RedirectResult result = new RedirectResult();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < links.length; i++) {
+            String code = codes.get(i);
+            boolean throttled = limiter != null && !limiter.tryRedirectClient(clientFingerprint);
+            RedirectOutcome outcome;
+            if (countClicks) {
+                long start = System.nanoTime();
+                outcome = throttled
+                        ? RedirectOutcome.RATE_LIMITED
+                        : resolveFound(links[i], code, clientFingerprint, limiter, result);
+                metrics.recordRedirect(outcome, System.nanoTime() - start);
+                publishClick(code, links[i], outcome, clientFingerprint);
+            } else {
+                outcome = throttled ? RedirectOutcome.RATE_LIMITED : peek(links[i], code, limiter, now);
+            }
+            resolved.add(new ResolvedLink(code, outcome, outcome == RedirectOutcome.OK ? links[i] : null, now));
         }
+        return resolved;
+    }
 
-        return link.getOriginalUrl();
+    /**
+     * Исход, который получил бы переход прямо сейчас, без его учета.
+     */
+    private RedirectOutcome peek(ShortLink link, String shortCode, RateLimiter limiter, long nowMillis) {
+        if (link == null) {
+            return linkStorage.isRecentlyExpired(shortCode) ? RedirectOutcome.EXPIRED : RedirectOutcome.NOT_FOUND;
+        }
+        if (link.isDeleted()) {
+            return RedirectOutcome.NOT_FOUND;
+        }
+        if (isBlockedOnRedirect(link)) {
+            return RedirectOutcome.BLOCKED;
+        }
+        if (limiter != null && !limiter.tryRedirectCode(shortCode)) {
+            return RedirectOutcome.RATE_LIMITED;
+        }
+        if (link.isExpired(nowMillis)) {
+            return RedirectOutcome.EXPIRED;
+        }
+        if (!link.isActive() || link.getClicksCount() >= link.getClickLimit()) {
+            return RedirectOutcome.LIMIT_EXCEEDED;
+        }
+        return RedirectOutcome.OK;
+    }
+
+    /**
+     * Домен ссылки попал в черный список уже после ее создания.
+     */
+    private boolean isBlockedOnRedirect(ShortLink link) {
+        BlocklistService domains = blocklist;
+        return domains != null && config.isBlocklistCheckRedirect() && domains.isBlocked(link.getOriginalUrl());
     }
 
     /**
@@ -138,6 +542,13 @@ public class LinkService {
         return link;
     }
 
+    /**
+     * Получает статистику переходов по ссылке (по минутам, часам и дням).
+     */
+    public ClickStats getClickAnalytics(String shortCode, UUID userId) throws LinkNotFoundException {
+        return getLinkInfo(shortCode, userId).getClickStats(System.currentTimeMillis());
+    }
+
     /**
      * Получает все ссылки пользователя.
      */
@@ -145,6 +556,14 @@ public class LinkService {
         return linkStorage.getUserLinks(userId);
     }
 
+    /**
+     * Передает action страницу ссылок пользователя (см. {@link LinkStorage#forEachUserLink}).
+     * @return позиция следующей страницы или -1
+     */
+    public long forEachUserLink(UUID userId, long cursor, int max, Consumer<ShortLink> action) {
+        return linkStorage.forEachUserLink(userId, cursor, max, action);
+    }
+
     /**
      * Обновляет лимит кликов для ссылки.
      */
@@ -153,37 +572,145 @@ public class LinkService {
 
         ShortLink link = getLinkInfo(shortCode, userId);
         link.updateClickLimit(newLimit);
-
-        // Уведомляем об изменении
-        notificationService.notifyLinkUpdated(link,
-                "Лимит кликов изменен на " + newLimit);
+        fireStateChanged(link);
+        publish(LinkEventType.LIMIT_CHANGED, link, newLimit);
 
         return link;
     }
 
+    /**
+     * Учитывает клики, обслуженные в другом месте (например, репликой по арендованному бюджету).
+     */
+    public void recordExternalClicks(String shortCode, int clicks) {
+        if (clicks <= 0) return;
+        linkStorage.findByCode(shortCode).ifPresent(link -> {
+            link.addClicks(clicks);
+            fireStateChanged(link);
+            publish(LinkEventType.CLICKS_ADDED, link, clicks);
+        });
+    }
+
     /**
      * Удаляет ссылку.
      */
     public boolean deleteLink(String shortCode, UUID userId) {
+        Optional<ShortLink> link = linkStorage.findByCode(shortCode);
         boolean removed = linkStorage.remove(shortCode, userId);
         if (removed) {
             ShortCodeGenerator.releaseCode(shortCode);
+            for (LinkChangeListener listener : listeners) {
+                listener.onRemoved(link.get());
+            }
+            publish(LinkEventType.DELETED, link.get(), 0);
         }
         return removed;
     }
 
+    /**
+     * Начинает удаление пользователя: ждет создания его ссылок, которые уже идут,
+     * и отклоняет новые до {@link #endUserDeletion(UUID)}. Так каждое создание
+     * либо завершается до удаления и его ссылку снимает deleteUserLinks,
+     * либо начинается после него. Вызывается в том же потоке, что и end.
+     */
+    void beginUserDeletion(UUID userId) {
+        deletingUsers.merge(userId, 1, Integer::sum);
+        userLock(userId).writeLock().lock();
+    }
+
+    void endUserDeletion(UUID userId) {
+        userLock(userId).writeLock().unlock();
+        deletingUsers.computeIfPresent(userId, (id, count) -> count == 1 ? null : count - 1);
+    }
+
+    private ReadWriteLock userLock(UUID userId) {
+        return userLocks[(int) Hashing.mix64(userId.hashCode()) & (userLocks.length - 1)];
+    }
+
+    private boolean isDeleting(UUID userId) {
+        return !deletingUsers.isEmpty() && deletingUsers.containsKey(userId);
+    }
+
+    private void checkNotDeleting(UUID userId) {
+        if (isDeleting(userId)) {
+            throw new SecurityException("Пользователь удаляется");
+        }
+    }
+
+    /**
+     * Удаляет все ссылки пользователя вместе с записями дедупликации
+     * и кодами, зарезервированными генератором.
+     * @return число удаленных ссылок
+     */
+    public int deleteUserLinks(UUID userId) {
+        List<ShortLink> removed = linkStorage.removeUserLinks(userId);
+        for (ShortLink link : removed) {
+            ShortCodeGenerator.releaseCode(link.getShortCode());
+        }
+        for (LinkChangeListener listener : listeners) {
+            removed.forEach(listener::onRemoved);
+        }
+        for (ShortLink link : removed) {
+            publish(LinkEventType.DELETED, link, 0);
+        }
+        return removed.size();
+    }
+
     /**
      * Проверяет все ссылки на истечение срока.
      */
     public List<ShortLink> cleanupExpiredLinks() {
+        long start = System.nanoTime();
+        CleanupSweepEvent event = null;
+        if (CLEANUP_EVENT.isEnabled()) {
+            event = new CleanupSweepEvent();
+            event.begin();
+        }
         List<ShortLink> expired = linkStorage.removeExpiredLinks();
+        metrics.recordCleanup(System.nanoTime() - start, expired.size());
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.removed = expired.size();
+                event.remaining = linkStorage.size();
+                event.commit();
+            }
+        }
 
-        // Отправляем уведомления
-        expired.forEach(notificationService::notifyLinkExpired);
+        for (LinkChangeListener listener : listeners) {
+            expired.forEach(listener::onRemoved);
+        }
+        // Уведомления об истечении отправит потребитель шины
+        for (ShortLink link : expired) {
+            publish(LinkEventType.DELETED, link, 0);
+        }
 
         return expired;
     }
 
+    private void fireStateChanged(ShortLink link) {
+        // Без подписчиков не создаем итератор на каждом переходе
+        if (listeners.isEmpty()) return;
+        for (LinkChangeListener listener : listeners) {
+            listener.onStateChanged(link);
+        }
+    }
+
+    private void publish(LinkEventType type, ShortLink link, long value) {
+        LinkEventBus bus = eventBus;
+        if (bus == null || !bus.hasSubscribers()) return;
+        bus.publish(type, link.getShortCode(), link, null, value, System.currentTimeMillis());
+    }
+
+    /**
+     * Публикует переход с любым исходом; value - хеш отпечатка клиента (0 - без отпечатка).
+     */
+    private void publishClick(String shortCode, ShortLink link, RedirectOutcome outcome, String clientFingerprint) {
+        LinkEventBus bus = eventBus;
+        if (bus == null || !bus.hasSubscribers()) return;
+        long client = clientFingerprint != null ? Hashing.hash64(clientFingerprint) : 0;
+        bus.publish(LinkEventType.CLICKED, shortCode, link, outcome, client, System.currentTimeMillis());
+    }
+
     /**
      * Получает полную короткую ссылку.
      */
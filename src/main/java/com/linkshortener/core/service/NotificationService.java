@@ -3,15 +3,23 @@ package com.linkshortener.core.service;
 import com.linkshortener.core.ShortLink;
 import com.linkshortener.core.User;
 import com.linkshortener.config.AppConfig;
+import com.linkshortener.core.event.LinkEvent;
+import com.linkshortener.metrics.LinkMetrics;
+import com.linkshortener.metrics.events.NotificationEvent;
 import com.linkshortener.storage.UserStorage;
+import jdk.jfr.EventType;
 
 import java.time.format.DateTimeFormatter;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
  * Сервис уведомлений для пользователей.
  */
 public class NotificationService {
+    // Событие создается, только когда его запись включена
+    private static final EventType NOTIFICATION_EVENT = EventType.getEventType(NotificationEvent.class);
+
     private static NotificationService instance;
     private final AppConfig config;
     private final UserStorage userStorage;
@@ -75,14 +83,59 @@ public class NotificationService {
         sendNotification(link.getOwnerId(), message);
     }
 
+    /**
+     * Потребитель шины событий: уведомления отправляются вне потока перехода.
+     */
+    public void onLinkEvent(LinkEvent event, long sequence, boolean endOfBatch) {
+        ShortLink link = event.getLink();
+        switch (event.getType()) {
+            case LIMIT_REACHED -> notifyLimitExceeded(link);
+            case EXPIRED -> notifyLinkExpired(link);
+            // Удаленные очисткой по сроку; удаленные владельцем уведомления не получают
+            case DELETED -> {
+                if (link.isExpired() && !link.isDeleted()) {
+                    notifyLinkExpired(link);
+                }
+            }
+            case LIMIT_CHANGED -> notifyLinkUpdated(link, "Лимит кликов изменен на " + event.getValue());
+            default -> { }
+        }
+    }
+
     /**
      * Отправляет уведомление пользователю.
      */
     private void sendNotification(UUID userId, String message) {
-        userStorage.findById(userId).ifPresent(user -> {
-            user.addNotification(message);
+        NotificationEvent event = null;
+        if (NOTIFICATION_EVENT.isEnabled()) {
+            event = new NotificationEvent();
+            event.begin();
+        }
+
+        Optional<User> user = userStorage.findById(userId);
+        user.ifPresent(recipient -> {
+            recipient.addNotification(message);
+            LinkMetrics.getInstance().recordNotification();
             System.out.println("Уведомление для пользователя " + userId + ": " + message);
         });
+
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.userId = userId.toString();
+                event.delivered = user.isPresent();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Получает количество накопленных уведомлений у всех пользователей.
+     */
+    public long getPendingCount() {
+        return userStorage.getAllUsers().stream()
+                .mapToLong(User::getNotificationCount)
+                .sum();
     }
 
     /**
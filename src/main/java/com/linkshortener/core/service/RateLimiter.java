@@ -0,0 +1,109 @@
+package com.linkshortener.core.service;
+
+import com.linkshortener.config.AppConfig;
+import com.linkshortener.config.ConfigSnapshot;
+import com.linkshortener.util.TokenBuckets;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничение частоты запросов ведрами токенов.
+ * Создание ссылок ограничивается по пользователю, переходы - по клиенту
+ * (отпечатку) и по короткому коду. Скорость 0 отключает соответствующее ограничение.
+ */
+public class RateLimiter {
+    private static RateLimiter instance;
+
+    private final TokenBuckets<UUID> creates;
+    private final TokenBuckets<String> clients;
+    private final TokenBuckets<String> codes;
+    private final LongAdder rejectedCreates = new LongAdder();
+    private final LongAdder rejectedClients = new LongAdder();
+    private final LongAdder rejectedCodes = new LongAdder();
+
+    private RateLimiter() {
+        this(AppConfig.getInstance().snapshot());
+    }
+
+    /**
+     * Создает ограничитель по настройкам ratelimit.* снимка конфигурации.
+     */
+    public RateLimiter(ConfigSnapshot config) {
+        this(config.getRateLimitCreatePerSecond(), config.getRateLimitCreateBurst(),
+                config.getRateLimitClientPerSecond(), config.getRateLimitClientBurst(),
+                config.getRateLimitCodePerSecond(), config.getRateLimitCodeBurst());
+    }
+
+    public RateLimiter(int createPerSecond, int createBurst,
+                       int clientPerSecond, int clientBurst,
+                       int codePerSecond, int codeBurst) {
+        this.creates = buckets(createPerSecond, createBurst);
+        this.clients = buckets(clientPerSecond, clientBurst);
+        this.codes = buckets(codePerSecond, codeBurst);
+    }
+
+    public static synchronized RateLimiter getInstance() {
+        if (instance == null) {
+            instance = new RateLimiter();
+        }
+        return instance;
+    }
+
+    private static <K> TokenBuckets<K> buckets(int perSecond, int burst) {
+        return perSecond > 0 ? new TokenBuckets<>(perSecond, burst) : null;
+    }
+
+    /**
+     * Проверяет, может ли пользователь создать ссылку.
+     */
+    public boolean tryCreate(UUID userId) {
+        if (creates == null || creates.tryAcquire(userId)) return true;
+        rejectedCreates.increment();
+        return false;
+    }
+
+    /**
+     * Проверяет частоту переходов клиента. Отпечаток - уже короткий хеш
+     * (IP и User-Agent), поэтому служит ключом как есть, без упаковки.
+     */
+    public boolean tryRedirectClient(String clientFingerprint) {
+        if (clients == null || clientFingerprint == null || clients.tryAcquire(clientFingerprint)) {
+            return true;
+        }
+        rejectedClients.increment();
+        return false;
+    }
+
+    /**
+     * Проверяет частоту переходов по ссылке.
+     */
+    public boolean tryRedirectCode(String shortCode) {
+        if (codes == null || codes.tryAcquire(shortCode)) return true;
+        rejectedCodes.increment();
+        return false;
+    }
+
+    /**
+     * Удаляет наполнившиеся ведра: они эквивалентны отсутствующим.
+     * @return сколько ведер удалено
+     */
+    public int evictIdle() {
+        int evicted = 0;
+        if (creates != null) evicted += creates.evictIdle();
+        if (clients != null) evicted += clients.evictIdle();
+        if (codes != null) evicted += codes.evictIdle();
+        return evicted;
+    }
+
+    // Геттеры
+    public long getRejectedCreates() { return rejectedCreates.sum(); }
+    public long getRejectedClients() { return rejectedClients.sum(); }
+    public long getRejectedCodes() { return rejectedCodes.sum(); }
+
+    public int getBucketCount() {
+        return (creates != null ? creates.size() : 0)
+                + (clients != null ? clients.size() : 0)
+                + (codes != null ? codes.size() : 0);
+    }
+}
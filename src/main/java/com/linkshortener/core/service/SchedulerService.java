@@ -1,7 +1,16 @@
 package com.linkshortener.core.service;
 
+import com.linkshortener.config.AppConfig;
+import com.linkshortener.config.ConfigListener;
+import com.linkshortener.config.ConfigSnapshot;
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.metrics.LinkMetrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -11,6 +20,8 @@ public class SchedulerService {
     private static SchedulerService instance;
     private final ScheduledExecutorService scheduler;
     private final LinkService linkService;
+    private final ConfigListener configListener = this::onConfigChanged;
+    private ScheduledFuture<?> cleanupTask;
 
     private SchedulerService() {
         this.scheduler = Executors.newScheduledThreadPool(1);
@@ -28,26 +39,103 @@ public class SchedulerService {
      * Запускает фоновые задачи.
      */
     public void start() {
-        // Очистка просроченных ссылок каждый час
-        scheduler.scheduleAtFixedRate(this::cleanupExpiredLinks, 1, 1, TimeUnit.HOURS);
+        // Очистка просроченных ссылок с интервалом из конфигурации
+        AppConfig config = AppConfig.getInstance();
+        scheduleCleanup(config.getCleanupIntervalMinutes());
+        config.addListener(configListener);
+
+        // Удаление наполнившихся ведер ограничителя частоты каждую минуту
+        scheduler.scheduleAtFixedRate(() -> runJob("ratelimit-evict", this::evictRateLimitBuckets),
+                1, 1, TimeUnit.MINUTES);
+
+        // Вытеснение простаивающих пользователей без ссылок каждые 10 минут
+        scheduler.scheduleAtFixedRate(() -> runJob("user-evict", this::evictIdleUsers),
+                10, 10, TimeUnit.MINUTES);
+
+        // Перечитывание черного списка доменов, если файл изменился
+        int blocklistSeconds = config.getBlocklistReloadSeconds();
+        scheduler.scheduleWithFixedDelay(() -> runJob("blocklist-reload", this::reloadBlocklist),
+                blocklistSeconds, blocklistSeconds, TimeUnit.SECONDS);
 
         // Логирование статистики каждые 30 минут
-        scheduler.scheduleAtFixedRate(this::logStatistics, 0, 30, TimeUnit.MINUTES);
+        scheduler.scheduleAtFixedRate(() -> runJob("statistics", this::logStatistics),
+                0, 30, TimeUnit.MINUTES);
 
         System.out.println("Фоновые задачи запущены");
     }
 
+    private synchronized void scheduleCleanup(int intervalMinutes) {
+        if (cleanupTask != null) {
+            cleanupTask.cancel(false);
+        }
+        cleanupTask = scheduler.scheduleAtFixedRate(() -> runJob("cleanup", this::cleanupExpiredLinks),
+                intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Переносит очистку на новый интервал, если он изменился в конфигурации.
+     */
+    private void onConfigChanged(ConfigSnapshot previous, ConfigSnapshot current) {
+        if (previous.getCleanupIntervalMinutes() != current.getCleanupIntervalMinutes()) {
+            scheduleCleanup(current.getCleanupIntervalMinutes());
+            System.out.println("Интервал очистки: " + current.getCleanupIntervalMinutes() + " мин");
+        }
+    }
+
+    /**
+     * Выполняет задачу, замеряя время и учитывая ошибки в метриках.
+     */
+    private void runJob(String name, Runnable job) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            job.run();
+            success = true;
+        } catch (Exception e) {
+            System.err.println("Ошибка в фоновой задаче " + name + ": " + e.getMessage());
+        } finally {
+            LinkMetrics.getInstance().recordJob(name, System.nanoTime() - start, success);
+        }
+    }
+
     /**
      * Очищает просроченные ссылки.
      */
     private void cleanupExpiredLinks() {
+        var expired = linkService.cleanupExpiredLinks();
+        if (!expired.isEmpty()) {
+            System.out.println("Удалено просроченных ссылок: " + expired.size());
+        }
+    }
+
+    /**
+     * Удаляет ведра токенов, не нужные ограничителю частоты.
+     */
+    private void evictRateLimitBuckets() {
+        RateLimiter limiter = linkService.getRateLimiter();
+        if (limiter != null) {
+            limiter.evictIdle();
+        }
+    }
+
+    /**
+     * Вытесняет простаивающих пользователей.
+     */
+    private void evictIdleUsers() {
+        int evicted = UserService.getInstance().evictIdleUsers();
+        if (evicted > 0) {
+            System.out.println("Вытеснено простаивающих пользователей: " + evicted);
+        }
+    }
+
+    /**
+     * Перечитывает черный список доменов; путь к файлу берется из текущей конфигурации.
+     */
+    private void reloadBlocklist() {
         try {
-            var expired = linkService.cleanupExpiredLinks();
-            if (!expired.isEmpty()) {
-                System.out.println("Удалено просроченных ссылок: " + expired.size());
-            }
-        } catch (Exception e) {
-            System.err.println("Ошибка при очистке ссылок: " + e.getMessage());
+            BlocklistService.getInstance().reloadIfChanged(AppConfig.getInstance().getBlocklistFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException("черный список не перечитан, действует прежний", e);
         }
     }
 
@@ -55,18 +143,26 @@ public class SchedulerService {
      * Логирует статистику.
      */
     private void logStatistics() {
-        try {
-            // Здесь можно добавить логирование в файл
-            System.out.println("Статистика системы обновлена");
-        } catch (Exception e) {
-            System.err.println("Ошибка при логировании статистики: " + e.getMessage());
-        }
+        LinkMetrics metrics = LinkMetrics.getInstance();
+        System.out.printf(
+                "Статистика: переходов %d (ok %d, не найдено %d, истекли %d, лимит %d), " +
+                "создано %d (повторов %d), очисток %d (удалено %d)%n",
+                metrics.getTotalRedirects(),
+                metrics.getRedirects(RedirectOutcome.OK),
+                metrics.getRedirects(RedirectOutcome.NOT_FOUND),
+                metrics.getRedirects(RedirectOutcome.EXPIRED),
+                metrics.getRedirects(RedirectOutcome.LIMIT_EXCEEDED),
+                metrics.getCreates(),
+                metrics.getDedupHits(),
+                metrics.getCleanupRuns(),
+                metrics.getCleanupRemoved());
     }
 
     /**
      * Останавливает планировщик.
      */
     public void shutdown() {
+        AppConfig.getInstance().removeListener(configListener);
         scheduler.shutdown();
         try {
             if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -0,0 +1,479 @@
+package com.linkshortener.core.service;
+
+import com.linkshortener.config.AppConfig;
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.event.BackPressure;
+import com.linkshortener.core.event.LinkEventBus;
+import com.linkshortener.core.event.LinkEventType;
+import com.linkshortener.core.exception.InvalidUrlException;
+import com.linkshortener.core.generator.ShortCodeGenerator;
+import com.linkshortener.util.SpscQueue;
+import com.linkshortener.util.UrlValidator;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Режим исполнения "поток на шард" (shared-nothing).
+ * Каждым шардом ссылок владеет ровно один поток, и только он читает и меняет
+ * его карты, поэтому карты шарда - обычные несинхронизированные HashMap.
+ * Сами ссылки при этом - общие {@link ShortLink}: их счетчик и активность
+ * меняются через CAS по VarHandle, а lastClick и deleted - volatile, потому что
+ * те же объекты отдаются клиентам и потребителю шины. Так что движок - почтовый
+ * ящик над общим состоянием ссылок, а не полный shared-nothing: он убирает
+ * блокировки карт, но не барьеры на счетчиках.
+ * Переход, создание, удаление и очистка приходят владельцу сообщениями
+ * через очереди "один производитель - один потребитель": у каждого клиента
+ * своя очередь в каждый шард.
+ * Хранилище у движка свое, независимое от {@link com.linkshortener.storage.LinkStorage}.
+ * Владельцы не трогают общих сервисов: о переходе ссылки в неактивное состояние
+ * и об удалении просроченных они публикуют события в шину движка, а уведомления
+ * отправляет ее потребитель в своем потоке.
+ */
+public class ThreadPerShardEngine implements AutoCloseable {
+    private static final int SPIN_ITERATIONS = 200;
+    // Ожидание с таймаутом страхует от пропущенного unpark без барьеров на горячем пути
+    private static final long PARK_NANOS = 50_000;
+
+    private static final int OP_RESOLVE = 0;
+    private static final int OP_CREATE = 1;
+    private static final int OP_DELETE = 2;
+    private static final int OP_CLEANUP = 3;
+    private static final int OP_SIZE = 4;
+
+    private final Shard[] shards;
+    private final int shardMask;
+    private final int maxClients;
+    private final int queueCapacity;
+    private final int codeLength;
+    private final int ttlHours;
+    private final int defaultClickLimit;
+    private final String notificationsBackpressure;
+    private final LinkEventBus events;
+    private final AtomicInteger clientCount = new AtomicInteger();
+    private LinkEventBus.Subscription notifications;
+    private volatile boolean running;
+
+    public ThreadPerShardEngine(int shardCount, int maxClients) {
+        this(shardCount, maxClients, 1024, AppConfig.getInstance());
+    }
+
+    public ThreadPerShardEngine(int shardCount, int maxClients, int queueCapacity, AppConfig config) {
+        if (shardCount <= 0 || Integer.bitCount(shardCount) != 1) {
+            throw new IllegalArgumentException("Число шардов должно быть степенью двойки: " + shardCount);
+        }
+        if (maxClients <= 0) {
+            throw new IllegalArgumentException("Число клиентов должно быть положительным");
+        }
+        this.shardMask = shardCount - 1;
+        this.maxClients = maxClients;
+        this.queueCapacity = queueCapacity;
+        this.codeLength = config.getCodeLength();
+        this.ttlHours = config.getDefaultTtlHours();
+        this.defaultClickLimit = config.getDefaultClickLimit();
+        this.notificationsBackpressure = config.getEventsNotificationsBackpressure();
+        this.events = new LinkEventBus(config.getEventsRingSize());
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Запускает потоки-владельцы шардов.
+     */
+    public synchronized void start() {
+        if (running) return;
+        notifications = events.subscribe("engine-notifications", BackPressure.parse(notificationsBackpressure),
+                NotificationService.getInstance()::onLinkEvent);
+        running = true;
+        for (Shard shard : shards) {
+            shard.owner.start();
+        }
+    }
+
+    /**
+     * Останавливает потоки-владельцы. Необработанные сообщения отбрасываются.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) return;
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.owner);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.owner.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        notifications.close();
+    }
+
+    /**
+     * Регистрирует нового клиента. Клиент привязан к одному вызывающему потоку.
+     */
+    public synchronized Client newClient() {
+        int index = clientCount.get();
+        if (index >= maxClients) {
+            throw new IllegalStateException("Превышено число клиентов движка: " + maxClients);
+        }
+        Client client = new Client();
+        for (Shard shard : shards) {
+            shard.inbound[index] = client.outbound[shard.index];
+        }
+        // Запись счетчика публикует очереди клиента владельцам шардов
+        clientCount.set(index + 1);
+        return client;
+    }
+
+    /**
+     * Номер шарда для кода.
+     */
+    public int shardOf(String code) {
+        int h = code.hashCode();
+        return (h ^ (h >>> 16)) & shardMask;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Шина событий движка (для дополнительных потребителей и метрик).
+     */
+    public LinkEventBus getEventBus() {
+        return events;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> SpscQueue<T>[] newQueues(int count) {
+        return (SpscQueue<T>[]) new SpscQueue<?>[count];
+    }
+
+    private static String dedupKey(UUID userId, String originalUrl) {
+        return userId + ":" + originalUrl;
+    }
+
+    /**
+     * Сообщение владельцу шарда. Клиент переиспользует по одному сообщению на шард.
+     */
+    private static final class Request {
+        int op;
+        String code;
+        String url;
+        UUID owner;
+        int clickLimit;
+        long nowMillis;
+
+        // Ответ
+        RedirectOutcome outcome;
+        ShortLink link;
+        int count;
+
+        Thread waiter;
+        volatile boolean done;
+    }
+
+    /**
+     * Шард и его поток-владелец. Поля состояния трогает только owner.
+     */
+    private final class Shard implements Runnable {
+        final int index;
+        final Thread owner;
+        final SpscQueue<Request>[] inbound = newQueues(maxClients);
+        volatile boolean sleeping;
+
+        // Состояние шарда, только для потока-владельца
+        private final Map<String, ShortLink> linksByCode = new HashMap<>();
+        private final Map<String, String> codeByOriginalUrl = new HashMap<>();
+        private final SplittableRandom random;
+
+        Shard(int index) {
+            this.index = index;
+            this.random = new SplittableRandom(System.nanoTime() ^ ((long) index << 32));
+            this.owner = new Thread(this, "shard-owner-" + index);
+            this.owner.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running) {
+                if (drain()) {
+                    idle = 0;
+                } else if (++idle < SPIN_ITERATIONS) {
+                    Thread.onSpinWait();
+                } else {
+                    sleeping = true;
+                    if (!drain()) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    sleeping = false;
+                    idle = 0;
+                }
+            }
+        }
+
+        private boolean drain() {
+            boolean worked = false;
+            int clients = clientCount.get();
+            for (int i = 0; i < clients; i++) {
+                SpscQueue<Request> queue = inbound[i];
+                Request request;
+                while ((request = queue.poll()) != null) {
+                    handle(request);
+                    worked = true;
+                }
+            }
+            return worked;
+        }
+
+        private void handle(Request request) {
+            switch (request.op) {
+                case OP_RESOLVE -> resolve(request);
+                case OP_CREATE -> create(request);
+                case OP_DELETE -> request.count = delete(request.code, request.owner) ? 1 : 0;
+                case OP_CLEANUP -> request.count = removeExpired();
+                case OP_SIZE -> request.count = linksByCode.size();
+                default -> throw new IllegalStateException("Неизвестная операция: " + request.op);
+            }
+            Thread waiter = request.waiter;
+            request.done = true;
+            LockSupport.unpark(waiter);
+        }
+
+        private void resolve(Request request) {
+            ShortLink link = linksByCode.get(request.code);
+            request.link = link;
+            if (link == null) {
+                request.outcome = RedirectOutcome.NOT_FOUND;
+                return;
+            }
+            // Неактивная ссылка: владелец уже уведомлен, когда она перестала работать
+            if (!link.isActive()) {
+                request.outcome = link.isExpired(request.nowMillis)
+                        ? RedirectOutcome.EXPIRED
+                        : RedirectOutcome.LIMIT_EXCEEDED;
+                return;
+            }
+            if (link.isExpired(request.nowMillis)) {
+                link.deactivate();
+                request.outcome = RedirectOutcome.EXPIRED;
+                publish(LinkEventType.EXPIRED, link, 0);
+                return;
+            }
+            if (!link.incrementClicks()) {
+                request.outcome = RedirectOutcome.LIMIT_EXCEEDED;
+                publish(LinkEventType.LIMIT_REACHED, link, link.getClickLimit());
+                return;
+            }
+            link.recordClick(request.nowMillis);
+            request.outcome = RedirectOutcome.OK;
+        }
+
+        private void create(Request request) {
+            String key = dedupKey(request.owner, request.url);
+            String existing = codeByOriginalUrl.get(key);
+            if (existing != null) {
+                ShortLink link = linksByCode.get(existing);
+                if (link != null) {
+                    request.link = link;
+                    return;
+                }
+            }
+
+            // Код подбирается так, чтобы он попал в этот же шард, где лежит ключ дедупликации
+            String code;
+            do {
+                code = ShortCodeGenerator.randomCode(codeLength, random);
+            } while (shardOf(code) != index || linksByCode.containsKey(code));
+
+            ShortLink link = new ShortLink(request.url, code, request.owner, request.clickLimit, ttlHours);
+            linksByCode.put(code, link);
+            codeByOriginalUrl.put(key, code);
+            request.link = link;
+        }
+
+        private boolean delete(String code, UUID userId) {
+            ShortLink link = linksByCode.get(code);
+            if (link == null || !link.getOwnerId().equals(userId)) {
+                return false;
+            }
+            linksByCode.remove(code);
+            codeByOriginalUrl.remove(dedupKey(link.getOwnerId(), link.getOriginalUrl()), code);
+            return true;
+        }
+
+        private int removeExpired() {
+            int removed = 0;
+            Iterator<ShortLink> iterator = linksByCode.values().iterator();
+            while (iterator.hasNext()) {
+                ShortLink link = iterator.next();
+                if (link.isExpired()) {
+                    iterator.remove();
+                    codeByOriginalUrl.remove(dedupKey(link.getOwnerId(), link.getOriginalUrl()),
+                            link.getShortCode());
+                    publish(LinkEventType.DELETED, link, 0);
+                    removed++;
+                }
+            }
+            return removed;
+        }
+    }
+
+    private void publish(LinkEventType type, ShortLink link, long value) {
+        if (!events.hasSubscribers()) return;
+        events.publish(type, link.getShortCode(), link, null, value, System.currentTimeMillis());
+    }
+
+    /**
+     * Клиент движка. Не потокобезопасен: каждый вызывающий поток
+     * получает своего клиента через {@link #newClient()}.
+     */
+    public final class Client {
+        private final SpscQueue<Request>[] outbound;
+        private final Request[] requests;
+        private String resolvedUrl;
+
+        private Client() {
+            this.outbound = newQueues(shards.length);
+            this.requests = new Request[shards.length];
+            for (int i = 0; i < shards.length; i++) {
+                outbound[i] = new SpscQueue<>(queueCapacity);
+                requests[i] = new Request();
+            }
+        }
+
+        /**
+         * Выполняет переход по коду.
+         * При успехе оригинальный URL доступен через {@link #getResolvedUrl()}.
+         */
+        public RedirectOutcome resolve(String code) {
+            Request request = prepare(shardOf(code), OP_RESOLVE);
+            request.code = code;
+            request.nowMillis = System.currentTimeMillis();
+            call(request, shardOf(code));
+            resolvedUrl = request.outcome == RedirectOutcome.OK ? request.link.getOriginalUrl() : null;
+            return request.outcome;
+        }
+
+        /**
+         * URL последнего успешного перехода (null после неуспешного).
+         */
+        public String getResolvedUrl() {
+            return resolvedUrl;
+        }
+
+        /**
+         * Создает ссылку или возвращает существующую для той же пары пользователь-URL.
+         */
+        public ShortLink create(String originalUrl, UUID userId, Integer customClickLimit)
+                throws InvalidUrlException {
+            if (!UrlValidator.isValid(originalUrl)) {
+                throw new InvalidUrlException("Некорректный URL: " + originalUrl);
+            }
+            int h = dedupKey(userId, originalUrl).hashCode();
+            int shard = (h ^ (h >>> 16)) & shardMask;
+            Request request = prepare(shard, OP_CREATE);
+            request.url = originalUrl;
+            request.owner = userId;
+            request.clickLimit = (customClickLimit != null && customClickLimit > 0)
+                    ? customClickLimit
+                    : defaultClickLimit;
+            call(request, shard);
+            return request.link;
+        }
+
+        /**
+         * Удаляет ссылку владельца.
+         */
+        public boolean delete(String code, UUID userId) {
+            int shard = shardOf(code);
+            Request request = prepare(shard, OP_DELETE);
+            request.code = code;
+            request.owner = userId;
+            call(request, shard);
+            return request.count == 1;
+        }
+
+        /**
+         * Удаляет просроченные ссылки во всех шардах; шарды чистятся параллельно.
+         * @return число удаленных ссылок
+         */
+        public int cleanupExpired() {
+            return broadcast(OP_CLEANUP);
+        }
+
+        /**
+         * Число ссылок во всех шардах.
+         */
+        public int size() {
+            return broadcast(OP_SIZE);
+        }
+
+        private int broadcast(int op) {
+            for (int i = 0; i < shards.length; i++) {
+                send(prepare(i, op), i);
+            }
+            int total = 0;
+            for (Request request : requests) {
+                await(request);
+                total += request.count;
+            }
+            return total;
+        }
+
+        private Request prepare(int shard, int op) {
+            Request request = requests[shard];
+            request.op = op;
+            request.code = null;
+            request.url = null;
+            request.owner = null;
+            request.outcome = null;
+            request.link = null;
+            request.count = 0;
+            request.waiter = Thread.currentThread();
+            request.done = false;
+            return request;
+        }
+
+        private void call(Request request, int shard) {
+            send(request, shard);
+            await(request);
+        }
+
+        private void send(Request request, int shard) {
+            if (!running) {
+                throw new IllegalStateException("Движок не запущен");
+            }
+            Shard target = shards[shard];
+            while (!outbound[shard].offer(request)) {
+                LockSupport.unpark(target.owner);
+                Thread.onSpinWait();
+            }
+            if (target.sleeping) {
+                LockSupport.unpark(target.owner);
+            }
+        }
+
+        private void await(Request request) {
+            int spins = 0;
+            while (!request.done) {
+                if (++spins < SPIN_ITERATIONS) {
+                    Thread.onSpinWait();
+                } else {
+                    if (!running) {
+                        throw new IllegalStateException("Движок остановлен");
+                    }
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+            }
+        }
+    }
+}
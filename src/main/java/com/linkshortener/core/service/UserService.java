@@ -1,6 +1,8 @@
 package com.linkshortener.core.service;
 
+import com.linkshortener.config.AppConfig;
 import com.linkshortener.core.User;
+import com.linkshortener.storage.LinkStorage;
 import com.linkshortener.storage.UserStorage;
 
 import java.util.Optional;
@@ -12,9 +14,11 @@ import java.util.UUID;
 public class UserService {
     private static UserService instance;
     private final UserStorage userStorage;
+    private final LinkStorage linkStorage;
 
     private UserService() {
         this.userStorage = UserStorage.getInstance();
+        this.linkStorage = LinkStorage.getInstance();
     }
 
     public static synchronized UserService getInstance() {
@@ -28,30 +32,57 @@ public class UserService {
      * Получает или создает пользователя по сессии.
      */
     public User getOrCreateUser(String sessionId) {
-        // Пытаемся найти по сессии
-        Optional<User> existingUser = userStorage.findBySession(sessionId);
-        if (existingUser.isPresent()) {
-            return existingUser.get();
+        boolean known = userStorage.findBySession(sessionId).isPresent();
+        User user = userStorage.findOrCreateBySession(sessionId, System.currentTimeMillis());
+        if (!known) {
+            System.out.println("Создан новый пользователь: " + user.getId());
         }
+        return user;
+    }
 
-        // Создаем нового пользователя
-        User newUser = userStorage.createNewUser();
-        System.out.println("Создан новый пользователь: " + newUser.getId());
-        return newUser;
+    /**
+     * Получает или создает пользователя по ID (клиенты API): иначе уведомлениям
+     * о его ссылках некуда приходить.
+     */
+    public User getOrCreateUser(UUID userId) {
+        return userStorage.findOrCreateById(userId, System.currentTimeMillis());
     }
 
     /**
      * Получает пользователя по ID.
      */
     public Optional<User> getUserById(UUID userId) {
-        return userStorage.findById(userId);
+        Optional<User> user = userStorage.findById(userId);
+        user.ifPresent(found -> found.touch(System.currentTimeMillis()));
+        return user;
     }
 
     /**
-     * Удаляет пользователя.
+     * Удаляет пользователя вместе с его уведомлениями и всеми его ссылками.
+     * Ссылки удаляются и тогда, когда пользователь уже вытеснен из памяти.
+     * Пока идет удаление, создание его ссылок отклоняется, так что после возврата
+     * не остается ни одной ссылки, создание которой началось до него. Следующий
+     * запрос API с тем же X-User-Id заводит пользователя заново, как любой новый ID.
+     * @return true, если было что удалять
      */
     public boolean deleteUser(UUID userId) {
-        return userStorage.deleteUser(userId);
+        LinkService links = LinkService.getInstance();
+        links.beginUserDeletion(userId);
+        try {
+            boolean removed = userStorage.deleteUser(userId);
+            return links.deleteUserLinks(userId) > 0 || removed;
+        } finally {
+            links.endUserDeletion(userId);
+        }
+    }
+
+    /**
+     * Вытесняет пользователей без ссылок, простаивающих дольше users.idle.eviction.minutes.
+     * @return число вытесненных
+     */
+    public int evictIdleUsers() {
+        long idleMillis = AppConfig.getInstance().getUserIdleEvictionMinutes() * 60_000L;
+        return userStorage.evictIdle(idleMillis, System.currentTimeMillis(), linkStorage::hasUserLinks);
     }
 
     /**
@@ -0,0 +1,59 @@
+package com.linkshortener.core.service;
+
+import com.linkshortener.core.RedirectResult;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.metrics.LinkMetrics;
+import com.linkshortener.storage.LinkStorage;
+
+import java.util.UUID;
+
+/**
+ * Синтетический прогрев пути перехода перед тем, как узел объявит готовность.
+ * Гоняет создание ссылок и переходы (успешные и промахи) через отдельный LinkService
+ * со своим хранилищем, метриками и трекером, так что общая статистика и данные
+ * не меняются, а JIT успевает скомпилировать те же методы, что обслуживают реальные запросы.
+ */
+public final class Warmup {
+    private static final int LINKS = 256;
+    private static final int CLIENTS = 64;
+
+    private Warmup() {
+    }
+
+    /**
+     * Выполняет прогрев.
+     * @param redirects число переходов (примерно каждый восьмой - по несуществующему коду)
+     * @return длительность в миллисекундах
+     */
+    public static long run(int redirects) {
+        long start = System.nanoTime();
+        LinkService service = new LinkService(new LinkStorage(1, 60_000), code -> true,
+                new LinkMetrics(), new HotLinkTracker(16, 60_000));
+        service.setRateLimiter(new RateLimiter(100_000, 200_000, 100_000, 200_000, 100_000, 200_000));
+
+        UUID owner = UUID.randomUUID();
+        String[] codes = new String[LINKS];
+        String[] clients = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "warmup-client-" + i;
+        }
+        try {
+            for (int i = 0; i < LINKS; i++) {
+                ShortLink link = service.createShortLink("https://warmup.invalid/" + i, owner, Integer.MAX_VALUE);
+                codes[i] = link.getShortCode();
+            }
+            RedirectResult result = new RedirectResult();
+            for (int i = 0; i < redirects; i++) {
+                String code = (i & 7) == 7 ? "miss" + (i & 1023) : codes[i % LINKS];
+                service.resolve(code, clients[i % CLIENTS], result);
+            }
+        } catch (Exception e) {
+            System.err.println("Прогрев прерван: " + e.getMessage());
+        } finally {
+            // Коды прогрева освобождаются в генераторе
+            service.deleteUserLinks(owner);
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
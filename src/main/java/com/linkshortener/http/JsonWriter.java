@@ -0,0 +1,178 @@
+package com.linkshortener.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Потоковая запись JSON прямо в байтовый буфер с выгрузкой в OutputStream по заполнении.
+ * Дерево объектов не строится: вызывающий код пишет значения по порядку,
+ * запятые и экранирование расставляет writer. Вложенность - до 64 уровней.
+ */
+public final class JsonWriter implements AutoCloseable {
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+    private int depth;
+    // Бит уровня вложенности: на этом уровне уже есть элемент, перед следующим нужна запятая
+    private long hasElements;
+    private boolean afterName;
+
+    public JsonWriter(OutputStream out) {
+        this(out, 8192);
+    }
+
+    public JsonWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Имя поля; следом должно идти значение.
+     */
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        string(name);
+        write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        separate();
+        if (value == null) {
+            ascii("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separate();
+        ascii(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        separate();
+        ascii(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Выгружает накопленные байты в поток.
+     */
+    public void flush() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        separate();
+        write(bracket);
+        depth++;
+        hasElements &= ~(1L << depth);
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        depth--;
+        write(bracket);
+        return this;
+    }
+
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        long bit = 1L << depth;
+        if ((hasElements & bit) != 0) {
+            write(',');
+        }
+        hasElements |= bit;
+    }
+
+    private void string(String value) throws IOException {
+        write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                write('\\');
+                write(c);
+            } else if (c < 0x20) {
+                escape(c);
+            } else if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                write(0xC0 | (c >> 6));
+                write(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                write(0xF0 | (codePoint >> 18));
+                write(0x80 | ((codePoint >> 12) & 0x3F));
+                write(0x80 | ((codePoint >> 6) & 0x3F));
+                write(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Одиночный суррогат в UTF-8 не представим
+                escape(c);
+            } else {
+                write(0xE0 | (c >> 12));
+                write(0x80 | ((c >> 6) & 0x3F));
+                write(0x80 | (c & 0x3F));
+            }
+        }
+        write('"');
+    }
+
+    private void escape(char c) throws IOException {
+        write('\\');
+        write('u');
+        write(HEX[c >> 12 & 0xF]);
+        write(HEX[c >> 8 & 0xF]);
+        write(HEX[c >> 4 & 0xF]);
+        write(HEX[c & 0xF]);
+    }
+
+    private void ascii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            write(text.charAt(i));
+        }
+    }
+
+    private void write(int b) throws IOException {
+        if (position == buffer.length) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        buffer[position++] = (byte) b;
+    }
+}
@@ -0,0 +1,393 @@
+package com.linkshortener.http;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.ResolvedLink;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.User;
+import com.linkshortener.core.exception.InvalidUrlException;
+import com.linkshortener.core.exception.LinkNotFoundException;
+import com.linkshortener.core.exception.RateLimitExceededException;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.core.service.UserService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * REST API управления ссылками поверх встроенного HttpServer.
+ * Пользователь передается заголовком X-User-Id. Ответы пишутся {@link JsonWriter}
+ * сразу в тело ответа (chunked), без промежуточных объектов и строк.
+ * <pre>
+ * POST   /api/links              url=...&amp;limit=N - создать ссылку
+ * GET    /api/links?cursor=&amp;limit= - страница ссылок, "next" - позиция следующей
+ * GET    /api/links?all=true     - все ссылки одним потоком, страницами по PAGE_MAX
+ * GET    /api/links/{код}        - информация о ссылке
+ * PUT    /api/links/{код}?limit=N - новый лимит кликов
+ * DELETE /api/links/{код}        - удалить ссылку
+ * GET    /api/notifications      - уведомления пользователя
+ * POST   /api/resolve?count=false - пачка кодов в теле (через пробел, запятую или перевод строки);
+ *                                  каждый код считается переходом, count=false - только чтение;
+ *                                  X-User-Id не нужен, рассчитан на прогрев кэша edge-прокси;
+ *                                  в обоих режимах каждый код расходует токен клиента
+ * </pre>
+ */
+public class ManagementHttpServer {
+    static final int PAGE_DEFAULT = 100;
+    static final int PAGE_MAX = 1000;
+    static final int MAX_BATCH = 10_000;
+    private static final int MAX_BODY = 16 * 1024;
+    private static final int MAX_BATCH_BODY = MAX_BATCH * 32;
+    private static final String LINKS = "/api/links";
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private final int port;
+    private final int threads;
+    private final LinkService linkService;
+    private final UserService userService;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ManagementHttpServer(int port, int threads, LinkService linkService, UserService userService) {
+        this.port = port;
+        this.threads = threads;
+        this.linkService = linkService;
+        this.userService = userService;
+    }
+
+    /**
+     * Запускает сервер.
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) return;
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(LINKS, this::handleLinks);
+        server.createContext("/api/notifications", this::handleNotifications);
+        server.createContext("/api/resolve", this::handleResolve);
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "api-http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("API управления доступно на http://localhost:" + getPort() + LINKS);
+    }
+
+    private void handleLinks(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            UUID userId = userId(exchange);
+            if (userId == null) return;
+
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String code = path.length() > LINKS.length() + 1 ? path.substring(LINKS.length() + 1) : null;
+            try {
+                Map<String, String> params = parseParams(exchange.getRequestURI().getRawQuery());
+                if (code == null) {
+                    switch (method) {
+                        case "GET" -> listLinks(exchange, userId, params);
+                        case "POST" -> createLink(exchange, userId, params);
+                        default -> error(exchange, 405, "Метод не поддерживается: " + method);
+                    }
+                } else if (code.indexOf('/') >= 0) {
+                    error(exchange, 404, "Неизвестный путь: " + path);
+                } else {
+                    switch (method) {
+                        case "GET" -> writeLink(exchange, 200, linkService.getLinkInfo(code, userId));
+                        case "PUT", "PATCH" -> updateLimit(exchange, userId, code, params);
+                        case "DELETE" -> deleteLink(exchange, userId, code);
+                        default -> error(exchange, 405, "Метод не поддерживается: " + method);
+                    }
+                }
+            } catch (LinkNotFoundException e) {
+                error(exchange, 404, e.getMessage());
+            } catch (SecurityException e) {
+                error(exchange, 403, e.getMessage());
+            } catch (InvalidUrlException | IllegalArgumentException e) {
+                error(exchange, 400, e.getMessage());
+            } catch (RateLimitExceededException e) {
+                error(exchange, 429, e.getMessage());
+            }
+        }
+    }
+
+    private void handleNotifications(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            UUID userId = userId(exchange);
+            if (userId == null) return;
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                error(exchange, 405, "Метод не поддерживается: " + exchange.getRequestMethod());
+                return;
+            }
+            // Вытесненный или неизвестный пользователь уведомлений не имеет
+            List<String> notifications = userService.getUserById(userId)
+                    .map(User::getNotifications)
+                    .orElse(List.of());
+            JsonWriter json = begin(exchange, 200);
+            json.beginObject().name("notifications").beginArray();
+            for (String notification : notifications) {
+                json.value(notification);
+            }
+            json.endArray().endObject().flush();
+        }
+    }
+
+    private void handleResolve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                error(exchange, 405, "Метод не поддерживается: " + exchange.getRequestMethod());
+                return;
+            }
+            boolean countClicks;
+            try {
+                // Без параметра переходы учитываются: пропустить учет можно только явно
+                countClicks = !"false".equalsIgnoreCase(parseParams(exchange.getRequestURI().getRawQuery()).get("count"));
+            } catch (IllegalArgumentException e) {
+                error(exchange, 400, e.getMessage());
+                return;
+            }
+            byte[] body = exchange.getRequestBody().readNBytes(MAX_BATCH_BODY + 1);
+            if (body.length > MAX_BATCH_BODY) {
+                error(exchange, 413, "Слишком большая пачка, не больше " + MAX_BATCH + " кодов");
+                return;
+            }
+            List<String> codes = splitCodes(body);
+            if (codes.size() > MAX_BATCH) {
+                error(exchange, 413, "Слишком большая пачка, не больше " + MAX_BATCH + " кодов");
+                return;
+            }
+
+            String fingerprint = exchange.getRemoteAddress().getAddress().getHostAddress();
+            List<ResolvedLink> resolved = linkService.resolveBatch(codes, fingerprint, countClicks);
+            JsonWriter json = begin(exchange, 200);
+            json.beginObject().name("results").beginArray();
+            for (ResolvedLink link : resolved) {
+                json.beginObject()
+                        .name("code").value(link.getCode())
+                        .name("outcome").value(link.getOutcome().getLabel());
+                if (link.getOutcome() == RedirectOutcome.OK) {
+                    json.name("url").value(link.getUrl())
+                            .name("ttlMillis").value(link.getRemainingTtlMillis())
+                            .name("clicksLeft").value(link.getRemainingClicks());
+                }
+                json.endObject();
+            }
+            json.endArray().endObject().flush();
+        }
+    }
+
+    /**
+     * Коды из тела, разделенные пробелами, запятыми или переводами строк (коды - ASCII).
+     */
+    static List<String> splitCodes(byte[] body) {
+        List<String> codes = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= body.length; i++) {
+            boolean separator = i == body.length || body[i] == ',' || body[i] <= ' ';
+            if (separator) {
+                if (start >= 0) {
+                    codes.add(new String(body, start, i - start, StandardCharsets.US_ASCII));
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        return codes;
+    }
+
+    private void createLink(HttpExchange exchange, UUID userId, Map<String, String> params)
+            throws IOException, InvalidUrlException, RateLimitExceededException {
+        Map<String, String> form = withBody(exchange, params);
+        String url = form.get("url");
+        if (url == null || url.isBlank()) {
+            error(exchange, 400, "Не указан параметр url");
+            return;
+        }
+        Integer limit = form.containsKey("limit") ? positiveInt(form.get("limit"), "limit") : null;
+        ShortLink link = linkService.createShortLink(url.trim(), userId, limit);
+        // Владелец ссылок должен существовать, чтобы получать уведомления
+        userService.getOrCreateUser(userId);
+        writeLink(exchange, 201, link);
+    }
+
+    private void updateLimit(HttpExchange exchange, UUID userId, String code, Map<String, String> params)
+            throws IOException, LinkNotFoundException {
+        String limit = withBody(exchange, params).get("limit");
+        if (limit == null) {
+            error(exchange, 400, "Не указан параметр limit");
+            return;
+        }
+        writeLink(exchange, 200, linkService.updateClickLimit(code, userId, positiveInt(limit, "limit")));
+    }
+
+    private void deleteLink(HttpExchange exchange, UUID userId, String code)
+            throws IOException, LinkNotFoundException {
+        // Проверка владельца дает 403/404 вместо молчаливого отказа
+        linkService.getLinkInfo(code, userId);
+        if (!linkService.deleteLink(code, userId)) {
+            throw new LinkNotFoundException("Ссылка не найдена");
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    /**
+     * Страница ссылок или, с all=true, весь список пользователя одним ответом.
+     * В памяти одновременно держится не больше одной внутренней страницы.
+     */
+    private void listLinks(HttpExchange exchange, UUID userId, Map<String, String> params) throws IOException {
+        boolean all = Boolean.parseBoolean(params.get("all"));
+        int limit = params.containsKey("limit") ? positiveInt(params.get("limit"), "limit") : PAGE_DEFAULT;
+        long cursor = params.containsKey("cursor") ? parseCursor(params.get("cursor")) : 0;
+
+        JsonWriter json = begin(exchange, 200);
+        json.beginObject().name("links").beginArray();
+        try {
+            if (all) {
+                while (cursor >= 0) {
+                    cursor = linkService.forEachUserLink(userId, cursor, PAGE_MAX, link -> writeLink(json, link));
+                    json.flush();
+                }
+                json.endArray();
+            } else {
+                cursor = linkService.forEachUserLink(userId, cursor, Math.min(limit, PAGE_MAX),
+                        link -> writeLink(json, link));
+                json.endArray().name("next").value(cursor < 0 ? null : Long.toString(cursor));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.endObject().flush();
+    }
+
+    private void writeLink(HttpExchange exchange, int status, ShortLink link) throws IOException {
+        JsonWriter json = begin(exchange, status);
+        writeLink(json, link);
+        json.flush();
+    }
+
+    private void writeLink(JsonWriter json, ShortLink link) {
+        try {
+            json.beginObject()
+                    .name("code").value(link.getShortCode())
+                    .name("shortUrl").value(linkService.getFullShortUrl(link.getShortCode()))
+                    .name("url").value(link.getOriginalUrl())
+                    .name("createdAt").value(link.getCreatedAt().toString())
+                    .name("expiresAt").value(link.getExpiresAt().toString())
+                    .name("clickLimit").value(link.getClickLimit())
+                    .name("clicks").value(link.getClicksCount())
+                    .name("active").value(link.isActive())
+                    .endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static JsonWriter begin(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        // Длина заранее неизвестна: тело уходит chunked по мере заполнения буфера
+        exchange.sendResponseHeaders(status, 0);
+        return new JsonWriter(exchange.getResponseBody());
+    }
+
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        begin(exchange, status).beginObject().name("error").value(message).endObject().flush();
+    }
+
+    /**
+     * Идентификатор пользователя из X-User-Id; при его отсутствии сразу отвечает 401.
+     */
+    private static UUID userId(HttpExchange exchange) throws IOException {
+        String header = exchange.getRequestHeaders().getFirst("X-User-Id");
+        if (header != null) {
+            try {
+                return UUID.fromString(header.trim());
+            } catch (IllegalArgumentException e) {
+                // Ответим так же, как на отсутствующий заголовок
+            }
+        }
+        error(exchange, 401, "Нужен заголовок X-User-Id с UUID пользователя");
+        return null;
+    }
+
+    private static int positiveInt(String value, String name) {
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed > 0) return parsed;
+        } catch (NumberFormatException e) {
+            // Сообщение ниже
+        }
+        throw new IllegalArgumentException("Параметр " + name + " должен быть положительным числом: " + value);
+    }
+
+    private static long parseCursor(String value) {
+        try {
+            long cursor = Long.parseLong(value.trim());
+            if (cursor >= 0) return cursor;
+        } catch (NumberFormatException e) {
+            // Сообщение ниже
+        }
+        throw new IllegalArgumentException("Некорректная позиция cursor: " + value);
+    }
+
+    /**
+     * Параметры строки запроса, дополненные полями тела application/x-www-form-urlencoded.
+     */
+    private static Map<String, String> withBody(HttpExchange exchange, Map<String, String> params)
+            throws IOException {
+        byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY);
+        if (body.length == 0) {
+            return params;
+        }
+        Map<String, String> form = new HashMap<>(params);
+        form.putAll(parseParams(new String(body, StandardCharsets.UTF_8)));
+        return form;
+    }
+
+    static Map<String, String> parseParams(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Фактический порт (полезно, если задан 0).
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    /**
+     * Останавливает сервер.
+     */
+    public synchronized void stop() {
+        if (server == null) return;
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+    }
+}
@@ -0,0 +1,164 @@
+package com.linkshortener.http;
+
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.core.service.LinkChangeListener;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Готовые байты ответа-редиректа для популярных ссылок: строка статуса и заголовок
+ * Location, закодированные один раз. Буфер создается при первом переходе по ссылке,
+ * которая уже набрала minClicks обращений за окно HotLinkTracker, и удаляется, когда
+ * ссылка удалена, перестала работать или остыла. Суммарный объем буферов ограничен maxBytes.
+ * Запись кэша привязана к экземпляру строки URL: код, занятый заново другой ссылкой,
+ * не получит чужой Location.
+ */
+public class RedirectResponseCache implements LinkChangeListener {
+    private static final byte[] STATUS_LINE = "HTTP/1.1 302 Found\r\nLocation: ".getBytes(StandardCharsets.US_ASCII);
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final HotLinkTracker hotLinks;
+    private final long maxBytes;
+    private final long minClicks;
+    private final boolean direct;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param direct хранить буферы вне кучи (запись в сокет без промежуточного копирования)
+     */
+    public RedirectResponseCache(HotLinkTracker hotLinks, long maxBytes, long minClicks, boolean direct) {
+        this.hotLinks = hotLinks;
+        this.maxBytes = maxBytes;
+        this.minClicks = minClicks;
+        this.direct = direct;
+    }
+
+    /**
+     * Возвращает блок "статус + Location" для успешного перехода; буфер только для чтения,
+     * свой для каждого вызова. Непопулярные ссылки получают блок, собранный на месте.
+     * @param url URL, который вернул LinkService.resolve для этого кода
+     */
+    public ByteBuffer headerBlock(String code, String url) {
+        Entry entry = entries.get(code);
+        if (entry != null && entry.url == url) {
+            hits.increment();
+            return entry.bytes.duplicate();
+        }
+        misses.increment();
+        ByteBuffer built = encode(url, false);
+        if (hotLinks.estimate(code) >= minClicks) {
+            admit(code, url);
+        }
+        return built;
+    }
+
+    private void admit(String code, String url) {
+        ByteBuffer bytes = encode(url, direct).asReadOnlyBuffer();
+        if (usedBytes.addAndGet(bytes.capacity()) > maxBytes) {
+            usedBytes.addAndGet(-bytes.capacity());
+            return;
+        }
+        Entry previous = entries.put(code, new Entry(url, bytes));
+        if (previous != null) {
+            usedBytes.addAndGet(-previous.bytes.capacity());
+        }
+    }
+
+    /**
+     * Удаляет буферы ссылок, которые остыли ниже порога.
+     * @return число удаленных
+     */
+    public int trim() {
+        int removed = 0;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (hotLinks.estimate(entry.getKey()) < minClicks && remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public void invalidate(String code) {
+        Entry entry = entries.get(code);
+        if (entry != null) {
+            remove(code, entry);
+        }
+    }
+
+    private boolean remove(String code, Entry entry) {
+        if (entries.remove(code, entry)) {
+            usedBytes.addAndGet(-entry.bytes.capacity());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void onCreated(ShortLink link) {
+        // Буфер строится лениво при первом переходе
+    }
+
+    @Override
+    public void onStateChanged(ShortLink link) {
+        if (!link.isActive()) {
+            invalidate(link.getShortCode());
+        }
+    }
+
+    @Override
+    public void onRemoved(ShortLink link) {
+        invalidate(link.getShortCode());
+    }
+
+    /**
+     * Кодирует "HTTP/1.1 302 Found\r\nLocation: url\r\n". Символы вне ASCII и управляющие
+     * символы процентно кодируются, поэтому URL не может разорвать заголовок.
+     */
+    static ByteBuffer encode(String url, boolean direct) {
+        byte[] utf8 = url.getBytes(StandardCharsets.UTF_8);
+        int length = STATUS_LINE.length + 2;
+        for (byte b : utf8) {
+            length += needsEscape(b) ? 3 : 1;
+        }
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        buffer.put(STATUS_LINE);
+        for (byte b : utf8) {
+            if (needsEscape(b)) {
+                buffer.put((byte) '%').put((byte) HEX[(b >> 4) & 0xF]).put((byte) HEX[b & 0xF]);
+            } else {
+                buffer.put(b);
+            }
+        }
+        buffer.put((byte) '\r').put((byte) '\n');
+        return buffer.flip();
+    }
+
+    private static boolean needsEscape(byte b) {
+        return b < 0x21 || b == 0x7F;
+    }
+
+    // Геттеры
+    public int size() { return entries.size(); }
+    public long getUsedBytes() { return usedBytes.get(); }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+
+    private static final class Entry {
+        private final String url;
+        private final ByteBuffer bytes;
+
+        private Entry(String url, ByteBuffer bytes) {
+            this.url = url;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.linkshortener.http;
+
+import com.linkshortener.core.RedirectResult;
+import com.linkshortener.core.service.LinkService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * HTTP-сервер переходов на неблокирующих каналах: один поток с селектором.
+ * GET /код отвечает 302 с Location; блок "статус + Location" популярных ссылок
+ * берется готовым из {@link RedirectResponseCache}, а общий хвост заголовков - из
+ * статического буфера, так что ответ уходит одной gathering-записью без кодирования строк.
+ * Поддерживаются keep-alive и конвейерные запросы HTTP/1.1.
+ */
+public class RedirectServer {
+    private static final int REQUEST_BUFFER = 4096;
+    private static final long TRIM_INTERVAL_MILLIS = 10_000;
+
+    private static final ByteBuffer TAIL_KEEP_ALIVE = ascii("Content-Length: 0\r\n\r\n");
+    private static final ByteBuffer TAIL_CLOSE = ascii("Content-Length: 0\r\nConnection: close\r\n\r\n");
+    private static final ByteBuffer NOT_FOUND = ascii("HTTP/1.1 404 Not Found\r\n");
+    private static final ByteBuffer GONE = ascii("HTTP/1.1 410 Gone\r\n");
+    private static final ByteBuffer FORBIDDEN = ascii("HTTP/1.1 403 Forbidden\r\n");
+    private static final ByteBuffer TOO_MANY = ascii("HTTP/1.1 429 Too Many Requests\r\n");
+    private static final ByteBuffer BAD_REQUEST = ascii("HTTP/1.1 400 Bad Request\r\n");
+    private static final ByteBuffer NOT_ALLOWED = ascii("HTTP/1.1 405 Method Not Allowed\r\n");
+
+    private final int port;
+    private final LinkService linkService;
+    private final RedirectResponseCache cache;
+    private final RedirectResult result = new RedirectResult();
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private Thread thread;
+    private volatile boolean running;
+
+    public RedirectServer(int port, LinkService linkService, RedirectResponseCache cache) {
+        this.port = port;
+        this.linkService = linkService;
+        this.cache = cache;
+    }
+
+    /**
+     * Запускает сервер и подписывает кэш ответов на изменения ссылок.
+     */
+    public synchronized void start() throws IOException {
+        if (running) return;
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        linkService.addChangeListener(cache);
+        running = true;
+        thread = new Thread(this::run, "redirect-http");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("Переходы обслуживаются на http://localhost:" + getPort() + "/");
+    }
+
+    private void run() {
+        long nextTrim = System.currentTimeMillis() + TRIM_INTERVAL_MILLIS;
+        while (running) {
+            try {
+                selector.select(1_000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        serve(key);
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextTrim) {
+                    cache.trim();
+                    nextTrim = now + TRIM_INTERVAL_MILLIS;
+                }
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Ошибка сервера переходов: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        // Отпечаток клиента - адрес, вычисляется один раз на соединение
+        String fingerprint = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+        channel.register(selector, SelectionKey.OP_READ, new Connection(fingerprint));
+    }
+
+    private void serve(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isWritable() && !flush(channel, connection)) {
+                return;
+            }
+            if (key.isReadable() && channel.read(connection.in) < 0) {
+                channel.close();
+                return;
+            }
+            // Пока предыдущий ответ не ушел целиком, следующие запросы ждут в буфере
+            while (connection.pending == null && !connection.closeAfterWrite && handleRequest(connection)) {
+                if (!flush(channel, connection)) break;
+            }
+            if (connection.closeAfterWrite && connection.pending == null) {
+                channel.close();
+                return;
+            }
+            if (connection.pending == null && !connection.in.hasRemaining()) {
+                // Запрос не поместился в буфер
+                connection.respond(BAD_REQUEST, TAIL_CLOSE, true);
+                connection.in.clear();
+                flush(channel, connection);
+            }
+            key.interestOps(connection.pending != null ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        } catch (IOException e) {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Соединение уже разорвано
+            }
+        }
+    }
+
+    /**
+     * Разбирает один полный запрос из входного буфера и готовит ответ.
+     * @return false, если полного запроса еще нет
+     */
+    private boolean handleRequest(Connection connection) {
+        ByteBuffer in = connection.in;
+        int end = headersEnd(in);
+        if (end < 0) return false;
+
+        int lineEnd = indexOf(in, 0, end, (byte) '\r');
+        int methodEnd = indexOf(in, 0, lineEnd, (byte) ' ');
+        int pathEnd = methodEnd < 0 ? -1 : indexOf(in, methodEnd + 1, lineEnd, (byte) ' ');
+        boolean close = pathEnd < 0 || isHttp10(in, pathEnd + 1, lineEnd)
+                || containsIgnoreCase(in, lineEnd, end, "connection: close");
+        ByteBuffer tail = close ? TAIL_CLOSE : TAIL_KEEP_ALIVE;
+
+        if (pathEnd < 0 || in.get(methodEnd + 1) != '/') {
+            connection.respond(BAD_REQUEST, tail, close);
+        } else if (methodEnd != 3 || in.get(0) != 'G' || in.get(1) != 'E' || in.get(2) != 'T') {
+            connection.respond(NOT_ALLOWED, tail, close);
+        } else {
+            int codeEnd = indexOf(in, methodEnd + 2, pathEnd, (byte) '?');
+            String code = ascii(in, methodEnd + 2, codeEnd < 0 ? pathEnd : codeEnd);
+            linkService.resolve(code, connection.fingerprint, result);
+            switch (result.getOutcome()) {
+                case OK -> connection.respond(cache.headerBlock(code, result.getUrl()), tail, close);
+                case NOT_FOUND -> connection.respond(NOT_FOUND, tail, close);
+                case RATE_LIMITED -> connection.respond(TOO_MANY, tail, close);
+                case BLOCKED -> connection.respond(FORBIDDEN, tail, close);
+                default -> connection.respond(GONE, tail, close);
+            }
+        }
+
+        // Сдвигаем необработанный остаток (конвейерные запросы) в начало буфера
+        in.flip();
+        in.position(end + 4);
+        in.compact();
+        return true;
+    }
+
+    /**
+     * Дописывает ответ в сокет gathering-записью.
+     * @return true, если ответ ушел целиком
+     */
+    private static boolean flush(SocketChannel channel, Connection connection) throws IOException {
+        ByteBuffer[] pending = connection.pending;
+        if (pending == null) return true;
+        channel.write(pending);
+        if (pending[1].hasRemaining()) {
+            return false;
+        }
+        connection.pending = null;
+        return true;
+    }
+
+    /**
+     * Фактический порт (полезно, если задан 0).
+     */
+    public synchronized int getPort() {
+        try {
+            return serverChannel != null ? ((InetSocketAddress) serverChannel.getLocalAddress()).getPort() : port;
+        } catch (IOException e) {
+            return port;
+        }
+    }
+
+    public RedirectResponseCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Останавливает сервер.
+     */
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        linkService.removeChangeListener(cache);
+        selector.wakeup();
+        try {
+            thread.join(5_000);
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка остановки сервера переходов: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int headersEnd(ByteBuffer in) {
+        for (int i = 0; i + 3 < in.position(); i++) {
+            if (in.get(i) == '\r' && in.get(i + 1) == '\n' && in.get(i + 2) == '\r' && in.get(i + 3) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(ByteBuffer in, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (in.get(i) == value) return i;
+        }
+        return -1;
+    }
+
+    private static boolean isHttp10(ByteBuffer in, int from, int to) {
+        return to - from == 8 && in.get(to - 1) == '0' && in.get(to - 3) == '1';
+    }
+
+    private static boolean containsIgnoreCase(ByteBuffer in, int from, int to, String needle) {
+        outer:
+        for (int i = from; i + needle.length() <= to; i++) {
+            for (int j = 0; j < needle.length(); j++) {
+                if (Character.toLowerCase(in.get(i + j)) != needle.charAt(j)) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static String ascii(ByteBuffer in, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        in.get(from, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static ByteBuffer ascii(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Состояние соединения: входной буфер и недописанный ответ.
+     */
+    private static final class Connection {
+        private final String fingerprint;
+        private final ByteBuffer in = ByteBuffer.allocate(REQUEST_BUFFER);
+        private ByteBuffer[] pending;
+        private boolean closeAfterWrite;
+
+        private Connection(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        private void respond(ByteBuffer head, ByteBuffer tail, boolean close) {
+            pending = new ByteBuffer[] {head.duplicate(), tail.duplicate()};
+            closeAfterWrite = close;
+        }
+    }
+}
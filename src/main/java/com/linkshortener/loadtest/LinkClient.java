@@ -0,0 +1,22 @@
+package com.linkshortener.loadtest;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.exception.InvalidUrlException;
+import com.linkshortener.core.exception.RateLimitExceededException;
+
+import java.util.UUID;
+
+/**
+ * Операции, которые нагрузочный генератор вызывает у тестируемого режима.
+ * Экземпляр принадлежит одному рабочему потоку.
+ */
+interface LinkClient {
+
+    RedirectOutcome resolve(String code);
+
+    ShortLink create(String originalUrl, UUID owner, int clickLimit)
+            throws InvalidUrlException, RateLimitExceededException;
+
+    boolean delete(String code, UUID owner);
+}
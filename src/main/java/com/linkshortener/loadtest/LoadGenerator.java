@@ -0,0 +1,220 @@
+package com.linkshortener.loadtest;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.exception.InvalidUrlException;
+import com.linkshortener.core.exception.RateLimitExceededException;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.util.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Нагрузочный генератор с замкнутым циклом.
+ * Каждый поток выполняет операции подряд, при заданном темпе - по расписанию,
+ * и записывает задержки в собственные гистограммы, которые сливаются в конце.
+ * Последовательность операций определяется только seed, поэтому два прогона
+ * с одинаковым профилем дают одинаковую смесь запросов.
+ * Каждый поток работает через собственного {@link LinkClient}, поэтому один и тот же
+ * прогон можно выполнить и в режиме общей памяти, и в режиме "поток на шард".
+ */
+public class LoadGenerator {
+    private final LoadProfile profile;
+    private final Supplier<LinkClient> clients;
+    private final ZipfDistribution popularity;
+    private final AtomicReferenceArray<ShortLink> keyspace;
+    private final UUID[] users;
+
+    public LoadGenerator(LoadProfile profile, LinkService linkService) {
+        this(profile, () -> new SharedMemoryClient(linkService));
+    }
+
+    LoadGenerator(LoadProfile profile, Supplier<LinkClient> clients) {
+        this.profile = profile;
+        this.clients = clients;
+        this.popularity = new ZipfDistribution(profile.getKeys(), profile.getZipfExponent());
+        this.keyspace = new AtomicReferenceArray<>(profile.getKeys());
+        this.users = new UUID[profile.getUsers()];
+    }
+
+    /**
+     * Заполняет хранилище начальным набором ссылок и выполняет прогон.
+     */
+    public LoadResult run() throws InterruptedException {
+        populate();
+
+        LoadResult result = new LoadResult(profile);
+        Worker[] workers = new Worker[profile.getThreads()];
+        Thread[] threads = new Thread[workers.length];
+        CountDownLatch startSignal = new CountDownLatch(1);
+
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i, startSignal);
+            threads[i] = new Thread(workers[i], "load-worker-" + i);
+            threads[i].start();
+        }
+
+        long start = System.nanoTime();
+        startSignal.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        result.setElapsedNanos(System.nanoTime() - start);
+
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new IllegalStateException("Рабочий поток завершился с ошибкой", worker.failure);
+            }
+            result.merge(worker.raw, worker.corrected, worker.outcomes);
+        }
+        return result;
+    }
+
+    private void populate() {
+        LinkClient client = clients.get();
+        SplittableRandom random = new SplittableRandom(profile.getSeed());
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        for (int slot = 0; slot < keyspace.length(); slot++) {
+            keyspace.set(slot, createLink(client, users[random.nextInt(users.length)],
+                    "https://load.example/k/" + slot));
+        }
+    }
+
+    private ShortLink createLink(LinkClient client, UUID owner, String url) {
+        try {
+            return client.create(url, owner, profile.getClickLimit());
+        } catch (InvalidUrlException e) {
+            throw new IllegalStateException("Генератор построил некорректный URL: " + url, e);
+        } catch (RateLimitExceededException e) {
+            throw new IllegalStateException("Для нагрузочного теста ограничение частоты нужно отключить", e);
+        }
+    }
+
+    /**
+     * Рабочий поток нагрузки.
+     */
+    private class Worker implements Runnable {
+        private final int index;
+        private final CountDownLatch startSignal;
+        private final SplittableRandom random;
+        private LinkClient client;
+        private final Map<OperationType, LatencyHistogram> raw = new EnumMap<>(OperationType.class);
+        private final Map<OperationType, LatencyHistogram> corrected = new EnumMap<>(OperationType.class);
+        private final Map<String, Long> outcomes = new HashMap<>();
+        private long urlCounter;
+        private Throwable failure;
+
+        Worker(int index, CountDownLatch startSignal) {
+            this.index = index;
+            this.startSignal = startSignal;
+            this.random = new SplittableRandom(profile.getSeed() * 31 + index + 1);
+            for (OperationType type : OperationType.values()) {
+                raw.put(type, new LatencyHistogram());
+                corrected.put(type, new LatencyHistogram());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                client = clients.get();
+                startSignal.await();
+                runLoop();
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        private void runLoop() {
+            long interval = profile.getExpectedIntervalNanos();
+            int total = profile.getWarmupOperations() + profile.getOperations();
+            long scheduleStart = System.nanoTime();
+
+            for (int i = 0; i < total; i++) {
+                if (interval > 0) {
+                    long intended = scheduleStart + i * interval;
+                    long delay;
+                    while ((delay = intended - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(delay);
+                    }
+                }
+
+                OperationType type = nextOperation();
+                long begin = System.nanoTime();
+                String outcome = execute(type);
+                long latency = System.nanoTime() - begin;
+
+                if (i >= profile.getWarmupOperations()) {
+                    raw.get(type).recordValue(latency);
+                    corrected.get(type).recordValueWithExpectedInterval(latency, interval);
+                    outcomes.merge(type.name().toLowerCase() + "." + outcome, 1L, Long::sum);
+                }
+            }
+        }
+
+        private OperationType nextOperation() {
+            double r = random.nextDouble();
+            if (r < profile.getCreateRatio()) return OperationType.CREATE;
+            r -= profile.getCreateRatio();
+            if (r < profile.getChurnRatio()) return OperationType.CHURN;
+            r -= profile.getChurnRatio();
+            if (r < profile.getMissRatio()) return OperationType.MISS;
+            return OperationType.REDIRECT;
+        }
+
+        private String execute(OperationType type) {
+            return switch (type) {
+                case REDIRECT -> redirect(popularity.sample(random));
+                case MISS -> miss();
+                case CREATE -> create();
+                case CHURN -> churn(popularity.sample(random));
+            };
+        }
+
+        private String redirect(int slot) {
+            ShortLink link = keyspace.get(slot);
+            RedirectOutcome outcome = client.resolve(link.getShortCode());
+            if (outcome == RedirectOutcome.EXPIRED || outcome == RedirectOutcome.LIMIT_EXCEEDED) {
+                // Владелец исчерпанной ссылки создает новую - так лимиты дают оборот ключей
+                replace(slot, link);
+            }
+            return outcome.getLabel();
+        }
+
+        private String miss() {
+            return client.resolve("miss" + Long.toHexString(random.nextLong())).getLabel();
+        }
+
+        private String create() {
+            UUID owner = users[random.nextInt(users.length)];
+            keyspace.set(random.nextInt(keyspace.length()), createLink(client, owner, nextUrl()));
+            return RedirectOutcome.OK.getLabel();
+        }
+
+        private String churn(int slot) {
+            ShortLink link = keyspace.get(slot);
+            boolean deleted = client.delete(link.getShortCode(), link.getOwnerId());
+            replace(slot, link);
+            return deleted ? RedirectOutcome.OK.getLabel() : RedirectOutcome.NOT_FOUND.getLabel();
+        }
+
+        private void replace(int slot, ShortLink previous) {
+            ShortLink replacement = createLink(client, previous.getOwnerId(), nextUrl());
+            keyspace.compareAndSet(slot, previous, replacement);
+        }
+
+        private String nextUrl() {
+            return "https://load.example/w/" + index + "/" + (urlCounter++);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.linkshortener.loadtest;
+
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.core.service.ThreadPerShardEngine;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Точка входа нагрузочного генератора.
+ * Запуск: {@code mvn exec:java -Dexec.mainClass="com.linkshortener.loadtest.LoadGeneratorMain"
+ * -Dexec.args="threads=8 operations=500000 report=target/load-report.txt"}.
+ * Параметр {@code mode=thread-per-shard shards=32} запускает тот же прогон
+ * на движке "поток на шард" для сравнения масштабирования.
+ */
+public class LoadGeneratorMain {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadProfile profile = LoadProfile.fromArgs(args);
+        System.out.println("Нагрузочный прогон (" + profile.getMode() + "): "
+                + profile.getThreads() + " потоков, seed " + profile.getSeed());
+
+        LoadResult result;
+        if (profile.getMode().equals(LoadProfile.MODE_THREAD_PER_SHARD)) {
+            // Клиент на каждый рабочий поток и еще один для начального заполнения
+            try (ThreadPerShardEngine engine =
+                         new ThreadPerShardEngine(profile.getShards(), profile.getThreads() + 1)) {
+                engine.start();
+                result = new LoadGenerator(profile, () -> new ThreadPerShardClient(engine)).run();
+            }
+        } else {
+            result = new LoadGenerator(profile, LinkService.getInstance()).run();
+        }
+
+        if (profile.getReportFile().isEmpty()) {
+            LoadReport.write(result, System.out);
+        } else {
+            try (Writer writer = new FileWriter(profile.getReportFile())) {
+                LoadReport.write(result, writer);
+            }
+            System.out.println("Отчет сохранен: " + profile.getReportFile());
+        }
+    }
+}
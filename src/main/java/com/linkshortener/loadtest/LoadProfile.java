@@ -0,0 +1,101 @@
+package com.linkshortener.loadtest;
+
+import java.util.Properties;
+
+/**
+ * Параметры нагрузочного прогона.
+ * Задаются аргументами вида ключ=значение, например
+ * {@code threads=8 operations=200000 zipf.exponent=1.1 seed=7}.
+ */
+public class LoadProfile {
+    public static final String MODE_SHARED = "shared";
+    public static final String MODE_THREAD_PER_SHARD = "thread-per-shard";
+
+    private final String mode;
+    private final int shards; // Только для режима thread-per-shard
+    private final long seed;
+    private final int threads;
+    private final int operations;
+    private final int warmupOperations;
+    private final int targetRate;
+    private final int keys;
+    private final int users;
+    private final double zipfExponent;
+    private final double createRatio;
+    private final double churnRatio;
+    private final double missRatio;
+    private final int clickLimit;
+    private final String reportFile;
+
+    public LoadProfile(Properties properties) {
+        this.mode = properties.getProperty("mode", MODE_SHARED);
+        this.shards = Integer.parseInt(properties.getProperty("shards",
+                String.valueOf(Integer.highestOneBit(Runtime.getRuntime().availableProcessors()))));
+        this.seed = Long.parseLong(properties.getProperty("seed", "42"));
+        this.threads = Integer.parseInt(properties.getProperty("threads", "4"));
+        this.operations = Integer.parseInt(properties.getProperty("operations", "100000"));
+        this.warmupOperations = Integer.parseInt(properties.getProperty("warmup.operations", "10000"));
+        this.targetRate = Integer.parseInt(properties.getProperty("target.rate", "0"));
+        this.keys = Integer.parseInt(properties.getProperty("keys", "10000"));
+        this.users = Integer.parseInt(properties.getProperty("users", "100"));
+        this.zipfExponent = Double.parseDouble(properties.getProperty("zipf.exponent", "0.99"));
+        this.createRatio = Double.parseDouble(properties.getProperty("create.ratio", "0.001"));
+        this.churnRatio = Double.parseDouble(properties.getProperty("churn.ratio", "0.001"));
+        this.missRatio = Double.parseDouble(properties.getProperty("miss.ratio", "0.0"));
+        this.clickLimit = Integer.parseInt(properties.getProperty("click.limit", "1000"));
+        this.reportFile = properties.getProperty("report", "");
+
+        if (threads <= 0 || operations <= 0 || keys <= 0 || users <= 0 || clickLimit <= 0) {
+            throw new IllegalArgumentException("Параметры нагрузки должны быть положительными");
+        }
+        if (!mode.equals(MODE_SHARED) && !mode.equals(MODE_THREAD_PER_SHARD)) {
+            throw new IllegalArgumentException("Неизвестный режим: " + mode);
+        }
+        if (shards <= 0 || Integer.bitCount(shards) != 1) {
+            throw new IllegalArgumentException("Число шардов должно быть степенью двойки: " + shards);
+        }
+        if (createRatio + churnRatio + missRatio > 1.0) {
+            throw new IllegalArgumentException("Сумма долей операций не может превышать 1");
+        }
+    }
+
+    /**
+     * Разбирает аргументы командной строки вида ключ=значение.
+     */
+    public static LoadProfile fromArgs(String[] args) {
+        Properties properties = new Properties();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Ожидался аргумент вида ключ=значение: " + arg);
+            }
+            properties.setProperty(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return new LoadProfile(properties);
+    }
+
+    // Геттеры
+    public String getMode() { return mode; }
+    public int getShards() { return shards; }
+    public long getSeed() { return seed; }
+    public int getThreads() { return threads; }
+    public int getOperations() { return operations; }
+    public int getWarmupOperations() { return warmupOperations; }
+    public int getTargetRate() { return targetRate; }
+    public int getKeys() { return keys; }
+    public int getUsers() { return users; }
+    public double getZipfExponent() { return zipfExponent; }
+    public double getCreateRatio() { return createRatio; }
+    public double getChurnRatio() { return churnRatio; }
+    public double getMissRatio() { return missRatio; }
+    public int getClickLimit() { return clickLimit; }
+    public String getReportFile() { return reportFile; }
+
+    /**
+     * Ожидаемый интервал между операциями одного потока в наносекундах
+     * (0, если темп не ограничен).
+     */
+    public long getExpectedIntervalNanos() {
+        return targetRate > 0 ? 1_000_000_000L / targetRate : 0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.linkshortener.loadtest;
+
+import com.linkshortener.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Текстовый отчет о нагрузочном прогоне.
+ * Формат - строки ключ=значение в фиксированном порядке, задержки в микросекундах,
+ * чтобы отчеты разных версий можно было сравнивать обычным diff.
+ */
+public class LoadReport {
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9, 99.99};
+    private static final String[] PERCENTILE_LABELS = {"p50", "p90", "p99", "p999", "p9999"};
+
+    private LoadReport() {}
+
+    /**
+     * Записывает отчет.
+     */
+    public static void write(LoadResult result, Appendable out) throws IOException {
+        LoadProfile profile = result.getProfile();
+
+        line(out, "profile.mode", profile.getMode());
+        line(out, "profile.shards", profile.getShards());
+        line(out, "profile.seed", profile.getSeed());
+        line(out, "profile.threads", profile.getThreads());
+        line(out, "profile.operations", profile.getOperations());
+        line(out, "profile.warmup.operations", profile.getWarmupOperations());
+        line(out, "profile.target.rate", profile.getTargetRate());
+        line(out, "profile.keys", profile.getKeys());
+        line(out, "profile.users", profile.getUsers());
+        line(out, "profile.zipf.exponent", profile.getZipfExponent());
+        line(out, "profile.create.ratio", profile.getCreateRatio());
+        line(out, "profile.churn.ratio", profile.getChurnRatio());
+        line(out, "profile.miss.ratio", profile.getMissRatio());
+        line(out, "profile.click.limit", profile.getClickLimit());
+
+        line(out, "run.elapsed.ms", result.getElapsedNanos() / 1_000_000);
+        line(out, "run.operations", result.getTotalOperations());
+        line(out, "run.throughput.ops", format(result.getThroughput()));
+
+        for (var entry : result.getOutcomes().entrySet()) {
+            line(out, "outcome." + entry.getKey(), entry.getValue());
+        }
+
+        for (OperationType type : OperationType.values()) {
+            String prefix = "latency." + type.name().toLowerCase();
+            histogram(out, prefix + ".raw", result.getRawLatency(type));
+            histogram(out, prefix + ".corrected", result.getCorrectedLatency(type));
+        }
+    }
+
+    private static void histogram(Appendable out, String prefix, LatencyHistogram histogram)
+            throws IOException {
+        line(out, prefix + ".count", histogram.getTotalCount());
+        if (histogram.getTotalCount() == 0) return;
+
+        line(out, prefix + ".mean.us", format(histogram.getMean() / 1000.0));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            line(out, prefix + "." + PERCENTILE_LABELS[i] + ".us",
+                    format(histogram.getValueAtPercentile(PERCENTILES[i]) / 1000.0));
+        }
+        line(out, prefix + ".max.us", format(histogram.getMax() / 1000.0));
+    }
+
+    private static void line(Appendable out, String key, Object value) throws IOException {
+        out.append(key).append('=').append(String.valueOf(value)).append(System.lineSeparator());
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
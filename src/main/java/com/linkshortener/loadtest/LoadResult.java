@@ -0,0 +1,57 @@
+package com.linkshortener.loadtest;
+
+import com.linkshortener.util.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Результаты нагрузочного прогона: гистограммы задержек по типам операций
+ * (сырые и с поправкой на coordinated omission) и счетчики исходов.
+ */
+public class LoadResult {
+    private final LoadProfile profile;
+    private final Map<OperationType, LatencyHistogram> rawLatency = new EnumMap<>(OperationType.class);
+    private final Map<OperationType, LatencyHistogram> correctedLatency = new EnumMap<>(OperationType.class);
+    private final Map<String, Long> outcomes = new TreeMap<>();
+    private long elapsedNanos;
+
+    public LoadResult(LoadProfile profile) {
+        this.profile = profile;
+        for (OperationType type : OperationType.values()) {
+            rawLatency.put(type, new LatencyHistogram());
+            correctedLatency.put(type, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Добавляет результаты одного рабочего потока.
+     */
+    void merge(Map<OperationType, LatencyHistogram> raw,
+               Map<OperationType, LatencyHistogram> corrected,
+               Map<String, Long> workerOutcomes) {
+        raw.forEach((type, histogram) -> rawLatency.get(type).add(histogram));
+        corrected.forEach((type, histogram) -> correctedLatency.get(type).add(histogram));
+        workerOutcomes.forEach((outcome, count) -> outcomes.merge(outcome, count, Long::sum));
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Геттеры
+    public LoadProfile getProfile() { return profile; }
+    public LatencyHistogram getRawLatency(OperationType type) { return rawLatency.get(type); }
+    public LatencyHistogram getCorrectedLatency(OperationType type) { return correctedLatency.get(type); }
+    public Map<String, Long> getOutcomes() { return outcomes; }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    public long getTotalOperations() {
+        return rawLatency.values().stream().mapToLong(LatencyHistogram::getTotalCount).sum();
+    }
+
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0.0 : getTotalOperations() * 1_000_000_000.0 / elapsedNanos;
+    }
+}
@@ -0,0 +1,15 @@
+package com.linkshortener.loadtest;
+
+/**
+ * Типы операций нагрузочного прогона.
+ */
+public enum OperationType {
+    /** Переход по существующему коду (популярность по Ципфу). */
+    REDIRECT,
+    /** Переход по несуществующему коду (боты, опечатки). */
+    MISS,
+    /** Создание новой ссылки. */
+    CREATE,
+    /** Удаление ссылки и создание замены (оборот ссылок по TTL). */
+    CHURN
+}
@@ -0,0 +1,38 @@
+package com.linkshortener.loadtest;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.RedirectResult;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.exception.*;
+import com.linkshortener.core.service.LinkService;
+
+import java.util.UUID;
+
+/**
+ * Режим с общей памятью: все потоки напрямую вызывают {@link LinkService}.
+ */
+class SharedMemoryClient implements LinkClient {
+    private final LinkService linkService;
+    // Клиент принадлежит одному потоку, поэтому результат переиспользуется
+    private final RedirectResult result = new RedirectResult();
+
+    SharedMemoryClient(LinkService linkService) {
+        this.linkService = linkService;
+    }
+
+    @Override
+    public RedirectOutcome resolve(String code) {
+        return linkService.resolve(code, null, result).getOutcome();
+    }
+
+    @Override
+    public ShortLink create(String originalUrl, UUID owner, int clickLimit)
+            throws InvalidUrlException, RateLimitExceededException {
+        return linkService.createShortLink(originalUrl, owner, clickLimit);
+    }
+
+    @Override
+    public boolean delete(String code, UUID owner) {
+        return linkService.deleteLink(code, owner);
+    }
+}
@@ -0,0 +1,34 @@
+package com.linkshortener.loadtest;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.exception.InvalidUrlException;
+import com.linkshortener.core.service.ThreadPerShardEngine;
+
+import java.util.UUID;
+
+/**
+ * Режим "поток на шард": операции уходят владельцам шардов сообщениями.
+ */
+class ThreadPerShardClient implements LinkClient {
+    private final ThreadPerShardEngine.Client client;
+
+    ThreadPerShardClient(ThreadPerShardEngine engine) {
+        this.client = engine.newClient();
+    }
+
+    @Override
+    public RedirectOutcome resolve(String code) {
+        return client.resolve(code);
+    }
+
+    @Override
+    public ShortLink create(String originalUrl, UUID owner, int clickLimit) throws InvalidUrlException {
+        return client.create(originalUrl, owner, clickLimit);
+    }
+
+    @Override
+    public boolean delete(String code, UUID owner) {
+        return client.delete(code, owner);
+    }
+}
@@ -0,0 +1,54 @@
+package com.linkshortener.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Распределение Ципфа на рангах 0..n-1.
+ * Ранг 0 - самая популярная ссылка. Выборка - бинарный поиск по
+ * заранее посчитанной функции распределения, поэтому при одном и том же
+ * источнике случайности последовательность рангов воспроизводима.
+ */
+public class ZipfDistribution {
+    private final double[] cumulative;
+
+    public ZipfDistribution(int size, double exponent) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Размер распределения должен быть положительным");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Показатель распределения не может быть отрицательным");
+        }
+
+        cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 0; rank < size; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    /**
+     * Возвращает случайный ранг.
+     */
+    public int sample(SplittableRandom random) {
+        double u = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int size() {
+        return cumulative.length;
+    }
+}
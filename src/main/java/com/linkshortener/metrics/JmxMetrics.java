@@ -0,0 +1,156 @@
+package com.linkshortener.metrics;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.core.service.NotificationService;
+import com.linkshortener.storage.LinkStorage;
+import com.linkshortener.storage.UserStorage;
+import com.linkshortener.util.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Публикация метрик сервиса через JMX.
+ * Значения читаются из {@link LinkMetrics} в момент запроса (задержки переходов -
+ * из слияния не старше секунды), поэтому на горячий путь MBean никак не влияет.
+ */
+public class JmxMetrics implements LinkMetricsMXBean {
+    public static final String OBJECT_NAME = "com.linkshortener:type=LinkService,name=Metrics";
+    private static final long LATENCY_SNAPSHOT_MILLIS = 1_000;
+
+    private final LinkMetrics metrics;
+    private final LinkStorage linkStorage;
+    private final UserStorage userStorage;
+    private final NotificationService notificationService;
+    // Слитая гистограмма переходов и время слияния; под монитором
+    private final LatencyHistogram mergedLatency = new LatencyHistogram();
+    private long mergedAtMillis;
+
+    public JmxMetrics() {
+        this.metrics = LinkMetrics.getInstance();
+        this.linkStorage = LinkStorage.getInstance();
+        this.userStorage = UserStorage.getInstance();
+        this.notificationService = NotificationService.getInstance();
+    }
+
+    /**
+     * Регистрирует MBean в платформенном MBeanServer.
+     */
+    public static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new JmxMetrics(), name);
+            }
+        } catch (JMException e) {
+            System.err.println("Не удалось зарегистрировать JMX-метрики: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long getRedirectsOk() { return metrics.getRedirects(RedirectOutcome.OK); }
+
+    @Override
+    public long getRedirectsNotFound() { return metrics.getRedirects(RedirectOutcome.NOT_FOUND); }
+
+    @Override
+    public long getRedirectsExpired() { return metrics.getRedirects(RedirectOutcome.EXPIRED); }
+
+    @Override
+    public long getRedirectsLimitExceeded() { return metrics.getRedirects(RedirectOutcome.LIMIT_EXCEEDED); }
+
+    @Override
+    public long getRedirectsRateLimited() { return metrics.getRedirects(RedirectOutcome.RATE_LIMITED); }
+
+    @Override
+    public long getRedirectsBlocked() { return metrics.getRedirects(RedirectOutcome.BLOCKED); }
+
+    @Override
+    public double getRedirectLatencyMeanMicros() { return redirectLatencyMicros(LatencyHistogram::getMean); }
+
+    @Override
+    public double getRedirectLatencyP50Micros() {
+        return redirectLatencyMicros(latency -> latency.getValueAtPercentile(50));
+    }
+
+    @Override
+    public double getRedirectLatencyP99Micros() {
+        return redirectLatencyMicros(latency -> latency.getValueAtPercentile(99));
+    }
+
+    @Override
+    public double getRedirectLatencyMaxMicros() { return redirectLatencyMicros(LatencyHistogram::getMax); }
+
+    @Override
+    public long getCreates() { return metrics.getCreates(); }
+
+    @Override
+    public long getDedupHits() { return metrics.getDedupHits(); }
+
+    @Override
+    public double getCreateLatencyP99Micros() {
+        return metrics.getCreateLatency().getValueAtPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public long getCodesGenerated() { return metrics.getCodesGenerated(); }
+
+    @Override
+    public long getGeneratorRetries() { return metrics.getGeneratorRetries(); }
+
+    @Override
+    public long getCleanupRuns() { return metrics.getCleanupRuns(); }
+
+    @Override
+    public long getCleanupRemovedTotal() { return metrics.getCleanupRemoved(); }
+
+    @Override
+    public int getLastCleanupRemoved() { return metrics.getLastCleanupRemoved(); }
+
+    @Override
+    public double getLastCleanupDurationMillis() { return metrics.getLastCleanupDurationNanos() / 1_000_000.0; }
+
+    @Override
+    public int getLinkCount() { return linkStorage.size(); }
+
+    @Override
+    public int getUserCount() { return userStorage.size(); }
+
+    @Override
+    public String[] getHotLinks() {
+        return HotLinkTracker.getInstance().getTopK().stream()
+                .map(HotLinkTracker.HotLink::toString)
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public long getNotificationsSent() { return metrics.getNotificationsSent(); }
+
+    @Override
+    public long getPendingNotifications() { return notificationService.getPendingCount(); }
+
+    /**
+     * Сводная гистограмма переходов по всем исходам.
+     */
+    /**
+     * Статистика задержек переходов по всем исходам. Слияние гистограмм дорогое,
+     * а JMX-клиент читает атрибуты по одному, поэтому одно слияние служит всем
+     * геттерам в течение {@value #LATENCY_SNAPSHOT_MILLIS} мс.
+     */
+    private synchronized double redirectLatencyMicros(ToDoubleFunction<LatencyHistogram> statistic) {
+        long now = System.currentTimeMillis();
+        if (now - mergedAtMillis >= LATENCY_SNAPSHOT_MILLIS) {
+            mergedLatency.reset();
+            for (RedirectOutcome outcome : RedirectOutcome.values()) {
+                mergedLatency.add(metrics.getRedirectLatency(outcome));
+            }
+            mergedAtMillis = now;
+        }
+        return statistic.applyAsDouble(mergedLatency) / 1000.0;
+    }
+}
@@ -0,0 +1,151 @@
+package com.linkshortener.metrics;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.util.LatencyHistogram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики и гистограммы задержек сервиса ссылок.
+ * Счетчики - LongAdder (полосатые, без конкуренции за одну ячейку),
+ * поэтому запись на горячем пути дешевая и метрики можно держать
+ * включенными в продакшене.
+ */
+public class LinkMetrics {
+    private static LinkMetrics instance;
+
+    private final LongAdder[] redirects;
+    private final LatencyHistogram[] redirectLatency;
+    private final LongAdder creates = new LongAdder();
+    private final LongAdder dedupHits = new LongAdder();
+    private final LatencyHistogram createLatency = new LatencyHistogram();
+    private final LongAdder codesGenerated = new LongAdder();
+    private final LongAdder generatorRetries = new LongAdder();
+    private final LongAdder cleanupRuns = new LongAdder();
+    private final LongAdder cleanupRemoved = new LongAdder();
+    private final LatencyHistogram cleanupDuration = new LatencyHistogram();
+    private final LongAdder notificationsSent = new LongAdder();
+    private final Map<String, JobStats> jobs = new ConcurrentHashMap<>();
+    private volatile long lastCleanupDurationNanos;
+    private volatile int lastCleanupRemoved;
+
+    /**
+     * Создает отдельный набор метрик, не видимый экспортерам (прогрев, тесты).
+     */
+    public LinkMetrics() {
+        RedirectOutcome[] outcomes = RedirectOutcome.values();
+        redirects = new LongAdder[outcomes.length];
+        redirectLatency = new LatencyHistogram[outcomes.length];
+        for (int i = 0; i < outcomes.length; i++) {
+            redirects[i] = new LongAdder();
+            redirectLatency[i] = new LatencyHistogram();
+        }
+    }
+
+    public static synchronized LinkMetrics getInstance() {
+        if (instance == null) {
+            instance = new LinkMetrics();
+        }
+        return instance;
+    }
+
+    /**
+     * Учитывает переход по ссылке.
+     */
+    public void recordRedirect(RedirectOutcome outcome, long durationNanos) {
+        redirects[outcome.ordinal()].increment();
+        redirectLatency[outcome.ordinal()].recordValue(durationNanos);
+    }
+
+    /**
+     * Учитывает создание ссылки; dedupHit - вернули уже существующую.
+     */
+    public void recordCreate(boolean dedupHit, long durationNanos) {
+        creates.increment();
+        if (dedupHit) {
+            dedupHits.increment();
+        }
+        createLatency.recordValue(durationNanos);
+    }
+
+    /**
+     * Учитывает генерацию кода за указанное число попыток.
+     */
+    public void recordCodeGenerated(int attempts) {
+        codesGenerated.increment();
+        if (attempts > 1) {
+            generatorRetries.add(attempts - 1);
+        }
+    }
+
+    /**
+     * Учитывает проход очистки просроченных ссылок.
+     */
+    public void recordCleanup(long durationNanos, int removed) {
+        cleanupRuns.increment();
+        cleanupRemoved.add(removed);
+        cleanupDuration.recordValue(durationNanos);
+        lastCleanupDurationNanos = durationNanos;
+        lastCleanupRemoved = removed;
+    }
+
+    /**
+     * Учитывает отправленное уведомление.
+     */
+    public void recordNotification() {
+        notificationsSent.increment();
+    }
+
+    /**
+     * Учитывает запуск фоновой задачи планировщика.
+     */
+    public void recordJob(String job, long durationNanos, boolean success) {
+        JobStats stats = jobs.computeIfAbsent(job, name -> new JobStats());
+        stats.runs.increment();
+        if (!success) {
+            stats.failures.increment();
+        }
+        stats.duration.recordValue(durationNanos);
+    }
+
+    // Геттеры
+    public long getRedirects(RedirectOutcome outcome) { return redirects[outcome.ordinal()].sum(); }
+    public LatencyHistogram getRedirectLatency(RedirectOutcome outcome) {
+        return redirectLatency[outcome.ordinal()];
+    }
+    public long getCreates() { return creates.sum(); }
+    public long getDedupHits() { return dedupHits.sum(); }
+    public LatencyHistogram getCreateLatency() { return createLatency; }
+    public long getCodesGenerated() { return codesGenerated.sum(); }
+    public long getGeneratorRetries() { return generatorRetries.sum(); }
+    public long getCleanupRuns() { return cleanupRuns.sum(); }
+    public long getCleanupRemoved() { return cleanupRemoved.sum(); }
+    public LatencyHistogram getCleanupDuration() { return cleanupDuration; }
+    public long getLastCleanupDurationNanos() { return lastCleanupDurationNanos; }
+    public int getLastCleanupRemoved() { return lastCleanupRemoved; }
+    public long getNotificationsSent() { return notificationsSent.sum(); }
+    public Map<String, JobStats> getJobs() { return jobs; }
+
+    public long getTotalRedirects() {
+        long total = 0;
+        for (LongAdder adder : redirects) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Статистика одной фоновой задачи.
+     */
+    public static class JobStats {
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LatencyHistogram duration = new LatencyHistogram();
+
+        public long getRuns() { return runs.sum(); }
+        public long getFailures() { return failures.sum(); }
+        public LatencyHistogram getDuration() { return duration; }
+    }
+}
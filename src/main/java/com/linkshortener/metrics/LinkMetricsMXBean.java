@@ -0,0 +1,48 @@
+package com.linkshortener.metrics;
+
+/**
+ * JMX-интерфейс метрик сервиса ссылок.
+ * Задержки - в микросекундах.
+ */
+public interface LinkMetricsMXBean {
+
+    // Переходы по исходам
+    long getRedirectsOk();
+    long getRedirectsNotFound();
+    long getRedirectsExpired();
+    long getRedirectsLimitExceeded();
+    long getRedirectsRateLimited();
+    long getRedirectsBlocked();
+
+    // Задержки переходов
+    double getRedirectLatencyMeanMicros();
+    double getRedirectLatencyP50Micros();
+    double getRedirectLatencyP99Micros();
+    double getRedirectLatencyMaxMicros();
+
+    // Создание ссылок
+    long getCreates();
+    long getDedupHits();
+    double getCreateLatencyP99Micros();
+
+    // Генератор кодов
+    long getCodesGenerated();
+    long getGeneratorRetries();
+
+    // Очистка просроченных ссылок
+    long getCleanupRuns();
+    long getCleanupRemovedTotal();
+    int getLastCleanupRemoved();
+    double getLastCleanupDurationMillis();
+
+    // Размеры хранилищ
+    int getLinkCount();
+    int getUserCount();
+
+    // Популярные ссылки ("код=оценка" по убыванию)
+    String[] getHotLinks();
+
+    // Уведомления
+    long getNotificationsSent();
+    long getPendingNotifications();
+}
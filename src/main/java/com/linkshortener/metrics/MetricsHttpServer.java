@@ -0,0 +1,78 @@
+package com.linkshortener.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Встроенный HTTP-листенер с эндпоинтом /metrics для Prometheus.
+ * Один поток обработки: опросы редкие, а рендеринг все равно сериализован.
+ */
+public class MetricsHttpServer {
+    private final int port;
+    private final PrometheusExporter exporter;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsHttpServer(int port) {
+        this.port = port;
+        this.exporter = new PrometheusExporter();
+    }
+
+    /**
+     * Запускает листенер.
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) return;
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", this::handle);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("Метрики доступны на http://localhost:" + getPort() + "/metrics");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", PrometheusExporter.CONTENT_TYPE);
+            synchronized (exporter) {
+                int length = exporter.render();
+                exchange.sendResponseHeaders(200, length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    exporter.writeRendered(body);
+                }
+            }
+        }
+    }
+
+    /**
+     * Фактический порт (полезно, если задан 0).
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    /**
+     * Останавливает листенер.
+     */
+    public synchronized void stop() {
+        if (server == null) return;
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+    }
+}
@@ -0,0 +1,255 @@
+package com.linkshortener.metrics;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.core.event.LinkEventBus;
+import com.linkshortener.core.generator.ShortCodeGenerator;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.core.service.NotificationService;
+import com.linkshortener.storage.LinkStorage;
+import com.linkshortener.storage.UserStorage;
+import com.linkshortener.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Рендеринг метрик в текстовом формате Prometheus.
+ * Текст собирается в переиспользуемый StringBuilder и кодируется
+ * в переиспользуемый массив байт, так что буферы между опросами не пересоздаются.
+ * Мусор опрос все же создает: форматирование double, списки популярных ссылок
+ * и задач, а число ожидающих уведомлений считается проходом по всем пользователям.
+ */
+public class PrometheusExporter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Границы корзин гистограмм в наносекундах: от 1 мкс до 1 с
+    private static final long[] BUCKET_BOUNDS = {
+            1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000, 10_000_000, 25_000_000, 50_000_000,
+            100_000_000, 250_000_000, 500_000_000, 1_000_000_000
+    };
+    private static final String[] BUCKET_LABELS = {
+            "1e-06", "2.5e-06", "5e-06", "1e-05", "2.5e-05", "5e-05", "0.0001", "0.00025", "0.0005",
+            "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05",
+            "0.1", "0.25", "0.5", "1"
+    };
+
+    private final LinkMetrics metrics;
+    private final LinkStorage linkStorage;
+    private final UserStorage userStorage;
+    private final NotificationService notificationService;
+    private final LinkService linkService;
+    private final StringBuilder text = new StringBuilder(16 * 1024);
+    private final long[] cumulative = new long[BUCKET_BOUNDS.length];
+    private byte[] buffer = new byte[16 * 1024];
+    private int length;
+
+    public PrometheusExporter() {
+        this.metrics = LinkMetrics.getInstance();
+        this.linkStorage = LinkStorage.getInstance();
+        this.userStorage = UserStorage.getInstance();
+        this.notificationService = NotificationService.getInstance();
+        this.linkService = LinkService.getInstance();
+    }
+
+    /**
+     * Рендерит метрики во внутренний буфер и возвращает длину в байтах.
+     * Буферы общие для всех опросов, поэтому вызовы render и
+     * writeRendered нужно делать под одной блокировкой на экспортере.
+     */
+    public synchronized int render() {
+        text.setLength(0);
+        renderRedirects();
+        renderCreates();
+        renderGenerator();
+        renderStorage();
+        renderCleanup();
+        renderJobs();
+        renderHotLinks();
+        renderNotifications();
+        renderEvents();
+        encode();
+        return length;
+    }
+
+    /**
+     * Пишет результат последнего render в поток.
+     */
+    public synchronized void writeRendered(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+
+    /**
+     * Текущее содержимое буфера (действительно до следующего render).
+     */
+    public synchronized String contentAsString() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void renderRedirects() {
+        header("linkshortener_redirects_total", "counter", "Redirects by outcome");
+        for (RedirectOutcome outcome : RedirectOutcome.values()) {
+            sample("linkshortener_redirects_total", "outcome", outcome.getLabel(),
+                    metrics.getRedirects(outcome));
+        }
+
+        header("linkshortener_redirect_duration_seconds", "histogram", "Redirect latency by outcome");
+        for (RedirectOutcome outcome : RedirectOutcome.values()) {
+            histogram("linkshortener_redirect_duration_seconds", "outcome", outcome.getLabel(),
+                    metrics.getRedirectLatency(outcome));
+        }
+    }
+
+    private void renderCreates() {
+        header("linkshortener_creates_total", "counter", "createShortLink calls");
+        sample("linkshortener_creates_total", null, null, metrics.getCreates());
+        header("linkshortener_create_dedup_hits_total", "counter", "Creates answered with an existing link");
+        sample("linkshortener_create_dedup_hits_total", null, null, metrics.getDedupHits());
+        header("linkshortener_create_duration_seconds", "histogram", "createShortLink latency");
+        histogram("linkshortener_create_duration_seconds", null, null, metrics.getCreateLatency());
+    }
+
+    private void renderGenerator() {
+        header("linkshortener_codes_generated_total", "counter", "Short codes issued by ShortCodeGenerator");
+        sample("linkshortener_codes_generated_total", null, null, metrics.getCodesGenerated());
+        header("linkshortener_code_generator_retries_total", "counter", "Collisions retried by ShortCodeGenerator");
+        sample("linkshortener_code_generator_retries_total", null, null, metrics.getGeneratorRetries());
+        header("linkshortener_codes_reserved", "gauge", "Codes currently reserved by ShortCodeGenerator");
+        sample("linkshortener_codes_reserved", null, null, ShortCodeGenerator.reservedCount());
+    }
+
+    private void renderStorage() {
+        header("linkshortener_links", "gauge", "Links in LinkStorage");
+        sample("linkshortener_links", null, null, linkStorage.size());
+        header("linkshortener_shard_links", "gauge", "Links per LinkStorage shard");
+        int[] shardSizes = linkStorage.shardSizes();
+        for (int i = 0; i < shardSizes.length; i++) {
+            sample("linkshortener_shard_links", "shard", Integer.toString(i), shardSizes[i]);
+        }
+        header("linkshortener_users", "gauge", "Users in UserStorage");
+        sample("linkshortener_users", null, null, userStorage.size());
+    }
+
+    private void renderCleanup() {
+        header("linkshortener_cleanup_removed_total", "counter", "Expired links removed by sweeps");
+        sample("linkshortener_cleanup_removed_total", null, null, metrics.getCleanupRemoved());
+        header("linkshortener_cleanup_duration_seconds", "histogram", "removeExpiredLinks sweep duration");
+        histogram("linkshortener_cleanup_duration_seconds", null, null, metrics.getCleanupDuration());
+    }
+
+    private void renderJobs() {
+        Map<String, LinkMetrics.JobStats> jobs = metrics.getJobs();
+        header("linkshortener_scheduler_job_runs_total", "counter", "SchedulerService job runs");
+        jobs.forEach((job, stats) ->
+                sample("linkshortener_scheduler_job_runs_total", "job", job, stats.getRuns()));
+        header("linkshortener_scheduler_job_failures_total", "counter", "SchedulerService job failures");
+        jobs.forEach((job, stats) ->
+                sample("linkshortener_scheduler_job_failures_total", "job", job, stats.getFailures()));
+        header("linkshortener_scheduler_job_duration_seconds", "histogram", "SchedulerService job duration");
+        jobs.forEach((job, stats) ->
+                histogram("linkshortener_scheduler_job_duration_seconds", "job", job, stats.getDuration()));
+    }
+
+    private void renderHotLinks() {
+        header("linkshortener_hot_link_requests", "gauge", "Estimated requests in the sliding window for the hottest codes");
+        for (HotLinkTracker.HotLink hot : HotLinkTracker.getInstance().getTopK()) {
+            sample("linkshortener_hot_link_requests", "code", hot.getCode(), hot.getEstimate());
+        }
+    }
+
+    private void renderNotifications() {
+        header("linkshortener_notifications_sent_total", "counter", "Notifications delivered to users");
+        sample("linkshortener_notifications_sent_total", null, null, metrics.getNotificationsSent());
+        header("linkshortener_notifications_pending", "gauge", "Notifications stored for users");
+        sample("linkshortener_notifications_pending", null, null, notificationService.getPendingCount());
+    }
+
+    private void renderEvents() {
+        LinkEventBus bus = linkService.getEventBus();
+        header("linkshortener_events_published_total", "counter", "Link events published to the event bus");
+        sample("linkshortener_events_published_total", null, null, bus.getCursor() + 1);
+        header("linkshortener_event_producer_waits_total", "counter", "Times a publisher waited for a blocking consumer");
+        sample("linkshortener_event_producer_waits_total", null, null, bus.getProducerWaits());
+        List<LinkEventBus.Subscription> consumers = bus.getSubscriptions();
+        header("linkshortener_event_consumer_lag", "gauge", "Published events not yet processed by the consumer");
+        for (LinkEventBus.Subscription consumer : consumers) {
+            sample("linkshortener_event_consumer_lag", "consumer", consumer.getName(), consumer.getLag());
+        }
+        header("linkshortener_event_consumer_processed_total", "counter", "Events processed by the consumer");
+        for (LinkEventBus.Subscription consumer : consumers) {
+            sample("linkshortener_event_consumer_processed_total", "consumer", consumer.getName(),
+                    consumer.getProcessed());
+        }
+        header("linkshortener_event_consumer_dropped_total", "counter", "Events overwritten before a drop consumer read them");
+        for (LinkEventBus.Subscription consumer : consumers) {
+            sample("linkshortener_event_consumer_dropped_total", "consumer", consumer.getName(),
+                    consumer.getDropped());
+        }
+        header("linkshortener_event_consumer_errors_total", "counter", "Events whose handler threw an exception");
+        for (LinkEventBus.Subscription consumer : consumers) {
+            sample("linkshortener_event_consumer_errors_total", "consumer", consumer.getName(),
+                    consumer.getErrors());
+        }
+    }
+
+    private void header(String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private void sample(String name, String label, String labelValue, long value) {
+        text.append(name);
+        labels(label, labelValue);
+        text.append(' ').append(value).append('\n');
+    }
+
+    private void histogram(String name, String label, String labelValue, LatencyHistogram histogram) {
+        histogram.cumulativeCounts(BUCKET_BOUNDS, cumulative);
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            bucket(name, label, labelValue, BUCKET_LABELS[i], cumulative[i]);
+        }
+        long count = histogram.getTotalCount();
+        bucket(name, label, labelValue, "+Inf", count);
+
+        text.append(name).append("_sum");
+        labels(label, labelValue);
+        text.append(' ').append(histogram.getTotalSum() / 1e9).append('\n');
+        text.append(name).append("_count");
+        labels(label, labelValue);
+        text.append(' ').append(count).append('\n');
+    }
+
+    private void bucket(String name, String label, String labelValue, String le, long value) {
+        text.append(name).append("_bucket{");
+        if (label != null) {
+            text.append(label).append("=\"").append(labelValue).append("\",");
+        }
+        text.append("le=\"").append(le).append("\"} ").append(value).append('\n');
+    }
+
+    private void labels(String label, String labelValue) {
+        if (label != null) {
+            text.append('{').append(label).append("=\"").append(labelValue).append("\"}");
+        }
+    }
+
+    /**
+     * Переносит текст в байтовый буфер. Все имена и значения - ASCII,
+     * поэтому символы копируются без промежуточных строк.
+     */
+    private void encode() {
+        int size = text.length();
+        if (buffer.length < size) {
+            buffer = new byte[Math.max(size, buffer.length * 2)];
+        }
+        for (int i = 0; i < size; i++) {
+            char c = text.charAt(i);
+            buffer[i] = c < 0x80 ? (byte) c : (byte) '?';
+        }
+        length = size;
+    }
+}
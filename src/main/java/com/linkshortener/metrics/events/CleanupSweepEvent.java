@@ -0,0 +1,20 @@
+package com.linkshortener.metrics.events;
+
+import jdk.jfr.*;
+
+/**
+ * JFR-событие прохода очистки просроченных ссылок (removeExpiredLinks).
+ */
+@Name("com.linkshortener.CleanupSweep")
+@Label("Cleanup Sweep")
+@Category({"Link Shortener"})
+@Description("Sweep removing expired links from LinkStorage")
+@Threshold("0 ms")
+@StackTrace(false)
+public class CleanupSweepEvent extends Event {
+    @Label("Links Removed")
+    public int removed;
+
+    @Label("Links Remaining")
+    public int remaining;
+}
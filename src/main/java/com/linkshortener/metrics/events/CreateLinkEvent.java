@@ -0,0 +1,24 @@
+package com.linkshortener.metrics.events;
+
+import jdk.jfr.*;
+
+/**
+ * JFR-событие создания короткой ссылки (createShortLink).
+ */
+@Name("com.linkshortener.CreateLink")
+@Label("Create Link")
+@Category({"Link Shortener"})
+@Description("Creation of a short link, including the dedup check and code generation")
+@Threshold("5 ms")
+@StackTrace(false)
+public class CreateLinkEvent extends Event {
+    @Label("Short Code")
+    public String code;
+
+    @Label("Dedup Hit")
+    @Description("An existing link of the same user was returned")
+    public boolean dedupHit;
+
+    @Label("Generator Attempts")
+    public int generatorAttempts;
+}
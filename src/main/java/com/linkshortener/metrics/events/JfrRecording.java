@@ -0,0 +1,68 @@
+package com.linkshortener.metrics.events;
+
+import com.linkshortener.config.AppConfig;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Непрерывная запись JFR с событиями сервиса.
+ * Пороги берутся из конфигурации, поэтому в запись попадают только медленные
+ * операции; вместе с ними пишутся GC и события конкуренции за блокировки,
+ * чтобы их можно было сопоставить на одной временной шкале.
+ */
+public class JfrRecording {
+    private final Recording recording;
+    private final Path dumpFile;
+
+    private JfrRecording(Recording recording, Path dumpFile) {
+        this.recording = recording;
+        this.dumpFile = dumpFile;
+    }
+
+    /**
+     * Запускает запись, если она включена в конфигурации.
+     * @return запись или null, если JFR выключен
+     */
+    public static JfrRecording startIfEnabled(AppConfig config) {
+        if (!config.isJfrEnabled()) return null;
+
+        Recording recording = new Recording();
+        recording.setName("linkshortener");
+        recording.setToDisk(true);
+        recording.setMaxAge(Duration.ofMinutes(config.getJfrMaxAgeMinutes()));
+
+        recording.enable(RedirectEvent.class)
+                .withThreshold(Duration.ofMillis(config.getJfrRedirectThresholdMs()));
+        recording.enable(CreateLinkEvent.class)
+                .withThreshold(Duration.ofMillis(config.getJfrCreateThresholdMs()));
+        recording.enable(CleanupSweepEvent.class)
+                .withThreshold(Duration.ofMillis(config.getJfrCleanupThresholdMs()));
+        recording.enable(NotificationEvent.class)
+                .withThreshold(Duration.ofMillis(config.getJfrNotificationThresholdMs()));
+
+        // Фон для сопоставления: сборки мусора и ожидание мониторов
+        recording.enable("jdk.GarbageCollection");
+        recording.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ofMillis(10));
+        recording.enable("jdk.ThreadPark").withThreshold(Duration.ofMillis(10));
+
+        recording.start();
+        System.out.println("Запись JFR запущена, файл при остановке: " + config.getJfrFile());
+        return new JfrRecording(recording, Path.of(config.getJfrFile()));
+    }
+
+    /**
+     * Сохраняет запись в файл и останавливает ее.
+     */
+    public void stop() {
+        try {
+            recording.dump(dumpFile);
+        } catch (IOException e) {
+            System.err.println("Не удалось сохранить запись JFR: " + e.getMessage());
+        } finally {
+            recording.close();
+        }
+    }
+}
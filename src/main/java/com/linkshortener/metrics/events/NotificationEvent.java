@@ -0,0 +1,21 @@
+package com.linkshortener.metrics.events;
+
+import jdk.jfr.*;
+
+/**
+ * JFR-событие отправки уведомления пользователю.
+ */
+@Name("com.linkshortener.Notification")
+@Label("Notification Dispatch")
+@Category({"Link Shortener"})
+@Description("Delivery of a notification to a user")
+@Threshold("1 ms")
+@StackTrace(false)
+public class NotificationEvent extends Event {
+    @Label("User Id")
+    public String userId;
+
+    @Label("Delivered")
+    @Description("False when the user is unknown and the notification was dropped")
+    public boolean delivered;
+}
@@ -0,0 +1,20 @@
+package com.linkshortener.metrics.events;
+
+import jdk.jfr.*;
+
+/**
+ * JFR-событие перехода по короткой ссылке (getOriginalUrl).
+ */
+@Name("com.linkshortener.Redirect")
+@Label("Redirect")
+@Category({"Link Shortener"})
+@Description("Resolution of a short code to its original URL")
+@Threshold("1 ms")
+@StackTrace(false)
+public class RedirectEvent extends Event {
+    @Label("Short Code")
+    public String code;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,270 @@
+package com.linkshortener.replication;
+
+import com.linkshortener.config.AppConfig;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.service.ClickGate;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.storage.LinkStorage;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Распорядитель бюджета кликов на ведущем узле.
+ * Для каждой ссылки ведет книгу: сколько кликов израсходовано и сколько выдано
+ * в аренду репликам. Реплика тратит арендованную порцию без обращений к ведущему
+ * и по окончании аренды сообщает, сколько потратила; неиспользованное возвращается
+ * в бюджет. Не вернувшаяся вовремя аренда считается потраченной целиком,
+ * поэтому сумма обслуженных переходов не превышает лимит плюс maxOvershoot.
+ * Локальные переходы ведущего проходят через ту же книгу ({@link ClickGate}).
+ * Книга без аренд, к которой не обращались дольше срока аренды, удаляется:
+ * при следующем обращении она заново строится по счетчику кликов ссылки.
+ */
+public class ClickBudgetAuthority implements ClickGate, Closeable {
+    private final LinkService linkService;
+    private final LinkStorage linkStorage;
+    private final long leaseTtlMillis;
+    // Запас сверх срока аренды на задержку сети: реплика перестает тратить раньше
+    private final long graceMillis;
+    private final int maxChunk;
+    private final int maxOvershoot;
+    private final Map<String, Ledger> ledgers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+    private long nextLeaseId = 1;
+
+    public ClickBudgetAuthority(LinkService linkService, LinkStorage linkStorage) {
+        this(linkService, linkStorage, AppConfig.getInstance().getBudgetLeaseTtlMs(),
+                AppConfig.getInstance().getBudgetMaxChunk(), AppConfig.getInstance().getBudgetMaxOvershoot());
+    }
+
+    public ClickBudgetAuthority(LinkService linkService, LinkStorage linkStorage,
+                                long leaseTtlMillis, int maxChunk, int maxOvershoot) {
+        if (leaseTtlMillis <= 0 || maxChunk <= 0 || maxOvershoot < 0) {
+            throw new IllegalArgumentException("Некорректные параметры аренды бюджета кликов");
+        }
+        this.linkService = linkService;
+        this.linkStorage = linkStorage;
+        this.leaseTtlMillis = leaseTtlMillis;
+        this.graceMillis = leaseTtlMillis / 2;
+        this.maxChunk = maxChunk;
+        this.maxOvershoot = maxOvershoot;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "click-budget-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает периодическую просрочку аренд и очистку простаивающих книг.
+     */
+    public void start() {
+        long period = Math.max(1, leaseTtlMillis / 2);
+        sweeper.scheduleAtFixedRate(this::expireLeases, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Выдает аренду и одновременно закрывает предыдущую аренду того же узла.
+     * @param previousLeaseId предыдущая аренда (0 - нет)
+     * @param previousSpent   сколько кликов из нее потрачено
+     * @return выданная аренда; granted == 0, если бюджет исчерпан или ссылки нет
+     */
+    public Grant acquire(String code, String nodeId, int requested, long previousLeaseId, int previousSpent) {
+        ShortLink link = linkStorage.findByCode(code).orElse(null);
+        if (link == null) {
+            return Grant.NONE;
+        }
+
+        int spent;
+        Grant grant = Grant.NONE;
+        while (true) {
+            Ledger ledger = ledgerFor(link);
+            synchronized (ledger) {
+                // Книгу только что удалила очистка: берем новую
+                if (ledger.evicted) continue;
+                ledger.lastUsedMillis = System.currentTimeMillis();
+                spent = previousLeaseId != 0 ? ledger.close(previousLeaseId, previousSpent) : 0;
+                if (link.isActive() && !link.isExpired()) {
+                    int available = link.getClickLimit() + maxOvershoot - ledger.consumed - ledger.outstanding;
+                    // Половина остатка, чтобы при нескольких репликах последние клики не застряли у одной
+                    int amount = Math.min(Math.min(requested, maxChunk), Math.max(1, available / 2));
+                    if (available > 0 && amount > 0) {
+                        long leaseId;
+                        synchronized (this) {
+                            leaseId = nextLeaseId++;
+                        }
+                        ledger.leases.put(leaseId, new Lease(nodeId, amount,
+                                System.currentTimeMillis() + leaseTtlMillis + graceMillis));
+                        ledger.outstanding += amount;
+                        grant = new Grant(leaseId, amount, leaseTtlMillis);
+                    }
+                }
+                break;
+            }
+        }
+        linkService.recordExternalClicks(code, spent);
+        return grant;
+    }
+
+    /**
+     * Закрывает аренду: spent кликов учитываются, остаток возвращается в бюджет.
+     */
+    public void release(String code, long leaseId, int spent) {
+        // Книги с арендами не удаляются: нет книги - нет и этой аренды
+        Ledger ledger = ledgers.get(code);
+        if (ledger == null) return;
+        int counted;
+        synchronized (ledger) {
+            counted = ledger.close(leaseId, spent);
+        }
+        linkService.recordExternalClicks(code, counted);
+    }
+
+    @Override
+    public boolean tryAcquire(ShortLink link) {
+        while (true) {
+            Ledger ledger = ledgerFor(link);
+            synchronized (ledger) {
+                if (ledger.evicted) continue;
+                ledger.lastUsedMillis = System.currentTimeMillis();
+                if (ledger.consumed + ledger.outstanding >= link.getClickLimit()) {
+                    return false;
+                }
+                ledger.consumed++;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Просроченные аренды считаются потраченными целиком. Книги без аренд
+     * удаляются, если ссылка удалена или исчерпана либо книга простаивала
+     * дольше срока аренды.
+     */
+    void expireLeases() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Ledger> entry : ledgers.entrySet()) {
+            Ledger ledger = entry.getValue();
+            ShortLink link = linkStorage.findByCode(entry.getKey()).orElse(null);
+            int expired = 0;
+            synchronized (ledger) {
+                Iterator<Lease> leases = ledger.leases.values().iterator();
+                while (leases.hasNext()) {
+                    Lease lease = leases.next();
+                    if (now >= lease.deadline) {
+                        leases.remove();
+                        ledger.outstanding -= lease.amount;
+                        ledger.consumed += lease.amount;
+                        expired += lease.amount;
+                    }
+                }
+                // Просроченные клики еще не дошли до счетчика ссылки: такую книгу пока оставляем
+                if (expired == 0 && ledger.leases.isEmpty() && (link == null || !link.isActive()
+                        || now - ledger.lastUsedMillis >= leaseTtlMillis)) {
+                    // Поток, уже получивший эту книгу, увидит метку и возьмет новую
+                    ledger.evicted = true;
+                    ledgers.remove(entry.getKey(), ledger);
+                }
+            }
+            linkService.recordExternalClicks(entry.getKey(), expired);
+        }
+    }
+
+    private Ledger ledgerFor(ShortLink link) {
+        return ledgers.computeIfAbsent(link.getShortCode(), code -> new Ledger(link.getClicksCount()));
+    }
+
+    /**
+     * Число книг в памяти.
+     */
+    public int getLedgerCount() {
+        return ledgers.size();
+    }
+
+    /**
+     * Число кликов, выданных в аренду и еще не отчитанных.
+     */
+    public int getOutstandingClicks() {
+        int total = 0;
+        for (Ledger ledger : ledgers.values()) {
+            synchronized (ledger) {
+                total += ledger.outstanding;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Книга бюджета одной ссылки. Изменяется под своим монитором.
+     */
+    private static final class Ledger {
+        int consumed;
+        int outstanding;
+        long lastUsedMillis;
+        boolean evicted;
+        final Map<Long, Lease> leases = new HashMap<>(4);
+
+        Ledger(int consumed) {
+            this.consumed = consumed;
+            this.lastUsedMillis = System.currentTimeMillis();
+        }
+
+        /**
+         * Закрывает аренду. Для уже просроченной аренды ничего не учитывает:
+         * она была засчитана целиком при просрочке.
+         * @return сколько кликов засчитано
+         */
+        int close(long leaseId, int spent) {
+            Lease lease = leases.remove(leaseId);
+            if (lease == null) return 0;
+            int counted = Math.max(0, Math.min(spent, lease.amount));
+            outstanding -= lease.amount;
+            consumed += counted;
+            return counted;
+        }
+    }
+
+    private static final class Lease {
+        final String nodeId;
+        final int amount;
+        final long deadline;
+
+        Lease(String nodeId, int amount, long deadline) {
+            this.nodeId = nodeId;
+            this.amount = amount;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * Выданная аренда: номер, размер порции и срок в миллисекундах.
+     */
+    public static class Grant {
+        static final Grant NONE = new Grant(0, 0, 0);
+
+        private final long leaseId;
+        private final int granted;
+        private final long ttlMillis;
+
+        public Grant(long leaseId, int granted, long ttlMillis) {
+            this.leaseId = leaseId;
+            this.granted = granted;
+            this.ttlMillis = ttlMillis;
+        }
+
+        public long getLeaseId() { return leaseId; }
+        public int getGranted() { return granted; }
+        public long getTtlMillis() { return ttlMillis; }
+    }
+}
@@ -0,0 +1,224 @@
+package com.linkshortener.replication;
+
+import com.linkshortener.cluster.PeerClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Арендатор бюджета кликов на реплике.
+ * Для каждой ссылки держит аренду - порцию кликов, полученную у ведущего.
+ * Переход списывает клик из порции одной CAS-операцией без обращения к сети;
+ * за новой порцией реплика идет, только когда текущая закончилась или истекла,
+ * и в том же запросе отчитывается за предыдущую. Размер порции подстраивается
+ * под частоту переходов: быстро исчерпанная порция удваивается, наполовину
+ * неиспользованная - уменьшается вдвое.
+ */
+class ClickBudgetClient implements Closeable {
+    private static final int INITIAL_CHUNK = 8;
+
+    private final PeerClient leader;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final long leaseTtlMillis;
+    private final int maxChunk;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final LongAdder leaseRequests = new LongAdder();
+    private final LongAdder leaseFailures = new LongAdder();
+    private final ScheduledExecutorService sweeper;
+
+    ClickBudgetClient(PeerClient leader, long leaseTtlMillis, int maxChunk) {
+        if (leaseTtlMillis <= 0 || maxChunk <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры аренды бюджета кликов");
+        }
+        this.leader = leader;
+        this.leaseTtlMillis = leaseTtlMillis;
+        this.maxChunk = maxChunk;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "click-budget-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, leaseTtlMillis / 4);
+        sweeper.scheduleAtFixedRate(this::returnIdleLeases, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Списывает один клик ссылки из арендованной порции, при необходимости
+     * получая новую у ведущего.
+     * @return false, если бюджет ссылки исчерпан или ведущий недоступен
+     */
+    boolean tryConsume(String shortCode) {
+        Slot slot = slots.computeIfAbsent(shortCode, code -> new Slot());
+        long now = System.currentTimeMillis();
+        LocalLease lease = slot.lease;
+        if (lease != null && now < lease.deadline && lease.take()) {
+            return true;
+        }
+
+        synchronized (slot) {
+            if (slot.retired) {
+                return tryConsume(shortCode);
+            }
+            lease = slot.lease;
+            if (lease != null && now < lease.deadline && lease.take()) {
+                return true;
+            }
+            if (now < slot.retryAt) {
+                return false;
+            }
+
+            long previousId = 0;
+            int previousSpent = 0;
+            if (lease != null) {
+                previousId = lease.id;
+                previousSpent = seal(slot, lease, now);
+            }
+            return acquire(shortCode, slot, previousId, previousSpent, now);
+        }
+    }
+
+    /**
+     * Запрашивает новую порцию, отчитываясь за предыдущую. Вызывается под монитором слота.
+     */
+    private boolean acquire(String shortCode, Slot slot, long previousId, int previousSpent, long now) {
+        leaseRequests.increment();
+        String[] reply;
+        try {
+            reply = leader.call("ACQUIRE\t" + shortCode + "\t" + nodeId + "\t" + slot.chunk
+                    + "\t" + previousId + "\t" + previousSpent).split("\t");
+        } catch (IOException e) {
+            // Отчет о предыдущей аренде потерян: ведущий засчитает ее целиком по истечении срока
+            leaseFailures.increment();
+            slot.retryAt = now + leaseTtlMillis / 4;
+            return false;
+        }
+        int granted = reply[0].equals("OK") ? Integer.parseInt(reply[2]) : 0;
+        if (granted == 0) {
+            if (!reply[0].equals("OK")) {
+                leaseFailures.increment();
+            }
+            // Бюджет выдан другим узлам; часть может вернуться, когда их аренды закончатся
+            slot.retryAt = now + leaseTtlMillis / 4;
+            return false;
+        }
+        // Первый клик новой порции тратится сразу на текущий переход
+        slot.lease = new LocalLease(Long.parseLong(reply[1]), granted, granted - 1,
+                now, now + Long.parseLong(reply[3]));
+        return true;
+    }
+
+    /**
+     * Закрывает аренду для новых списаний и подстраивает размер следующей порции.
+     * @return сколько кликов из аренды потрачено
+     */
+    private int seal(Slot slot, LocalLease lease, long now) {
+        int unused = lease.remaining.getAndSet(0);
+        slot.lease = null;
+        if (unused == 0 && now - lease.grantedAt < leaseTtlMillis / 2) {
+            slot.chunk = Math.min(slot.chunk * 2, maxChunk);
+        } else if (unused > lease.amount / 2) {
+            slot.chunk = Math.max(1, slot.chunk / 2);
+        }
+        return lease.amount - unused;
+    }
+
+    /**
+     * Возвращает ведущему аренды, срок которых подходит к концу, и забывает
+     * ссылки без переходов. Неиспользованные клики снова доступны другим узлам.
+     */
+    private void returnIdleLeases() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Slot>> iterator = slots.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Slot> entry = iterator.next();
+            Slot slot = entry.getValue();
+            synchronized (slot) {
+                LocalLease lease = slot.lease;
+                if (lease != null && now >= lease.deadline - leaseTtlMillis / 4) {
+                    release(entry.getKey(), lease.id, seal(slot, lease, now));
+                } else if (lease == null && now >= slot.retryAt) {
+                    slot.retired = true;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private void release(String shortCode, long leaseId, int spent) {
+        try {
+            leader.call("RELEASE\t" + shortCode + "\t" + leaseId + "\t" + spent);
+        } catch (IOException e) {
+            leaseFailures.increment();
+        }
+    }
+
+    /**
+     * Возвращает все аренды ведущему.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+            Slot slot = entry.getValue();
+            synchronized (slot) {
+                LocalLease lease = slot.lease;
+                if (lease != null) {
+                    release(entry.getKey(), lease.id, seal(slot, lease, now));
+                }
+                slot.retired = true;
+            }
+        }
+        slots.clear();
+        leader.close();
+    }
+
+    // Геттеры
+    long getLeaseRequests() { return leaseRequests.sum(); }
+    long getLeaseFailures() { return leaseFailures.sum(); }
+
+    /**
+     * Состояние аренды одной ссылки. Поля кроме lease меняются под монитором слота.
+     */
+    private static final class Slot {
+        volatile LocalLease lease;
+        int chunk = INITIAL_CHUNK;
+        long retryAt;
+        boolean retired;
+    }
+
+    private static final class LocalLease {
+        final long id;
+        final int amount;
+        final long grantedAt;
+        // Срок считается от отправки запроса, поэтому реплика перестает тратить раньше ведущего
+        final long deadline;
+        final AtomicInteger remaining;
+
+        LocalLease(long id, int amount, int remaining, long grantedAt, long deadline) {
+            this.id = id;
+            this.amount = amount;
+            this.grantedAt = grantedAt;
+            this.deadline = deadline;
+            this.remaining = new AtomicInteger(remaining);
+        }
+
+        boolean take() {
+            int current;
+            do {
+                current = remaining.get();
+                if (current == 0) return false;
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.linkshortener.replication;
+
+import java.util.List;
+
+/**
+ * Журнал изменений ведущего узла с номерами последовательности.
+ * Хранит последние capacity записей в кольцевом массиве; реплика,
+ * отставшая сильнее, получает полный снимок заново.
+ * Записи хранятся готовыми строками протокола, чтобы каждую
+ * форматировать один раз, сколько бы реплик ее ни читали.
+ */
+class MutationLog {
+    private final String[] entries;
+    private long firstSequence = 1;
+    private long nextSequence = 1;
+
+    MutationLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Емкость журнала должна быть положительной");
+        }
+        this.entries = new String[capacity];
+    }
+
+    /**
+     * Добавляет запись и будит ждущих читателей.
+     * @return номер записи
+     */
+    synchronized long append(String body) {
+        long sequence = nextSequence++;
+        entries[(int) (sequence % entries.length)] =
+                "E\t" + sequence + "\t" + System.currentTimeMillis() + "\t" + body;
+        if (nextSequence - firstSequence > entries.length) {
+            firstSequence++;
+        }
+        notifyAll();
+        return sequence;
+    }
+
+    synchronized long lastSequence() {
+        return nextSequence - 1;
+    }
+
+    /**
+     * Проверяет, что журнал можно читать с записи from: она еще хранится или
+     * будет следующей. Номер из будущего означает, что ведущий перезапускался.
+     */
+    synchronized boolean covers(long from) {
+        return from >= firstSequence && from <= nextSequence;
+    }
+
+    /**
+     * Копирует в out записи начиная с from, не больше max.
+     * Если новых записей нет, ждет их до waitMillis.
+     * @return false, если запись from уже вытеснена из журнала
+     */
+    synchronized boolean read(long from, List<String> out, int max, long waitMillis)
+            throws InterruptedException {
+        if (from >= nextSequence && waitMillis > 0) {
+            wait(waitMillis);
+        }
+        if (from < firstSequence) {
+            return false;
+        }
+        for (long sequence = from; sequence < nextSequence && out.size() < max; sequence++) {
+            out.add(entries[(int) (sequence % entries.length)]);
+        }
+        return true;
+    }
+}
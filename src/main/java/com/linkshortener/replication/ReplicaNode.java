@@ -0,0 +1,346 @@
+package com.linkshortener.replication;
+
+import com.linkshortener.cluster.LinkCodec;
+import com.linkshortener.cluster.PeerClient;
+import com.linkshortener.config.AppConfig;
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.exception.*;
+import com.linkshortener.metrics.LinkMetrics;
+import com.linkshortener.storage.LinkStorage;
+import com.linkshortener.util.Hashing;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Реплика для чтения. Читает журнал ведущего, применяет его к собственному
+ * хранилищу и обслуживает переходы локально. Каждый переход асинхронно
+ * пересылается ведущему, который остается единственным источником правды
+ * по лимитам: локальный счетчик лишь не дает реплике уйти далеко за лимит,
+ * а авторитетное состояние приходит обратно через журнал.
+ * В режиме аренды ({@link #enableClickLeases()}) реплика тратит порции бюджета,
+ * арендованные у ведущего, и лимит соблюдается точно без запроса на каждый переход.
+ */
+public class ReplicaNode implements Closeable {
+    private static final int CLICK_QUEUE_CAPACITY = 100_000;
+    private static final int CLICK_BATCH = 1024;
+    private static final long MAX_BACKOFF_MILLIS = 2_000;
+
+    private final InetSocketAddress leaderAddress;
+    private final int shards;
+    private final LinkMetrics metrics;
+    private final BlockingQueue<String> pendingClicks = new ArrayBlockingQueue<>(CLICK_QUEUE_CAPACITY);
+    private final LongAdder droppedClicks = new LongAdder();
+
+    private volatile LinkStorage storage;
+    // Хранилище, собираемое из снимка; доступно только потоку журнала
+    private LinkStorage rebuilding;
+    private volatile long appliedSequence;
+    private volatile long leaderSequence;
+    private volatile long lastAppliedLeaderMillis;
+    private volatile boolean connected;
+    private volatile boolean running;
+    private volatile Socket logSocket;
+    private volatile Socket clickSocket;
+    private volatile ClickBudgetClient budget;
+    private Thread logThread;
+    private Thread clickThread;
+
+    public ReplicaNode(InetSocketAddress leaderAddress) {
+        this.leaderAddress = leaderAddress;
+        this.shards = AppConfig.getInstance().getStorageShards();
+        this.storage = new LinkStorage(shards);
+        this.metrics = LinkMetrics.getInstance();
+    }
+
+    /**
+     * Запускает чтение журнала и отправку переходов.
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        logThread = new Thread(this::followLog, "replica-log");
+        logThread.setDaemon(true);
+        logThread.start();
+        clickThread = new Thread(this::forwardClicks, "replica-clicks");
+        clickThread.setDaemon(true);
+        clickThread.start();
+    }
+
+    /**
+     * Включает аренду бюджета кликов с параметрами из конфигурации.
+     * На ведущем аренда тоже должна быть включена.
+     */
+    public void enableClickLeases() {
+        AppConfig config = AppConfig.getInstance();
+        enableClickLeases(config.getBudgetLeaseTtlMs(), config.getBudgetMaxChunk());
+    }
+
+    public synchronized void enableClickLeases(long leaseTtlMillis, int maxChunk) {
+        if (budget != null) return;
+        budget = new ClickBudgetClient(new PeerClient(leaderAddress), leaseTtlMillis, maxChunk);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (budget != null) {
+            // Неиспользованные порции возвращаются ведущему
+            budget.close();
+        }
+        if (!running) return;
+        running = false;
+        closeQuietly(logSocket);
+        closeQuietly(clickSocket);
+        logThread.interrupt();
+        clickThread.interrupt();
+    }
+
+    /**
+     * Получает оригинальный URL по локальной копии.
+     */
+    public String getOriginalUrl(String shortCode)
+            throws LinkNotFoundException, LinkExpiredException, LimitExceededException {
+        return getOriginalUrl(shortCode, null);
+    }
+
+    /**
+     * Получает оригинальный URL по локальной копии.
+     * @param clientFingerprint отпечаток клиента для журнала кликов ведущего (null - без отпечатка)
+     */
+    public String getOriginalUrl(String shortCode, String clientFingerprint)
+            throws LinkNotFoundException, LinkExpiredException, LimitExceededException {
+        long start = System.nanoTime();
+        RedirectOutcome outcome = RedirectOutcome.NOT_FOUND;
+        try {
+            LinkStorage current = storage;
+            ShortLink link = current.findByCode(shortCode).orElse(null);
+            if (link == null) {
+                // Очищенный ведущим код реплика помнит надгробием, как и ведущий
+                if (current.isRecentlyExpired(shortCode)) {
+                    outcome = RedirectOutcome.EXPIRED;
+                    throw new LinkExpiredException("Срок действия ссылки истек");
+                }
+                throw new LinkNotFoundException("Ссылка не найдена: " + shortCode);
+            }
+
+            // Уведомления и деактивацию выполняет ведущий, реплика только отвечает
+            if (link.isExpired()) {
+                outcome = RedirectOutcome.EXPIRED;
+                throw new LinkExpiredException("Срок действия ссылки истек");
+            }
+            ClickBudgetClient leases = budget;
+            if (leases != null) {
+                // Клики учитываются отчетами об аренде, локальный счетчик не трогаем
+                if (!link.isActive() || !leases.tryConsume(shortCode)) {
+                    outcome = RedirectOutcome.LIMIT_EXCEEDED;
+                    throw new LimitExceededException("Лимит переходов исчерпан");
+                }
+            } else {
+                if (!link.isActive() || !link.incrementClicks()) {
+                    outcome = RedirectOutcome.LIMIT_EXCEEDED;
+                    throw new LimitExceededException("Лимит переходов исчерпан");
+                }
+                String click = clientFingerprint == null ? shortCode
+                        : shortCode + '\t' + Long.toHexString(Hashing.hash64(clientFingerprint));
+                if (!pendingClicks.offer(click)) {
+                    droppedClicks.increment();
+                }
+            }
+            outcome = RedirectOutcome.OK;
+            return link.getOriginalUrl();
+        } finally {
+            metrics.recordRedirect(outcome, System.nanoTime() - start);
+        }
+    }
+
+    // --- Журнал ---
+
+    private void followLog() {
+        long backoff = 50;
+        while (running) {
+            try (Socket socket = new Socket()) {
+                logSocket = socket;
+                socket.connect(leaderAddress);
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                long from = appliedSequence > 0 ? appliedSequence + 1 : 0;
+                writer.write("SUBSCRIBE\t" + from + "\n");
+                writer.flush();
+                connected = true;
+                backoff = 50;
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    apply(line.split("\t", -1));
+                    if (!reader.ready()) {
+                        // Пачка прочитана: надгробия из EXP публикуются разом
+                        storage.publishTombstones();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    System.err.println("Реплика: потеряно соединение с ведущим: " + e.getMessage());
+                }
+            } finally {
+                connected = false;
+                rebuilding = null;
+            }
+            sleep(backoff);
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    private void apply(String[] fields) {
+        switch (fields[0]) {
+            case "E" -> {
+                long sequence = Long.parseLong(fields[1]);
+                applyEntry(rebuilding != null ? rebuilding : storage, fields);
+                if (rebuilding == null) {
+                    appliedSequence = sequence;
+                    lastAppliedLeaderMillis = Long.parseLong(fields[2]);
+                    leaderSequence = Math.max(leaderSequence, sequence);
+                }
+            }
+            case "HB" -> {
+                leaderSequence = Long.parseLong(fields[1]);
+                if (appliedSequence >= leaderSequence) {
+                    lastAppliedLeaderMillis = Long.parseLong(fields[2]);
+                }
+            }
+            case "RESET" -> rebuilding = new LinkStorage(shards);
+            case "TOMB" -> {
+                long[] hashes = Arrays.stream(fields[3].split(","))
+                        .mapToLong(hex -> Long.parseUnsignedLong(hex, 16))
+                        .toArray();
+                rebuilding.restoreTombstones(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), hashes);
+            }
+            case "SYNCED" -> {
+                // Фильтры строились по мере загрузки снимка - подгоняем их под итоговый размер
+                rebuilding.rebuildFilters();
+                storage = rebuilding;
+                rebuilding = null;
+                long sequence = Long.parseLong(fields[1]);
+                appliedSequence = sequence;
+                leaderSequence = Math.max(leaderSequence, sequence);
+                lastAppliedLeaderMillis = System.currentTimeMillis();
+            }
+            default -> throw new IllegalStateException("Неизвестная запись журнала: " + fields[0]);
+        }
+    }
+
+    private static void applyEntry(LinkStorage target, String[] fields) {
+        switch (fields[3]) {
+            case "PUT" -> {
+                ShortLink link = LinkCodec.decode(fields, 4);
+                ShortLink existing = target.findByCode(link.getShortCode()).orElse(null);
+                if (existing != null) {
+                    existing.applyReplicatedState(link.getClicksCount(), link.getClickLimit(), link.isActive());
+                } else {
+                    target.save(link);
+                }
+            }
+            case "STATE" -> target.findByCode(fields[4]).ifPresent(link -> link.applyReplicatedState(
+                    Integer.parseInt(fields[5]), Integer.parseInt(fields[6]), Boolean.parseBoolean(fields[7])));
+            case "DEL" -> target.remove(fields[4], UUID.fromString(fields[5]));
+            case "EXP" -> target.expire(fields[4]);
+            default -> throw new IllegalStateException("Неизвестное изменение: " + fields[3]);
+        }
+    }
+
+    // --- Пересылка переходов ---
+
+    private void forwardClicks() {
+        List<String> batch = new ArrayList<>(CLICK_BATCH);
+        long backoff = 50;
+        while (running) {
+            try (Socket socket = new Socket()) {
+                clickSocket = socket;
+                socket.connect(leaderAddress);
+                socket.setTcpNoDelay(true);
+                Writer writer = new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                writer.write("CLICKS\n");
+                writer.flush();
+                backoff = 50;
+
+                while (running) {
+                    String first = pendingClicks.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    pendingClicks.drainTo(batch, CLICK_BATCH - 1);
+                    for (String code : batch) {
+                        writer.write(code);
+                        writer.write('\n');
+                    }
+                    writer.flush();
+                    batch.clear();
+                }
+            } catch (IOException e) {
+                // Неотправленная пачка теряется: ведущий недоучтет эти переходы
+                droppedClicks.add(batch.size());
+                batch.clear();
+            } catch (InterruptedException e) {
+                return;
+            }
+            sleep(backoff);
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Соединение уже закрыто
+        }
+    }
+
+    // Геттеры
+    public boolean isConnected() { return connected; }
+    public long getAppliedSequence() { return appliedSequence; }
+    public long getLeaderSequence() { return leaderSequence; }
+    public int getLinkCount() { return storage.size(); }
+    public int getPendingClicks() { return pendingClicks.size(); }
+    public long getDroppedClicks() { return droppedClicks.sum(); }
+    public long getLeaseRequests() { return budget != null ? budget.getLeaseRequests() : 0; }
+
+    /**
+     * Отставание в записях журнала (по последнему известному номеру ведущего).
+     */
+    public long getReplicationLagEntries() {
+        return Math.max(0, leaderSequence - appliedSequence);
+    }
+
+    /**
+     * Отставание во времени: возраст последней примененной записи, пока реплика
+     * не догнала ведущего (0, если догнала). Часы узлов считаются синхронными.
+     */
+    public long getReplicationLagMillis() {
+        if (appliedSequence >= leaderSequence && connected) {
+            return 0;
+        }
+        return Math.max(0, System.currentTimeMillis() - lastAppliedLeaderMillis);
+    }
+}
@@ -0,0 +1,307 @@
+package com.linkshortener.replication;
+
+import com.linkshortener.cluster.LinkCodec;
+import com.linkshortener.config.AppConfig;
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.event.BackPressure;
+import com.linkshortener.core.event.LinkEvent;
+import com.linkshortener.core.event.LinkEventBus;
+import com.linkshortener.core.event.LinkEventHandler;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.storage.LinkStorage;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ведущий узел репликации.
+ * Записывает изменения ссылок из шины событий {@link LinkService} в журнал и раздает его
+ * репликам по сокету. Реплика подписывается с номера, на котором остановилась;
+ * новой или слишком отставшей реплике сначала отправляется снимок хранилища.
+ * По отдельному соединению реплики присылают переходы, которые ведущий
+ * применяет как обычные, поэтому лимиты кликов считаются только здесь.
+ * В режиме аренды ({@link #enableClickLeases()}) реплики вместо отдельных
+ * переходов берут у ведущего порции бюджета кликов ({@link ClickBudgetAuthority}).
+ */
+public class ReplicationLeader implements LinkEventHandler, Closeable {
+    private static final int BATCH_SIZE = 512;
+    private static final long HEARTBEAT_MILLIS = 500;
+
+    private final LinkService linkService;
+    private final LinkStorage linkStorage;
+    private final InetSocketAddress bindAddress;
+    private final MutationLog log;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final ExecutorService connectionPool;
+
+    private ServerSocket serverSocket;
+    private LinkEventBus.Subscription events;
+    private volatile boolean running;
+    private volatile ClickBudgetAuthority budgetAuthority;
+
+    public ReplicationLeader(LinkService linkService, LinkStorage linkStorage) {
+        this(linkService, linkStorage, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                AppConfig.getInstance().getReplicationLogCapacity());
+    }
+
+    public ReplicationLeader(LinkService linkService, LinkStorage linkStorage,
+                             InetSocketAddress bindAddress, int logCapacity) {
+        this.linkService = linkService;
+        this.linkStorage = linkStorage;
+        this.bindAddress = bindAddress;
+        this.log = new MutationLog(logCapacity);
+        this.connectionPool = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "replication-leader-conn");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Открывает порт журнала и подписывается на изменения ссылок.
+     */
+    public synchronized void start() throws IOException {
+        if (running) return;
+        serverSocket = new ServerSocket();
+        serverSocket.bind(bindAddress);
+        // По умолчанию BLOCK: пропущенное изменение разошлось бы с репликами до следующего снимка
+        events = linkService.getEventBus().subscribe("replication",
+                BackPressure.parse(AppConfig.getInstance().getEventsReplicationBackpressure()), this);
+        running = true;
+
+        Thread acceptor = new Thread(this::acceptLoop, "replication-leader-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Включает аренду бюджета кликов с параметрами из конфигурации.
+     */
+    public void enableClickLeases() {
+        AppConfig config = AppConfig.getInstance();
+        enableClickLeases(config.getBudgetLeaseTtlMs(), config.getBudgetMaxChunk(), config.getBudgetMaxOvershoot());
+    }
+
+    /**
+     * Включает аренду бюджета кликов: локальные переходы ведущего тоже
+     * начинают учитываться в книге бюджета.
+     */
+    public synchronized void enableClickLeases(long leaseTtlMillis, int maxChunk, int maxOvershoot) {
+        if (budgetAuthority != null) return;
+        ClickBudgetAuthority authority = new ClickBudgetAuthority(linkService, linkStorage,
+                leaseTtlMillis, maxChunk, maxOvershoot);
+        authority.start();
+        budgetAuthority = authority;
+        linkService.setClickGate(authority);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (budgetAuthority != null) {
+            linkService.setClickGate(null);
+            budgetAuthority.close();
+            budgetAuthority = null;
+        }
+        if (!running) return;
+        running = false;
+        events.close();
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // Порт уже закрыт
+        }
+        connectionPool.shutdownNow();
+    }
+
+    // --- Запись изменений ---
+
+    /**
+     * Переводит событие шины в запись журнала. Состояние ссылки читается в момент
+     * обработки, а STATE несет абсолютные значения, поэтому реплика сходится
+     * к последнему состоянию даже при пачке изменений одной ссылки.
+     */
+    @Override
+    public void onEvent(LinkEvent event, long sequence, boolean endOfBatch) {
+        ShortLink link = event.getLink();
+        switch (event.getType()) {
+            case CREATED -> log.append("PUT\t" + LinkCodec.encode(link));
+            case CLICKED -> {
+                if (event.getOutcome() == RedirectOutcome.OK) {
+                    appendState(link);
+                }
+            }
+            case CLICKS_ADDED, LIMIT_CHANGED, LIMIT_REACHED, EXPIRED -> appendState(link);
+            case DELETED -> {
+                // Просроченные реплика тоже хранит надгробием, чтобы отвечать "истекла"
+                if (link.isExpired()) {
+                    log.append("EXP\t" + link.getShortCode());
+                } else {
+                    log.append("DEL\t" + link.getShortCode() + "\t" + link.getOwnerId());
+                }
+            }
+        }
+    }
+
+    private void appendState(ShortLink link) {
+        log.append("STATE\t" + link.getShortCode() + "\t" + link.getClicksCount()
+                + "\t" + link.getClickLimit() + "\t" + link.isActive());
+    }
+
+    // --- Раздача журнала ---
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                connectionPool.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Репликация: ошибка приема соединения: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            String hello = reader.readLine();
+            if (hello == null) return;
+
+            String[] fields = hello.split("\t");
+            if (fields[0].equals("SUBSCRIBE")) {
+                subscribers.incrementAndGet();
+                try {
+                    stream(Long.parseLong(fields[1]), writer);
+                } finally {
+                    subscribers.decrementAndGet();
+                }
+            } else if (fields[0].equals("CLICKS")) {
+                applyClicks(reader);
+            } else if (fields[0].equals("ACQUIRE") || fields[0].equals("RELEASE")) {
+                // Аренда бюджета: запрос - ответ, пока клиент держит соединение
+                String request = hello;
+                do {
+                    writer.write(handleBudget(request.split("\t")));
+                    writer.write('\n');
+                    writer.flush();
+                } while ((request = reader.readLine()) != null);
+            }
+        } catch (IOException e) {
+            // Реплика отключилась
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stream(long from, Writer writer) throws IOException, InterruptedException {
+        long next = from > 0 && log.covers(from) ? from : sendSnapshot(writer);
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            batch.clear();
+            if (!log.read(next, batch, BATCH_SIZE, HEARTBEAT_MILLIS)) {
+                // Реплика отстала дальше, чем хранит журнал
+                next = sendSnapshot(writer);
+                continue;
+            }
+            if (batch.isEmpty()) {
+                writer.write("HB\t" + log.lastSequence() + "\t" + System.currentTimeMillis() + "\n");
+            } else {
+                for (String entry : batch) {
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+                next += batch.size();
+            }
+            writer.flush();
+        }
+    }
+
+    /**
+     * Отправляет снимок хранилища. Номер берется до снимка, поэтому записи,
+     * попавшие в снимок, могут прийти повторно - реплика применяет их идемпотентно.
+     * Надгробия идут раньше ссылок: код, занятый заново после снятия снимка
+     * надгробий, придет ссылкой позже и снимет надгробие на реплике.
+     * @return номер, с которого продолжать журнал
+     */
+    private long sendSnapshot(Writer writer) throws IOException {
+        long sequence = log.lastSequence();
+        writer.write("RESET\t" + sequence + "\n");
+        int shards = linkStorage.shardCount();
+        for (int shard = 0; shard < shards; shard++) {
+            long[] hashes = linkStorage.tombstoneHashes(shard);
+            for (int from = 0; from < hashes.length; from += BATCH_SIZE) {
+                StringBuilder line = new StringBuilder("TOMB\t").append(shards).append('\t').append(shard).append('\t');
+                for (int i = from; i < Math.min(hashes.length, from + BATCH_SIZE); i++) {
+                    if (i > from) line.append(',');
+                    line.append(Long.toHexString(hashes[i]));
+                }
+                writer.write(line.append('\n').toString());
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (ShortLink link : linkStorage.snapshot()) {
+            writer.write("E\t" + sequence + "\t" + now + "\tPUT\t" + LinkCodec.encode(link) + "\n");
+        }
+        writer.write("SYNCED\t" + sequence + "\n");
+        writer.flush();
+        return sequence + 1;
+    }
+
+    private void applyClicks(BufferedReader reader) throws IOException {
+        // Неуспешный исход значит, что реплика обслужила переход по устаревшему
+        // состоянию; исправление придет ей журналом
+        String line;
+        while ((line = reader.readLine()) != null) {
+            // code или code TAB хеш клиента в hex
+            int tab = line.indexOf('\t');
+            if (tab < 0) {
+                linkService.recordReplicaClick(line, 0);
+            } else {
+                linkService.recordReplicaClick(line.substring(0, tab), Long.parseUnsignedLong(line.substring(tab + 1), 16));
+            }
+        }
+    }
+
+    /**
+     * ACQUIRE code node requested prevLeaseId prevSpent -> OK leaseId granted ttl;
+     * RELEASE code leaseId spent -> OK.
+     */
+    private String handleBudget(String[] fields) {
+        ClickBudgetAuthority authority = budgetAuthority;
+        if (authority == null) {
+            return "ERR\tаренда бюджета не включена";
+        }
+        try {
+            if (fields[0].equals("ACQUIRE")) {
+                ClickBudgetAuthority.Grant grant = authority.acquire(fields[1], fields[2],
+                        Integer.parseInt(fields[3]), Long.parseLong(fields[4]), Integer.parseInt(fields[5]));
+                return "OK\t" + grant.getLeaseId() + "\t" + grant.getGranted() + "\t" + grant.getTtlMillis();
+            }
+            authority.release(fields[1], Long.parseLong(fields[2]), Integer.parseInt(fields[3]));
+            return "OK";
+        } catch (RuntimeException e) {
+            return "ERR\t" + e.getMessage();
+        }
+    }
+
+    // Геттеры
+    public long getLastSequence() { return log.lastSequence(); }
+    public int getSubscriberCount() { return subscribers.get(); }
+    public ClickBudgetAuthority getBudgetAuthority() { return budgetAuthority; }
+
+    public InetSocketAddress getAddress() {
+        return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+}
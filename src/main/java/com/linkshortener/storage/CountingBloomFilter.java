@@ -0,0 +1,78 @@
+package com.linkshortener.storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Считающий фильтр Блума по 64-битным хешам кодов: 4-битные счетчики,
+ * по 16 в одном long. В отличие от обычного фильтра поддерживает удаление.
+ * Ответ "нет" точен, "возможно" ошибается примерно в 1% случаев при
+ * заполнении до расчетной емкости. Счетчик, дошедший до 15, больше не
+ * уменьшается - элемент просто перестает удаляться из фильтра до перестроения.
+ * Изменяет фильтр один поток за раз (под монитором шарда), читать можно без блокировок.
+ */
+final class CountingBloomFilter {
+    private static final int HASHES = 5;
+    private static final int COUNTERS_PER_LINK = 10;
+    private static final long COUNTER_MAX = 15;
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] words;
+    private final int counterMask;
+    private final int capacity;
+
+    CountingBloomFilter(int capacity) {
+        int counters = Integer.highestOneBit(Math.max(64, capacity * COUNTERS_PER_LINK - 1)) << 1;
+        this.words = new long[counters / 16];
+        this.counterMask = counters - 1;
+        this.capacity = capacity;
+    }
+
+    void add(long hash) {
+        for (int i = 0; i < HASHES; i++) {
+            int index = index(hash, i);
+            long word = (long) WORDS.getOpaque(words, index >>> 4);
+            int shift = (index & 15) << 2;
+            if ((word >>> shift & COUNTER_MAX) != COUNTER_MAX) {
+                WORDS.setRelease(words, index >>> 4, word + (1L << shift));
+            }
+        }
+    }
+
+    void remove(long hash) {
+        for (int i = 0; i < HASHES; i++) {
+            int index = index(hash, i);
+            long word = (long) WORDS.getOpaque(words, index >>> 4);
+            int shift = (index & 15) << 2;
+            long counter = word >>> shift & COUNTER_MAX;
+            if (counter != 0 && counter != COUNTER_MAX) {
+                WORDS.setRelease(words, index >>> 4, word - (1L << shift));
+            }
+        }
+    }
+
+    boolean mightContain(long hash) {
+        for (int i = 0; i < HASHES; i++) {
+            int index = index(hash, i);
+            long word = (long) WORDS.getAcquire(words, index >>> 4);
+            if ((word >>> ((index & 15) << 2) & COUNTER_MAX) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Сколько элементов фильтр держит с расчетной точностью.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    // Двойное хеширование: i-я позиция = h1 + i * h2
+    private int index(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return (h1 + i * h2) & counterMask;
+    }
+}
@@ -0,0 +1,243 @@
+package com.linkshortener.storage;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Надгробия недавно просроченных кодов: 64-битные хеши кодов, разложенные
+ * по временным срезам. Каждый срез покрывает retention / SLICES, при повороте
+ * самый старый срез отбрасывается целиком, так что код помнится не меньше
+ * retention и не больше retention плюс один срез.
+ * Хеши не должны быть нулевыми. Изменения идут под монитором шарда в рабочих
+ * срезах и становятся видны читателям после {@link #publish()}: тот выкладывает
+ * неизменяемые копии срезов в volatile-поле. Чтение идет по этому снимку без
+ * блокировок и само отбрасывает устаревшие срезы - поворачивает их только запись.
+ */
+final class ExpiredTombstones {
+    private static final int SLICES = 8;
+    private static final Slice[] EMPTY = new Slice[0];
+
+    private final long sliceMillis;
+    private final LongSet[] slices = new LongSet[SLICES];
+    private final long[] sliceEpochs = new long[SLICES];
+    // Опубликованные копии срезов; null - срез менялся после публикации
+    private final Slice[] views = new Slice[SLICES];
+    private long currentEpoch = Long.MIN_VALUE;
+    private int size;
+    private volatile Slice[] published = EMPTY;
+
+    ExpiredTombstones(long retentionMillis) {
+        this.sliceMillis = Math.max(1, retentionMillis / SLICES);
+        for (int i = 0; i < SLICES; i++) {
+            slices[i] = new LongSet();
+        }
+    }
+
+    /**
+     * Добавляет надгробие в текущий срез.
+     * @param dropped получает хеши из отброшенных при повороте срезов
+     * @return true, если надгробия еще не было
+     */
+    boolean add(long hash, long nowMillis, LongConsumer dropped) {
+        advance(nowMillis, dropped);
+        int slot = slot(currentEpoch);
+        if (!contains(hash) && slices[slot].add(hash)) {
+            views[slot] = null;
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет надгробие по опубликованному снимку; не блокирует и ничего не меняет.
+     */
+    boolean contains(long hash, long nowMillis) {
+        long epoch = nowMillis / sliceMillis;
+        for (Slice slice : published) {
+            if (epoch - slice.epoch < SLICES && LongSet.contains(slice.table, hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Публикует текущее состояние для читателей. Копируются только измененные срезы.
+     */
+    void publish() {
+        int count = 0;
+        Slice[] next = new Slice[SLICES];
+        for (int i = 0; i < SLICES; i++) {
+            if (slices[i].size() == 0) continue;
+            if (views[i] == null) {
+                views[i] = new Slice(sliceEpochs[i], slices[i].copyTable());
+            }
+            next[count++] = views[i];
+        }
+        published = count == 0 ? EMPTY : Arrays.copyOf(next, count);
+    }
+
+    private boolean contains(long hash) {
+        for (LongSet slice : slices) {
+            if (slice.contains(hash)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Снимает надгробие (код снова занят новой ссылкой).
+     * @return true, если надгробие было
+     */
+    boolean remove(long hash) {
+        for (int i = 0; i < SLICES; i++) {
+            if (slices[i].remove(hash)) {
+                views[i] = null;
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void forEach(LongConsumer action) {
+        for (LongSet slice : slices) {
+            slice.forEach(action);
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < SLICES; i++) {
+            slices[i].clear();
+            views[i] = null;
+        }
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Поворачивает срезы на момент nowMillis.
+     * @param dropped получает хеши из отброшенных срезов
+     */
+    void advance(long nowMillis, LongConsumer dropped) {
+        long epoch = nowMillis / sliceMillis;
+        if (currentEpoch == Long.MIN_VALUE || epoch - currentEpoch > SLICES) {
+            // Первый вызов или долгий простой: все срезы устарели
+            if (currentEpoch != Long.MIN_VALUE) {
+                forEach(dropped);
+                clear();
+            }
+            currentEpoch = epoch;
+            sliceEpochs[slot(epoch)] = epoch;
+            return;
+        }
+        while (currentEpoch < epoch) {
+            currentEpoch++;
+            int slot = slot(currentEpoch);
+            LongSet slice = slices[slot];
+            slice.forEach(dropped);
+            size -= slice.size();
+            slice.clear();
+            sliceEpochs[slot] = currentEpoch;
+            views[slot] = null;
+        }
+    }
+
+    private static int slot(long epoch) {
+        return (int) Math.floorMod(epoch, (long) SLICES);
+    }
+
+    /**
+     * Опубликованная копия среза: эпоха и таблица, которые больше не меняются.
+     */
+    private static final class Slice {
+        final long epoch;
+        final long[] table;
+
+        Slice(long epoch, long[] table) {
+            this.epoch = epoch;
+            this.table = table;
+        }
+    }
+
+    /**
+     * Множество long с открытой адресацией; 0 занят под пустую ячейку,
+     * поэтому хеши кодов нулевыми не бывают (см. LinkShard.codeHash).
+     */
+    private static final class LongSet {
+        private long[] table = new long[16];
+        private int size;
+
+        boolean add(long value) {
+            if ((size + 1) * 2 > table.length) {
+                resize(table.length * 2);
+            }
+            int mask = table.length - 1;
+            for (int i = (int) value & mask; ; i = (i + 1) & mask) {
+                if (table[i] == value) return false;
+                if (table[i] == 0) {
+                    table[i] = value;
+                    size++;
+                    return true;
+                }
+            }
+        }
+
+        boolean contains(long value) {
+            return size != 0 && contains(table, value);
+        }
+
+        static boolean contains(long[] table, long value) {
+            int mask = table.length - 1;
+            for (int i = (int) value & mask; table[i] != 0; i = (i + 1) & mask) {
+                if (table[i] == value) return true;
+            }
+            return false;
+        }
+
+        long[] copyTable() {
+            return table.clone();
+        }
+
+        boolean remove(long value) {
+            if (!contains(value)) return false;
+            // Перестраиваем без элемента: удаление редкое, а сдвиг цепочек сложнее
+            long[] old = table;
+            table = new long[old.length];
+            size = 0;
+            for (long entry : old) {
+                if (entry != 0 && entry != value) add(entry);
+            }
+            return true;
+        }
+
+        void forEach(LongConsumer action) {
+            if (size == 0) return;
+            for (long entry : table) {
+                if (entry != 0) action.accept(entry);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            if (size == 0) return;
+            table = new long[16];
+            size = 0;
+        }
+
+        private void resize(int capacity) {
+            long[] old = table;
+            table = new long[capacity];
+            size = 0;
+            for (long entry : old) {
+                if (entry != 0) add(entry);
+            }
+        }
+    }
+}
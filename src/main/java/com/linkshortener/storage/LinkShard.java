@@ -0,0 +1,321 @@
+package com.linkshortener.storage;
+
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.util.Hashing;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Шард хранилища ссылок: свои карты и вторичные индексы для ссылок,
+ * код которых попал в этот шард. Индекс дедупликации шард тоже хранит,
+ * но разложен он по хешу ключа (пользователь + URL), а не кода: им управляет LinkStorage.
+ * Чтение по коду и проверка надгробий идут без блокировок; изменения
+ * сериализуются на мониторе шарда и не задевают остальные шарды.
+ * Проход очистки просматривает шард без монитора и берет его только на удаление.
+ * Перед картой стоит считающий фильтр Блума по живым и недавно просроченным
+ * кодам: большинство выдуманных ботами кодов отсекается им без обращения к карте.
+ * Просроченные при очистке коды остаются надгробиями на время retention,
+ * чтобы на них отвечать "истекла", а не "не найдена".
+ */
+class LinkShard {
+    private static final int INITIAL_FILTER_CAPACITY = 1024;
+
+    private final Map<String, ShortLink> linksByCode = new ConcurrentHashMap<>();
+    // Ключ дедупликации -> код для ключей этого шарда; без монитора
+    private final Map<String, String> codeByDedupKey = new ConcurrentHashMap<>();
+    // Коды пользователя в порядке создания, под монитором; удаление одного кода - O(1)
+    private final Map<UUID, Set<String>> userLinks = new HashMap<>();
+    private final ExpiredTombstones tombstones;
+    // Устаревшие надгробия уходят из фильтра; одна ссылка на метод на весь шард
+    private final LongConsumer forget = this::forget;
+    // Надгробия из журнала реплики публикуются пачкой или при первом чтении
+    private volatile boolean unpublished;
+    // Заменяется целиком при перестроении; меняется только под монитором
+    private volatile CountingBloomFilter filter = new CountingBloomFilter(INITIAL_FILTER_CAPACITY);
+
+    LinkShard(long tombstoneRetentionMillis) {
+        this.tombstones = new ExpiredTombstones(tombstoneRetentionMillis);
+    }
+
+    ShortLink findByCode(String code) {
+        if (!filter.mightContain(codeHash(code))) {
+            return null;
+        }
+        return linksByCode.get(code);
+    }
+
+    /**
+     * Проверяет, что код недавно удален очисткой как просроченный.
+     */
+    boolean isRecentlyExpired(String code) {
+        long hash = codeHash(code);
+        if (!filter.mightContain(hash)) {
+            return false;
+        }
+        if (unpublished) {
+            publishTombstones();
+        }
+        return tombstones.contains(hash, System.currentTimeMillis());
+    }
+
+    /**
+     * Публикует надгробия, добавленные через {@link #expire(String)}.
+     */
+    synchronized void publishTombstones() {
+        if (unpublished) {
+            publish();
+        }
+    }
+
+    private void publish() {
+        unpublished = false;
+        tombstones.publish();
+    }
+
+    String findCodeByKey(String key) {
+        return codeByDedupKey.get(key);
+    }
+
+    void indexKey(String key, String code) {
+        codeByDedupKey.put(key, code);
+    }
+
+    void unindexKey(String key, String code) {
+        codeByDedupKey.remove(key, code);
+    }
+
+    synchronized void save(ShortLink link) {
+        long hash = codeHash(link.getShortCode());
+        if (linksByCode.size() + tombstones.size() >= filter.capacity()) {
+            rebuildFilter(filter.capacity() * 2);
+        }
+        // Код занят заново: его надгробие уже учтено в фильтре
+        if (tombstones.remove(hash)) {
+            publish();
+        } else if (!linksByCode.containsKey(link.getShortCode())) {
+            filter.add(hash);
+        }
+        // Фильтр обновлен раньше карты, поэтому ссылка, видимая в карте, видна и фильтру
+        linksByCode.put(link.getShortCode(), link);
+        userLinks.computeIfAbsent(link.getOwnerId(), k -> new LinkedHashSet<>())
+                .add(link.getShortCode());
+    }
+
+    synchronized List<String> userLinkCodes(UUID userId) {
+        Set<String> codes = userLinks.get(userId);
+        return codes == null ? Collections.emptyList() : new ArrayList<>(codes);
+    }
+
+    /**
+     * Копирует до max ссылок пользователя, начиная с позиции offset в порядке создания.
+     */
+    synchronized List<ShortLink> userLinksPage(UUID userId, int offset, int max) {
+        Set<String> codes = userLinks.get(userId);
+        if (codes == null || offset >= codes.size()) {
+            return Collections.emptyList();
+        }
+        List<ShortLink> page = new ArrayList<>(Math.min(max, codes.size() - offset));
+        Iterator<String> iterator = codes.iterator();
+        for (int i = 0; i < offset; i++) {
+            iterator.next();
+        }
+        while (iterator.hasNext() && page.size() < max) {
+            ShortLink link = linksByCode.get(iterator.next());
+            if (link != null) {
+                page.add(link);
+            }
+        }
+        return page;
+    }
+
+    synchronized boolean hasUserLinks(UUID userId) {
+        return userLinks.containsKey(userId);
+    }
+
+    /**
+     * Удаляет все ссылки пользователя за один проход по его индексу.
+     */
+    synchronized List<ShortLink> removeUser(UUID userId) {
+        Set<String> codes = userLinks.remove(userId);
+        if (codes == null) {
+            return Collections.emptyList();
+        }
+        List<ShortLink> removed = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            ShortLink link = linksByCode.remove(code);
+            if (link != null) {
+                link.markDeleted();
+                filter.remove(codeHash(code));
+                removed.add(link);
+            }
+        }
+        return removed;
+    }
+
+    synchronized ShortLink remove(String code, UUID userId) {
+        ShortLink link = linksByCode.get(code);
+        if (link == null || !link.getOwnerId().equals(userId)) {
+            return null;
+        }
+        linksByCode.remove(code);
+        link.markDeleted();
+        unindex(link);
+        filter.remove(codeHash(code));
+        return link;
+    }
+
+    /**
+     * Удаляет ссылку как просроченную и оставляет надгробие
+     * (просрочка, пришедшая из журнала ведущего). Надгробие не публикуется сразу:
+     * копия среза на каждый код дала бы O(n^2) на пачке просрочек. Его опубликует
+     * {@link #publishTombstones()} или первое чтение надгробий после изменения.
+     */
+    synchronized ShortLink expire(String code) {
+        ShortLink link = linksByCode.get(code);
+        if (link != null) {
+            tombstones.add(codeHash(code), System.currentTimeMillis(), forget);
+            // Флаг ставится раньше удаления: не нашедший ссылку читатель увидит и его
+            unpublished = true;
+            linksByCode.remove(code);
+            unindex(link);
+        }
+        return link;
+    }
+
+    /**
+     * Надгробия шарда по рабочим срезам, для снимка реплике.
+     */
+    synchronized long[] tombstoneHashes() {
+        long[] hashes = new long[tombstones.size()];
+        int[] count = new int[1];
+        tombstones.forEach(hash -> hashes[count[0]++] = hash);
+        return hashes;
+    }
+
+    /**
+     * Восстанавливает надгробия из снимка ведущего. Время просрочки
+     * в снимок не попадает, поэтому они помнятся retention от момента загрузки.
+     */
+    synchronized void restoreTombstones(long[] hashes) {
+        long now = System.currentTimeMillis();
+        for (long hash : hashes) {
+            if (tombstones.add(hash, now, forget)) {
+                filter.add(hash);
+            }
+        }
+        if (linksByCode.size() + tombstones.size() >= filter.capacity()) {
+            rebuildFilter();
+        }
+        publish();
+    }
+
+    /**
+     * Удаляет просроченные ссылки этого шарда. Поворот срезов надгробий
+     * и удаление устаревших из фильтра выполняются только здесь.
+     */
+    List<ShortLink> removeExpired() {
+        long now = System.currentTimeMillis();
+        List<ShortLink> candidates = new ArrayList<>();
+        for (ShortLink link : linksByCode.values()) {
+            if (link.isExpired(now)) {
+                candidates.add(link);
+            }
+        }
+        synchronized (this) {
+            tombstones.advance(now, forget);
+            List<ShortLink> expired = new ArrayList<>(candidates.size());
+            for (ShortLink link : candidates) {
+                // Ссылку могли удалить или заменить, пока шел просмотр
+                if (linksByCode.get(link.getShortCode()) == link) {
+                    expired.add(link);
+                    // Запись в фильтре переходит к надгробию
+                    tombstones.add(codeHash(link.getShortCode()), now, forget);
+                }
+            }
+            // Надгробия видны читателям раньше, чем ссылки пропадут из карты
+            publish();
+            for (ShortLink link : expired) {
+                linksByCode.remove(link.getShortCode());
+                unindex(link);
+            }
+            return expired;
+        }
+    }
+
+    /**
+     * Перестраивает фильтр по живым кодам и надгробиям: сбрасывает
+     * насыщенные счетчики и подгоняет размер под число ссылок.
+     */
+    synchronized void rebuildFilter() {
+        rebuildFilter(Math.max(INITIAL_FILTER_CAPACITY, (linksByCode.size() + tombstones.size()) * 2));
+    }
+
+    private void rebuildFilter(int capacity) {
+        CountingBloomFilter rebuilt = new CountingBloomFilter(capacity);
+        for (String code : linksByCode.keySet()) {
+            rebuilt.add(codeHash(code));
+        }
+        tombstones.forEach(rebuilt::add);
+        filter = rebuilt;
+    }
+
+    /**
+     * Надгробие устарело - убираем его из фильтра.
+     */
+    private void forget(long hash) {
+        filter.remove(hash);
+    }
+
+    synchronized int tombstoneCount() {
+        return tombstones.size();
+    }
+
+    /**
+     * Удаляет ссылку из вспомогательных структур.
+     */
+    private void unindex(ShortLink link) {
+        UUID userId = link.getOwnerId();
+        Set<String> codes = userLinks.get(userId);
+        if (codes != null) {
+            codes.remove(link.getShortCode());
+            if (codes.isEmpty()) {
+                userLinks.remove(userId);
+            }
+        }
+    }
+
+    List<ShortLink> snapshot() {
+        return new ArrayList<>(linksByCode.values());
+    }
+
+    synchronized void clear() {
+        linksByCode.clear();
+        codeByDedupKey.clear();
+        userLinks.clear();
+        tombstones.clear();
+        publish();
+        filter = new CountingBloomFilter(INITIAL_FILTER_CAPACITY);
+    }
+
+    int size() {
+        return linksByCode.size();
+    }
+
+    /**
+     * Хеш кода для фильтра и надгробий; нулевым не бывает.
+     */
+    static long codeHash(String code) {
+        long hash = Hashing.hash64(code);
+        return hash == 0 ? 1 : hash;
+    }
+
+    static String dedupKey(ShortLink link) {
+        return dedupKey(link.getOwnerId(), link.getOriginalUrl());
+    }
+
+    static String dedupKey(UUID userId, String originalUrl) {
+        return userId + ":" + originalUrl;
+    }
+}
@@ -1,23 +1,53 @@
 package com.linkshortener.storage;
 
+import com.linkshortener.config.AppConfig;
 import com.linkshortener.core.ShortLink;
+
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Хранилище коротких ссылок.
- * Использует ConcurrentHashMap для потокобезопасности.
+ * Разбито на шарды по хешу кода: у каждого шарда свои карты и индексы,
+ * поэтому очистка, снимки и подсчеты идут по шардам параллельно
+ * в общем для всех хранилищ ForkJoinPool, а очистка одного шарда не задерживает переходы в других.
+ * Индекс дедупликации разложен по шардам по хешу ключа (пользователь + URL),
+ * поэтому проверка при создании смотрит в один шард.
  */
 public class LinkStorage {
     private static LinkStorage instance;
-    private final Map<String, ShortLink> linksByCode;
-    private final Map<String, String> codeByOriginalUrl; // Для уникальности на пользователя
-    private final Map<String, List<String>> userLinks; // Ссылки пользователя
+    private static final int CURSOR_SHARD_SHIFT = 32;
+    private static final long CURSOR_OFFSET_MASK = 0xFFFF_FFFFL;
+    // Один пул на процесс: хранилища создаются и для прогрева, узлов кластера и пересинхронизаций реплик
+    private static final ForkJoinPool SWEEP_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final LinkShard[] shards;
+    private final int shardMask;
 
     private LinkStorage() {
-        linksByCode = new ConcurrentHashMap<>();
-        codeByOriginalUrl = new ConcurrentHashMap<>();
-        userLinks = new ConcurrentHashMap<>();
+        this(AppConfig.getInstance().getStorageShards());
+    }
+
+    /**
+     * Создает отдельное хранилище (для узлов кластера и тестов).
+     */
+    public LinkStorage(int requestedShards) {
+        this(requestedShards, AppConfig.getInstance().getStorageTombstoneRetentionMinutes() * 60_000L);
+    }
+
+    /**
+     * @param tombstoneRetentionMillis сколько помнить коды, удаленные очисткой как просроченные
+     */
+    public LinkStorage(int requestedShards, long tombstoneRetentionMillis) {
+        int count = Integer.highestOneBit(Math.max(1, requestedShards));
+        shards = new LinkShard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new LinkShard(tombstoneRetentionMillis);
+        }
+        shardMask = count - 1;
     }
 
     public static synchronized LinkStorage getInstance() {
@@ -27,114 +57,297 @@ public class LinkStorage {
         return instance;
     }
 
+    /**
+     * Номер шарда для кода.
+     */
+    public int shardOf(String code) {
+        return spread(code.hashCode());
+    }
+
+    private int spread(int h) {
+        return (h ^ (h >>> 16)) & shardMask;
+    }
+
+    private LinkShard dedupShard(String key) {
+        return shards[spread(key.hashCode())];
+    }
+
+    private void unindex(ShortLink link) {
+        String key = LinkShard.dedupKey(link);
+        dedupShard(key).unindexKey(key, link.getShortCode());
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
     /**
      * Сохраняет ссылку в хранилище.
      */
     public void save(ShortLink link) {
-        String key = link.getOwnerId() + ":" + link.getOriginalUrl();
-        linksByCode.put(link.getShortCode(), link);
-        codeByOriginalUrl.put(key, link.getShortCode());
-
-        // Добавляем в список ссылок пользователя
-        String userId = link.getOwnerId().toString();
-        userLinks.computeIfAbsent(userId, k -> new ArrayList<>()).add(link.getShortCode());
+        shards[shardOf(link.getShortCode())].save(link);
+        String key = LinkShard.dedupKey(link);
+        dedupShard(key).indexKey(key, link.getShortCode());
     }
 
     /**
      * Находит ссылку по короткому коду.
      */
     public Optional<ShortLink> findByCode(String code) {
-        return Optional.ofNullable(linksByCode.get(code));
+        return Optional.ofNullable(getByCode(code));
+    }
+
+    /**
+     * Находит ссылку по короткому коду без обертки Optional (горячий путь переходов).
+     * Несуществующие коды в большинстве отсекаются фильтром Блума шарда.
+     * @return ссылка или null
+     */
+    public ShortLink getByCode(String code) {
+        return shards[shardOf(code)].findByCode(code);
+    }
+
+    /**
+     * Находит ссылки по пачке кодов, обходя каждый шард один раз:
+     * индексы кодов раскладываются по шардам сортировкой подсчетом.
+     * @return ссылки в порядке кодов, null для ненайденных
+     */
+    public ShortLink[] getByCodes(List<String> codes) {
+        int count = codes.size();
+        int[] shardIndex = new int[count];
+        int[] starts = new int[shards.length + 1];
+        for (int i = 0; i < count; i++) {
+            shardIndex[i] = shardOf(codes.get(i));
+            starts[shardIndex[i] + 1]++;
+        }
+        for (int s = 0; s < shards.length; s++) {
+            starts[s + 1] += starts[s];
+        }
+        int[] order = new int[count];
+        int[] next = starts.clone();
+        for (int i = 0; i < count; i++) {
+            order[next[shardIndex[i]]++] = i;
+        }
+
+        ShortLink[] links = new ShortLink[count];
+        for (int s = 0; s < shards.length; s++) {
+            LinkShard shard = shards[s];
+            for (int k = starts[s]; k < starts[s + 1]; k++) {
+                links[order[k]] = shard.findByCode(codes.get(order[k]));
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Проверяет, что код принадлежал ссылке, недавно удаленной очисткой по сроку.
+     */
+    public boolean isRecentlyExpired(String code) {
+        return shards[shardOf(code)].isRecentlyExpired(code);
     }
 
     /**
      * Проверяет, есть ли уже короткая ссылка для данной оригинальной у пользователя.
      */
     public Optional<String> findCodeByUrlAndUser(String originalUrl, UUID userId) {
-        String key = userId + ":" + originalUrl;
-        return Optional.ofNullable(codeByOriginalUrl.get(key));
+        String key = LinkShard.dedupKey(userId, originalUrl);
+        return Optional.ofNullable(dedupShard(key).findCodeByKey(key));
     }
 
     /**
-     * Получает все ссылки пользователя.
+     * Получает все ссылки пользователя в порядке создания.
      */
     public List<ShortLink> getUserLinks(UUID userId) {
-        List<String> codes = userLinks.getOrDefault(userId.toString(), Collections.emptyList());
-        return codes.stream()
-                .map(linksByCode::get)
-                .filter(Objects::nonNull)
-                .toList();
+        List<ShortLink> result = new ArrayList<>();
+        for (LinkShard shard : shards) {
+            for (String code : shard.userLinkCodes(userId)) {
+                ShortLink link = shard.findByCode(code);
+                if (link != null) {
+                    result.add(link);
+                }
+            }
+        }
+        result.sort(Comparator.comparing(ShortLink::getCreatedAt));
+        return result;
     }
 
     /**
-     * Удаляет ссылку.
+     * Страница ссылок пользователя без сборки полного списка: шарды по порядку,
+     * внутри шарда - в порядке создания. Под монитором шарда копируется не больше max ссылок.
+     * Позиция кодирует номер шарда и смещение в нем; ссылки, удаленные между
+     * запросами страниц, сдвигают смещение, и соседняя ссылка может быть пропущена.
+     * @param cursor 0 для первой страницы или значение, возвращенное предыдущим вызовом
+     * @return позиция следующей страницы или -1, если ссылки кончились
      */
-    public boolean remove(String code, UUID userId) {
-        ShortLink link = linksByCode.get(code);
-        if (link == null || !link.getOwnerId().equals(userId)) {
-            return false;
-        }
-
-        linksByCode.remove(code);
-        String key = userId + ":" + link.getOriginalUrl();
-        codeByOriginalUrl.remove(key);
-
-        // Удаляем из списка пользователя
-        String userIdStr = userId.toString();
-        List<String> userLinksList = userLinks.get(userIdStr);
-        if (userLinksList != null) {
-            userLinksList.remove(code);
-            if (userLinksList.isEmpty()) {
-                userLinks.remove(userIdStr);
+    public long forEachUserLink(UUID userId, long cursor, int max, Consumer<ShortLink> action) {
+        int shard = (int) (cursor >>> CURSOR_SHARD_SHIFT);
+        int offset = (int) (cursor & CURSOR_OFFSET_MASK);
+        int remaining = max;
+        while (shard < shards.length) {
+            List<ShortLink> page = shards[shard].userLinksPage(userId, offset, remaining);
+            page.forEach(action);
+            remaining -= page.size();
+            offset += page.size();
+            if (remaining == 0) {
+                return ((long) shard << CURSOR_SHARD_SHIFT) | offset;
             }
+            shard++;
+            offset = 0;
         }
+        return -1;
+    }
+
+    /**
+     * Есть ли у пользователя хотя бы одна ссылка.
+     */
+    public boolean hasUserLinks(UUID userId) {
+        for (LinkShard shard : shards) {
+            if (shard.hasUserLinks(userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    /**
+     * Удаляет ссылку.
+     */
+    public boolean remove(String code, UUID userId) {
+        ShortLink removed = shards[shardOf(code)].remove(code, userId);
+        if (removed == null) return false;
+        unindex(removed);
         return true;
     }
 
     /**
-     * Удаляет все просроченные ссылки.
+     * Удаляет все ссылки пользователя, обходя шарды параллельно.
+     * Внутри шарда удаление атомарно; удаленные ссылки помечаются,
+     * чтобы уже начатые переходы по ним ответили "не найдена".
      */
-    public List<ShortLink> removeExpiredLinks() {
-        List<ShortLink> expired = new ArrayList<>();
-        Iterator<Map.Entry<String, ShortLink>> iterator = linksByCode.entrySet().iterator();
-
-        while (iterator.hasNext()) {
-            Map.Entry<String, ShortLink> entry = iterator.next();
-            ShortLink link = entry.getValue();
-
-            if (link.isExpired()) {
-                expired.add(link);
-                iterator.remove();
-
-                // Удаляем из вспомогательных структур
-                String key = link.getOwnerId() + ":" + link.getOriginalUrl();
-                codeByOriginalUrl.remove(key);
-
-                String userId = link.getOwnerId().toString();
-                List<String> userLinksList = userLinks.get(userId);
-                if (userLinksList != null) {
-                    userLinksList.remove(link.getShortCode());
-                    if (userLinksList.isEmpty()) {
-                        userLinks.remove(userId);
-                    }
-                }
+    public List<ShortLink> removeUserLinks(UUID userId) {
+        List<ShortLink> removed = collectParallel(shard -> shard.removeUser(userId));
+        removed.forEach(this::unindex);
+        return removed;
+    }
+
+    /**
+     * Удаляет ссылку как просроченную, оставляя надгробие
+     * (реплика применяет очистку, выполненную ведущим).
+     */
+    public boolean expire(String code) {
+        ShortLink expired = shards[shardOf(code)].expire(code);
+        if (expired == null) return false;
+        unindex(expired);
+        return true;
+    }
+
+    /**
+     * Публикует надгробия, добавленные через {@link #expire(String)};
+     * реплика вызывает его раз на прочитанную пачку журнала.
+     */
+    public void publishTombstones() {
+        for (LinkShard shard : shards) {
+            shard.publishTombstones();
+        }
+    }
+
+    /**
+     * Хеши надгробий шарда, для снимка реплике.
+     */
+    public long[] tombstoneHashes(int shard) {
+        return shards[shard].tombstoneHashes();
+    }
+
+    /**
+     * Восстанавливает надгробия шарда ведущего с sourceShards шардами.
+     * Шард кода - младшие биты одного и того же хеша, поэтому при другом
+     * числе шардов хеши раскладываются по всем шардам с теми же младшими битами.
+     */
+    public void restoreTombstones(int sourceShards, int sourceShard, long[] hashes) {
+        int mask = Math.min(sourceShards, shards.length) - 1;
+        for (int i = 0; i < shards.length; i++) {
+            if ((i & mask) == (sourceShard & mask)) {
+                shards[i].restoreTombstones(hashes);
             }
         }
+    }
 
+    /**
+     * Удаляет все просроченные ссылки, обходя шарды параллельно.
+     */
+    public List<ShortLink> removeExpiredLinks() {
+        List<ShortLink> expired = collectParallel(LinkShard::removeExpired);
+        expired.forEach(this::unindex);
         return expired;
     }
 
+    /**
+     * Снимок всех ссылок, собранный по шардам параллельно.
+     */
+    public List<ShortLink> snapshot() {
+        return collectParallel(LinkShard::snapshot);
+    }
+
+    private List<ShortLink> collectParallel(Function<LinkShard, List<ShortLink>> perShard) {
+        List<ForkJoinTask<List<ShortLink>>> tasks = new ArrayList<>(shards.length);
+        for (LinkShard shard : shards) {
+            tasks.add(SWEEP_POOL.submit(() -> perShard.apply(shard)));
+        }
+
+        List<ShortLink> result = new ArrayList<>();
+        for (ForkJoinTask<List<ShortLink>> task : tasks) {
+            result.addAll(task.join());
+        }
+        return result;
+    }
+
+    /**
+     * Перестраивает фильтры Блума всех шардов по текущему содержимому
+     * (после восстановления или массовой загрузки).
+     */
+    public void rebuildFilters() {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(shards.length);
+        for (LinkShard shard : shards) {
+            tasks.add(SWEEP_POOL.submit(shard::rebuildFilter));
+        }
+        tasks.forEach(ForkJoinTask::join);
+    }
+
     /**
      * Очищает хранилище (для тестов).
      */
     public void clear() {
-        linksByCode.clear();
-        codeByOriginalUrl.clear();
-        userLinks.clear();
+        for (LinkShard shard : shards) {
+            shard.clear();
+        }
     }
 
     public int size() {
-        return linksByCode.size();
+        int total = 0;
+        for (LinkShard shard : shards) {
+            total += shard.size();
+        }
+        return total;
+    }
+
+    /**
+     * Число надгробий просроченных кодов.
+     */
+    public int tombstoneCount() {
+        int total = 0;
+        for (LinkShard shard : shards) {
+            total += shard.tombstoneCount();
+        }
+        return total;
+    }
+
+    /**
+     * Количество ссылок в каждом шарде.
+     */
+    public int[] shardSizes() {
+        int[] sizes = new int[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            sizes[i] = shards[i].size();
+        }
+        return sizes;
     }
-}
\ No newline at end of file
+}
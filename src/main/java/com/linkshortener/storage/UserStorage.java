@@ -3,9 +3,13 @@ package com.linkshortener.storage;
 import com.linkshortener.core.User;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 /**
  * Хранилище пользователей.
+ * Пользователь с сессией создается и вытесняется только внутри вычисления над его ключом
+ * в userIdBySession, поэтому обе карты не расходятся: сессия либо ведет к живому пользователю,
+ * либо отсутствует.
  */
 public class UserStorage {
     private static UserStorage instance;
@@ -29,7 +33,9 @@ public class UserStorage {
      */
     public void save(User user) {
         usersById.put(user.getId(), user);
-        userIdBySession.put(user.getSessionId(), user.getId());
+        if (user.getSessionId() != null) {
+            userIdBySession.put(user.getSessionId(), user.getId());
+        }
     }
 
     /**
@@ -50,6 +56,34 @@ public class UserStorage {
         return Optional.empty();
     }
 
+    /**
+     * Возвращает пользователя сессии, создавая его при первом обращении, и отмечает обращение.
+     * Конкурирующие вызовы с одной сессией получают одного и того же пользователя.
+     */
+    public User findOrCreateBySession(String sessionId, long nowMillis) {
+        User[] result = new User[1];
+        userIdBySession.compute(sessionId, (session, userId) -> {
+            User user = userId == null ? null : usersById.get(userId);
+            if (user == null) {
+                user = new User(session);
+                usersById.put(user.getId(), user);
+            }
+            user.touch(nowMillis);
+            result[0] = user;
+            return user.getId();
+        });
+        return result[0];
+    }
+
+    /**
+     * Возвращает пользователя с данным ID, создавая его при первом обращении, и отмечает обращение.
+     */
+    public User findOrCreateById(UUID id, long nowMillis) {
+        User user = usersById.computeIfAbsent(id, User::new);
+        user.touch(nowMillis);
+        return user;
+    }
+
     /**
      * Создает нового пользователя.
      */
@@ -60,17 +94,55 @@ public class UserStorage {
     }
 
     /**
-     * Удаляет пользователя и все его ссылки.
+     * Удаляет пользователя.
      */
     public boolean deleteUser(UUID userId) {
         User user = usersById.remove(userId);
         if (user != null) {
-            userIdBySession.remove(user.getSessionId());
+            if (user.getSessionId() != null) {
+                userIdBySession.remove(user.getSessionId(), userId);
+            }
             return true;
         }
         return false;
     }
 
+    /**
+     * Вытесняет пользователей, не обращавшихся дольше idleMillis и не имеющих живых ссылок.
+     * Такому пользователю нечего хранить, кроме уведомлений о его бывших ссылках,
+     * поэтому он удаляется целиком; при следующем входе сессия получит нового пользователя.
+     * @return число вытесненных
+     */
+    public int evictIdle(long idleMillis, long nowMillis, Predicate<UUID> hasLinks) {
+        int evicted = 0;
+        for (User user : usersById.values()) {
+            if (nowMillis - user.getLastAccessMillis() < idleMillis || hasLinks.test(user.getId())) {
+                continue;
+            }
+            if (user.getSessionId() == null) {
+                if (usersById.remove(user.getId(), user)) {
+                    evicted++;
+                }
+                continue;
+            }
+            boolean[] removed = new boolean[1];
+            // Под блокировкой ключа сессии: findOrCreateBySession не вклинится между проверкой и удалением
+            userIdBySession.compute(user.getSessionId(), (session, userId) -> {
+                boolean bound = user.getId().equals(userId);
+                if (bound && nowMillis - user.getLastAccessMillis() < idleMillis) {
+                    return userId;
+                }
+                removed[0] = usersById.remove(user.getId(), user);
+                // Сессию, уже отданную другому пользователю, не трогаем
+                return bound ? null : userId;
+            });
+            if (removed[0]) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
     /**
      * Получает всех пользователей.
      */
@@ -89,4 +161,4 @@ public class UserStorage {
     public int size() {
         return usersById.size();
     }
-}
\ No newline at end of file
+}
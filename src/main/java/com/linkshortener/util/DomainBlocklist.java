@@ -0,0 +1,185 @@
+package com.linkshortener.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Неизменяемый черный список доменов: множество 64-битных хешей доменов
+ * в одном long[] с открытой адресацией (около 16 байт на домен).
+ * Хост блокируется, если в списке есть он сам или любой родительский домен:
+ * проверяются суффиксы по границам меток, без выделения памяти и без регистра букв.
+ * Коллизия 64-битных хешей дает ложную блокировку с вероятностью порядка n / 2^64.
+ */
+public final class DomainBlocklist {
+    public static final DomainBlocklist EMPTY = new DomainBlocklist(new long[0], 0);
+
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final long[] table;
+    private final int mask;
+    private final int size;
+
+    private DomainBlocklist(long[] hashes, int count) {
+        int capacity = Integer.highestOneBit(Math.max(2, count * 2 - 1)) << 1;
+        long[] slots = new long[capacity];
+        int mask = capacity - 1;
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            long hash = hashes[i];
+            int slot = (int) hash & mask;
+            while (slots[slot] != 0 && slots[slot] != hash) {
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot] == 0) {
+                slots[slot] = hash;
+                size++;
+            }
+        }
+        this.table = slots;
+        this.mask = mask;
+        this.size = size;
+    }
+
+    /**
+     * Строит список из доменов; ведущие "*." и "." отбрасываются.
+     */
+    public static DomainBlocklist of(String... domains) {
+        long[] hashes = new long[domains.length];
+        int count = 0;
+        for (String domain : domains) {
+            String normalized = normalize(domain);
+            if (normalized != null) {
+                hashes[count++] = hash(normalized, 0, normalized.length());
+            }
+        }
+        return new DomainBlocklist(hashes, count);
+    }
+
+    /**
+     * Читает список из файла: один домен в строке, комментарии после '#'.
+     * Понимает и формат hosts ("0.0.0.0 bad.example") - берется последнее слово строки.
+     */
+    public static DomainBlocklist load(Path file) throws IOException {
+        long[] hashes = new long[1024];
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String domain = normalize(line);
+                if (domain == null) continue;
+                if (count == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, count * 2);
+                }
+                hashes[count++] = hash(domain, 0, domain.length());
+            }
+        }
+        return new DomainBlocklist(hashes, count);
+    }
+
+    private static String normalize(String line) {
+        int comment = line.indexOf('#');
+        String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+        if (text.isEmpty()) return null;
+        int space = Math.max(text.lastIndexOf(' '), text.lastIndexOf('\t'));
+        if (space >= 0) {
+            text = text.substring(space + 1);
+        }
+        while (text.startsWith("*.") || text.startsWith(".")) {
+            text = text.substring(text.charAt(0) == '*' ? 2 : 1);
+        }
+        if (text.endsWith(".")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * Проверяет хост и все его родительские домены.
+     */
+    public boolean isBlockedHost(CharSequence host) {
+        return isBlockedHost(host, 0, host.length());
+    }
+
+    /**
+     * Проверяет хост из URL (схема, userinfo, порт, путь и запрос пропускаются).
+     */
+    public boolean isBlockedUrl(String url) {
+        if (size == 0 || url == null) return false;
+        int scheme = url.indexOf("://");
+        int start = scheme < 0 ? 0 : scheme + 3;
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#' || c == '\\') break;
+            end++;
+        }
+        int at = url.lastIndexOf('@', end - 1);
+        if (at >= start) {
+            start = at + 1;
+        }
+        if (start < end && url.charAt(start) == '[') {
+            // IPv6-адрес: доменов в нем нет, сравниваем целиком
+            int close = url.indexOf(']', start);
+            return close > 0 && close < end && isBlockedHost(url, start + 1, close);
+        }
+        int port = url.indexOf(':', start);
+        if (port >= 0 && port < end) {
+            end = port;
+        }
+        return isBlockedHost(url, start, end);
+    }
+
+    private boolean isBlockedHost(CharSequence host, int from, int to) {
+        if (size == 0) return false;
+        if (to > from && host.charAt(to - 1) == '.') {
+            to--;
+        }
+        while (from < to) {
+            if (contains(hash(host, from, to))) {
+                return true;
+            }
+            // Следующий суффикс - после ближайшей точки
+            while (from < to && host.charAt(from) != '.') {
+                from++;
+            }
+            from++;
+        }
+        return false;
+    }
+
+    private boolean contains(long hash) {
+        for (int slot = (int) hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            if (table[slot] == hash) return true;
+        }
+        return false;
+    }
+
+    /**
+     * FNV-1a по символам в нижнем регистре (ASCII) с финальным перемешиванием; 0 занят под пустую ячейку.
+     */
+    private static long hash(CharSequence value, int from, int to) {
+        long h = FNV_OFFSET;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            h ^= c;
+            h *= FNV_PRIME;
+        }
+        h = Hashing.mix64(h);
+        return h != 0 ? h : 1;
+    }
+
+    /**
+     * Число различных доменов в списке.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,34 @@
+package com.linkshortener.util;
+
+/**
+ * Быстрые некриптографические 64-битные хеши.
+ */
+public class Hashing {
+
+    private Hashing() {}
+
+    /**
+     * 64-битный хеш строки: FNV-1a по символам с финальным перемешиванием.
+     * Не выделяет память.
+     */
+    public static long hash64(CharSequence value) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return mix64(h);
+    }
+
+    /**
+     * Финальное перемешивание (fmix64 из MurmurHash3).
+     */
+    public static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
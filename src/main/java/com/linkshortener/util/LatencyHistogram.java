@@ -0,0 +1,179 @@
+package com.linkshortener.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек в стиле HdrHistogram.
+ * Значения (в наносекундах) раскладываются по лог-линейным корзинам:
+ * каждый диапазон [2^k, 2^(k+1)) делится на 128 равных частей,
+ * поэтому относительная погрешность не превышает ~0.8%.
+ * Запись потокобезопасна и не выделяет память. Корзины разбиты на полосы
+ * (по числу процессоров, не больше {@value #MAX_STRIPES}): поток пишет в полосу
+ * по своему идентификатору, а чтение складывает полосы, поэтому параллельные
+ * переходы не спорят за одни кеш-линии. Итоги - LongAdder, максимум - LongAccumulator.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+    private static final long HIGHEST_TRACKABLE = 1L << 40; // ~18 минут в наносекундах
+    private static final int BUCKETS = indexFor(HIGHEST_TRACKABLE) + 1;
+    private static final int MAX_STRIPES = 8;
+    private static final int STRIPES = Math.min(MAX_STRIPES,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+
+    // Полоса s занимает [s * BUCKETS, (s + 1) * BUCKETS)
+    private final AtomicLongArray counts;
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS * STRIPES);
+    }
+
+    /**
+     * Записывает одно значение.
+     */
+    public void recordValue(long value) {
+        recordCount(value, 1);
+    }
+
+    /**
+     * Записывает значение с поправкой на coordinated omission.
+     * Если операция заняла дольше ожидаемого интервала между запросами,
+     * добавляются синтетические замеры для запросов, которые
+     * в открытой модели нагрузки ждали бы в очереди.
+     */
+    public void recordValueWithExpectedInterval(long value, long expectedInterval) {
+        recordValue(value);
+        if (expectedInterval <= 0) return;
+
+        for (long missing = value - expectedInterval; missing >= expectedInterval;
+             missing -= expectedInterval) {
+            recordValue(missing);
+        }
+    }
+
+    private void recordCount(long value, long count) {
+        long clamped = Math.max(0, Math.min(value, HIGHEST_TRACKABLE));
+        counts.getAndAdd(stripeOffset() + indexFor(clamped), count);
+        totalCount.add(count);
+        totalSum.add(clamped * count);
+        // Пишет в общую ячейку, только когда максимум растет
+        maxValue.accumulate(clamped);
+    }
+
+    private static int stripeOffset() {
+        return STRIPES == 1 ? 0 : (int) (Hashing.mix64(Thread.currentThread().threadId()) & (STRIPES - 1)) * BUCKETS;
+    }
+
+    /**
+     * Число значений в корзине по всем полосам.
+     */
+    private long count(int index) {
+        long sum = 0;
+        for (int offset = index; offset < counts.length(); offset += BUCKETS) {
+            sum += counts.get(offset);
+        }
+        return sum;
+    }
+
+    /**
+     * Добавляет все значения другой гистограммы.
+     */
+    public void add(LatencyHistogram other) {
+        int offset = stripeOffset();
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.count(i);
+            if (count != 0) {
+                counts.getAndAdd(offset + i, count);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        totalSum.add(other.totalSum.sum());
+        maxValue.accumulate(other.maxValue.get());
+    }
+
+    public long getTotalCount() { return totalCount.sum(); }
+    public long getTotalSum() { return totalSum.sum(); }
+    public long getMax() { return maxValue.get(); }
+
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0.0 : (double) totalSum.sum() / count;
+    }
+
+    /**
+     * Возвращает значение на заданном перцентиле (0..100).
+     * Результат - верхняя граница корзины, в которую попал перцентиль.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.sum();
+        if (count == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += count(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * Заполняет cumulative[i] числом значений, не превышающих bounds[i].
+     * Границы должны идти по возрастанию; проход по корзинам один.
+     */
+    public void cumulativeCounts(long[] bounds, long[] cumulative) {
+        long seen = 0;
+        int bound = 0;
+        for (int i = 0; i < BUCKETS && bound < bounds.length; i++) {
+            while (bound < bounds.length && highestEquivalentValue(i) > bounds[bound]) {
+                cumulative[bound++] = seen;
+            }
+            seen += count(i);
+        }
+        while (bound < bounds.length) {
+            cumulative[bound++] = seen;
+        }
+    }
+
+    /**
+     * Сбрасывает все накопленные значения.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalSum.reset();
+        maxValue.reset();
+    }
+
+    /**
+     * Индекс корзины для значения: линейно до 256, дальше по 128 корзин на октаву.
+     */
+    static int indexFor(long value) {
+        if (value < 2L * SUB_BUCKET_HALF) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS + 1;
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    /**
+     * Наибольшее значение, попадающее в корзину с данным индексом.
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < 2 * SUB_BUCKET_HALF) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index - (long) shift * SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
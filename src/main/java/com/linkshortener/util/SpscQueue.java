@@ -0,0 +1,96 @@
+package com.linkshortener.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Ограниченная очередь для одного производителя и одного потребителя.
+ * Голова и хвост разнесены по разным кеш-линиям, а каждая сторона кеширует
+ * чужой индекс и перечитывает его только когда очередь кажется полной
+ * (или пустой), поэтому в установившемся режиме ядра почти не делят линии.
+ */
+public class SpscQueue<E> {
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(SpscQueue.class, "head", long.class);
+            TAIL = lookup.findVarHandle(SpscQueue.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] slots;
+    private final int mask;
+
+    // Поля одного размера HotSpot раскладывает в порядке объявления,
+    // поэтому 7 long-ов отделяют индексы производителя и потребителя на 64 байта.
+    // Поля производителя
+    long p01, p02, p03, p04, p05, p06, p07;
+    private volatile long tail;
+    private long cachedHead;
+
+    // Поля потребителя
+    long p11, p12, p13, p14, p15, p16, p17;
+    private volatile long head;
+    private long cachedTail;
+    long p21, p22, p23, p24, p25, p26, p27;
+
+    public SpscQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Емкость очереди должна быть положительной");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Object[Math.max(size, 2)];
+        this.mask = slots.length - 1;
+    }
+
+    /**
+     * Добавляет элемент. Вызывается только потоком-производителем.
+     * @return false, если очередь заполнена
+     */
+    public boolean offer(E element) {
+        long t = tail;
+        if (t - cachedHead >= slots.length) {
+            cachedHead = (long) HEAD.getAcquire(this);
+            if (t - cachedHead >= slots.length) {
+                return false;
+            }
+        }
+        SLOTS.setRelease(slots, (int) (t & mask), element);
+        TAIL.setRelease(this, t + 1);
+        return true;
+    }
+
+    /**
+     * Извлекает элемент. Вызывается только потоком-потребителем.
+     * @return элемент или null, если очередь пуста
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long h = head;
+        if (h >= cachedTail) {
+            cachedTail = (long) TAIL.getAcquire(this);
+            if (h >= cachedTail) {
+                return null;
+            }
+        }
+        int index = (int) (h & mask);
+        E element = (E) SLOTS.getAcquire(slots, index);
+        SLOTS.setRelease(slots, index, null);
+        HEAD.setRelease(this, h + 1);
+        return element;
+    }
+
+    public boolean isEmpty() {
+        return (long) HEAD.getAcquire(this) >= (long) TAIL.getAcquire(this);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
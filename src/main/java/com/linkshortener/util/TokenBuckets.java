@@ -0,0 +1,152 @@
+package com.linkshortener.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Набор ведер токенов с общими скоростью и емкостью, по ведру на ключ.
+ * Состояние ведра - один long: старшие 40 бит - время последнего пополнения
+ * в миллисекундах от создания набора, младшие 24 бита - токены в 1/64 долях.
+ * Проверка - чтение из карты и одна CAS-операция, без блокировок и аллокаций.
+ * Полное ведро ничем не отличается от отсутствующего, поэтому такие ведра
+ * удаляются из карты ({@link #evictIdle()}) и создаются заново при обращении.
+ */
+public class TokenBuckets<K> {
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long SCALE = 64;
+    // Ведро, удаленное из карты: обращавшийся к нему поток перечитывает карту
+    private static final long EVICTED = -1L;
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(Bucket.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long capacity;
+    private final long unitsPerSecond;
+    // Через столько миллисекунд пустое ведро наполняется целиком
+    private final long fillMillis;
+    private final long originNanos = System.nanoTime();
+    private final Map<K, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param perSecond скорость пополнения, токенов в секунду
+     * @param burst     емкость ведра (не больше 262143)
+     */
+    public TokenBuckets(int perSecond, int burst) {
+        if (perSecond <= 0 || burst <= 0 || burst * SCALE > TOKEN_MASK) {
+            throw new IllegalArgumentException("Некорректные параметры ведра: " + perSecond + "/с, емкость " + burst);
+        }
+        this.capacity = burst * SCALE;
+        this.unitsPerSecond = perSecond * SCALE;
+        this.fillMillis = (capacity * 1000 + unitsPerSecond - 1) / unitsPerSecond;
+    }
+
+    /**
+     * Списывает токен из ведра ключа.
+     * @return false, если ведро пусто
+     */
+    public boolean tryAcquire(K key) {
+        return tryAcquire(key, elapsedMillis());
+    }
+
+    /**
+     * То же с явным временем: миллисекунды от создания набора (для тестов).
+     */
+    public boolean tryAcquire(K key, long nowMillis) {
+        while (true) {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                // Новое ведро полное, первый токен списывается сразу
+                bucket = buckets.putIfAbsent(key, new Bucket(pack(nowMillis, capacity - SCALE)));
+                if (bucket == null) return true;
+            }
+            int result = tryTake(bucket, nowMillis);
+            if (result >= 0) return result == 1;
+        }
+    }
+
+    /**
+     * @return 1 - токен списан, 0 - ведро пусто, -1 - ведро удалено, нужно перечитать карту
+     */
+    private int tryTake(Bucket bucket, long nowMillis) {
+        while (true) {
+            long state = (long) STATE.getVolatile(bucket);
+            if (state == EVICTED) return -1;
+            long last = state >>> TOKEN_BITS;
+            long units = state & TOKEN_MASK;
+            long elapsed = nowMillis - last;
+            if (elapsed >= fillMillis) {
+                units = capacity;
+                last = nowMillis;
+            } else if (elapsed > 0) {
+                long refill = elapsed * unitsPerSecond / 1000;
+                if (refill > 0) {
+                    if (units + refill >= capacity) {
+                        units = capacity;
+                        last = nowMillis;
+                    } else {
+                        units += refill;
+                        // Время сдвигается ровно на пополненную часть, дробный остаток не теряется
+                        last += refill * 1000 / unitsPerSecond;
+                    }
+                }
+            }
+            if (units < SCALE) return 0;
+            if (STATE.compareAndSet(bucket, state, pack(last, units - SCALE))) return 1;
+        }
+    }
+
+    /**
+     * Удаляет ведра, успевшие наполниться целиком.
+     * @return сколько ведер удалено
+     */
+    public int evictIdle() {
+        long now = elapsedMillis();
+        int evicted = 0;
+        Iterator<Map.Entry<K, Bucket>> iterator = buckets.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Bucket bucket = iterator.next().getValue();
+            long state = (long) STATE.getVolatile(bucket);
+            long units = state & TOKEN_MASK;
+            long elapsed = now - (state >>> TOKEN_BITS);
+            boolean full = units == capacity || elapsed >= fillMillis
+                    || units + elapsed * unitsPerSecond / 1000 >= capacity;
+            // CAS на метку, чтобы параллельное списание не ушло в удаленное ведро
+            if (full && STATE.compareAndSet(bucket, state, EVICTED)) {
+                iterator.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - originNanos) / 1_000_000;
+    }
+
+    private static long pack(long millis, long units) {
+        return millis << TOKEN_BITS | units;
+    }
+
+    private static final class Bucket {
+        volatile long state;
+
+        Bucket(long state) {
+            this.state = state;
+        }
+    }
+}
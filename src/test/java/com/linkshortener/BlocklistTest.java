@@ -0,0 +1,101 @@
+package com.linkshortener;
+
+import com.linkshortener.config.AppConfig;
+import com.linkshortener.config.ConfigLoader;
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.RedirectResult;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.core.exception.BlockedUrlException;
+import com.linkshortener.core.service.BlocklistService;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.metrics.LinkMetrics;
+import com.linkshortener.storage.LinkStorage;
+import com.linkshortener.util.DomainBlocklist;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlocklistTest {
+
+    @AfterEach
+    void tearDown() {
+        AppConfig.getInstance().reload(ConfigLoader.loadProperties());
+    }
+
+    @Test
+    void testMatchesHostAndParentDomains() {
+        DomainBlocklist list = DomainBlocklist.of("bad.example", "*.evil.org", "Tracker.NET.");
+
+        assertTrue(list.isBlockedHost("bad.example"));
+        assertTrue(list.isBlockedHost("cdn.img.BAD.example"));
+        assertTrue(list.isBlockedHost("evil.org"));
+        assertTrue(list.isBlockedHost("tracker.net."));
+        assertFalse(list.isBlockedHost("notbad.example"));
+        assertFalse(list.isBlockedHost("example"));
+        assertFalse(list.isBlockedHost("bad.example.com"));
+
+        assertTrue(list.isBlockedUrl("https://user:pw@www.bad.example:8443/path?q=good.com#x"));
+        assertTrue(list.isBlockedUrl("http://evil.org"));
+        assertFalse(list.isBlockedUrl("https://good.com/?next=https://bad.example"));
+        assertFalse(list.isBlockedUrl("https://good.com@"));
+        assertEquals(3, list.size());
+    }
+
+    @Test
+    void testReloadSwapsListWhenFileChanges(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("blocklist.txt");
+        Files.writeString(file, "# hosts-формат тоже подходит\n0.0.0.0 bad.example\nphish.test  # комментарий\n\n");
+        BlocklistService service = new BlocklistService();
+
+        assertTrue(service.reloadIfChanged(file.toString()));
+        assertFalse(service.reloadIfChanged(file.toString()));
+        assertEquals(2, service.size());
+        assertTrue(service.isBlocked("https://login.phish.test/"));
+
+        Files.writeString(file, "other.test\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        assertTrue(service.reloadIfChanged(file.toString()));
+        assertFalse(service.isBlocked("https://login.phish.test/"));
+        assertTrue(service.isBlocked("https://other.test/"));
+
+        // Пустой путь выключает список
+        assertTrue(service.reloadIfChanged(""));
+        assertEquals(0, service.size());
+    }
+
+    @Test
+    void testCreateAndRedirectChecks() throws Exception {
+        LinkService linkService = new LinkService(new LinkStorage(2), code -> true, new LinkMetrics(),
+                new HotLinkTracker(16, 60_000));
+        BlocklistService blocklist = new BlocklistService();
+        linkService.setBlocklist(blocklist);
+        UUID user = UUID.randomUUID();
+
+        ShortLink link = linkService.createShortLink("https://shop.later-bad.test/item", user, null);
+        blocklist.replace(DomainBlocklist.of("bad.example", "later-bad.test"));
+        BlockedUrlException blocked = assertThrows(BlockedUrlException.class,
+                () -> linkService.createShortLink("https://www.bad.example/", user, null));
+        assertTrue(blocked.getMessage().contains("bad.example"));
+
+        // Проверка при переходе выключена по умолчанию
+        RedirectResult result = new RedirectResult();
+        assertEquals(RedirectOutcome.OK, linkService.resolve(link.getShortCode(), null, result).getOutcome());
+
+        Properties properties = ConfigLoader.loadProperties();
+        properties.setProperty("blocklist.check.redirect", "true");
+        assertTrue(AppConfig.getInstance().reload(properties));
+        assertEquals(RedirectOutcome.BLOCKED, linkService.resolve(link.getShortCode(), null, result).getOutcome());
+        // Консоль получает то же, что HTTP (403): не "не найдена", а блокировку
+        assertThrows(BlockedUrlException.class, () -> linkService.getOriginalUrl(link.getShortCode()));
+        assertEquals(1, link.getClicksCount());
+    }
+}
@@ -0,0 +1,156 @@
+package com.linkshortener;
+
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.analytics.ClickStats;
+import com.linkshortener.core.analytics.ClickTimeSeries;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.core.analytics.UniqueVisitorSketch;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.storage.LinkStorage;
+import com.linkshortener.util.Hashing;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickAnalyticsTest {
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    @AfterEach
+    void tearDown() {
+        LinkStorage.getInstance().clear();
+    }
+
+    @Test
+    void testBucketsRollOver() {
+        ClickTimeSeries series = new ClickTimeSeries();
+        long start = 1000 * DAY;
+
+        series.record(start);
+        series.record(start + 10);
+        series.record(start + MINUTE);
+        series.record(start + 2 * HOUR);
+
+        ClickStats stats = series.snapshot(start + 2 * HOUR);
+        assertEquals(1, stats.getLastMinute());
+        // Минутные корзины первого часа уже вытеснены
+        assertEquals(1, stats.getLastHour());
+        assertEquals(4, stats.getLastDay());
+        assertEquals(4, stats.getLast30Days());
+
+        // Через 31 день от всех переходов ничего не остается
+        assertEquals(0, series.snapshot(start + 31 * DAY).getLast30Days());
+    }
+
+    @Test
+    void testSlotReuseResetsCounter() {
+        ClickTimeSeries series = new ClickTimeSeries();
+        long start = 1000 * DAY;
+
+        series.record(start);
+        series.record(start + HOUR); // та же минутная ячейка, новый период
+
+        long[] minutes = series.snapshot(start + HOUR).getPerMinute();
+        assertEquals(1, minutes[minutes.length - 1]);
+    }
+
+    @Test
+    void testRedirectsFeedAnalytics() throws Exception {
+        LinkService linkService = LinkService.getInstance();
+        UUID owner = UUID.randomUUID();
+        ShortLink link = linkService.createShortLink("https://example.com", owner, 10);
+
+        assertEquals(0, linkService.getClickAnalytics(link.getShortCode(), owner).getLastHour());
+
+        linkService.getOriginalUrl(link.getShortCode());
+        linkService.getOriginalUrl(link.getShortCode());
+
+        ClickStats stats = linkService.getClickAnalytics(link.getShortCode(), owner);
+        assertEquals(2, stats.getLastHour());
+        assertEquals(2, stats.getLastDay());
+    }
+
+    @Test
+    void testHotLinksTopK() {
+        HotLinkTracker tracker = new HotLinkTracker(3, 60_000);
+        long now = 1000 * DAY;
+
+        // Один горячий код, два теплых и много холодных
+        for (int i = 0; i < 1000; i++) tracker.record("HOT", now);
+        for (int i = 0; i < 300; i++) tracker.record("WARM1", now);
+        for (int i = 0; i < 200; i++) tracker.record("WARM2", now);
+        for (int i = 0; i < 5000; i++) tracker.record("cold" + i, now);
+
+        List<HotLinkTracker.HotLink> top = tracker.getTopK();
+        assertEquals(3, top.size());
+        assertEquals("HOT", top.get(0).getCode());
+        assertEquals("WARM1", top.get(1).getCode());
+        assertEquals("WARM2", top.get(2).getCode());
+        assertTrue(top.get(0).getEstimate() >= 1000);
+        assertTrue(tracker.isHot("HOT"));
+    }
+
+    @Test
+    void testHotLinksWindowSlides() {
+        HotLinkTracker tracker = new HotLinkTracker(3, 60_000);
+        long now = 1000 * DAY;
+
+        for (int i = 0; i < 100; i++) tracker.record("OLD", now);
+        tracker.record("NEW", now + 2 * MINUTE);
+
+        List<HotLinkTracker.HotLink> top = tracker.getTopK();
+        assertEquals(1, top.size());
+        assertEquals("NEW", top.get(0).getCode());
+        assertEquals(0, tracker.estimate("OLD"));
+    }
+
+    @Test
+    void testUniqueVisitorEstimate() {
+        UniqueVisitorSketch sketch = new UniqueVisitorSketch();
+        for (int i = 0; i < 50; i++) {
+            sketch.add(Hashing.hash64("client-" + i));
+        }
+        // Разреженный режим: почти точный подсчет
+        assertEquals(50, sketch.estimate(), 2);
+
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add(Hashing.hash64("client-" + i));
+        }
+        assertEquals(100_000, sketch.estimate(), 100_000 * 0.1);
+        assertEquals(1024, sketch.memoryBytes());
+    }
+
+    @Test
+    void testUniqueVisitorMergeAcrossNodes() {
+        UniqueVisitorSketch nodeA = new UniqueVisitorSketch();
+        UniqueVisitorSketch nodeB = new UniqueVisitorSketch();
+        for (int i = 0; i < 20_000; i++) {
+            nodeA.add(Hashing.hash64("client-" + i));
+            nodeB.add(Hashing.hash64("client-" + (i + 10_000)));
+        }
+
+        nodeA.merge(UniqueVisitorSketch.fromBytes(nodeB.toBytes()));
+
+        assertEquals(30_000, nodeA.estimate(), 30_000 * 0.1);
+    }
+
+    @Test
+    void testOneBotManyClicksIsOneVisitor() throws Exception {
+        LinkService linkService = LinkService.getInstance();
+        UUID owner = UUID.randomUUID();
+        ShortLink link = linkService.createShortLink("https://example.com", owner, 100);
+
+        for (int i = 0; i < 20; i++) {
+            linkService.getOriginalUrl(link.getShortCode(), "bot");
+        }
+        linkService.getOriginalUrl(link.getShortCode(), "human");
+
+        ShortLink info = linkService.getLinkInfo(link.getShortCode(), owner);
+        assertEquals(21, info.getClicksCount());
+        assertEquals(2, info.getUniqueVisitors());
+    }
+}
@@ -0,0 +1,129 @@
+package com.linkshortener;
+
+import com.linkshortener.clicklog.ClickLogReader;
+import com.linkshortener.clicklog.ClickLogWriter;
+import com.linkshortener.clicklog.ClickRecord;
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.RedirectResult;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.core.event.BackPressure;
+import com.linkshortener.core.event.LinkEventBus;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.metrics.LinkMetrics;
+import com.linkshortener.storage.LinkStorage;
+import com.linkshortener.util.Hashing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickLogTest {
+    private static final long SEGMENT_OF_TEN = ClickLogWriter.HEADER_SIZE + 10L * ClickLogWriter.RECORD_SIZE;
+
+    @Test
+    void testRollsBySizeAndKeepsNewestSegments(@TempDir Path dir) throws Exception {
+        ClickLogWriter writer = new ClickLogWriter(dir, SEGMENT_OF_TEN, 3_600_000, 3, 0);
+        for (int i = 0; i < 45; i++) {
+            writer.append("code" + i, 1_000 + i, RedirectOutcome.OK.ordinal(), i);
+        }
+
+        // Текущий сегмент читается до первой пустой записи
+        List<ClickRecord> records = new ArrayList<>();
+        assertEquals(25, ClickLogReader.read(dir, 0, Long.MAX_VALUE, records::add));
+        assertEquals("code20", records.get(0).getCode());
+        assertEquals(44, records.get(24).getClientHash());
+
+        writer.close();
+        List<Path> segments = ClickLogWriter.segments(dir);
+        assertEquals(5, writer.getSegmentsCreated());
+        assertEquals(3, segments.size());
+        assertEquals(ClickLogWriter.HEADER_SIZE + 5L * ClickLogWriter.RECORD_SIZE,
+                Files.size(segments.get(2)));
+        assertEquals(10, ClickLogReader.read(dir, 1_030, 1_040, record -> { }));
+    }
+
+    @Test
+    void testRollsByTimeAndContinuesNumbering(@TempDir Path dir) throws Exception {
+        ClickLogWriter first = new ClickLogWriter(dir, 1 << 20, 1_000, 0, 0);
+        first.append("a", 10_000, RedirectOutcome.OK.ordinal(), 0);
+        first.append("b", 10_999, RedirectOutcome.EXPIRED.ordinal(), 0);
+        first.append("c", 11_000, RedirectOutcome.OK.ordinal(), 0);
+        first.close();
+        assertEquals(2, ClickLogWriter.segments(dir).size());
+
+        // Новый запуск не дописывает старые сегменты, а открывает следующий
+        ClickLogWriter second = new ClickLogWriter(dir, 1 << 20, 1_000, 0, 0);
+        second.append("a-very-long-code-truncated", 12_000, RedirectOutcome.BLOCKED.ordinal(), 7);
+        second.close();
+        List<Path> segments = ClickLogWriter.segments(dir);
+        assertEquals("clicks-00000003.log", segments.get(2).getFileName().toString());
+
+        List<ClickRecord> records = new ArrayList<>();
+        ClickLogReader.read(dir, 0, Long.MAX_VALUE, records::add);
+        assertEquals(4, records.size());
+        assertEquals(RedirectOutcome.EXPIRED, records.get(1).getOutcome());
+        assertEquals("a-very-long-code", records.get(3).getCode());
+        assertEquals(RedirectOutcome.BLOCKED, records.get(3).getOutcome());
+    }
+
+    @Test
+    void testFailedRollBacksOffAndKeepsNumbering(@TempDir Path dir) throws Exception {
+        Path logDir = dir.resolve("log");
+        ClickLogWriter writer = new ClickLogWriter(logDir, SEGMENT_OF_TEN, 3_600_000, 0, 0);
+        // Каталог подменен файлом: сегмент не открыть
+        Files.delete(logDir);
+        Files.createFile(logDir);
+        assertThrows(IOException.class, () -> writer.append("a", 1_000, RedirectOutcome.OK.ordinal(), 0));
+        // До конца паузы новых попыток нет, записи отбрасываются без ошибок
+        writer.append("b", 1_001, RedirectOutcome.OK.ordinal(), 0);
+        assertEquals(1, writer.getRecordsDropped());
+        assertEquals(0, writer.getSegmentsCreated());
+
+        Files.delete(logDir);
+        Files.createDirectory(logDir);
+        Thread.sleep(1_100);
+        writer.append("c", 1_002, RedirectOutcome.OK.ordinal(), 0);
+        writer.close();
+        assertEquals("clicks-00000001.log", ClickLogWriter.segments(logDir).get(0).getFileName().toString());
+        assertEquals(1, ClickLogReader.read(logDir, 0, Long.MAX_VALUE, record -> { }));
+    }
+
+    @Test
+    void testRecordsRedirectsFromEventBus(@TempDir Path dir) throws Exception {
+        LinkService service = new LinkService(new LinkStorage(2), code -> true, new LinkMetrics(),
+                new HotLinkTracker(16, 60_000));
+        ClickLogWriter writer = new ClickLogWriter(dir, 1 << 20, 3_600_000, 0, 0);
+        LinkEventBus.Subscription subscription = service.getEventBus().subscribe("clicklog", BackPressure.BLOCK, writer);
+        ShortLink link = service.createShortLink("https://example.com/billing", UUID.randomUUID(), 2);
+
+        RedirectResult result = new RedirectResult();
+        for (int i = 0; i < 3; i++) {
+            service.resolve(link.getShortCode(), "client", result);
+        }
+        service.resolve("nope", null, result);
+        // Переход, пересланный репликой, тоже попадает в журнал
+        service.recordReplicaClick(link.getShortCode(), 42);
+        assertTrue(subscription.drain(10_000));
+        subscription.close();
+        writer.close();
+
+        List<ClickRecord> records = new ArrayList<>();
+        ClickLogReader.read(dir, 0, Long.MAX_VALUE, records::add);
+        assertEquals(5, records.size());
+        assertEquals(link.getShortCode(), records.get(0).getCode());
+        assertEquals(Hashing.hash64("client"), records.get(0).getClientHash());
+        assertEquals(RedirectOutcome.LIMIT_EXCEEDED, records.get(2).getOutcome());
+        assertEquals(RedirectOutcome.NOT_FOUND, records.get(3).getOutcome());
+        assertEquals(0, records.get(3).getClientHash());
+        assertEquals(RedirectOutcome.LIMIT_EXCEEDED, records.get(4).getOutcome());
+        assertEquals(42, records.get(4).getClientHash());
+    }
+}
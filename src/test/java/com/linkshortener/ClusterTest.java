@@ -0,0 +1,140 @@
+package com.linkshortener;
+
+import com.linkshortener.cluster.ClusterNode;
+import com.linkshortener.cluster.ConsistentHashRing;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.exception.LimitExceededException;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterTest {
+    private final List<ClusterNode> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ClusterNode::close);
+    }
+
+    private ClusterNode startNode(String id) throws Exception {
+        ClusterNode node = new ClusterNode(id);
+        node.start();
+        if (!nodes.isEmpty()) {
+            node.join(nodes.get(0).getAddress());
+        }
+        nodes.add(node);
+        return node;
+    }
+
+    @Test
+    void testNodesOwnDisjointRangesAndForward() throws Exception {
+        startNode("node-a");
+        startNode("node-b");
+        startNode("node-c");
+        UUID owner = UUID.randomUUID();
+
+        List<ShortLink> links = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            ClusterNode entry = nodes.get(i % nodes.size());
+            links.add(entry.createShortLink("https://cluster.example/" + i, owner, 100));
+        }
+
+        // Каждый код лежит ровно на своем владельце
+        ConsistentHashRing ring = nodes.get(0).getRing();
+        int total = 0;
+        for (ClusterNode node : nodes) {
+            assertTrue(node.getLocalLinkCount() > 0, "узел без ссылок: " + node.getNodeId());
+            for (ShortLink link : node.getLocalLinks()) {
+                assertEquals(node.getNodeId(), ring.ownerOf(link.getShortCode()));
+            }
+            total += node.getLocalLinkCount();
+        }
+        assertEquals(300, total);
+
+        // Переход через любой узел, дедупликация через любой узел
+        for (int i = 0; i < links.size(); i++) {
+            ShortLink link = links.get(i);
+            assertEquals(link.getOriginalUrl(), nodes.get((i + 1) % 3).getOriginalUrl(link.getShortCode()));
+        }
+        assertEquals(links.get(5).getShortCode(),
+                nodes.get(2).createShortLink("https://cluster.example/5", owner, 100).getShortCode());
+        assertTrue(nodes.get(1).deleteLink(links.get(7).getShortCode(), owner));
+        assertEquals(299, nodes.stream().mapToInt(ClusterNode::getLocalLinkCount).sum());
+    }
+
+    @Test
+    void testRebalanceOnJoinAndLeave() throws Exception {
+        startNode("node-a");
+        startNode("node-b");
+        UUID owner = UUID.randomUUID();
+
+        List<ShortLink> links = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            links.add(nodes.get(0).createShortLink("https://rebalance.example/" + i, owner, 2));
+        }
+        nodes.get(0).getOriginalUrl(links.get(0).getShortCode());
+
+        ClusterNode joined = startNode("node-c");
+        assertTrue(joined.getLocalLinkCount() > 0);
+        assertEquals(200, nodes.stream().mapToInt(ClusterNode::getLocalLinkCount).sum());
+
+        ClusterNode leaving = nodes.get(1);
+        leaving.leave();
+        nodes.remove(leaving);
+        assertEquals(0, leaving.getLocalLinkCount());
+        assertEquals(200, nodes.stream().mapToInt(ClusterNode::getLocalLinkCount).sum());
+
+        for (ShortLink link : links) {
+            assertEquals(link.getOriginalUrl(), joined.getOriginalUrl(link.getShortCode()));
+        }
+        // Счетчик кликов переехал вместе со ссылкой: лимит 2 уже исчерпан
+        assertThrows(LimitExceededException.class,
+                () -> nodes.get(0).getOriginalUrl(links.get(0).getShortCode()));
+    }
+
+    @Test
+    void testDirectoryForgetsDeletedLinks() throws Exception {
+        startNode("node-a");
+        startNode("node-b");
+        startNode("node-c");
+        UUID owner = UUID.randomUUID();
+
+        List<ShortLink> links = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            links.add(nodes.get(i % nodes.size()).createShortLink("https://directory.example/" + i, owner, 10));
+        }
+        assertEquals(60, nodes.stream().mapToInt(ClusterNode::getDirectorySize).sum());
+
+        // Записи каталога убираются, даже если ключом владеет не узел ссылки
+        for (ShortLink link : links) {
+            assertTrue(nodes.get(0).deleteLink(link.getShortCode(), owner));
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (nodes.stream().mapToInt(ClusterNode::getDirectorySize).sum() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "каталог не очистился за 5 секунд");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testDeduplicationSurvivesRebalance() throws Exception {
+        startNode("node-a");
+        UUID owner = UUID.randomUUID();
+
+        List<ShortLink> links = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            links.add(nodes.get(0).createShortLink("https://dedup.example/" + i, owner, 10));
+        }
+        startNode("node-b");
+        startNode("node-c");
+
+        // Ключ и код могли уйти к разным узлам, но повторное создание находит прежний код
+        for (int i = 0; i < links.size(); i++) {
+            ShortLink again = nodes.get(i % nodes.size()).createShortLink("https://dedup.example/" + i, owner, 10);
+            assertEquals(links.get(i).getShortCode(), again.getShortCode());
+        }
+        assertEquals(100, nodes.stream().mapToInt(ClusterNode::getLocalLinkCount).sum());
+    }
+}
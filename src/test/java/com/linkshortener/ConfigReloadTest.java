@@ -0,0 +1,92 @@
+package com.linkshortener;
+
+import com.linkshortener.config.AppConfig;
+import com.linkshortener.config.ConfigListener;
+import com.linkshortener.config.ConfigLoader;
+import com.linkshortener.config.ConfigSnapshot;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.storage.LinkStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigReloadTest {
+    private final AppConfig config = AppConfig.getInstance();
+
+    @AfterEach
+    void restore() {
+        config.reload(ConfigLoader.loadProperties());
+    }
+
+    private static Properties current() {
+        return ConfigLoader.loadProperties();
+    }
+
+    @Test
+    void testValidChangeIsPublishedAndNotified() {
+        List<ConfigSnapshot> seen = new ArrayList<>();
+        ConfigListener listener = (previous, next) -> seen.add(next);
+        config.addListener(listener);
+        try {
+            ConfigSnapshot before = config.snapshot();
+            Properties properties = current();
+            properties.setProperty("default.click.limit", "77");
+            properties.setProperty("cleanup.interval.minutes", "5");
+
+            assertTrue(config.reload(properties));
+            assertEquals(77, config.getDefaultClickLimit());
+            assertEquals(5, config.getCleanupIntervalMinutes());
+            // Старый снимок неизменяем
+            assertNotEquals(77, before.getDefaultClickLimit());
+            assertEquals(List.of(config.snapshot()), seen);
+        } finally {
+            config.removeListener(listener);
+        }
+    }
+
+    @Test
+    void testInvalidChangesAreRejected() {
+        ConfigSnapshot before = config.snapshot();
+
+        Properties garbage = current();
+        garbage.setProperty("default.click.limit", "много");
+        assertFalse(config.reload(garbage));
+
+        Properties outOfRange = current();
+        outOfRange.setProperty("shortlink.code.length", "2");
+        assertFalse(config.reload(outOfRange));
+
+        // Число шардов меняется только перезапуском
+        Properties restart = current();
+        restart.setProperty("storage.shards", String.valueOf(config.getStorageShards() * 2));
+        assertFalse(config.reload(restart));
+
+        assertSame(before, config.snapshot());
+    }
+
+    @Test
+    void testRateLimiterFollowsConfig() {
+        LinkService service = new LinkService(new LinkStorage(2), code -> true);
+        ConfigListener listener = service::onConfigChanged;
+        config.addListener(listener);
+        try {
+            Properties properties = current();
+            properties.setProperty("ratelimit.enabled", "true");
+            properties.setProperty("ratelimit.create.per.second", "1");
+            properties.setProperty("ratelimit.create.burst", "1");
+            assertTrue(config.reload(properties));
+            assertNotNull(service.getRateLimiter());
+
+            properties.setProperty("ratelimit.enabled", "false");
+            assertTrue(config.reload(properties));
+            assertNull(service.getRateLimiter());
+        } finally {
+            config.removeListener(listener);
+        }
+    }
+}
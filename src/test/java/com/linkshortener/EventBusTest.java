@@ -0,0 +1,129 @@
+package com.linkshortener;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.RedirectResult;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.core.event.BackPressure;
+import com.linkshortener.core.event.LinkEventBus;
+import com.linkshortener.core.event.LinkEventType;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.metrics.LinkMetrics;
+import com.linkshortener.storage.LinkStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventBusTest {
+
+    @Test
+    void testBlockingConsumerSeesEveryEventInProducerOrder() throws Exception {
+        LinkEventBus bus = new LinkEventBus(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        long[] lastSeen = new long[producers];
+        long[] received = new long[1];
+        boolean[] ordered = {true};
+        LinkEventBus.Subscription subscription = bus.subscribe("test", BackPressure.BLOCK, (event, sequence, end) -> {
+            int producer = (int) (event.getValue() >>> 32);
+            long counter = event.getValue() & 0xFFFFFFFFL;
+            if (counter != lastSeen[producer] + 1) {
+                ordered[0] = false;
+            }
+            lastSeen[producer] = counter;
+            received[0]++;
+        });
+
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            threads[p] = new Thread(() -> {
+                for (long i = 1; i <= perProducer; i++) {
+                    bus.publish(LinkEventType.CLICKED, "code", null, RedirectOutcome.OK, producer << 32 | i, 0);
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        await(() -> subscription.getProcessed() == (long) producers * perProducer);
+        subscription.close();
+
+        assertTrue(ordered[0], "события одного издателя пришли не по порядку");
+        assertEquals((long) producers * perProducer, received[0]);
+        assertEquals(0, subscription.getDropped());
+        assertEquals(0, subscription.getLag());
+        assertEquals(64, bus.capacity());
+    }
+
+    @Test
+    void testDropConsumerDoesNotHoldBackPublishers() throws Exception {
+        LinkEventBus bus = new LinkEventBus(16);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> values = new CopyOnWriteArrayList<>();
+        LinkEventBus.Subscription slow = bus.subscribe("slow", BackPressure.DROP, (event, sequence, end) -> {
+            values.add(event.getValue());
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Потребитель занят первым событием, а издатель уходит на несколько кругов вперед
+        bus.publish(LinkEventType.CREATED, "c", null, null, 0, 0);
+        await(() -> values.size() == 1);
+        for (long i = 1; i <= 100; i++) {
+            bus.publish(LinkEventType.CREATED, "c", null, null, i, 0);
+        }
+        assertEquals(101, slow.getLag());
+        release.countDown();
+        await(() -> slow.getLag() == 0);
+        slow.close();
+
+        assertTrue(slow.getDropped() > 0);
+        assertEquals(101, slow.getProcessed() + slow.getDropped());
+        // После пропуска потребитель читает хвост, который еще в кольце
+        assertEquals(100L, values.get(values.size() - 1));
+        assertEquals(0, bus.getProducerWaits());
+    }
+
+    @Test
+    void testLinkServicePublishesLifecycle() throws Exception {
+        LinkService service = new LinkService(new LinkStorage(2), code -> true, new LinkMetrics(),
+                new HotLinkTracker(16, 60_000));
+        List<String> events = new CopyOnWriteArrayList<>();
+        LinkEventBus.Subscription subscription = service.getEventBus().subscribe("test", BackPressure.BLOCK,
+                (event, sequence, end) -> events.add(event.getType() + ":"
+                        + (event.getOutcome() != null ? event.getOutcome() : event.getValue())));
+        UUID owner = UUID.randomUUID();
+
+        ShortLink link = service.createShortLink("https://example.com/events", owner, 1);
+        RedirectResult result = new RedirectResult();
+        service.resolve(link.getShortCode(), "client", result);
+        service.resolve(link.getShortCode(), "client", result);
+        service.resolve("missing", null, result);
+        service.updateClickLimit(link.getShortCode(), owner, 5);
+        service.deleteLink(link.getShortCode(), owner);
+
+        await(() -> events.size() == 7);
+        subscription.close();
+        assertEquals(List.of("CREATED:0", "CLICKED:OK", "LIMIT_REACHED:1", "CLICKED:LIMIT_EXCEEDED",
+                "CLICKED:NOT_FOUND", "LIMIT_CHANGED:5", "DELETED:0"), events);
+    }
+
+    private static void await(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "условие не выполнилось за 10 с");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.linkshortener;
 
 import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.User;
 import com.linkshortener.core.exception.*;
 import com.linkshortener.core.service.LinkService;
 import com.linkshortener.core.service.UserService;
@@ -8,8 +9,11 @@ import com.linkshortener.storage.LinkStorage;
 import com.linkshortener.storage.UserStorage;
 import org.junit.jupiter.api.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -184,4 +188,87 @@ class IntegrationTest {
         assertTrue(finalLink.getClicksCount() >= 50); // Минимум 50 кликов
         assertTrue(finalLink.getClicksCount() <= 100); // Но не больше лимита
     }
+
+    @Test
+    void testIdleUsersWithoutLinksAreEvicted() throws Exception {
+        User withLinks = userService.getOrCreateUser("session-links");
+        User idle = userService.getOrCreateUser("session-idle");
+        // Повторный вход в ту же сессию дает того же пользователя
+        assertSame(idle, userService.getOrCreateUser("session-idle"));
+        linkService.createShortLink("https://kept.example", withLinks.getId(), 5);
+
+        long later = System.currentTimeMillis() + 120_000;
+        assertEquals(0, userStorage.evictIdle(600_000, later, linkStorage::hasUserLinks));
+        assertEquals(1, userStorage.evictIdle(60_000, later, linkStorage::hasUserLinks));
+
+        assertTrue(userStorage.findById(idle.getId()).isEmpty());
+        assertTrue(userStorage.findBySession("session-idle").isEmpty());
+        assertSame(withLinks, userStorage.findBySession("session-links").orElseThrow());
+
+        // Сессия вытесненного пользователя получает нового
+        User fresh = userService.getOrCreateUser("session-idle");
+        assertNotEquals(idle.getId(), fresh.getId());
+        assertEquals(2, userStorage.size());
+    }
+
+    @Test
+    void testDeleteUserRemovesLinksInBulk() throws Exception {
+        User owner = userService.getOrCreateUser("session-delete");
+        ShortLink link = linkService.createShortLink("https://bulk.example", owner.getId(), 5);
+        ShortLink other = linkService.createShortLink("https://bulk.example", user2, 5);
+        for (int i = 0; i < 100_000; i++) {
+            linkStorage.save(new ShortLink("https://bulk.example/" + i, "bulk" + i, owner.getId(), 5, 24));
+        }
+
+        long start = System.nanoTime();
+        assertTrue(userService.deleteUser(owner.getId()));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis < 2_000, "удаление заняло " + elapsedMillis + " мс");
+
+        assertTrue(link.isDeleted());
+        assertThrows(LinkNotFoundException.class, () -> linkService.getOriginalUrl(link.getShortCode()));
+        assertNull(linkStorage.getByCode("bulk500"));
+        assertFalse(linkStorage.hasUserLinks(owner.getId()));
+        assertTrue(userStorage.findBySession("session-delete").isEmpty());
+        // Чужие ссылки на тот же URL не затронуты, запись дедупликации владельца снята
+        assertEquals("https://bulk.example", linkService.getOriginalUrl(other.getShortCode()));
+        assertNotEquals(link.getShortCode(),
+                linkService.createShortLink("https://bulk.example", owner.getId(), 5).getShortCode());
+    }
+
+    @Test
+    void testCreatesRacingUserDeletionDoNotSurvive() throws Exception {
+        User owner = userService.getOrCreateUser("session-race");
+        for (int i = 0; i < 20_000; i++) {
+            linkStorage.save(new ShortLink("https://race.example/old/" + i, "race" + i, owner.getId(), 5, 24));
+        }
+
+        List<ShortLink> created = new CopyOnWriteArrayList<>();
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread creator = new Thread(() -> {
+            for (int i = 0; !stop.get(); i++) {
+                try {
+                    created.add(linkService.createShortLink("https://race.example/new/" + i, owner.getId(), 5));
+                } catch (SecurityException | RateLimitExceededException e) {
+                    // Пользователь удаляется или создание притормозил ограничитель
+                } catch (InvalidUrlException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        creator.start();
+        Thread.sleep(20);
+        LocalDateTime deletionStarted = LocalDateTime.now();
+        assertTrue(userService.deleteUser(owner.getId()));
+        stop.set(true);
+        creator.join();
+
+        // Ссылка, собранная до начала удаления, не переживает его, даже если сохранялась во время прохода
+        for (ShortLink link : created) {
+            if (link.getCreatedAt().isBefore(deletionStarted)) {
+                assertNull(linkStorage.getByCode(link.getShortCode()), link.getShortCode());
+            }
+        }
+        assertNull(linkStorage.getByCode("race0"));
+    }
 }
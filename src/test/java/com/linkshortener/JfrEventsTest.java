@@ -0,0 +1,57 @@
+package com.linkshortener;
+
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.metrics.events.CreateLinkEvent;
+import com.linkshortener.metrics.events.RedirectEvent;
+import com.linkshortener.storage.LinkStorage;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    @AfterEach
+    void tearDown() {
+        LinkStorage.getInstance().clear();
+    }
+
+    @Test
+    void testRedirectAndCreateEventsAreRecorded(@TempDir Path dir) throws Exception {
+        LinkService linkService = LinkService.getInstance();
+        Path file = dir.resolve("test.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(RedirectEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(CreateLinkEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+
+            ShortLink link = linkService.createShortLink("https://example.com", UUID.randomUUID(), 5);
+            linkService.getOriginalUrl(link.getShortCode());
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent redirect = events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.linkshortener.Redirect"))
+            .findFirst().orElseThrow();
+        assertEquals("ok", redirect.getString("outcome"));
+
+        RecordedEvent create = events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.linkshortener.CreateLink"))
+            .findFirst().orElseThrow();
+        assertFalse(create.getBoolean("dedupHit"));
+        assertTrue(create.getInt("generatorAttempts") >= 1);
+    }
+}
@@ -0,0 +1,90 @@
+package com.linkshortener;
+
+import com.linkshortener.loadtest.ZipfDistribution;
+import com.linkshortener.util.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.recordValue(value * 1000);
+        }
+
+        assertEquals(100_000, histogram.getTotalCount());
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 * 0.01);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 * 0.01);
+        assertEquals(100_000_000, histogram.getMax());
+    }
+
+    @Test
+    void testCoordinatedOmissionCorrection() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // Одна "зависшая" операция на 100 мс при ожидаемом интервале 10 мс
+        histogram.recordValueWithExpectedInterval(100_000_000, 10_000_000);
+
+        // Исходный замер плюс 9 синтетических: 90, 80, ..., 10 мс
+        assertEquals(10, histogram.getTotalCount());
+        assertEquals(100_000_000, histogram.getMax());
+    }
+
+    @Test
+    void testConcurrentRecordingIsExact() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long base = (t + 1) * 1_000L;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.recordValue(base);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Полосы разных потоков складываются при чтении
+        assertEquals(200_000, histogram.getTotalCount());
+        assertEquals(50_000L * (1_000 + 2_000 + 3_000 + 4_000), histogram.getTotalSum());
+        assertEquals(4_000, histogram.getMax());
+        assertEquals(1_000, histogram.getValueAtPercentile(25), 1_000 * 0.01);
+    }
+
+    @Test
+    void testMerge() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.recordValue(10);
+        second.recordValue(5_000);
+
+        first.add(second);
+
+        assertEquals(2, first.getTotalCount());
+        assertEquals(5_000, first.getMax());
+    }
+
+    @Test
+    void testZipfIsReproducibleAndSkewed() {
+        ZipfDistribution zipf = new ZipfDistribution(1000, 1.0);
+        SplittableRandom first = new SplittableRandom(7);
+        SplittableRandom second = new SplittableRandom(7);
+
+        int topRankHits = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int rank = zipf.sample(first);
+            assertEquals(rank, zipf.sample(second));
+            if (rank == 0) topRankHits++;
+        }
+
+        // Для s=1 и n=1000 доля первого ранга около 13%
+        assertTrue(topRankHits > 1000);
+    }
+}
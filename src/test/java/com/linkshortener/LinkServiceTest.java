@@ -1,11 +1,21 @@
 package com.linkshortener;
 
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.RedirectResult;
+import com.linkshortener.core.ResolvedLink;
 import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.analytics.HotLinkTracker;
 import com.linkshortener.core.exception.*;
+import com.linkshortener.core.generator.ShortCodeGenerator;
 import com.linkshortener.core.service.LinkService;
+import com.linkshortener.core.service.Warmup;
+import com.linkshortener.metrics.LinkMetrics;
 import com.linkshortener.storage.LinkStorage;
 import org.junit.jupiter.api.*;
 
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -148,4 +158,176 @@ class LinkServiceTest {
         boolean deleted = linkService.deleteLink(shortCode, otherUserId);
         assertFalse(deleted);
     }
+
+    @Test
+    void testRedirectMetricsByOutcome() throws Exception {
+        LinkMetrics metrics = LinkMetrics.getInstance();
+        long okBefore = metrics.getRedirects(RedirectOutcome.OK);
+        long notFoundBefore = metrics.getRedirects(RedirectOutcome.NOT_FOUND);
+        long limitBefore = metrics.getRedirects(RedirectOutcome.LIMIT_EXCEEDED);
+
+        ShortLink link = linkService.createShortLink("https://example.com", testUserId, 1);
+        linkService.getOriginalUrl(link.getShortCode());
+        assertThrows(LimitExceededException.class,
+            () -> linkService.getOriginalUrl(link.getShortCode()));
+        assertThrows(LinkNotFoundException.class,
+            () -> linkService.getOriginalUrl("NONEXISTENT"));
+
+        assertEquals(okBefore + 1, metrics.getRedirects(RedirectOutcome.OK));
+        assertEquals(limitBefore + 1, metrics.getRedirects(RedirectOutcome.LIMIT_EXCEEDED));
+        assertEquals(notFoundBefore + 1, metrics.getRedirects(RedirectOutcome.NOT_FOUND));
+    }
+
+    @Test
+    void testParallelSweepAcrossShards() {
+        UUID otherUserId = UUID.randomUUID();
+        for (int i = 0; i < 1000; i++) {
+            UUID owner = i % 2 == 0 ? testUserId : otherUserId;
+            storage.save(new ShortLink("https://expired.example/" + i, "EXP" + i, owner, 10, -1));
+        }
+        for (int i = 0; i < 100; i++) {
+            storage.save(new ShortLink("https://live.example/" + i, "LIVE" + i, testUserId, 10, 24));
+        }
+
+        assertEquals(1100, storage.size());
+        assertEquals(1000, storage.removeExpiredLinks().size());
+
+        assertEquals(100, storage.size());
+        assertEquals(100, storage.getUserLinks(testUserId).size());
+        assertTrue(storage.getUserLinks(otherUserId).isEmpty());
+        assertTrue(storage.findCodeByUrlAndUser("https://expired.example/0", testUserId).isEmpty());
+        assertEquals("LIVE7", storage.findCodeByUrlAndUser("https://live.example/7", testUserId).orElseThrow());
+        assertEquals(100, Arrays.stream(storage.shardSizes()).sum());
+    }
+
+    @Test
+    void testResolveReturnsOutcomeWithoutAllocating() throws Exception {
+        LinkService service = new LinkService(new LinkStorage(4), code -> true);
+        ShortLink link = service.createShortLink("https://example.com/hot", testUserId, Integer.MAX_VALUE);
+        ShortLink limited = service.createShortLink("https://example.com/once", testUserId, 1);
+        RedirectResult result = new RedirectResult();
+
+        assertSame(result, service.resolve(limited.getShortCode(), null, result));
+        assertEquals(RedirectOutcome.OK, result.getOutcome());
+        assertEquals("https://example.com/once", result.getUrl());
+        assertEquals(RedirectOutcome.LIMIT_EXCEEDED, service.resolve(limited.getShortCode(), null, result).getOutcome());
+        assertNull(result.getUrl());
+        assertEquals(RedirectOutcome.NOT_FOUND, service.resolve("missing", null, result).getOutcome());
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        String[] misses = new String[64];
+        for (int i = 0; i < misses.length; i++) {
+            misses[i] = "miss" + i;
+        }
+        String hit = link.getShortCode();
+        String exhausted = limited.getShortCode();
+        for (int i = 0; i < 50_000; i++) {
+            service.resolve(misses[i & 63], null, result);
+            service.resolve(hit, null, result);
+            service.resolve(exhausted, null, result);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10_000; i++) {
+            service.resolve(misses[i & 63], null, result);
+            service.resolve(hit, null, result);
+            service.resolve(exhausted, null, result);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        // Допуск на служебные аллокации самого замера и редкие повороты окон аналитики
+        assertTrue(allocated < 4_096, "resolve выделил " + allocated + " байт на 30000 вызовов");
+    }
+
+    @Test
+    void testResolveBatchPeeksOrCountsClicks() throws Exception {
+        ShortLink first = linkService.createShortLink("https://example.com/batch/1", testUserId, 2);
+        ShortLink second = linkService.createShortLink("https://example.com/batch/2", testUserId, 5);
+        List<String> codes = List.of(second.getShortCode(), "missing1", first.getShortCode());
+
+        List<ResolvedLink> peeked = linkService.resolveBatch(codes, "edge", false);
+        assertEquals(3, peeked.size());
+        assertEquals(second.getShortCode(), peeked.get(0).getCode());
+        assertEquals("https://example.com/batch/2", peeked.get(0).getUrl());
+        assertEquals(5, peeked.get(0).getRemainingClicks());
+        assertTrue(peeked.get(0).getRemainingTtlMillis() > 0);
+        assertEquals(RedirectOutcome.NOT_FOUND, peeked.get(1).getOutcome());
+        assertEquals(0, first.getClicksCount());
+
+        linkService.resolveBatch(codes, "edge", true);
+        List<ResolvedLink> counted = linkService.resolveBatch(codes, "edge", true);
+        assertEquals(RedirectOutcome.OK, counted.get(2).getOutcome());
+        assertEquals(0, counted.get(2).getRemainingClicks());
+        assertEquals(3, counted.get(0).getRemainingClicks());
+
+        // Лимит исчерпан: без учета кликов исход тот же, что у настоящего перехода
+        assertEquals(RedirectOutcome.LIMIT_EXCEEDED, linkService.resolveBatch(codes, "edge", false).get(2).getOutcome());
+    }
+
+    @Test
+    void testWarmupLeavesNoTrace() {
+        LinkMetrics metrics = LinkMetrics.getInstance();
+        long redirects = metrics.getTotalRedirects();
+        long creates = metrics.getCreates();
+        int reserved = ShortCodeGenerator.reservedCount();
+
+        Warmup.run(2_000);
+
+        assertEquals(redirects, metrics.getTotalRedirects());
+        assertEquals(creates, metrics.getCreates());
+        assertEquals(reserved, ShortCodeGenerator.reservedCount());
+        assertEquals(0, storage.size());
+    }
+
+    @Test
+    void testReplicaClicksSkipRedirectAccounting() throws Exception {
+        LinkMetrics metrics = new LinkMetrics();
+        HotLinkTracker hotLinks = new HotLinkTracker(16, 60_000);
+        LinkService service = new LinkService(new LinkStorage(2), code -> true, metrics, hotLinks);
+        ShortLink link = service.createShortLink("https://example.com/replica", testUserId, 2);
+
+        assertEquals(RedirectOutcome.OK, service.recordReplicaClick(link.getShortCode(), 0));
+        assertEquals(RedirectOutcome.OK, service.recordReplicaClick(link.getShortCode(), 0));
+        assertEquals(RedirectOutcome.LIMIT_EXCEEDED, service.recordReplicaClick(link.getShortCode(), 0));
+        assertEquals(RedirectOutcome.NOT_FOUND, service.recordReplicaClick("missing", 0));
+
+        // Лимит соблюден, но переходы уже учтены репликой в ее метриках
+        assertEquals(2, link.getClicksCount());
+        assertFalse(link.isActive());
+        assertEquals(0, metrics.getRedirects(RedirectOutcome.OK));
+        assertEquals(0, hotLinks.estimate(link.getShortCode()));
+    }
+
+    @Test
+    void testConcurrentClickAccountingIsExact() throws Exception {
+        ShortLink link = new ShortLink("https://example.com/atomic", "atomic1", testUserId, 20_000, 24);
+        int[] served = new int[4];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    // Половина потоков - переходы, половина - клики, пришедшие с реплик
+                    if (index % 2 == 0) {
+                        if (link.incrementClicks()) served[index]++;
+                    } else {
+                        link.addClicks(1);
+                        served[index]++;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(20_000, Arrays.stream(served).sum());
+        assertEquals(20_000, link.getClicksCount());
+        // Ссылку, добравшую лимит переходом, деактивирует следующая попытка
+        assertFalse(link.incrementClicks());
+        assertFalse(link.isActive());
+        assertEquals(20_000, link.getClicksCount());
+    }
 }
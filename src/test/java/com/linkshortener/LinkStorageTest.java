@@ -0,0 +1,112 @@
+package com.linkshortener;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.RedirectResult;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.storage.LinkStorage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkStorageTest {
+
+    private static ShortLink expiredLink(String code, UUID owner) {
+        LocalDateTime created = LocalDateTime.now().minusHours(2);
+        return new ShortLink(UUID.randomUUID().toString(), "https://expired.example/" + code, code, owner,
+                10, 0, true, created, created.plusHours(1));
+    }
+
+    @Test
+    void testSweptCodesAnswerExpiredUntilRetentionEnds() {
+        LinkStorage storage = new LinkStorage(4, 60_000);
+        LinkService service = new LinkService(storage, code -> true);
+        UUID owner = UUID.randomUUID();
+        storage.save(expiredLink("gone0001", owner));
+        storage.save(new ShortLink("https://live.example", "live0001", owner, 10, 24));
+
+        assertEquals(1, storage.removeExpiredLinks().size());
+        assertEquals(1, storage.tombstoneCount());
+
+        RedirectResult result = new RedirectResult();
+        assertEquals(RedirectOutcome.EXPIRED, service.resolve("gone0001", "fp", result).getOutcome());
+        assertEquals(RedirectOutcome.NOT_FOUND, service.resolve("never001", "fp", result).getOutcome());
+        assertEquals(RedirectOutcome.OK, service.resolve("live0001", "fp", result).getOutcome());
+
+        // Удаление владельцем надгробия не оставляет
+        assertTrue(storage.remove("live0001", owner));
+        assertEquals(RedirectOutcome.NOT_FOUND, service.resolve("live0001", "fp", result).getOutcome());
+
+        // Перестроение фильтров сохраняет и ссылки, и надгробия
+        storage.rebuildFilters();
+        assertEquals(RedirectOutcome.EXPIRED, service.resolve("gone0001", "fp", result).getOutcome());
+
+        // Код, занятый заново, снова ведет на ссылку
+        storage.save(new ShortLink("https://reused.example", "gone0001", owner, 10, 24));
+        assertEquals(0, storage.tombstoneCount());
+        assertEquals(RedirectOutcome.OK, service.resolve("gone0001", "fp", result).getOutcome());
+    }
+
+    @Test
+    void testDedupIndexFollowsLinkLifecycle() {
+        LinkStorage storage = new LinkStorage(8, 60_000);
+        UUID owner = UUID.randomUUID();
+        for (int i = 0; i < 64; i++) {
+            storage.save(new ShortLink("https://dedup.example/" + i, "dd" + i, owner, 10, 24));
+        }
+        storage.save(expiredLink("ddold", owner));
+        for (int i = 0; i < 64; i++) {
+            assertEquals("dd" + i, storage.findCodeByUrlAndUser("https://dedup.example/" + i, owner).orElse(null));
+        }
+        assertTrue(storage.findCodeByUrlAndUser("https://dedup.example/1", UUID.randomUUID()).isEmpty());
+
+        assertTrue(storage.remove("dd1", owner));
+        assertTrue(storage.findCodeByUrlAndUser("https://dedup.example/1", owner).isEmpty());
+        storage.removeExpiredLinks();
+        assertTrue(storage.findCodeByUrlAndUser("https://expired.example/ddold", owner).isEmpty());
+        assertEquals(63, storage.removeUserLinks(owner).size());
+        assertTrue(storage.findCodeByUrlAndUser("https://dedup.example/2", owner).isEmpty());
+    }
+
+    @Test
+    void testTombstonesAreDroppedAfterRetention() throws Exception {
+        LinkStorage storage = new LinkStorage(1, 80);
+        storage.save(expiredLink("gone0002", UUID.randomUUID()));
+        storage.removeExpiredLinks();
+        assertTrue(storage.isRecentlyExpired("gone0002"));
+
+        Thread.sleep(250);
+        assertFalse(storage.isRecentlyExpired("gone0002"));
+        // Устаревшие срезы отбрасывает только следующий проход очистки
+        assertEquals(1, storage.tombstoneCount());
+        storage.removeExpiredLinks();
+        assertEquals(0, storage.tombstoneCount());
+    }
+
+    @Test
+    void testFilterGrowsWithoutLosingCodes() {
+        LinkStorage storage = new LinkStorage(2, 60_000);
+        UUID owner = UUID.randomUUID();
+        List<String> codes = new ArrayList<>();
+        // Больше начальной емкости фильтра каждого шарда - несколько перестроений
+        for (int i = 0; i < 5_000; i++) {
+            String code = "c" + i;
+            codes.add(code);
+            storage.save(new ShortLink("https://grow.example/" + i, code, owner, 10, 24));
+        }
+        for (String code : codes) {
+            assertNotNull(storage.getByCode(code), code);
+        }
+        for (int i = 0; i < 5_000; i += 2) {
+            storage.remove(codes.get(i), owner);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals(i % 2 == 1, storage.getByCode(codes.get(i)) != null, codes.get(i));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.linkshortener;
+
+import com.linkshortener.core.RedirectResult;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.core.event.BackPressure;
+import com.linkshortener.core.event.LinkEventBus;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.core.service.NotificationService;
+import com.linkshortener.core.service.UserService;
+import com.linkshortener.http.JsonWriter;
+import com.linkshortener.http.ManagementHttpServer;
+import com.linkshortener.metrics.LinkMetrics;
+import com.linkshortener.storage.LinkStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManagementApiTest {
+    private static final Pattern CODE = Pattern.compile("\"code\":\"([^\"]+)\"");
+    private static final Pattern NEXT = Pattern.compile("\"next\":(null|\"(\\d+)\")");
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private LinkService service;
+    private ManagementHttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new LinkService(new LinkStorage(4), code -> true, new LinkMetrics(), new HotLinkTracker(16, 60_000));
+        server = new ManagementHttpServer(0, 2, service, UserService.getInstance());
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, UUID user, String form) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, form == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(form));
+        if (user != null) {
+            request.header("X-User-Id", user.toString());
+        }
+        if (form != null) {
+            request.header("Content-Type", "application/x-www-form-urlencoded");
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private static String code(String json) {
+        Matcher matcher = CODE.matcher(json);
+        assertTrue(matcher.find(), json);
+        return matcher.group(1);
+    }
+
+    @Test
+    void testLinkLifecycle() throws Exception {
+        UUID owner = UUID.randomUUID();
+        UUID stranger = UUID.randomUUID();
+
+        HttpResponse<String> created = send("POST", "/api/links", owner, "url=https%3A%2F%2Fexample.com%2Fa%3Fb%3D1&limit=3");
+        assertEquals(201, created.statusCode(), created.body());
+        assertTrue(created.body().contains("\"url\":\"https://example.com/a?b=1\""), created.body());
+        assertTrue(created.body().contains("\"clickLimit\":3"));
+        String code = code(created.body());
+
+        assertEquals(200, send("GET", "/api/links/" + code, owner, null).statusCode());
+        assertEquals(403, send("GET", "/api/links/" + code, stranger, null).statusCode());
+        assertEquals(401, send("GET", "/api/links/" + code, null, null).statusCode());
+
+        HttpResponse<String> updated = send("PUT", "/api/links/" + code + "?limit=7", owner, null);
+        assertEquals(200, updated.statusCode());
+        assertTrue(updated.body().contains("\"clickLimit\":7"));
+        assertEquals(400, send("PUT", "/api/links/" + code + "?limit=-1", owner, null).statusCode());
+
+        assertEquals(403, send("DELETE", "/api/links/" + code, stranger, null).statusCode());
+        assertEquals(204, send("DELETE", "/api/links/" + code, owner, null).statusCode());
+        HttpResponse<String> missing = send("GET", "/api/links/" + code, owner, null);
+        assertEquals(404, missing.statusCode());
+        assertTrue(missing.body().startsWith("{\"error\":"));
+
+        assertEquals(400, send("POST", "/api/links", owner, "url=not-a-url").statusCode());
+
+        // Пользователь API получает уведомление об исчерпанном лимите
+        LinkEventBus.Subscription notifications = service.getEventBus().subscribe("notifications",
+                BackPressure.BLOCK, NotificationService.getInstance()::onLinkEvent);
+        String limited = code(send("POST", "/api/links", owner, "url=https%3A%2F%2Fexample.com%2Flimited&limit=1").body());
+        RedirectResult result = new RedirectResult();
+        service.resolve(limited, "client", result);
+        service.resolve(limited, "client", result);
+        assertTrue(notifications.drain(10_000));
+        notifications.close();
+
+        HttpResponse<String> inbox = send("GET", "/api/notifications", owner, null);
+        assertEquals(200, inbox.statusCode());
+        assertTrue(inbox.body().contains("Ссылка " + limited + " достигла лимита кликов (1)"), inbox.body());
+    }
+
+    @Test
+    void testPagingCoversAllLinksOnce() throws Exception {
+        UUID owner = UUID.randomUUID();
+        for (int i = 0; i < 250; i++) {
+            service.createShortLink("https://example.com/page/" + i, owner, null);
+        }
+
+        Set<String> paged = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String body = send("GET", "/api/links?limit=100" + (cursor != null ? "&cursor=" + cursor : ""),
+                    owner, null).body();
+            Matcher codes = CODE.matcher(body);
+            while (codes.find()) {
+                assertTrue(paged.add(codes.group(1)), "Ссылка повторилась на другой странице");
+            }
+            Matcher next = NEXT.matcher(body);
+            assertTrue(next.find(), body);
+            cursor = next.group(2);
+            pages++;
+        } while (cursor != null);
+        assertEquals(250, paged.size());
+        assertTrue(pages >= 3);
+
+        Set<String> streamed = new HashSet<>();
+        Matcher codes = CODE.matcher(send("GET", "/api/links?all=true", owner, null).body());
+        while (codes.find()) {
+            streamed.add(codes.group(1));
+        }
+        assertEquals(paged, streamed);
+    }
+
+    @Test
+    void testBatchResolve() throws Exception {
+        UUID owner = UUID.randomUUID();
+        String code = service.createShortLink("https://example.com/edge", owner, 10).getShortCode();
+
+        HttpResponse<String> peek = send("POST", "/api/resolve?count=false", null, code + ",nope0000\n" + code);
+        assertEquals(200, peek.statusCode(), peek.body());
+        assertTrue(peek.body().startsWith("{\"results\":[{\"code\":\"" + code + "\",\"outcome\":\"ok\","
+                + "\"url\":\"https://example.com/edge\""), peek.body());
+        assertTrue(peek.body().contains("{\"code\":\"nope0000\",\"outcome\":\"not_found\"}"));
+        assertTrue(peek.body().contains("\"clicksLeft\":10"));
+
+        HttpResponse<String> counted = send("POST", "/api/resolve?count=true", null, code);
+        assertTrue(counted.body().contains("\"clicksLeft\":9"), counted.body());
+        // Без параметра count переходы тоже учитываются
+        HttpResponse<String> byDefault = send("POST", "/api/resolve", null, code);
+        assertTrue(byDefault.body().contains("\"clicksLeft\":8"), byDefault.body());
+        assertEquals(405, send("GET", "/api/resolve", null, null).statusCode());
+    }
+
+    @Test
+    void testJsonWriterEscaping() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // Крошечный буфер проверяет выгрузку посреди строки
+        try (JsonWriter json = new JsonWriter(out, 4)) {
+            json.beginObject()
+                    .name("text").value("кавычка \" слеш \\ перевод\nстроки 😀")
+                    .name("list").beginArray().value(1).value(true).value((String) null).beginObject().endObject().endArray()
+                    .endObject();
+        }
+        assertEquals("{\"text\":\"кавычка \\\" слеш \\\\ перевод\\u000aстроки 😀\",\"list\":[1,true,null,{}]}",
+                out.toString(StandardCharsets.UTF_8));
+    }
+}
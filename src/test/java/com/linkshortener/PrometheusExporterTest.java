@@ -0,0 +1,50 @@
+package com.linkshortener;
+
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.metrics.MetricsHttpServer;
+import com.linkshortener.storage.LinkStorage;
+import org.junit.jupiter.api.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrometheusExporterTest {
+    private MetricsHttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        LinkStorage.getInstance().clear();
+        server = new MetricsHttpServer(0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+        LinkStorage.getInstance().clear();
+    }
+
+    @Test
+    void testMetricsEndpointRendersRedirectHistogram() throws Exception {
+        LinkService linkService = LinkService.getInstance();
+        ShortLink link = linkService.createShortLink("https://example.com", UUID.randomUUID(), 5);
+        linkService.getOriginalUrl(link.getShortCode());
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+            HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/metrics")).build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        String body = response.body();
+        assertTrue(body.contains("# TYPE linkshortener_redirect_duration_seconds histogram"));
+        assertTrue(body.contains("linkshortener_redirect_duration_seconds_bucket{outcome=\"ok\",le=\"+Inf\"}"));
+        assertTrue(body.contains("linkshortener_links 1"));
+
+    }
+}
@@ -0,0 +1,96 @@
+package com.linkshortener;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.ResolvedLink;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.exception.RateLimitExceededException;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.core.service.RateLimiter;
+import com.linkshortener.storage.LinkStorage;
+import com.linkshortener.util.TokenBuckets;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void testBucketRefillsAtConfiguredRate() {
+        TokenBuckets<String> buckets = new TokenBuckets<>(10, 5);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buckets.tryAcquire("a", 0));
+        }
+        assertFalse(buckets.tryAcquire("a", 0));
+        // Другой ключ - отдельное ведро
+        assertTrue(buckets.tryAcquire("b", 0));
+
+        // 10 токенов в секунду: за 250 мс набегает 2,5 токена
+        assertTrue(buckets.tryAcquire("a", 250));
+        assertTrue(buckets.tryAcquire("a", 250));
+        assertFalse(buckets.tryAcquire("a", 250));
+        // Дробная половина токена не теряется
+        assertTrue(buckets.tryAcquire("a", 300));
+    }
+
+    @Test
+    void testFullBucketsAreEvicted() {
+        TokenBuckets<String> buckets = new TokenBuckets<>(1000, 1);
+        assertTrue(buckets.tryAcquire("a"));
+        assertEquals(1, buckets.size());
+
+        // Через 1 мс ведро снова полное и не отличается от отсутствующего
+        long deadline = System.currentTimeMillis() + 1_000;
+        while (buckets.evictIdle() == 0) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.onSpinWait();
+        }
+        assertEquals(0, buckets.size());
+        assertTrue(buckets.tryAcquire("a"));
+    }
+
+    @Test
+    void testServiceRejectsBursts() throws Exception {
+        LinkStorage storage = new LinkStorage(4);
+        LinkService service = new LinkService(storage, code -> true);
+        // Пополнение 1 токен в секунду - за время теста почти не набегает
+        service.setRateLimiter(new RateLimiter(1, 3, 1, 2, 0, 0));
+
+        UUID user = UUID.randomUUID();
+        ShortLink link = service.createShortLink("https://rate.example/0", user, 100);
+        service.createShortLink("https://rate.example/1", user, 100);
+        service.createShortLink("https://rate.example/2", user, 100);
+        assertThrows(RateLimitExceededException.class,
+                () -> service.createShortLink("https://rate.example/3", user, 100));
+        // Другой пользователь не страдает
+        service.createShortLink("https://rate.example/3", UUID.randomUUID(), 100);
+
+        assertEquals("https://rate.example/0", service.getOriginalUrl(link.getShortCode(), "scanner"));
+        service.getOriginalUrl(link.getShortCode(), "scanner");
+        assertThrows(RateLimitExceededException.class, () -> service.getOriginalUrl("missing", "scanner"));
+        assertEquals("https://rate.example/0", service.getOriginalUrl(link.getShortCode(), "browser"));
+        assertEquals(3, link.getClicksCount());
+    }
+
+    @Test
+    void testBatchChargesClientPerCode() throws Exception {
+        LinkService service = new LinkService(new LinkStorage(4), code -> true);
+        service.setRateLimiter(new RateLimiter(1, 10, 1, 2, 0, 0));
+        UUID user = UUID.randomUUID();
+        List<String> codes = List.of(
+                service.createShortLink("https://rate.example/batch/0", user, 100).getShortCode(),
+                service.createShortLink("https://rate.example/batch/1", user, 100).getShortCode(),
+                service.createShortLink("https://rate.example/batch/2", user, 100).getShortCode());
+
+        // И чтение пачки, и учет переходов расходуют токен на каждый код
+        List<ResolvedLink> peeked = service.resolveBatch(codes, "edge", false);
+        assertEquals(RedirectOutcome.OK, peeked.get(1).getOutcome());
+        assertEquals(RedirectOutcome.RATE_LIMITED, peeked.get(2).getOutcome());
+        List<ResolvedLink> counted = service.resolveBatch(codes, "bot", true);
+        assertEquals(RedirectOutcome.OK, counted.get(1).getOutcome());
+        assertEquals(RedirectOutcome.RATE_LIMITED, counted.get(2).getOutcome());
+    }
+}
@@ -0,0 +1,103 @@
+package com.linkshortener;
+
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.analytics.HotLinkTracker;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.http.RedirectResponseCache;
+import com.linkshortener.http.RedirectServer;
+import com.linkshortener.metrics.LinkMetrics;
+import com.linkshortener.storage.LinkStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedirectServerTest {
+    private LinkService service;
+    private RedirectServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        HotLinkTracker hotLinks = new HotLinkTracker(16, 60_000);
+        service = new LinkService(new LinkStorage(2), code -> true, new LinkMetrics(), hotLinks);
+        // Буфер появляется после трех переходов по ссылке
+        server = new RedirectServer(0, service, new RedirectResponseCache(hotLinks, 1 << 20, 3, true));
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    /**
+     * Отправляет запросы одной пачкой и читает ответы до закрытия соединения.
+     */
+    private String exchange(String requests) throws Exception {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(requests.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            in.transferTo(response);
+            return response.toString(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static String get(String path, boolean close) {
+        return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n" + (close ? "Connection: close\r\n" : "") + "\r\n";
+    }
+
+    @Test
+    void testPipelinedRedirectsUseCachedHeaders() throws Exception {
+        UUID owner = UUID.randomUUID();
+        ShortLink link = service.createShortLink("https://example.com/путь?q=1", owner, 100);
+        String code = link.getShortCode();
+
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            requests.append(get("/" + code, false));
+        }
+        requests.append(get("/missing", true));
+        String response = exchange(requests.toString());
+
+        String location = "Location: https://example.com/%D0%BF%D1%83%D1%82%D1%8C?q=1\r\n";
+        assertEquals(5, response.split("HTTP/1.1 302 Found\r\n" + location.replace("?", "\\?"), -1).length - 1);
+        assertTrue(response.endsWith("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"));
+        assertEquals(5, link.getClicksCount());
+
+        RedirectResponseCache cache = server.getCache();
+        assertEquals(1, cache.size());
+        assertTrue(cache.getHits() >= 2, "hits=" + cache.getHits());
+
+        // Удаленная ссылка теряет буфер и отвечает 404
+        assertTrue(service.deleteLink(code, owner));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getUsedBytes());
+        assertTrue(exchange(get("/" + code, true)).startsWith("HTTP/1.1 404 Not Found\r\n"));
+    }
+
+    @Test
+    void testExhaustedLinkIsGoneAndUncached() throws Exception {
+        ShortLink link = service.createShortLink("https://example.com/limited", UUID.randomUUID(), 4);
+        String code = link.getShortCode();
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            requests.append(get("/" + code, i == 4));
+        }
+        String response = exchange(requests.toString());
+
+        assertEquals(4, response.split("302 Found", -1).length - 1);
+        assertTrue(response.contains("HTTP/1.1 410 Gone\r\n"));
+        assertEquals(0, server.getCache().size());
+    }
+}
@@ -0,0 +1,191 @@
+package com.linkshortener;
+
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.exception.LimitExceededException;
+import com.linkshortener.core.exception.LinkExpiredException;
+import com.linkshortener.core.exception.LinkNotFoundException;
+import com.linkshortener.core.service.LinkService;
+import com.linkshortener.replication.ReplicaNode;
+import com.linkshortener.replication.ReplicationLeader;
+import com.linkshortener.storage.LinkStorage;
+import org.junit.jupiter.api.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationTest {
+    private LinkStorage leaderStorage;
+    private LinkService leaderService;
+    private ReplicationLeader leader;
+    private ReplicaNode replica;
+    private ReplicaNode secondReplica;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        leaderStorage = new LinkStorage(4);
+        leaderService = new LinkService(leaderStorage, code -> true);
+        leader = new ReplicationLeader(leaderService, leaderStorage);
+        leader.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (replica != null) replica.close();
+        if (secondReplica != null) secondReplica.close();
+        leader.close();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "условие не выполнилось за 5 секунд");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testReplicaCatchesUpFromSnapshotAndLog() throws Exception {
+        UUID owner = UUID.randomUUID();
+        ShortLink before = leaderService.createShortLink("https://replica.example/before", owner, 10);
+
+        replica = new ReplicaNode(leader.getAddress());
+        replica.start();
+        await(() -> replica.isConnected() && replica.getLinkCount() == 1);
+
+        ShortLink after = leaderService.createShortLink("https://replica.example/after", owner, 10);
+        await(() -> replica.getAppliedSequence() == leader.getLastSequence() && replica.getLinkCount() == 2);
+        assertEquals(0, replica.getReplicationLagEntries());
+
+        assertEquals("https://replica.example/before", replica.getOriginalUrl(before.getShortCode()));
+        assertEquals("https://replica.example/after", replica.getOriginalUrl(after.getShortCode()));
+
+        leaderService.deleteLink(after.getShortCode(), owner);
+        await(() -> replica.getLinkCount() == 1);
+        assertThrows(LinkNotFoundException.class, () -> replica.getOriginalUrl(after.getShortCode()));
+    }
+
+    @Test
+    void testClicksForwardedToLeaderEnforceLimit() throws Exception {
+        replica = new ReplicaNode(leader.getAddress());
+        replica.start();
+        await(replica::isConnected);
+
+        ShortLink link = leaderService.createShortLink("https://replica.example/limited", UUID.randomUUID(), 3);
+        await(() -> replica.getLinkCount() == 1);
+
+        for (int i = 0; i < 3; i++) {
+            replica.getOriginalUrl(link.getShortCode());
+        }
+        await(() -> link.getClicksCount() == 3);
+
+        // Переход на ведущем исчерпывает лимит, реплика узнает об этом из журнала
+        assertThrows(LimitExceededException.class, () -> leaderService.getOriginalUrl(link.getShortCode()));
+        await(() -> replica.getAppliedSequence() == leader.getLastSequence());
+        assertThrows(LimitExceededException.class, () -> replica.getOriginalUrl(link.getShortCode()));
+        assertEquals(0, replica.getDroppedClicks());
+    }
+
+    @Test
+    void testLeasedBudgetEnforcesLimitExactly() throws Exception {
+        int limit = 300;
+        leader.enableClickLeases(1_000, 50, 0);
+        replica = new ReplicaNode(leader.getAddress());
+        secondReplica = new ReplicaNode(leader.getAddress());
+        replica.enableClickLeases(1_000, 50);
+        secondReplica.enableClickLeases(1_000, 50);
+        replica.start();
+        secondReplica.start();
+
+        ShortLink link = leaderService.createShortLink("https://replica.example/leased", UUID.randomUUID(), limit);
+        await(() -> replica.getLinkCount() == 1 && secondReplica.getLinkCount() == 1);
+
+        // Две реплики и сам ведущий обслуживают переходы одновременно
+        AtomicInteger served = new AtomicInteger();
+        long deadline = System.currentTimeMillis() + 5_000;
+        Thread[] threads = {
+                clicker(() -> replica.getOriginalUrl(link.getShortCode()), served, limit, deadline),
+                clicker(() -> secondReplica.getOriginalUrl(link.getShortCode()), served, limit, deadline),
+                clicker(() -> leaderService.getOriginalUrl(link.getShortCode()), served, limit, deadline)
+        };
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(limit, served.get());
+        assertThrows(LimitExceededException.class, () -> replica.getOriginalUrl(link.getShortCode()));
+        assertTrue(replica.getLeaseRequests() + secondReplica.getLeaseRequests() < limit / 4,
+                "порции должны покрывать много переходов за один запрос");
+
+        // После возврата аренд ведущий знает точное число переходов
+        replica.close();
+        secondReplica.close();
+        await(() -> link.getClicksCount() == limit);
+        // Последний переход в пределах лимита ссылку не выключает - это делает следующий
+        assertThrows(LimitExceededException.class, () -> leaderService.getOriginalUrl(link.getShortCode()));
+        assertFalse(link.isActive());
+        assertEquals(0, leader.getBudgetAuthority().getOutstandingClicks());
+    }
+
+    @Test
+    void testIdleLedgerIsEvictedAndRebuiltFromLink() throws Exception {
+        leader.enableClickLeases(100, 10, 0);
+        ShortLink link = leaderService.createShortLink("https://replica.example/idle", UUID.randomUUID(), 5);
+        for (int i = 0; i < 3; i++) {
+            leaderService.getOriginalUrl(link.getShortCode());
+        }
+        assertEquals(1, leader.getBudgetAuthority().getLedgerCount());
+
+        // Активная ссылка без аренд не держит книгу в памяти
+        await(() -> leader.getBudgetAuthority().getLedgerCount() == 0);
+        leaderService.getOriginalUrl(link.getShortCode());
+        leaderService.getOriginalUrl(link.getShortCode());
+        assertThrows(LimitExceededException.class, () -> leaderService.getOriginalUrl(link.getShortCode()));
+        assertEquals(5, link.getClicksCount());
+    }
+
+    @Test
+    void testCodesSweptOnLeaderAnswerExpiredOnReplica() throws Exception {
+        UUID owner = UUID.randomUUID();
+        LocalDateTime created = LocalDateTime.now().minusHours(2);
+        leaderStorage.save(new ShortLink(UUID.randomUUID().toString(), "https://replica.example/old", "swept001",
+                owner, 10, 0, true, created, created.plusHours(1)));
+        leaderService.cleanupExpiredLinks();
+        leaderStorage.save(new ShortLink(UUID.randomUUID().toString(), "https://replica.example/late", "swept002",
+                owner, 10, 0, true, created, created.plusHours(1)));
+
+        // Надгробие ведущего приходит в снимке
+        replica = new ReplicaNode(leader.getAddress());
+        replica.start();
+        await(() -> replica.isConnected() && replica.getLinkCount() == 1);
+        assertThrows(LinkExpiredException.class, () -> replica.getOriginalUrl("swept001"));
+
+        // А очистка после снимка - записью журнала
+        leaderService.cleanupExpiredLinks();
+        await(() -> replica.getLinkCount() == 0);
+        assertThrows(LinkExpiredException.class, () -> replica.getOriginalUrl("swept002"));
+        assertThrows(LinkNotFoundException.class, () -> replica.getOriginalUrl("never001"));
+    }
+
+    private interface Redirect {
+        String run() throws Exception;
+    }
+
+    private static Thread clicker(Redirect redirect, AtomicInteger served, int limit, long deadline) {
+        return new Thread(() -> {
+            while (served.get() < limit && System.currentTimeMillis() < deadline) {
+                try {
+                    redirect.run();
+                    served.incrementAndGet();
+                } catch (LimitExceededException e) {
+                    // Остаток бюджета сейчас в аренде у другого узла
+                    Thread.onSpinWait();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,123 @@
+package com.linkshortener;
+
+import com.linkshortener.core.RedirectOutcome;
+import com.linkshortener.core.ShortLink;
+import com.linkshortener.core.event.BackPressure;
+import com.linkshortener.core.event.LinkEventBus;
+import com.linkshortener.core.service.ThreadPerShardEngine;
+import com.linkshortener.util.SpscQueue;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadPerShardEngineTest {
+    private ThreadPerShardEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ThreadPerShardEngine(4, 8);
+        engine.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void testSpscQueueKeepsOrder() throws Exception {
+        SpscQueue<Integer> queue = new SpscQueue<>(16);
+        int total = 100_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                while (!queue.offer(i)) {
+                    Thread.onSpinWait();
+                }
+            }
+        });
+        producer.start();
+
+        int expected = 0;
+        while (expected < total) {
+            Integer value = queue.poll();
+            if (value != null) {
+                assertEquals(expected++, value);
+            }
+        }
+        producer.join();
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void testCreateResolveAndLimit() throws Exception {
+        ThreadPerShardEngine.Client client = engine.newClient();
+        UUID owner = UUID.randomUUID();
+
+        ShortLink link = client.create("https://example.com", owner, 2);
+        assertSame(link, client.create("https://example.com", owner, 2));
+
+        assertEquals(RedirectOutcome.OK, client.resolve(link.getShortCode()));
+        assertEquals("https://example.com", client.getResolvedUrl());
+        assertEquals(RedirectOutcome.OK, client.resolve(link.getShortCode()));
+        assertEquals(RedirectOutcome.LIMIT_EXCEEDED, client.resolve(link.getShortCode()));
+        assertNull(client.getResolvedUrl());
+        assertEquals(RedirectOutcome.NOT_FOUND, client.resolve("NONEXISTENT"));
+
+        assertFalse(client.delete(link.getShortCode(), UUID.randomUUID()));
+        assertTrue(client.delete(link.getShortCode(), owner));
+        assertEquals(RedirectOutcome.NOT_FOUND, client.resolve(link.getShortCode()));
+    }
+
+    @Test
+    void testConcurrentClientsRespectClickLimit() throws Exception {
+        ThreadPerShardEngine.Client setup = engine.newClient();
+        ShortLink link = setup.create("https://example.com/limited", UUID.randomUUID(), 1000);
+
+        AtomicInteger ok = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            ThreadPerShardEngine.Client client = engine.newClient();
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (client.resolve(link.getShortCode()) == RedirectOutcome.OK) {
+                        ok.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Счетчик кликов меняет только владелец шарда, поэтому лимит точный
+        assertEquals(1000, ok.get());
+        assertEquals(1000, link.getClicksCount());
+        assertEquals(1, setup.size());
+        assertEquals(0, setup.cleanupExpired());
+    }
+
+    @Test
+    void testLimitReachedIsPublishedOnce() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        LinkEventBus.Subscription subscription = engine.getEventBus().subscribe("test", BackPressure.BLOCK,
+                (event, sequence, end) -> events.add(event.getType() + ":" + event.getValue()));
+        ThreadPerShardEngine.Client client = engine.newClient();
+        ShortLink link = client.create("https://example.com/once", UUID.randomUUID(), 1);
+
+        assertEquals(RedirectOutcome.OK, client.resolve(link.getShortCode()));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(RedirectOutcome.LIMIT_EXCEEDED, client.resolve(link.getShortCode()));
+        }
+        assertTrue(subscription.drain(10_000));
+        subscription.close();
+
+        // Повторные обращения к неактивной ссылке не уведомляют владельца
+        assertEquals(List.of("LIMIT_REACHED:1"), events);
+    }
+}